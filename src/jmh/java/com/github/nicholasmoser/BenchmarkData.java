@@ -0,0 +1,181 @@
+package com.github.nicholasmoser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Input data for the benchmarks. The synthetic data imitates the entropy of the two most common
+ * kinds of files in GNT4 and is the same for every run. Real game files can be used instead when
+ * an uncompressed GNT4 directory is available.
+ */
+public class BenchmarkData {
+
+  // The number of bytes processed by each benchmark operation.
+  public static final int MIB = 1024 * 1024;
+
+  // The system property of the directory of real game files.
+  private static final String FILES_PROPERTY = "gntool.benchmark.files";
+
+  // The default directory of real game files, created by the tests.
+  private static final String DEFAULT_FILES = "src/test/gnt/gnt4/uncompressed";
+
+  /**
+   * Returns the input data with the given name. The names are:
+   * <ul>
+   *   <li>seq: Synthetic seq-like bytecode.</li>
+   *   <li>tpl: Synthetic tpl-like texture data.</li>
+   *   <li>real-seq: The concatenated seq files of the game.</li>
+   *   <li>real-tpl: The concatenated tpl files of the game.</li>
+   * </ul>
+   *
+   * @param name The name of the data.
+   * @param size The number of bytes.
+   * @return The data.
+   * @throws IOException If an I/O error occurs reading real files.
+   */
+  public static byte[] get(String name, int size) throws IOException {
+    return switch (name) {
+      case "seq" -> seq(size);
+      case "tpl" -> tpl(size);
+      case "real-seq" -> real(".seq", size);
+      case "real-tpl" -> real(".tpl", size);
+      default -> throw new IllegalArgumentException("Unknown benchmark data: " + name);
+    };
+  }
+
+  /**
+   * Creates seq-like bytecode. Seq files are streams of 32-bit big-endian instructions drawn from a
+   * small set of opcodes, where most instructions repeat with the same or nearly the same operands
+   * and whole blocks of instructions are repeated for each character action.
+   *
+   * @param size The number of bytes.
+   * @return The bytes.
+   */
+  public static byte[] seq(int size) {
+    Random random = new Random(0x5E0);
+    int[][] instructions = new int[64][];
+    for (int i = 0; i < instructions.length; i++) {
+      int[] words = new int[1 + random.nextInt(4)];
+      words[0] = (random.nextInt(0x40) << 24) | (random.nextInt(0x40) << 16)
+          | random.nextInt(0x100);
+      for (int j = 1; j < words.length; j++) {
+        words[j] = random.nextBoolean() ? random.nextInt(0x100) : 0x3F000000 | random.nextInt(0x100);
+      }
+      instructions[i] = words;
+    }
+    byte[] bytes = new byte[size];
+    int position = 0;
+    while (position < size) {
+      if (position > 4096 && random.nextInt(8) == 0) {
+        // Repeat a previous block of instructions
+        int length = Math.min(4 * (8 + random.nextInt(56)), size - position);
+        int start = (position - 4096 + random.nextInt(4096 - length)) & ~3;
+        System.arraycopy(bytes, start, bytes, position, length);
+        position += length;
+        continue;
+      }
+      // Frequent instructions are more likely to be chosen
+      int[] words = instructions[(int) (instructions.length * Math.pow(random.nextDouble(), 3))];
+      for (int i = 0; i < words.length && position < size; i++, position += 4) {
+        int word = words[i];
+        if (i > 0 && random.nextInt(4) == 0) {
+          word += random.nextInt(16);
+        }
+        for (int j = 0; j < 4 && position + j < size; j++) {
+          bytes[position + j] = (byte) (word >>> (24 - j * 8));
+        }
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Creates tpl-like texture data. Half of the data is CMPR blocks, which have two smoothly changing
+   * RGB565 colors followed by nearly random 2-bit indices, and half is RGB5A3 pixels of a noisy
+   * gradient.
+   *
+   * @param size The number of bytes.
+   * @return The bytes.
+   */
+  public static byte[] tpl(int size) {
+    Random random = new Random(0x7B1);
+    byte[] bytes = new byte[size];
+    int half = (size / 2) & ~7;
+    double red = 16;
+    double green = 32;
+    double blue = 16;
+    for (int position = 0; position < half; position += 8) {
+      red = Math.floorMod((int) (red + random.nextGaussian()), 32);
+      green = Math.floorMod((int) (green + random.nextGaussian() * 2), 64);
+      blue = Math.floorMod((int) (blue + random.nextGaussian()), 32);
+      int color0 = ((int) red << 11) | ((int) green << 5) | (int) blue;
+      int color1 = Math.max(0, color0 - 0x0841 * (1 + random.nextInt(4)));
+      bytes[position] = (byte) (color0 >> 8);
+      bytes[position + 1] = (byte) color0;
+      bytes[position + 2] = (byte) (color1 >> 8);
+      bytes[position + 3] = (byte) color1;
+      for (int i = 4; i < 8; i++) {
+        bytes[position + i] = (byte) random.nextInt(0x100);
+      }
+    }
+    for (int position = half; position + 1 < size; position += 2) {
+      int x = (position / 2) % 256;
+      int y = (position / 512) % 256;
+      int r = Math.min(31, (x >> 3) + random.nextInt(2));
+      int g = Math.min(31, (y >> 3) + random.nextInt(2));
+      int b = Math.min(31, ((x + y) >> 4) + random.nextInt(2));
+      int pixel = 0x8000 | (r << 10) | (g << 5) | b;
+      bytes[position] = (byte) (pixel >> 8);
+      bytes[position + 1] = (byte) pixel;
+    }
+    return bytes;
+  }
+
+  /**
+   * Concatenates the real game files with the given extension, repeating them if they are smaller
+   * than the size.
+   *
+   * @param extension The file extension.
+   * @param size      The number of bytes.
+   * @return The bytes.
+   * @throws IOException If an I/O error occurs or there are no files with the extension.
+   */
+  private static byte[] real(String extension, int size) throws IOException {
+    Path directory = Paths.get(System.getProperty(FILES_PROPERTY, DEFAULT_FILES));
+    if (!Files.isDirectory(directory)) {
+      throw new IOException(String.format(
+          "%s is not a directory, set the %s system property to an uncompressed GNT4 directory",
+          directory, FILES_PROPERTY));
+    }
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(directory)) {
+      files = paths.filter(Files::isRegularFile)
+          .filter(path -> path.toString().toLowerCase().endsWith(extension))
+          .sorted()
+          .toList();
+    }
+    byte[] bytes = new byte[size];
+    int position = 0;
+    while (position < size) {
+      int previous = position;
+      for (Path file : files) {
+        byte[] fileBytes = Files.readAllBytes(file);
+        int length = Math.min(fileBytes.length, size - position);
+        System.arraycopy(fileBytes, 0, bytes, position, length);
+        position += length;
+        if (position == size) {
+          break;
+        }
+      }
+      if (position == previous) {
+        throw new IOException(String.format("No %s files with data in %s", extension, directory));
+      }
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,104 @@
+package com.github.nicholasmoser;
+
+import com.github.nicholasmoser.fpk.FPKOptions;
+import com.github.nicholasmoser.gnt4.GNT4FileNames;
+import com.github.nicholasmoser.workspace.WorkspaceFile;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks repacking an FPK of 16 compressed children in a temporary directory. Each operation
+ * repacks 1 MiB of children, so the throughput in ops/s is MiB/s. Without the PRS compression
+ * cache, each child is compressed again in every operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FPKBenchmark {
+
+  // The path of the FPK in the workspace.
+  private static final String FPK_PATH = "files/fpack/cmn.fpk";
+
+  // The number of children in the FPK.
+  private static final int CHILDREN = 16;
+
+  @Param({"seq", "tpl"})
+  public String data;
+
+  @Param({"false", "true"})
+  public boolean cached;
+
+  private Path directory;
+
+  private List<WorkspaceFile> files;
+
+  private FPKPacker packer;
+
+  /**
+   * Creates the temporary directories and writes the uncompressed children.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Setup(Level.Trial)
+  public void setupTrial() throws IOException {
+    directory = Files.createTempDirectory("FPKBenchmark");
+    Path compressed = directory.resolve("compressed");
+    Path uncompressed = directory.resolve("uncompressed");
+    byte[] input = BenchmarkData.get(data, BenchmarkData.MIB);
+    int childSize = input.length / CHILDREN;
+    files = new ArrayList<>(CHILDREN);
+    for (int i = 0; i < CHILDREN; i++) {
+      String filePath = String.format("files/cmn/%04d.dat", i);
+      Path child = uncompressed.resolve(filePath);
+      Files.createDirectories(child.getParent());
+      Files.write(child, Arrays.copyOfRange(input, i * childSize, (i + 1) * childSize));
+      files.add(new WorkspaceFile(filePath, 0, 0, FPK_PATH, true));
+    }
+    PRSCache cache = cached ? new PRSCache(directory.resolve(PRSCache.DIRECTORY_NAME),
+        PRSCache.DEFAULT_MAX_SIZE) : null;
+    FPKOptions options = new FPKOptions(false, true, new GNT4FileNames());
+    packer = new FPKPacker(compressed, uncompressed, options, PRSCompressor.Level.GREEDY, cache);
+  }
+
+  /**
+   * Deletes the temporary directories.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  /**
+   * @return The path of the repacked FPK.
+   * @throws IOException If an I/O error occurs.
+   */
+  @Benchmark
+  public Path repackFPK() throws IOException {
+    return packer.repackFPK(FPK_PATH, files);
+  }
+}
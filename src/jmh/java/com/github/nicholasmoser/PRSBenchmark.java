@@ -0,0 +1,103 @@
+package com.github.nicholasmoser;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks Eighting PRS compression and uncompression. Each operation processes 1 MiB of input,
+ * so the throughput in ops/s is MiB/s. The compression benchmarks also report the compression
+ * ratio of each level as the secondary result {@code ratio}, the compressed size divided by the
+ * uncompressed size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PRSBenchmark {
+
+  @Param({"seq", "tpl"})
+  public String data;
+
+  @Param({"GREEDY", "LAZY", "OPTIMAL"})
+  public PRSCompressor.Level level;
+
+  private byte[] input;
+
+  private byte[] compressed;
+
+  private byte[] output;
+
+  /**
+   * Creates the input and compresses it once for the uncompression benchmarks.
+   *
+   * @throws IOException If an I/O error occurs reading real files.
+   */
+  @Setup
+  public void setup() throws IOException {
+    input = BenchmarkData.get(data, BenchmarkData.MIB);
+    compressed = new PRSCompressor(input, level).compress();
+    output = new byte[input.length];
+  }
+
+  /**
+   * The compression ratio of the last compression, reported next to the throughput.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Ratio {
+
+    public double ratio;
+  }
+
+  /**
+   * @param ratio The compression ratio to report.
+   * @return The compressed bytes.
+   */
+  @Benchmark
+  public byte[] compress(Ratio ratio) {
+    byte[] output = new PRSCompressor(input, level).compress();
+    ratio.ratio = (double) output.length / input.length;
+    return output;
+  }
+
+  /**
+   * @param ratio The compression ratio to report.
+   * @return The compressed bytes.
+   */
+  @Benchmark
+  public byte[] compressParallel(Ratio ratio) {
+    byte[] output = new PRSCompressor(input, level).compressParallel();
+    ratio.ratio = (double) output.length / input.length;
+    return output;
+  }
+
+  /**
+   * @return The uncompressed bytes.
+   */
+  @Benchmark
+  public byte[] uncompress() {
+    return new PRSUncompressor(compressed, input.length).uncompress();
+  }
+
+  /**
+   * @return The number of uncompressed bytes written to the reused output array.
+   */
+  @Benchmark
+  public int uncompressIntoBuffer() {
+    return PRSUncompressor.uncompress(compressed, 0, compressed.length, output, 0, output.length);
+  }
+}
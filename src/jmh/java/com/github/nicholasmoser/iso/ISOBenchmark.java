@@ -0,0 +1,98 @@
+package com.github.nicholasmoser.iso;
+
+import com.github.nicholasmoser.BenchmarkData;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks creating an ISO from a temporary directory of 64 game files. Each invocation writes
+ * 16 MiB of game files and counts as 16 operations, so the throughput in ops/s is MiB/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ISOBenchmark {
+
+  // The number of MiB of game files in the ISO.
+  private static final int MIBS = 16;
+
+  // The number of game files in the ISO.
+  private static final int FILES = 64;
+
+  @Param({"seq", "tpl"})
+  public String data;
+
+  private Path directory;
+
+  private Path inputDirectory;
+
+  private Path iso;
+
+  /**
+   * Creates the sys files and game files to create the ISO from.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Setup
+  public void setup() throws IOException {
+    directory = Files.createTempDirectory("ISOBenchmark");
+    inputDirectory = directory.resolve("input");
+    iso = directory.resolve("game.iso");
+    Path sys = inputDirectory.resolve("sys");
+    Files.createDirectories(sys);
+    Files.write(sys.resolve("boot.bin"), new byte[ISO.BOOT_BIN_LEN]);
+    Files.write(sys.resolve("bi2.bin"), new byte[ISO.BI_2_LEN]);
+    Files.write(sys.resolve("apploader.img"), new byte[0x2000]);
+    Files.write(sys.resolve("main.dol"), new byte[0x100000]);
+    Files.write(sys.resolve("fst.bin"), new byte[0]);
+    byte[] input = BenchmarkData.get(data, MIBS * BenchmarkData.MIB);
+    int fileSize = input.length / FILES;
+    for (int i = 0; i < FILES; i++) {
+      Path file = inputDirectory.resolve(String.format("files/dir%d/%04d.dat", i % 4, i));
+      Files.createDirectories(file.getParent());
+      Files.write(file, Arrays.copyOfRange(input, i * fileSize, (i + 1) * fileSize));
+    }
+  }
+
+  /**
+   * Deletes the input directory and ISO.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  /**
+   * Creates the ISO.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Benchmark
+  @OperationsPerInvocation(MIBS)
+  public void create() throws IOException {
+    new ISOCreator(inputDirectory, iso).create(false);
+  }
+}
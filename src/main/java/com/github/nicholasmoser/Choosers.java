@@ -211,7 +211,10 @@ public class Choosers {
     fileChooser.setTitle("Create Output ISO File");
     fileChooser.setInitialDirectory(initialDirectory);
     ExtensionFilter fileExtensions = new FileChooser.ExtensionFilter("ISO Image (*.iso)", "*.iso");
-    fileChooser.getExtensionFilters().add(fileExtensions);
+    ExtensionFilter cisoExtensions = new FileChooser.ExtensionFilter("CISO Image (*.ciso)",
+        "*.ciso");
+    ExtensionFilter gczExtensions = new FileChooser.ExtensionFilter("GCZ Image (*.gcz)", "*.gcz");
+    fileChooser.getExtensionFilters().addAll(fileExtensions, cisoExtensions, gczExtensions);
     File selection = fileChooser.showSaveDialog(null);
 
     return selection != null ? Optional.of(selection.toPath()) : Optional.empty();
@@ -379,6 +382,23 @@ public class Choosers {
     return selection != null ? Optional.of(selection.toPath()) : Optional.empty();
   }
 
+  /**
+   * Asks the user to select an input file-access trace.
+   *
+   * @param initialDirectory The location to set the directory chooser to start at.
+   * @return An optional access trace file. Empty if none is chosen.
+   */
+  public static Optional<Path> getAccessTrace(File initialDirectory) {
+    FileChooser fileChooser = new FileChooser();
+    fileChooser.setTitle("Select File Access Trace");
+    fileChooser.setInitialDirectory(initialDirectory);
+    ExtensionFilter fileExtensions = new FileChooser.ExtensionFilter("Access Trace (*.txt, *.log)",
+        "*.txt", "*.log");
+    fileChooser.getExtensionFilters().add(fileExtensions);
+    File selection = fileChooser.showOpenDialog(null);
+    return selection != null ? Optional.of(selection.toPath()) : Optional.empty();
+  }
+
   /**
    * Asks the user to select an output TXT file.
    *
@@ -1,6 +1,8 @@
 package com.github.nicholasmoser;
 
+import com.github.nicholasmoser.utils.ProgressListener;
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Extracts an ISO into a GNT Workspace. You must call extractISO() before unpackFPKs() This
@@ -8,6 +10,16 @@ import java.io.IOException;
  */
 public interface Extractor {
 
+  /**
+   * Verifies the ISO against a known good dump of the game in a single pass, so that a bad or
+   * modified ISO is found before anything is extracted.
+   *
+   * @param listener The listener to report the progress of the verification to.
+   * @return A summary of how the ISO differs from a known good dump, or empty if it matches.
+   * @throws IOException If there is an I/O related exception or the ISO is not a GameCube ISO.
+   */
+  Optional<String> verifyISO(ProgressListener listener) throws IOException;
+
   /**
    * Extracts the ISO to the extraction path.
    *
@@ -21,7 +33,19 @@ public interface Extractor {
    * @return The Workspace of decompressed game files.
    * @throws IOException If there is an I/O related exception.
    */
-  Workspace unpackFPKs() throws IOException;
+  default Workspace unpackFPKs() throws IOException {
+    return unpackFPKs(ProgressListener.NONE);
+  }
+
+  /**
+   * Unpacks FPK files at the extraction path and returned a Workspace, reporting the progress of
+   * the unpacking to the given listener.
+   *
+   * @param listener The listener to report the progress of the unpacking to.
+   * @return The Workspace of decompressed game files.
+   * @throws IOException If there is an I/O related exception.
+   */
+  Workspace unpackFPKs(ProgressListener listener) throws IOException;
 
   /**
    * @return The path of the ISO this extractor is extracting.
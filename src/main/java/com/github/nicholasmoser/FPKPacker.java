@@ -2,20 +2,16 @@ package com.github.nicholasmoser;
 
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
-import com.github.nicholasmoser.fpk.FPKFile;
-import com.github.nicholasmoser.fpk.FPKFileHeader;
 import com.github.nicholasmoser.fpk.FPKOptions;
+import com.github.nicholasmoser.fpk.FPKWriter;
 import com.github.nicholasmoser.fpk.FileNames;
 import com.github.nicholasmoser.utils.ByteUtils;
-import com.github.nicholasmoser.utils.FPKUtils;
 import com.github.nicholasmoser.workspace.WorkspaceFile;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
-import com.google.common.primitives.Bytes;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -34,27 +30,48 @@ public class FPKPacker {
 
   private final Path uncompressedDirectory;
 
-  private final Workspace workspace;
-
   private final boolean longPaths;
 
   private final boolean bigEndian;
 
   private final FileNames fileNames;
 
+  private final PRSCompressor.Level compressionLevel;
+
+  // The cache of compressed children, or null to compress every child.
+  private final PRSCache cache;
+
   /**
-   * Creates a new FPK packer for a workspace.
+   * Creates a new FPK packer for a workspace using greedy PRS compression and the PRS compression
+   * cache of the workspace.
    *
    * @param workspace The workspace to pack the FPKs for.
    */
   public FPKPacker(Workspace workspace) {
-    this.workspace = workspace;
-    this.compressedDirectory = workspace.getCompressedDirectory();
-    this.uncompressedDirectory = workspace.getUncompressedDirectory();
-    FPKOptions options = workspace.getFPKOptions();
+    this(workspace.getCompressedDirectory(), workspace.getUncompressedDirectory(),
+        workspace.getFPKOptions(), PRSCompressor.Level.GREEDY, PRSCache.of(workspace));
+  }
+
+  /**
+   * Creates a new FPK packer that packs the children in an uncompressed directory into the FPKs of
+   * a compressed directory.
+   *
+   * @param compressedDirectory   The directory of the FPKs.
+   * @param uncompressedDirectory The directory of the uncompressed children.
+   * @param options               The options of the FPKs.
+   * @param compressionLevel      The level of PRS compression to use for compressed files.
+   * @param cache                 The cache of compressed children, or null to compress every
+   *                              child.
+   */
+  public FPKPacker(Path compressedDirectory, Path uncompressedDirectory, FPKOptions options,
+      PRSCompressor.Level compressionLevel, PRSCache cache) {
+    this.compressionLevel = compressionLevel;
+    this.compressedDirectory = compressedDirectory;
+    this.uncompressedDirectory = uncompressedDirectory;
     this.longPaths = options.longPaths();
     this.bigEndian = options.bigEndian();
     this.fileNames = options.fileNames();
+    this.cache = cache;
   }
 
   /**
@@ -64,15 +81,33 @@ public class FPKPacker {
    * and compressed into their original FPK file. This new FPK file will override the FPK file in
    * the output directory.
    *
+   * @param allFiles     All of the files of the workspace.
    * @param changedFiles The files that have been changed.
    * @param parallel     If the repacking should attempt to be done in parallel.
    * @throws IOException If there is an I/O issue repacking or moving the files.
    */
-  public void pack(Collection<String> changedFiles, boolean parallel) throws IOException {
+  public void pack(List<WorkspaceFile> allFiles, Collection<String> changedFiles,
+      boolean parallel) throws IOException {
+    pack(allFiles, changedFiles, parallel, false);
+  }
+
+  /**
+   * Packs and compresses FPK files like {@link #pack(List, Collection, boolean)}, optionally
+   * compressing each child in fixed size chunks on multiple threads. Chunked compression is faster
+   * for large children but produces slightly larger and different compressed bytes than
+   * compressing each child at once, so it is only used when asked for.
+   *
+   * @param allFiles         All of the files of the workspace.
+   * @param changedFiles     The files that have been changed.
+   * @param parallel         If the repacking should attempt to be done in parallel.
+   * @param parallelChildren If each child file should be compressed in chunks on multiple threads.
+   * @throws IOException If there is an I/O issue repacking or moving the files.
+   */
+  public void pack(List<WorkspaceFile> allFiles, Collection<String> changedFiles,
+      boolean parallel, boolean parallelChildren) throws IOException {
     // Get data needed to repack
     Set<String> changedFPKFiles = new HashSet<>();
     Set<String> changedNonFPKFiles = new HashSet<>();
-    List<WorkspaceFile> allFiles = workspace.getAllFiles();
     Multimap<String, WorkspaceFile> fpkToFiles = getFPKToFiles(allFiles);
 
     // Get changed FPK files and non-FPK files
@@ -106,7 +141,7 @@ public class FPKPacker {
       changedFPKFiles.parallelStream().forEach(fpk -> {
             try {
               LOGGER.info(String.format("Packing %s...", fpk));
-              repackFPK(fpk, fpkToFiles.get(fpk));
+              repackFPK(fpk, fpkToFiles.get(fpk), parallelChildren);
               LOGGER.info(String.format("Packed %s", fpk));
             } catch (IOException e) {
               String message = String.format("Failed to pack %s", fpk);
@@ -117,7 +152,7 @@ public class FPKPacker {
     } else {
       for (String fpk : changedFPKFiles) {
         LOGGER.info(String.format("Packing %s...", fpk));
-        repackFPK(fpk, fpkToFiles.get(fpk));
+        repackFPK(fpk, fpkToFiles.get(fpk), parallelChildren);
         LOGGER.info(String.format("Packed %s", fpk));
       }
     }
@@ -154,59 +189,62 @@ public class FPKPacker {
    * @throws IOException If there is an I/O issue repacking or moving the files.
    */
   public Path repackFPK(String fpkPath, Collection<WorkspaceFile> files) throws IOException {
+    return repackFPK(fpkPath, files, false);
+  }
+
+  /**
+   * Repacks the given FPK file. Finds the children of the FPK and individually compresses them from
+   * the input directory and packs them into an FPK file at the output directory. If the file
+   * already exists in the output directory it will be overridden. The input directory must have the
+   * uncompressed child files. If there is a PRS compression cache, children that were compressed
+   * before are read from it instead of being compressed again.
+   *
+   * @param fpkPath          The FPK file to repack.
+   * @param files            The children files of the FPK file.
+   * @param parallelChildren If each child file should be compressed in chunks on multiple threads.
+   * @return The repacked FPK full file path.
+   * @throws IOException If there is an I/O issue repacking or moving the files.
+   */
+  public Path repackFPK(String fpkPath, Collection<WorkspaceFile> files, boolean parallelChildren)
+      throws IOException {
     for (WorkspaceFile file : files) {
       if (!fpkPath.equals(file.fpkFilePath())) {
         throw new IllegalArgumentException(
             String.format("fpk parent paths differ: %s %s", fpkPath, file.fpkFilePath()));
       }
     }
-    List<FPKFile> fpkChildren = new ArrayList<>(files.size());
-    for (WorkspaceFile file : files) {
-      byte[] input = Files.readAllBytes(uncompressedDirectory.resolve(file.filePath()));
-      byte[] output;
-
-      if (file.compressed()) {
-        PRSCompressor compressor = new PRSCompressor(input);
-        output = compressor.compress();
-      } else {
-        output = input;
-      }
-
-      // Set the offset to -1 for now, we cannot figure it out until we have all of
-      // the files
-      String compressedName = fileNames.getCompressedName(file.filePath());
-      String shiftJisPath = ByteUtils.encodeShiftJis(compressedName);
-      // TODO: Remove GameCube FPK format assumption (short paths, big endian)
-      FPKFileHeader header = new FPKFileHeader(shiftJisPath, output.length, input.length, false,
-          true);
-      fpkChildren.add(new FPKFile(header, output));
-      LOGGER.info(String.format("%s has been compressed from %d bytes to %d bytes.",
-          file.filePath(), input.length, output.length));
-    }
-
-    int outputSize = 16; // FPK header is 16 bytes so start with that.
-    outputSize += fpkChildren.size() * 32; // Each FPK file header is 32 bytes
-    for (FPKFile file : fpkChildren) {
-      FPKFileHeader header = file.getHeader();
-      header.setOffset(outputSize);
-      outputSize += ByteUtils.align(header.getCompressedSize(), 16);
-    }
-
-    // FPK Header
-    byte[] fpkBytes = FPKUtils.createFPKHeader(null, fpkChildren.size(), outputSize, bigEndian);
-    // File headers
-    for (FPKFile file : fpkChildren) {
-      fpkBytes = Bytes.concat(fpkBytes, file.getHeader().getBytes());
-    }
-    // File Data
-    for (FPKFile file : fpkChildren) {
-      fpkBytes = Bytes.concat(fpkBytes, file.getData());
-    }
     Path outputFPK = compressedDirectory.resolve(fpkPath);
     if (!Files.isDirectory(outputFPK.getParent())) {
       Files.createDirectories(outputFPK.getParent());
     }
-    Files.write(outputFPK, fpkBytes);
+    // Write to a temporary file first so that a failure does not leave a partial FPK behind
+    Path tempFPK = outputFPK.resolveSibling(outputFPK.getFileName() + ".tmp");
+    // TODO: Remove GameCube FPK format assumption (short paths)
+    try (FPKWriter writer = new FPKWriter(tempFPK, files.size(), false, bigEndian, false)) {
+      for (WorkspaceFile file : files) {
+        byte[] input = Files.readAllBytes(uncompressedDirectory.resolve(file.filePath()));
+        byte[] output;
+
+        if (file.compressed() && cache != null) {
+          output = cache.compress(input, compressionLevel, parallelChildren);
+        } else if (file.compressed()) {
+          PRSCompressor compressor = new PRSCompressor(input, compressionLevel);
+          output = parallelChildren ? compressor.compressParallel() : compressor.compress();
+        } else {
+          output = input;
+        }
+
+        String compressedName = fileNames.getCompressedName(file.filePath());
+        String shiftJisPath = ByteUtils.encodeShiftJis(compressedName);
+        writer.write(shiftJisPath, output, input.length);
+        LOGGER.info(String.format("%s has been compressed from %d bytes to %d bytes.",
+            file.filePath(), input.length, output.length));
+      }
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(tempFPK);
+      throw e;
+    }
+    Files.move(tempFPK, outputFPK, REPLACE_EXISTING);
     return outputFPK;
   }
 }
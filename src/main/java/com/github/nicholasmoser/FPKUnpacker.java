@@ -1,17 +1,33 @@
 package com.github.nicholasmoser;
 
 import com.github.nicholasmoser.fpk.FPKFileHeader;
+import com.github.nicholasmoser.fpk.FPKOptions;
 import com.github.nicholasmoser.fpk.FileNames;
 import com.github.nicholasmoser.utils.FPKUtils;
+import com.github.nicholasmoser.utils.ProgressListener;
+import com.github.nicholasmoser.utils.ReusableBuffer;
 import com.google.common.io.MoreFiles;
 import com.google.common.io.RecursiveDeleteOption;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
@@ -25,11 +41,16 @@ public class FPKUnpacker {
 
   private static final Logger LOGGER = Logger.getLogger(FPKUnpacker.class.getName());
 
+  // The most bytes of fpk children held in memory at once when unpacking in parallel.
+  private static final int MAX_BUFFERED_BYTES = 256 * 1024 * 1024;
+
   private final Path inputDirectory;
   private final Path filesDirectory;
   private final Optional<FileNames> fileNames;
   private final boolean longPaths;
   private final boolean bigEndian;
+  private final ReusableBuffer fpkBuffer;
+  private final ReusableBuffer outputBuffer;
 
   /**
    * Create a new FPKUnpacker object to unpack an entire directory.
@@ -49,6 +70,19 @@ public class FPKUnpacker {
     this.fileNames = fileNames;
     this.longPaths = longPaths;
     this.bigEndian = bigEndian;
+    this.fpkBuffer = new ReusableBuffer();
+    this.outputBuffer = new ReusableBuffer();
+  }
+
+  /**
+   * Create a new FPKUnpacker object to unpack an entire directory of FPKs with the given options.
+   *
+   * @param inputDirectory The input directory to unpack.
+   * @param options        The options of the FPKs.
+   */
+  public FPKUnpacker(Path inputDirectory, FPKOptions options) {
+    this(inputDirectory, Optional.ofNullable(options.fileNames()), options.longPaths(),
+        options.bigEndian());
   }
 
   /**
@@ -59,38 +93,195 @@ public class FPKUnpacker {
    * @throws IOException If there is an I/O related exception.
    */
   public void unpackDirectory() throws IOException {
+    unpackDirectory(false, ProgressListener.NONE);
+  }
+
+  /**
+   * Unpacks all fpks in the input directory. The contents will be stored in the "files" directory
+   * in the input directory. The "fpack" directory in the "files" directory will be deleted upon
+   * completion. When unpacking in parallel, the children of every fpk are uncompressed on all
+   * processors, but the unpacked files are the same as when unpacking serially.
+   *
+   * @param parallel If the children should be unpacked in parallel.
+   * @param listener The listener to report the progress of the unpacking to.
+   * @throws IOException If there is an I/O related exception.
+   */
+  public void unpackDirectory(boolean parallel, ProgressListener listener) throws IOException {
     LOGGER.info("Unpacking FPKs...");
-    extractDirectory(inputDirectory);
+    List<Path> fpks = new ArrayList<>();
+    findFPKs(inputDirectory, fpks);
+    if (parallel) {
+      extractParallel(fpks, listener);
+    } else {
+      for (int i = 0; i < fpks.size(); i++) {
+        extractFPK(fpks.get(i), filesDirectory, fileNames, longPaths, bigEndian, fpkBuffer,
+            outputBuffer);
+        listener.update(i + 1, fpks.size());
+      }
+    }
     MoreFiles.deleteRecursively(inputDirectory.resolve("files/fpack"),
         RecursiveDeleteOption.ALLOW_INSECURE);
     LOGGER.info("Finished unpacking FPKs.");
   }
 
   /**
-   * Extracts and uncompresses the files inside an FPK from a given directory recursively.
+   * Finds the fpk files in a given directory recursively.
    *
-   * @param directory The directory to search and extract from.
+   * @param directory The directory to search.
+   * @param fpks      The list to add the fpk files to.
    * @throws IOException If there is an I/O related exception.
    */
-  private void extractDirectory(Path directory) throws IOException {
-    try (Stream<Path> paths = Files.list(directory)) {
-      paths.forEach(path -> {
-            try {
-              if (Files.isDirectory(path)) {
-                extractDirectory(path);
-              } else {
-                if (path.toString().toLowerCase().endsWith(".fpk")) {
-                  extractFPK(path, filesDirectory, fileNames, longPaths, bigEndian);
-                }
-              }
-            } catch (IOException e) {
-              throw new RuntimeException(e);
-            }
-          }
-      );
+  private static void findFPKs(Path directory, List<Path> fpks) throws IOException {
+    List<Path> paths;
+    try (Stream<Path> stream = Files.list(directory)) {
+      paths = stream.toList();
+    }
+    for (Path path : paths) {
+      if (Files.isDirectory(path)) {
+        findFPKs(path, fpks);
+      } else if (path.toString().toLowerCase().endsWith(".fpk")) {
+        fpks.add(path);
+      }
+    }
+  }
+
+  /**
+   * Extracts and uncompresses the children of the given fpk files on all processors. The headers of
+   * every fpk are read first so that when multiple children have the same output path, only the
+   * child that would be written last when unpacking serially is written. Each child is then read
+   * and uncompressed independently, holding at most {@link #MAX_BUFFERED_BYTES} bytes of children
+   * in memory at once.
+   *
+   * @param fpks     The fpk files to extract, in serial unpacking order.
+   * @param listener The listener to report the number of uncompressed bytes written to.
+   * @throws IOException If there is an I/O related exception.
+   */
+  private void extractParallel(List<Path> fpks, ProgressListener listener) throws IOException {
+    // The last child for each output path wins, like it would when unpacking serially
+    Map<Path, UnpackedChild> children = new LinkedHashMap<>();
+    for (Path fpk : fpks) {
+      for (FPKFileHeader header : readHeaders(fpk)) {
+        String fileName = header.getFileName();
+        if (fileNames.isPresent()) {
+          fileName = fileNames.get().fix(fileName);
+        }
+        Path outputPath = filesDirectory.resolve(fileName);
+        children.remove(outputPath);
+        children.put(outputPath, new UnpackedChild(fpk, header, outputPath));
+      }
+    }
+    long total = 0;
+    for (UnpackedChild child : children.values()) {
+      total += child.header().getUncompressedSize();
+    }
+    long totalBytes = total;
+    AtomicLong doneBytes = new AtomicLong();
+    Semaphore budget = new Semaphore(MAX_BUFFERED_BYTES);
+    ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    try {
+      pool.submit(() -> children.values().parallelStream().forEach(child -> {
+        try {
+          extractChild(child, budget);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        long done = doneBytes.addAndGet(child.header().getUncompressedSize());
+        listener.update(done, totalBytes);
+      })).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while unpacking FPKs", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof UncheckedIOException unchecked) {
+        throw unchecked.getCause();
+      }
+      throw new IOException("Failed to unpack FPKs", cause);
+    } finally {
+      pool.shutdownNow();
     }
   }
 
+  /**
+   * Reads the file headers of an fpk file and checks that the data of each child is in the file.
+   *
+   * @param fpkPath The path to the fpk file.
+   * @return The file headers.
+   * @throws IOException If there is an I/O related exception.
+   */
+  private List<FPKFileHeader> readHeaders(Path fpkPath) throws IOException {
+    long fpkSize = Files.size(fpkPath);
+    List<FPKFileHeader> fpkHeaders;
+    try (InputStream is = new BufferedInputStream(Files.newInputStream(fpkPath))) {
+      int fileCount = FPKUtils.readFPKHeader(is, bigEndian);
+      fpkHeaders = new ArrayList<>(fileCount);
+      for (int i = 0; i < fileCount; i++) {
+        fpkHeaders.add(FPKUtils.readFPKFileHeader(is, longPaths, bigEndian));
+      }
+    }
+    for (FPKFileHeader header : fpkHeaders) {
+      if ((long) header.getOffset() + header.getCompressedSize() > fpkSize) {
+        String errorMessage = String.format("Failed to read all binary data of %s",
+            header.getFileName());
+        throw new IOException(errorMessage);
+      }
+    }
+    return fpkHeaders;
+  }
+
+  /**
+   * Reads, uncompresses and writes a single fpk child. Permits for the bytes of the child are
+   * acquired from the budget before it is read and released after it is written. A child larger
+   * than the whole budget acquires the whole budget.
+   *
+   * @param child  The child to extract.
+   * @param budget The semaphore of bytes that may be held in memory.
+   * @throws IOException If there is an I/O related exception.
+   */
+  private static void extractChild(UnpackedChild child, Semaphore budget) throws IOException {
+    FPKFileHeader header = child.header();
+    int compressedSize = header.getCompressedSize();
+    int uncompressedSize = header.getUncompressedSize();
+    // Files with the same compressed and uncompressed size are not compressed
+    boolean compressed = compressedSize != uncompressedSize;
+    long size = compressed ? (long) compressedSize + uncompressedSize : uncompressedSize;
+    int permits = (int) Math.min(size, MAX_BUFFERED_BYTES);
+    try {
+      budget.acquire(permits);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while unpacking " + header.getFileName(), e);
+    }
+    try {
+      byte[] data = new byte[compressedSize];
+      try (FileChannel channel = FileChannel.open(child.fpk(), StandardOpenOption.READ)) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long position = header.getOffset();
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer, position + buffer.position()) < 0) {
+            String errorMessage = String.format("Failed to read all binary data of %s",
+                header.getFileName());
+            throw new IOException(errorMessage);
+          }
+        }
+      }
+      byte[] output = data;
+      if (compressed) {
+        output = new byte[uncompressedSize];
+        int uncompressed = PRSUncompressor.uncompress(data, 0, compressedSize, output, 0,
+            uncompressedSize);
+        if (uncompressed != uncompressedSize) {
+          String errorMessage = String.format("Uncompressed %d of %d bytes of %s", uncompressed,
+              uncompressedSize, header.getFileName());
+          throw new IOException(errorMessage);
+        }
+      }
+      Files.createDirectories(child.outputPath().getParent());
+      Files.write(child.outputPath(), output);
+    } finally {
+      budget.release(permits);
+    }
+  }
 
   /**
    * Extracts the given Wii or GameCube fpk file to the given output directory path.
@@ -104,56 +295,86 @@ public class FPKUnpacker {
    */
   public static void extractFPK(Path fpkPath, Path outputDirectory, Optional<FileNames> fileNames,
       boolean longPaths, boolean bigEndian) throws IOException {
-    int bytesRead = 0;
-    try (InputStream is = Files.newInputStream(fpkPath)) {
-      int fileCount = FPKUtils.readFPKHeader(is, bigEndian);
-      bytesRead += 16;
+    extractFPK(fpkPath, outputDirectory, fileNames, longPaths, bigEndian, new ReusableBuffer(),
+        new ReusableBuffer());
+  }
 
-      List<FPKFileHeader> fpkHeaders = new ArrayList<>(fileCount);
-      for (int i = 0; i < fileCount; i++) {
-        fpkHeaders.add(FPKUtils.readFPKFileHeader(is, longPaths, bigEndian));
-        bytesRead += longPaths ? 48 : 32;
+  /**
+   * Extracts the given Wii or GameCube fpk file to the given output directory path. The fpk file is
+   * read into the fpk buffer and each child is uncompressed into the output buffer, so extracting
+   * many fpk files with the same buffers allocates almost nothing.
+   *
+   * @param fpkPath         The path to the fpk file.
+   * @param outputDirectory The path to the output directory.
+   * @param fileNames       Optional full file names to fix truncation.
+   * @param longPaths       If the FPK inner file paths are 32-bytes (instead of 16-bytes).
+   * @param bigEndian       If the FPK is big-endian (instead of little-endian).
+   * @param fpkBuffer       The buffer to read the fpk file into.
+   * @param outputBuffer    The buffer to uncompress each child into.
+   * @throws IOException If there is an I/O related exception.
+   */
+  private static void extractFPK(Path fpkPath, Path outputDirectory, Optional<FileNames> fileNames,
+      boolean longPaths, boolean bigEndian, ReusableBuffer fpkBuffer, ReusableBuffer outputBuffer)
+      throws IOException {
+    int fpkSize = Math.toIntExact(Files.size(fpkPath));
+    byte[] fpkBytes = fpkBuffer.get(fpkSize);
+    try (InputStream is = Files.newInputStream(fpkPath)) {
+      if (is.readNBytes(fpkBytes, 0, fpkSize) != fpkSize) {
+        throw new IOException(String.format("Failed to read all bytes of %s", fpkPath));
       }
+    }
 
-      for (FPKFileHeader header : fpkHeaders) {
-        String fileName = header.getFileName();
-        if (fileNames.isPresent()) {
-          fileName = fileNames.get().fix(fileName);
-        }
-        int offset = header.getOffset();
-        int compressedSize = header.getCompressedSize();
-        int uncompressedSize = header.getUncompressedSize();
-
-        // Skip to the next offset if we are not already there
-        if (bytesRead < offset) {
-          int bytesToMove = offset - bytesRead;
-          if (is.skip(bytesToMove) != bytesToMove) {
-            String errorMessage = String.format("Failed to skip to binary data of %s", fileName);
-            throw new IOException(errorMessage);
-          }
-          bytesRead += bytesToMove;
-        }
+    InputStream is = new ByteArrayInputStream(fpkBytes, 0, fpkSize);
+    int fileCount = FPKUtils.readFPKHeader(is, bigEndian);
+    List<FPKFileHeader> fpkHeaders = new ArrayList<>(fileCount);
+    for (int i = 0; i < fileCount; i++) {
+      fpkHeaders.add(FPKUtils.readFPKFileHeader(is, longPaths, bigEndian));
+    }
 
-        byte[] fileBytes = new byte[compressedSize];
-        if (is.read(fileBytes) != compressedSize) {
-          String errorMessage = String.format("Failed to read all binary data of %s", fileName);
-          throw new IOException(errorMessage);
-        }
-        bytesRead += compressedSize;
+    for (FPKFileHeader header : fpkHeaders) {
+      String fileName = header.getFileName();
+      if (fileNames.isPresent()) {
+        fileName = fileNames.get().fix(fileName);
+      }
+      int offset = header.getOffset();
+      int compressedSize = header.getCompressedSize();
+      int uncompressedSize = header.getUncompressedSize();
+      if (offset + compressedSize > fpkSize) {
+        String errorMessage = String.format("Failed to read all binary data of %s", fileName);
+        throw new IOException(errorMessage);
+      }
 
-        // Create directories from fileName and get output directory
-        Path outputFilePath = outputDirectory.resolve(fileName);
-        Files.createDirectories(outputFilePath.getParent());
+      // Create directories from fileName and get output directory
+      Path outputFilePath = outputDirectory.resolve(fileName);
+      Files.createDirectories(outputFilePath.getParent());
 
+      try (OutputStream os = Files.newOutputStream(outputFilePath)) {
         // Files with the same compressed and uncompressed size are not compressed
         if (compressedSize == uncompressedSize) {
-          Files.write(outputFilePath, fileBytes);
+          os.write(fpkBytes, offset, compressedSize);
         } else {
-          PRSUncompressor uncompressor = new PRSUncompressor(fileBytes, uncompressedSize);
-          byte[] output = uncompressor.uncompress();
-          Files.write(outputFilePath, output);
+          byte[] output = outputBuffer.get(uncompressedSize);
+          int uncompressed = PRSUncompressor.uncompress(fpkBytes, offset, compressedSize, output,
+              0, uncompressedSize);
+          if (uncompressed != uncompressedSize) {
+            String errorMessage = String.format("Uncompressed %d of %d bytes of %s", uncompressed,
+                uncompressedSize, fileName);
+            throw new IOException(errorMessage);
+          }
+          os.write(output, 0, uncompressedSize);
         }
       }
     }
   }
+
+  /**
+   * A child of an fpk file to unpack.
+   *
+   * @param fpk        The path to the fpk file.
+   * @param header     The file header of the child.
+   * @param outputPath The path to write the uncompressed child to.
+   */
+  private record UnpackedChild(Path fpk, FPKFileHeader header, Path outputPath) {
+
+  }
 }
@@ -203,12 +203,52 @@ public class GNTool extends Application {
           Choosers.getOutputWorkspaceDirectory(iso.getParent().toFile());
       if (workspaceResponse.isPresent()) {
         if (game == Game.GNT4) {
-          extract(new GNT4Extractor(iso, workspaceResponse.get()));
+          verifyAndExtract(new GNT4Extractor(iso, workspaceResponse.get()));
         }
       }
     }
   }
 
+  /**
+   * Verifies the ISO given the provided extractor before extracting it. If the ISO does not match a
+   * known good dump of the game, the user is asked whether to extract it anyway.
+   *
+   * @param extractor The extractor for the Game.
+   */
+  private void verifyAndExtract(Extractor extractor) {
+
+    Task<Optional<String>> task = new Task<>() {
+      @Override
+      public Optional<String> call() throws Exception {
+        try {
+          updateMessage("Verifying ISO...");
+          Optional<String> differences = extractor.verifyISO(this::updateProgress);
+          updateMessage("ISO verified.");
+          updateProgress(1, 1);
+          return differences;
+        } catch (Exception e) {
+          LOGGER.log(Level.SEVERE, "Error Verifying ISO", e);
+          throw e;
+        }
+      }
+    };
+    Stage loadingWindow = GUIUtils.createLoadingWindow("Verifying ISO", task);
+
+    task.setOnSucceeded(event -> {
+      loadingWindow.close();
+      Optional<String> differences = task.getValue();
+      if (differences.isEmpty() || Message.warnConfirmation("ISO Does Not Match a Known Good Dump",
+          differences.get() + "\nThis may fail or create a broken workspace. Continue anyway?")) {
+        extract(extractor);
+      }
+    });
+    task.setOnFailed(event -> {
+      loadingWindow.close();
+      Message.error("Failed to Verify ISO", task.getException().getMessage());
+    });
+    new Thread(task).start();
+  }
+
   /**
    * Extracts the ISO given the provided extractor and decompressed the game files. The Workspace
    * will also be loaded for the user.
@@ -225,7 +265,7 @@ public class GNTool extends Application {
           updateMessage("Extracting ISO...");
           extractor.extractISO();
           updateMessage("Unpacking FPKs...");
-          workspace = extractor.unpackFPKs();
+          workspace = extractor.unpackFPKs(this::updateProgress);
           updateMessage("Saving workspace state...");
           workspace.initState();
           updateMessage("Workspace created.");
@@ -0,0 +1,246 @@
+package com.github.nicholasmoser;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * A persistent cache of Eighting PRS compressed bytes. Compressed bytes are stored in files named
+ * by the SHA-256 hash of the uncompressed bytes, the compression level, and the compressor version,
+ * so unchanged files never need to be compressed again. When the cache grows larger than its
+ * maximum size, the least recently used files are deleted. The cache directory is not read until
+ * the cache is first used and is not created until the first compressed bytes are added. This
+ * class is thread safe.
+ */
+public class PRSCache {
+
+  private static final Logger LOGGER = Logger.getLogger(PRSCache.class.getName());
+
+  // The name of the cache directory in a workspace.
+  public static final String DIRECTORY_NAME = "prs_cache";
+
+  // The default maximum size of the cache in bytes.
+  public static final long DEFAULT_MAX_SIZE = 512L * 1024 * 1024;
+
+  private static final String EXTENSION = ".prs";
+
+  private final Path directory;
+
+  private final long maxSize;
+
+  // The size of each cached file by name, from least to most recently used.
+  private final LinkedHashMap<String, Long> entries;
+
+  // The total size of the cached files.
+  private long totalSize;
+
+  // If the files already in the cache directory have been read.
+  private boolean loaded;
+
+  /**
+   * Creates a cache in the given directory. The directory does not need to exist.
+   *
+   * @param directory The directory of the cache.
+   * @param maxSize   The maximum size of the cache in bytes.
+   */
+  public PRSCache(Path directory, long maxSize) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("Max size cannot be negative: " + maxSize);
+    }
+    this.directory = directory;
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Creates a cache in the PRS cache directory of a workspace with the default maximum size.
+   *
+   * @param workspace The workspace.
+   * @return The PRS cache of the workspace.
+   */
+  public static PRSCache of(Workspace workspace) {
+    Path cacheDirectory = workspace.getWorkspaceDirectory().resolve(DIRECTORY_NAME);
+    return new PRSCache(cacheDirectory, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Returns the compressed bytes for the input from the cache, or compresses the input and adds it
+   * to the cache if it is not there.
+   *
+   * @param input    The uncompressed bytes.
+   * @param level    The level of compression to use.
+   * @param parallel If the input should be compressed in parallel chunks.
+   * @return The compressed bytes.
+   * @throws IOException If an I/O error occurs.
+   */
+  public byte[] compress(byte[] input, PRSCompressor.Level level, boolean parallel)
+      throws IOException {
+    String name = getName(input, level, parallel);
+    byte[] output = get(name);
+    if (output != null) {
+      return output;
+    }
+    PRSCompressor compressor = new PRSCompressor(input, level);
+    output = parallel ? compressor.compressParallel() : compressor.compress();
+    put(name, output);
+    return output;
+  }
+
+  /**
+   * @return The total size of the cached files in bytes.
+   * @throws IOException If an I/O error occurs.
+   */
+  public synchronized long getSize() throws IOException {
+    load();
+    return totalSize;
+  }
+
+  /**
+   * Deletes every file in the cache.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  public synchronized void clear() throws IOException {
+    load();
+    for (String name : entries.keySet()) {
+      Files.deleteIfExists(directory.resolve(name));
+    }
+    entries.clear();
+    totalSize = 0;
+  }
+
+  /**
+   * Reads the files already in the cache directory, if it exists, ordered by their last modified
+   * time. Does nothing after the first call.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  private synchronized void load() throws IOException {
+    if (loaded) {
+      return;
+    }
+    if (Files.isDirectory(directory)) {
+      List<Path> files;
+      try (Stream<Path> paths = Files.list(directory)) {
+        files = new ArrayList<>(
+            paths.filter(path -> path.toString().endsWith(EXTENSION)).toList());
+      }
+      Map<Path, FileTime> times = new LinkedHashMap<>();
+      for (Path file : files) {
+        times.put(file, Files.getLastModifiedTime(file));
+      }
+      files.sort(Comparator.comparing(times::get));
+      for (Path file : files) {
+        long size = Files.size(file);
+        entries.put(file.getFileName().toString(), size);
+        totalSize += size;
+      }
+    }
+    loaded = true;
+  }
+
+  /**
+   * Returns the cached bytes with the given name and marks them as recently used.
+   *
+   * @param name The name of the cached file.
+   * @return The cached bytes, or null if they are not cached.
+   * @throws IOException If an I/O error occurs.
+   */
+  private byte[] get(String name) throws IOException {
+    synchronized (this) {
+      load();
+      if (entries.get(name) == null) {
+        return null;
+      }
+    }
+    Path file = directory.resolve(name);
+    try {
+      byte[] bytes = Files.readAllBytes(file);
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      return bytes;
+    } catch (NoSuchFileException e) {
+      // Deleted by another thread or outside of GNTool
+      synchronized (this) {
+        Long size = entries.remove(name);
+        if (size != null) {
+          totalSize -= size;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Adds bytes to the cache and deletes the least recently used files if the cache is too large.
+   * The bytes are written to a temporary file first so that a partial file is never cached.
+   *
+   * @param name  The name of the cached file.
+   * @param bytes The bytes to cache.
+   * @throws IOException If an I/O error occurs.
+   */
+  private void put(String name, byte[] bytes) throws IOException {
+    if (bytes.length > maxSize) {
+      return;
+    }
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, name, ".tmp");
+    try {
+      Files.write(temp, bytes);
+      Files.move(temp, directory.resolve(name), ATOMIC_MOVE, REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+    List<String> evicted = new ArrayList<>();
+    synchronized (this) {
+      Long previous = entries.put(name, (long) bytes.length);
+      totalSize += bytes.length - (previous == null ? 0 : previous);
+      Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+      while (totalSize > maxSize && iterator.hasNext()) {
+        Map.Entry<String, Long> eldest = iterator.next();
+        if (eldest.getKey().equals(name)) {
+          continue;
+        }
+        totalSize -= eldest.getValue();
+        evicted.add(eldest.getKey());
+        iterator.remove();
+      }
+    }
+    for (String evict : evicted) {
+      try {
+        Files.deleteIfExists(directory.resolve(evict));
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Failed to delete cached file " + evict, e);
+      }
+    }
+  }
+
+  /**
+   * Returns the name of the cached file for the given input and compression options.
+   *
+   * @param input    The uncompressed bytes.
+   * @param level    The level of compression.
+   * @param parallel If the input is compressed in parallel chunks.
+   * @return The name of the cached file.
+   */
+  private static String getName(byte[] input, PRSCompressor.Level level, boolean parallel) {
+    String hash = Hashing.sha256().hashBytes(input).toString();
+    String mode = parallel ? "parallel" : "serial";
+    return String.format("%s_%s_%s_v%d%s", hash, level.name().toLowerCase(), mode,
+        PRSCompressor.VERSION, EXTENSION);
+  }
+}
@@ -1,6 +1,8 @@
 package com.github.nicholasmoser;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
 
 /**
  * A compressor for Eighting PRS compressed files. Takes in the full byte array of the file and
@@ -11,12 +13,54 @@ import java.util.Arrays;
  */
 public class PRSCompressor {
 
+  /**
+   * The level of compression to use. Higher levels produce smaller output but take longer.
+   */
+  public enum Level {
+    /**
+     * Always takes the longest match at the current position. This is the original algorithm.
+     */
+    GREEDY,
+    /**
+     * Writes an uncompressed byte instead of a match if the next position has a longer match that
+     * uses fewer bits per byte.
+     */
+    LAZY,
+    /**
+     * Chooses the uncompressed bytes and matches that use the fewest bits for the whole file.
+     */
+    OPTIMAL
+  }
+
+  // The version of the compressed output. Increase this when the output of any level changes so
+  // that previously cached compressed bytes are not reused.
+  public static final int VERSION = 2;
+
+  // Matches longer than this are assumed to be the longest match at the next position as well.
+  private static final int NICE_MATCH_LENGTH = 32;
+
+  // The number of input bytes to compress on each thread when compressing in parallel. It does not
+  // depend on the number of processors, so the compressed bytes are the same on every machine.
+  public static final int PARALLEL_CHUNK_SIZE = 256 * 1024;
+
   // Input bytes to compress.
   private final byte[] input;
 
-  // Output bytes that have been compressed.
+  // Output bytes that have been compressed, or null if only the steps are being recorded.
   private final byte[] output;
 
+  // The index of the input bytes to start compressing from.
+  private final int start;
+
+  // The index of the input bytes to stop compressing at, exclusive.
+  private final int end;
+
+  // The recorded steps as (distance << 8) | length when compressing a chunk of the input.
+  private int[] recordedSteps;
+
+  // The number of recorded steps.
+  private int recordedCount;
+
   // The location in the output bytes of the current flag byte.
   private int flagIndex;
 
@@ -34,20 +78,62 @@ public class PRSCompressor {
 
   private int pos;
 
+  // Finds previous repeated occurrences of the input bytes.
+  private final PRSMatchFinder matchFinder;
+
+  // The level of compression to use.
+  private final Level level;
+
   /**
-   * Creates a new Eighting PRS compressor.
+   * Creates a new Eighting PRS compressor using greedy compression.
    * 
    * @param input The input bytes to compress.
    */
   public PRSCompressor(byte[] input) {
+    this(input, Level.GREEDY);
+  }
+
+  /**
+   * Creates a new Eighting PRS compressor.
+   *
+   * @param input The input bytes to compress.
+   * @param level The level of compression to use.
+   */
+  public PRSCompressor(byte[] input, Level level) {
     this.input = input;
+    this.level = level;
     flagIndex = 0;
     outputIndex = 1;
     flagBitIndex = 7;
     currentCompressionLength = 0;
     pos = 0;
     inputIndex = 0;
+    start = 0;
+    end = input.length;
     output = new byte[input.length * 2];
+    matchFinder = new PRSMatchFinder(input);
+  }
+
+  /**
+   * Creates a new Eighting PRS compressor for a chunk of the input that records the steps to
+   * compress it instead of writing the output bytes. Matches may reference the window before the
+   * chunk, but cannot extend past the end of the chunk.
+   *
+   * @param input The input bytes to compress.
+   * @param level The level of compression to use.
+   * @param start The index of the input bytes to start compressing from.
+   * @param end   The index of the input bytes to stop compressing at, exclusive.
+   */
+  private PRSCompressor(byte[] input, Level level, int start, int end) {
+    this.input = input;
+    this.level = level;
+    this.start = start;
+    this.end = end;
+    inputIndex = start;
+    output = null;
+    recordedSteps = new int[Math.max(16, (end - start) / 4)];
+    recordedCount = 0;
+    matchFinder = new PRSMatchFinder(input, start, end);
   }
 
   /**
@@ -56,7 +142,72 @@ public class PRSCompressor {
    * @return The compressed bytes.
    */
   public byte[] compress() {
-    while (inputIndex < input.length) {
+    compressInput();
+    terminateFile();
+
+    // Return the length of the output plus three so that the file ends with three 0s.
+    return Arrays.copyOfRange(output, 0, (outputIndex) + 3);
+  }
+
+  /**
+   * Compresses the file in chunks of {@link #PARALLEL_CHUNK_SIZE} bytes on multiple processors.
+   * See {@link #compressParallel(int)}.
+   *
+   * @return The compressed bytes.
+   */
+  public byte[] compressParallel() {
+    return compressParallel(PARALLEL_CHUNK_SIZE);
+  }
+
+  /**
+   * Compresses the file by splitting it into chunks and compressing each chunk on a separate
+   * thread. Each chunk can still reference the 8192 byte window before it, but matches cannot cross
+   * from one chunk into the next. The chunks are then written in order as one PRS compressed file,
+   * which is usually a fraction of a percent larger than compressing the whole file at once.
+   *
+   * @param chunkSize The number of input bytes in each chunk.
+   * @return The compressed bytes.
+   */
+  public byte[] compressParallel(int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+    }
+    int chunks = (input.length + chunkSize - 1) / chunkSize;
+    List<int[]> chunkSteps = IntStream.range(0, chunks).parallel()
+        .mapToObj(i -> {
+          int chunkStart = i * chunkSize;
+          int chunkEnd = Math.min(input.length, chunkStart + chunkSize);
+          PRSCompressor compressor = new PRSCompressor(input, level, chunkStart, chunkEnd);
+          compressor.compressInput();
+          return Arrays.copyOf(compressor.recordedSteps, compressor.recordedCount);
+        })
+        .toList();
+    for (int[] steps : chunkSteps) {
+      writeSteps(steps, steps.length);
+    }
+    terminateFile();
+
+    // Return the length of the output plus three so that the file ends with three 0s.
+    return Arrays.copyOfRange(output, 0, (outputIndex) + 3);
+  }
+
+  /**
+   * Compresses the input bytes using the level of compression.
+   */
+  private void compressInput() {
+    switch (level) {
+      case GREEDY -> compressGreedy();
+      case LAZY -> compressLazy();
+      case OPTIMAL -> compressOptimal();
+    }
+  }
+
+  /**
+   * Compresses the input by always taking the first option found of a match in the window, run
+   * length encoding, or an uncompressed byte.
+   */
+  private void compressGreedy() {
+    while (inputIndex < end) {
       if (checkWindow()) {
         writeCompressedBytes();
         inputIndex += currentCompressionLength;
@@ -68,10 +219,183 @@ public class PRSCompressor {
         inputIndex++;
       }
     }
-    terminateFile();
+  }
 
-    // Return the length of the output plus three so that the file ends with three 0s.
-    return Arrays.copyOfRange(output, 0, (outputIndex) + 3);
+  /**
+   * Compresses the input like {@link #compressGreedy()}, except that a match is deferred for an
+   * uncompressed byte if the match at the next byte is longer and cheaper per byte.
+   */
+  private void compressLazy() {
+    while (inputIndex < end) {
+      if (checkWindow()) {
+        int length = currentCompressionLength;
+        int distance = pos;
+        if (matchFinder.find(inputIndex + 1) && isCheaper(matchFinder.getLength(),
+            matchFinder.getDistance(), length, distance)) {
+          writeUncompressedByte();
+          inputIndex++;
+          continue;
+        }
+        currentCompressionLength = length;
+        pos = distance;
+        writeCompressedBytes();
+        inputIndex += currentCompressionLength;
+      } else if (checkRunLengthEncoding()) {
+        writeCompressedBytes();
+        inputIndex += currentCompressionLength;
+      } else {
+        writeUncompressedByte();
+        inputIndex++;
+      }
+    }
+  }
+
+  /**
+   * Returns if an uncompressed byte followed by the next match uses fewer bits per byte than the
+   * current match.
+   *
+   * @param nextLength      The length of the match at the next byte.
+   * @param nextDistance    The distance of the match at the next byte.
+   * @param currentLength   The length of the match at the current byte.
+   * @param currentDistance The distance of the match at the current byte.
+   * @return If the uncompressed byte and next match are cheaper.
+   */
+  private static boolean isCheaper(int nextLength, int nextDistance, int currentLength,
+      int currentDistance) {
+    if (nextLength <= currentLength) {
+      return false;
+    }
+    int nextBits = getEncodedBits(1, 0) + getEncodedBits(nextLength, nextDistance);
+    int currentBits = getEncodedBits(currentLength, currentDistance);
+    return nextBits * currentLength < currentBits * (nextLength + 1);
+  }
+
+  /**
+   * Compresses the input with the fewest number of bits. For each position of the input, finds the
+   * cheapest way to encode all bytes before it from the cheapest ways to reach the earlier
+   * positions. Then writes the cheapest path backwards from the end of the input.
+   */
+  private void compressOptimal() {
+    int length = end - start;
+    // The fewest bits needed to encode the bytes before each position
+    int[] bits = new int[length + 1];
+    // The last step to get to each position as (distance << 8) | length
+    int[] steps = new int[length + 1];
+    Arrays.fill(bits, 1, length + 1, Integer.MAX_VALUE);
+    int matchLength = 0;
+    int matchDistance = 0;
+    int shortLength = 0;
+    int shortDistance = 0;
+    for (int i = 0; i < length; i++) {
+      if (matchLength > NICE_MATCH_LENGTH) {
+        // A long match also matches at the next position, so skip searching the window and only
+        // check if it can be extended further
+        matchLength--;
+        int maxLength = Math.min(PRSMatchFinder.MAX_MATCH_LENGTH, length - i);
+        while (matchLength < maxLength
+            && input[start + i + matchLength] == input[start + i + matchLength - matchDistance]) {
+          matchLength++;
+        }
+        shortLength = matchDistance <= PRSMatchFinder.MAX_SHORT_DISTANCE ? matchLength : 0;
+        shortDistance = matchDistance;
+      } else if (matchFinder.find(start + i)) {
+        matchLength = matchFinder.getLength();
+        matchDistance = matchFinder.getDistance();
+        shortLength = matchFinder.getShortLength();
+        shortDistance = matchFinder.getShortDistance();
+      } else {
+        matchLength = 0;
+        shortLength = 0;
+      }
+      int current = bits[i];
+      relax(bits, steps, i + 1, current + getEncodedBits(1, 0), 1);
+      for (int len = 3; len <= matchLength; len++) {
+        int cost = current + getEncodedBits(len, matchDistance);
+        relax(bits, steps, i + len, cost, (matchDistance << 8) | len);
+      }
+      for (int len = 2; len <= Math.min(shortLength, 5); len++) {
+        int cost = current + getEncodedBits(len, shortDistance);
+        relax(bits, steps, i + len, cost, (shortDistance << 8) | len);
+      }
+    }
+
+    // Walk back from the end to get the path, reusing the bits array to store it
+    int[] path = bits;
+    int pathLength = 0;
+    for (int i = length; i > 0; i -= steps[i] & 0xFF) {
+      path[pathLength++] = steps[i];
+    }
+    for (int i = 0; i < pathLength / 2; i++) {
+      int step = path[i];
+      path[i] = path[pathLength - 1 - i];
+      path[pathLength - 1 - i] = step;
+    }
+    writeSteps(path, pathLength);
+  }
+
+  /**
+   * Writes each step in order starting at the current input index.
+   *
+   * @param steps The steps as (distance << 8) | length, where a length of 1 is an uncompressed byte.
+   * @param count The number of steps.
+   */
+  private void writeSteps(int[] steps, int count) {
+    for (int i = 0; i < count; i++) {
+      int step = steps[i];
+      currentCompressionLength = step & 0xFF;
+      pos = step >>> 8;
+      if (currentCompressionLength == 1) {
+        writeUncompressedByte();
+      } else {
+        writeCompressedBytes();
+      }
+      inputIndex += currentCompressionLength;
+    }
+  }
+
+  /**
+   * Records a step instead of writing it when compressing a chunk of the input.
+   *
+   * @param step The step as (distance << 8) | length.
+   */
+  private void recordStep(int step) {
+    if (recordedCount == recordedSteps.length) {
+      recordedSteps = Arrays.copyOf(recordedSteps, recordedCount * 2);
+    }
+    recordedSteps[recordedCount++] = step;
+  }
+
+  /**
+   * Updates the cheapest step to a position if the given cost is cheaper.
+   *
+   * @param bits     The fewest bits needed to encode the bytes before each position.
+   * @param steps    The last step to get to each position.
+   * @param position The position to update.
+   * @param cost     The cost in bits of the new step.
+   * @param step     The new step as (distance << 8) | length.
+   */
+  private static void relax(int[] bits, int[] steps, int position, int cost, int step) {
+    if (cost < bits[position]) {
+      bits[position] = cost;
+      steps[position] = step;
+    }
+  }
+
+  /**
+   * Returns the number of bits used to write the given number of bytes. This is flag bits plus the
+   * bits of the output bytes, and mirrors the choice made in {@link #writeCompressedBytes()}.
+   *
+   * @param length   The number of bytes, where 1 is an uncompressed byte.
+   * @param distance The distance back of the match.
+   * @return The number of bits used.
+   */
+  private static int getEncodedBits(int length, int distance) {
+    if (length == 1) {
+      return 9;
+    } else if (distance <= 255 && length <= 5) {
+      return 12;
+    }
+    return length <= 9 ? 18 : 26;
   }
 
   /**
@@ -96,7 +420,7 @@ public class PRSCompressor {
       return false;
     }
     int scanIndex = inputIndex;
-    while (scanIndex < input.length && input[inputIndex - 1] == input[scanIndex]
+    while (scanIndex < end && input[inputIndex - 1] == input[scanIndex]
         && currentCompressionLength < 256) {
       currentCompressionLength++;
       scanIndex++;
@@ -106,70 +430,16 @@ public class PRSCompressor {
   }
 
   /**
-   * Scans backwards from the current buffer position
+   * Searches the window before the current buffer position for previous repeated occurrences.
    * 
    * @return If previous repeated occurrences were found.
    */
   private boolean checkWindow() {
-    if (inputIndex < 1) {
+    if (!matchFinder.find(inputIndex)) {
       return false;
     }
-
-    // 256 bytes is the maximum match length unless there are fewer bytes left than that
-    int maxMatchLength = 256;
-    int bytesLeft = input.length - inputIndex;
-    if (bytesLeft < maxMatchLength) {
-      maxMatchLength = bytesLeft + 1;
-    }
-    int matchLength = 1;
-    int scanIndex = inputIndex - 1;
-    int currentIndex = inputIndex;
-    int savedIndex = scanIndex;
-
-    // Don't exceed scan area of 8192 bytes
-    // Do not scan beyond start of input bytes
-    // Limit to 256 bytes match length
-    while (((currentIndex - scanIndex) < 8192) && (scanIndex >= 0)
-        && (matchLength < maxMatchLength)) {
-      while (memcmp(currentIndex, scanIndex, matchLength) && (matchLength < maxMatchLength)) {
-        savedIndex = scanIndex;
-        matchLength++;
-      }
-      scanIndex--;
-    }
-
-    matchLength--;
-    currentCompressionLength = matchLength;
-    pos = currentIndex - savedIndex;
-    if ((matchLength == 2) && (pos > 255)) {
-      return false;
-    }
-
-    return matchLength >= 2;
-  }
-
-  /**
-   * Partial Java re-implementation of the memcmp(...) function in C. Given two indices for the
-   * input bytes, checks that the given size number of bytes are the same.
-   * 
-   * @param index1 The first index.
-   * @param index2 The second index.
-   * @param size The number of bytes to compare.
-   * @return Whether the bytes are the same.
-   */
-  private boolean memcmp(int index1, int index2, int size) {
-    // ArrayIndexOutOfBoundsException safe version of memcpy
-    if (index1 + size > input.length) {
-      byte[] range1 = Arrays.copyOfRange(input, index1, index1 + size);
-      byte[] range2 = Arrays.copyOfRange(input, index2, index2 + size);
-      return Arrays.equals(range1, range2);
-    }
-    // Fast version of memcpy
-    for (int i = 0; i < size; i++) {
-      if (input[index1 + i] != input[index2 + i]) {
-        return false;
-      }
-    }
+    currentCompressionLength = matchFinder.getLength();
+    pos = matchFinder.getDistance();
     return true;
   }
 
@@ -238,6 +508,10 @@ public class PRSCompressor {
    * Write compressed bytes to the output byte array.
    */
   private void writeCompressedBytes() {
+    if (output == null) {
+      recordStep((pos << 8) | currentCompressionLength);
+      return;
+    }
     if (pos > 255 || currentCompressionLength > 5) {
       writeBytesLongCompression(currentCompressionLength, pos);
     } else {
@@ -250,6 +524,10 @@ public class PRSCompressor {
    * which indicates that this byte is uncompressed.
    */
   private void writeUncompressedByte() {
+    if (output == null) {
+      recordStep(1);
+      return;
+    }
     writeBit(1);
     output[outputIndex++] = input[inputIndex];
   }
@@ -0,0 +1,225 @@
+package com.github.nicholasmoser;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that reads Eighting PRS compressed bytes from the underlying input stream and
+ * uncompresses them. Only the 8192 byte window of previously uncompressed bytes is kept in memory,
+ * so files of any size can be uncompressed with bounded memory.
+ * <p>
+ * The compressed bytes do not reliably mark their own end, so the uncompressed size must be known
+ * ahead of time, such as from the header of an FPK child file. Compressed bytes are read from the
+ * underlying input stream in blocks, so it should only contain the compressed bytes.
+ * <p>
+ * FPK children are small enough to uncompress in memory with {@link PRSUncompressor}, which is
+ * faster, so the FPK tools do not use this stream.
+ */
+public class PRSInputStream extends FilterInputStream {
+
+  // Masks a position of the uncompressed bytes to its index in the window.
+  private static final int WINDOW_MASK = PRSMatchFinder.WINDOW_SIZE - 1;
+
+  // The size of the buffer of compressed bytes read from the underlying input stream.
+  private static final int INPUT_BUFFER_SIZE = 8192;
+
+  // The most recent uncompressed bytes, indexed by position in the window.
+  private final byte[] window;
+
+  // The array for reading a single byte.
+  private final byte[] singleByte;
+
+  // Compressed bytes read from the underlying input stream.
+  private final byte[] inputBuffer;
+
+  // The current index of the compressed bytes buffer.
+  private int inputIndex;
+
+  // The end of the compressed bytes in the buffer.
+  private int inputLimit;
+
+  // The uncompressed size of the bytes.
+  private final long uncompressedSize;
+
+  // The number of uncompressed bytes left to read.
+  private long remaining;
+
+  // The next index in the window to write an uncompressed byte to.
+  private int windowIndex;
+
+  // The flag bits not yet used, with the next bit as the highest bit.
+  private int flags;
+
+  // The number of flag bits not yet used.
+  private int bitsLeft;
+
+  // The number of bytes left to copy for the current back-reference.
+  private int copyLength;
+
+  // The distance back of the current back-reference.
+  private int copyDistance;
+
+  /**
+   * Creates a new Eighting PRS uncompressing input stream.
+   *
+   * @param in               The input stream to read the compressed bytes from.
+   * @param uncompressedSize The uncompressed size of the bytes.
+   */
+  public PRSInputStream(InputStream in, long uncompressedSize) {
+    super(in);
+    if (uncompressedSize < 0) {
+      throw new IllegalArgumentException("Negative uncompressed size: " + uncompressedSize);
+    }
+    window = new byte[PRSMatchFinder.WINDOW_SIZE];
+    inputBuffer = new byte[INPUT_BUFFER_SIZE];
+    singleByte = new byte[1];
+    this.uncompressedSize = uncompressedSize;
+    remaining = uncompressedSize;
+  }
+
+  @Override
+  public int read() throws IOException {
+    return read(singleByte, 0, 1) == -1 ? -1 : singleByte[0] & 0xFF;
+  }
+
+  /**
+   * Reads up to the given number of uncompressed bytes into the array.
+   *
+   * @param b   The array to read the uncompressed bytes into.
+   * @param off The offset in the array to read to.
+   * @param len The maximum number of bytes to read.
+   * @return The number of bytes read, or -1 if all uncompressed bytes have been read.
+   * @throws IOException If an I/O error occurs or the compressed bytes end too soon.
+   */
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (off < 0 || len < 0 || off + len > b.length) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (remaining == 0) {
+      return -1;
+    }
+    int end = off + (int) Math.min(len, remaining);
+    int index = off;
+    while (index < end) {
+      if (copyLength > 0) {
+        int count = Math.min(copyLength, end - index);
+        for (int i = 0; i < count; i++) {
+          byte value = window[(windowIndex - copyDistance) & WINDOW_MASK];
+          window[windowIndex] = value;
+          windowIndex = (windowIndex + 1) & WINDOW_MASK;
+          b[index++] = value;
+        }
+        copyLength -= count;
+      } else if (readBit() == 1) {
+        byte value = (byte) readByte();
+        window[windowIndex] = value;
+        windowIndex = (windowIndex + 1) & WINDOW_MASK;
+        b[index++] = value;
+      } else {
+        readBackReference();
+        long position = uncompressedSize - remaining + (index - off);
+        if (copyDistance > position) {
+          throw new IOException(String.format(
+              "PRS back-reference %d bytes before the start of the output", copyDistance));
+        }
+      }
+    }
+    remaining -= index - off;
+    return index - off;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    byte[] skipped = new byte[(int) Math.min(n, 4096)];
+    long total = 0;
+    while (total < n) {
+      int read = read(skipped, 0, (int) Math.min(n - total, skipped.length));
+      if (read == -1) {
+        break;
+      }
+      total += read;
+    }
+    return total;
+  }
+
+  @Override
+  public int available() {
+    return (int) Math.min(copyLength, remaining);
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public synchronized void mark(int readlimit) {
+  }
+
+  @Override
+  public synchronized void reset() throws IOException {
+    throw new IOException("mark/reset not supported");
+  }
+
+  /**
+   * Reads the length and distance of a back-reference after the 0 flag bit. A 0 bit means a short
+   * search, followed by two flag bits for the length and a byte for the distance. A 1 bit means a
+   * long search, followed by two bytes for the distance and length, and an extra byte for the
+   * length if it does not fit in the two bytes.
+   *
+   * @throws IOException If an I/O error occurs or the compressed bytes end too soon.
+   */
+  private void readBackReference() throws IOException {
+    if (readBit() == 1) {
+      int word = (readByte() << 8) | readByte();
+      copyDistance = -((word | 0xFFFF0000) >> 3);
+      copyLength = word & 0x07;
+      if (copyLength == 0) {
+        copyLength = readByte() + 1;
+      } else {
+        copyLength += 2;
+      }
+    } else {
+      copyLength = (readBit() << 1) | readBit();
+      copyLength += 2;
+      copyDistance = 0x100 - readByte();
+    }
+  }
+
+  /**
+   * @return The next flag bit.
+   * @throws IOException If an I/O error occurs or the compressed bytes end too soon.
+   */
+  private int readBit() throws IOException {
+    if (bitsLeft == 0) {
+      flags = readByte() << 24;
+      bitsLeft = 8;
+    }
+    int bit = flags >>> 31;
+    flags <<= 1;
+    bitsLeft--;
+    return bit;
+  }
+
+  /**
+   * @return The next compressed byte.
+   * @throws IOException If an I/O error occurs or the compressed bytes end too soon.
+   */
+  private int readByte() throws IOException {
+    if (inputIndex == inputLimit) {
+      int read = in.read(inputBuffer, 0, inputBuffer.length);
+      if (read <= 0) {
+        throw new EOFException("PRS compressed bytes ended before the uncompressed size");
+      }
+      inputIndex = 0;
+      inputLimit = read;
+    }
+    return inputBuffer[inputIndex++] & 0xFF;
+  }
+}
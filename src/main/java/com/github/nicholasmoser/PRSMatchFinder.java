@@ -0,0 +1,287 @@
+package com.github.nicholasmoser;
+
+import java.util.Arrays;
+
+/**
+ * Finds back-references for the Eighting PRS compressor. Previous positions are indexed with hash
+ * chains over 3-byte prefixes so that only positions sharing a prefix with the current position are
+ * compared, instead of every position in the 8192 byte window. Two byte matches cannot be found
+ * through a 3-byte prefix, so the most recent position of every 2-byte prefix is tracked as well.
+ * <p>
+ * The match returned is always the longest match in the window, and of the longest matches, the
+ * closest one. This is the same match that a full backwards scan of the window would find, which
+ * keeps the compressed output byte-identical to the original greedy encoder.
+ */
+class PRSMatchFinder {
+
+  // The window size, matches must be closer than this many bytes.
+  static final int WINDOW_SIZE = 8192;
+
+  // The maximum length of a match.
+  static final int MAX_MATCH_LENGTH = 255;
+
+  // The maximum distance of a match that can use a short search (length between 2 and 5).
+  static final int MAX_SHORT_DISTANCE = 255;
+
+  private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+
+  private static final int HASH_BITS = 15;
+
+  private static final int HASH_SIZE = 1 << HASH_BITS;
+
+  // Input bytes to search for matches.
+  private final byte[] input;
+
+  // The end of the valid input bytes.
+  private int limit;
+
+  // The most recent position for each 3-byte prefix hash.
+  private final int[] head;
+
+  // The previous position with the same 3-byte prefix hash, indexed by position in the window.
+  private final int[] prev;
+
+  // The most recent position for each 2-byte prefix.
+  private final int[] pairs;
+
+  // The next position to be added to the hash chains.
+  private int nextInsert;
+
+  // The length of the last match found.
+  private int matchLength;
+
+  // The distance back of the last match found.
+  private int matchDistance;
+
+  // The length of the longest match in short search distance of the last search.
+  private int shortLength;
+
+  // The distance back of the longest match in short search distance of the last search.
+  private int shortDistance;
+
+  /**
+   * Creates a new match finder for the given input bytes.
+   *
+   * @param input The input bytes to search for matches.
+   */
+  PRSMatchFinder(byte[] input) {
+    this(input, input.length);
+  }
+
+  /**
+   * Creates a new match finder for the given input bytes, where only the bytes before the limit
+   * are valid. The limit can be increased as more bytes are added to the input array.
+   *
+   * @param input The input bytes to search for matches.
+   * @param limit The end of the valid input bytes.
+   */
+  PRSMatchFinder(byte[] input, int limit) {
+    this(input, 0, limit);
+  }
+
+  /**
+   * Creates a new match finder for the bytes of the input between the start and limit. The window
+   * before the start is still searched for matches, but matches cannot extend past the limit.
+   *
+   * @param input The input bytes to search for matches.
+   * @param start The first index of the input that will be searched for.
+   * @param limit The end of the valid input bytes.
+   */
+  PRSMatchFinder(byte[] input, int start, int limit) {
+    this.input = input;
+    this.limit = limit;
+    head = new int[HASH_SIZE];
+    prev = new int[WINDOW_SIZE];
+    pairs = new int[1 << 16];
+    Arrays.fill(head, -1);
+    Arrays.fill(pairs, -1);
+    nextInsert = Math.max(0, start - (WINDOW_SIZE - 1));
+  }
+
+  /**
+   * Searches the window before the given index for the longest match. Indices must be searched in
+   * increasing order. If a match is found, the length and distance can be retrieved with
+   * {@link #getLength()} and {@link #getDistance()}. A match of two bytes is only returned if it
+   * can be encoded with a short search. The longest match close enough to be encoded with a short
+   * search can be retrieved with {@link #getShortLength()} and {@link #getShortDistance()}.
+   *
+   * @param index The index of the input to find a match for.
+   * @return If a match of two or more bytes was found.
+   */
+  boolean find(int index) {
+    insertUntil(index);
+    matchLength = 0;
+    matchDistance = 0;
+    shortLength = 0;
+    shortDistance = 0;
+    int maxLength = Math.min(MAX_MATCH_LENGTH, limit - index);
+    if (maxLength < 2) {
+      return false;
+    }
+    int minPosition = index - (WINDOW_SIZE - 1);
+    int bestLength = 2;
+    if (maxLength >= 3) {
+      int candidate = head[hash(index)];
+      while (candidate >= minPosition && candidate >= 0) {
+        // Any longer match must also match the byte at the current best length
+        if (input[candidate + bestLength] == input[index + bestLength]) {
+          int length = getMatchLength(candidate, index, maxLength);
+          if (length > bestLength) {
+            bestLength = length;
+            matchDistance = index - candidate;
+            if (matchDistance <= MAX_SHORT_DISTANCE) {
+              shortLength = length;
+              shortDistance = matchDistance;
+            }
+            if (length == maxLength) {
+              break;
+            }
+          }
+        }
+        int next = prev[candidate & WINDOW_MASK];
+        if (next >= candidate) {
+          break;
+        }
+        candidate = next;
+      }
+    }
+    if (shortLength == 0) {
+      int candidate = pairs[pair(index)];
+      if (candidate >= 0 && index - candidate <= MAX_SHORT_DISTANCE) {
+        shortLength = 2;
+        shortDistance = index - candidate;
+      }
+    }
+    if (matchDistance != 0) {
+      matchLength = bestLength;
+      return true;
+    } else if (shortLength != 0) {
+      matchLength = shortLength;
+      matchDistance = shortDistance;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return The length of the last match found.
+   */
+  int getLength() {
+    return matchLength;
+  }
+
+  /**
+   * @return The distance back of the last match found.
+   */
+  int getDistance() {
+    return matchDistance;
+  }
+
+  /**
+   * @return The length of the longest match from the last search that can use a short search.
+   */
+  int getShortLength() {
+    return shortLength;
+  }
+
+  /**
+   * @return The distance back of the longest match from the last search that can use a short
+   * search.
+   */
+  int getShortDistance() {
+    return shortDistance;
+  }
+
+  /**
+   * Sets the end of the valid input bytes. Positions already searched must not be affected by the
+   * new bytes, so this should only be increased.
+   *
+   * @param limit The end of the valid input bytes.
+   */
+  void setLimit(int limit) {
+    this.limit = limit;
+  }
+
+  /**
+   * Updates the positions in the hash chains after the input bytes have been moved back by the
+   * given amount. Positions that are moved before the start of the input are dropped. The amount
+   * must be a multiple of the window size so that positions keep their place in the window.
+   *
+   * @param amount The number of bytes the input was moved back by.
+   */
+  void slide(int amount) {
+    if (amount % WINDOW_SIZE != 0) {
+      throw new IllegalArgumentException("Slide amount must be a multiple of the window size.");
+    }
+    slide(head, amount);
+    slide(prev, amount);
+    slide(pairs, amount);
+    nextInsert -= amount;
+    limit -= amount;
+  }
+
+  /**
+   * Moves back each position in the given array by the given amount.
+   *
+   * @param positions The positions to move back.
+   * @param amount    The amount to move them back.
+   */
+  private static void slide(int[] positions, int amount) {
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = positions[i] >= amount ? positions[i] - amount : -1;
+    }
+  }
+
+  /**
+   * Adds every position before the given index to the hash chains.
+   *
+   * @param index The index to add positions until, exclusive.
+   */
+  private void insertUntil(int index) {
+    while (nextInsert < index) {
+      int position = nextInsert++;
+      if (position + 2 < limit) {
+        int hash = hash(position);
+        prev[position & WINDOW_MASK] = head[hash];
+        head[hash] = position;
+      }
+      if (position + 1 < limit) {
+        pairs[pair(position)] = position;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of bytes that match between the two indices.
+   *
+   * @param candidate The earlier index.
+   * @param index     The current index.
+   * @param maxLength The maximum length to compare.
+   * @return The number of matching bytes.
+   */
+  private int getMatchLength(int candidate, int index, int maxLength) {
+    int length = 0;
+    while (length < maxLength && input[candidate + length] == input[index + length]) {
+      length++;
+    }
+    return length;
+  }
+
+  /**
+   * @param index The index of the 3-byte prefix.
+   * @return The hash of the 3-byte prefix.
+   */
+  private int hash(int index) {
+    int prefix = ((input[index] & 0xFF) << 16) | ((input[index + 1] & 0xFF) << 8)
+        | (input[index + 2] & 0xFF);
+    return (prefix * 0x9E3779B1) >>> (32 - HASH_BITS);
+  }
+
+  /**
+   * @param index The index of the 2-byte prefix.
+   * @return The 2-byte prefix as an int.
+   */
+  private int pair(int index) {
+    return ((input[index] & 0xFF) << 8) | (input[index + 1] & 0xFF);
+  }
+}
@@ -0,0 +1,271 @@
+package com.github.nicholasmoser;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that compresses the bytes written to it with Eighting PRS compression and writes
+ * the compressed bytes to the underlying output stream. Only the 8192 byte window of previous bytes
+ * and a small amount of bytes ahead of it are kept in memory, so files of any size can be
+ * compressed with bounded memory.
+ * <p>
+ * The compressed bytes are identical to those of {@link PRSCompressor} using
+ * {@link PRSCompressor.Level#GREEDY}. The compressed bytes are not complete until {@link #finish()}
+ * or {@link #close()} is called.
+ * <p>
+ * The FPK tools compress whole children in memory with {@link PRSCompressor}, which also supports
+ * the better compression levels, so they do not use this stream.
+ */
+public class PRSOutputStream extends FilterOutputStream {
+
+  // The size of the input buffer, holding the window and the bytes not yet compressed.
+  private static final int INPUT_BUFFER_SIZE = 8 * PRSMatchFinder.WINDOW_SIZE;
+
+  // The number of output bytes to buffer before writing them to the underlying output stream.
+  private static final int OUTPUT_BUFFER_SIZE = 8192;
+
+  // The input bytes, both already compressed bytes in the window and bytes not yet compressed.
+  private final byte[] input;
+
+  // Output bytes that have been compressed. Extra room is left for the bytes of a flag byte.
+  private final byte[] output;
+
+  // The array for writing a single byte.
+  private final byte[] singleByte;
+
+  // Finds previous repeated occurrences of the input bytes.
+  private final PRSMatchFinder matchFinder;
+
+  // The end of the input bytes written so far.
+  private int inputLimit;
+
+  // The current index of the input bytes.
+  private int inputIndex;
+
+  // The location in the output bytes of the current flag byte.
+  private int flagIndex;
+
+  // The current index of the output bytes.
+  private int outputIndex;
+
+  // The current bit index inside of the flag byte.
+  private int flagBitIndex;
+
+  // Whether the compressed bytes have been terminated.
+  private boolean finished;
+
+  /**
+   * Creates a new Eighting PRS compressing output stream.
+   *
+   * @param out The output stream to write the compressed bytes to.
+   */
+  public PRSOutputStream(OutputStream out) {
+    super(out);
+    input = new byte[INPUT_BUFFER_SIZE];
+    output = new byte[OUTPUT_BUFFER_SIZE + 64];
+    singleByte = new byte[1];
+    matchFinder = new PRSMatchFinder(input, 0);
+    inputLimit = 0;
+    inputIndex = 0;
+    flagIndex = 0;
+    outputIndex = 1;
+    flagBitIndex = 7;
+    finished = false;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    singleByte[0] = (byte) b;
+    write(singleByte, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (finished) {
+      throw new IOException("PRS output stream has already been finished.");
+    }
+    if (off < 0 || len < 0 || off + len > b.length) {
+      throw new IndexOutOfBoundsException();
+    }
+    while (len > 0) {
+      if (inputLimit == input.length) {
+        compress(false);
+        slideWindow();
+      }
+      int count = Math.min(len, input.length - inputLimit);
+      System.arraycopy(b, off, input, inputLimit, count);
+      inputLimit += count;
+      matchFinder.setLimit(inputLimit);
+      off += count;
+      len -= count;
+    }
+  }
+
+  /**
+   * Writes the compressed bytes that are complete to the underlying output stream. The bytes of the
+   * current flag byte are held back until all bits of it are known.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void flush() throws IOException {
+    if (!finished) {
+      compress(false);
+      writeOutput(flagIndex);
+    }
+    out.flush();
+  }
+
+  /**
+   * Compresses the remaining input bytes and terminates the compressed bytes without closing the
+   * underlying output stream. No more bytes can be written after this is called.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  public void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    compress(true);
+    // Terminate with a long search that yields no result, followed by three 0s
+    writeBit(0);
+    writeBit(1);
+    output[outputIndex++] = 0;
+    output[outputIndex++] = 0;
+    output[outputIndex++] = 0;
+    writeOutput(outputIndex);
+    finished = true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      finish();
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Compresses the input bytes by always taking the longest match in the window, or an
+   * uncompressed byte if there is none. Unless this is the end of the input, only bytes followed by
+   * enough input bytes for a match of the maximum length are compressed, so that each match is the
+   * same as if the whole input was available.
+   * <p>
+   * Run length encoding is not checked for, since a run of the previous byte is always found as a
+   * match in the window first.
+   *
+   * @param end If this is the end of the input.
+   * @throws IOException If an I/O error occurs.
+   */
+  private void compress(boolean end) throws IOException {
+    int compressLimit = end ? inputLimit : inputLimit - PRSMatchFinder.MAX_MATCH_LENGTH;
+    while (inputIndex < compressLimit) {
+      if (matchFinder.find(inputIndex)) {
+        int length = matchFinder.getLength();
+        int distance = matchFinder.getDistance();
+        if (distance > PRSMatchFinder.MAX_SHORT_DISTANCE || length > 5) {
+          writeBytesLongCompression(length, distance);
+        } else {
+          writeBytesShortCompression(length, distance);
+        }
+        inputIndex += length;
+      } else {
+        writeBit(1);
+        output[outputIndex++] = input[inputIndex++];
+      }
+    }
+  }
+
+  /**
+   * Moves the window and the bytes not yet compressed to the start of the input buffer, dropping
+   * bytes too far back to be matched. Bytes are moved by a multiple of the window size as required
+   * by the match finder.
+   */
+  private void slideWindow() {
+    int amount = ((inputIndex - PRSMatchFinder.WINDOW_SIZE) / PRSMatchFinder.WINDOW_SIZE)
+        * PRSMatchFinder.WINDOW_SIZE;
+    if (amount <= 0) {
+      return;
+    }
+    System.arraycopy(input, amount, input, 0, inputLimit - amount);
+    inputLimit -= amount;
+    inputIndex -= amount;
+    matchFinder.slide(amount);
+  }
+
+  /**
+   * Writes the output bytes before the given index to the underlying output stream and moves the
+   * rest to the start of the output buffer.
+   *
+   * @param end The index to write the output bytes until, exclusive.
+   * @throws IOException If an I/O error occurs.
+   */
+  private void writeOutput(int end) throws IOException {
+    out.write(output, 0, end);
+    System.arraycopy(output, end, output, 0, outputIndex - end);
+    flagIndex -= end;
+    outputIndex -= end;
+  }
+
+  /**
+   * Writes a bit to the current flag byte. If there are no more bits left in the current flag byte,
+   * creates a new flag byte at the current output index and writes to it.
+   *
+   * @param bit The bit to write.
+   * @throws IOException If an I/O error occurs.
+   */
+  private void writeBit(int bit) throws IOException {
+    if (flagBitIndex == -1) {
+      if (outputIndex >= OUTPUT_BUFFER_SIZE) {
+        writeOutput(outputIndex);
+      }
+      flagBitIndex = 7;
+      flagIndex = outputIndex;
+      outputIndex = flagIndex + 1;
+      output[flagIndex] = 0;
+    }
+    output[flagIndex] |= bit << flagBitIndex;
+    flagBitIndex--;
+  }
+
+  /**
+   * Compresses between 2 and 5 bytes reachable through a short search. This includes the bits 0 and
+   * 0 in the flag byte, which indicates that this byte is compressed and is short.
+   *
+   * @param length   The length of the match.
+   * @param distance The distance back of the match.
+   * @throws IOException If an I/O error occurs.
+   */
+  private void writeBytesShortCompression(int length, int distance) throws IOException {
+    writeBit(0);
+    writeBit(0);
+    writeBit(((length - 2) >> 1) & 0x01);
+    writeBit((length - 2) & 0x01);
+    output[outputIndex++] = (byte) -distance;
+  }
+
+  /**
+   * Compresses a long length of bytes. This includes the bits 0 and 1 in the flag byte, which
+   * indicates that this byte is compressed and is long.
+   *
+   * @param length   The length of the match.
+   * @param distance The distance back of the match.
+   * @throws IOException If an I/O error occurs.
+   */
+  private void writeBytesLongCompression(int length, int distance) throws IOException {
+    writeBit(0);
+    writeBit(1);
+    int word = -distance << 3;
+    if (length <= 9) {
+      word |= (length - 2) & 0x07;
+    }
+    output[outputIndex++] = (byte) (word >> 8);
+    output[outputIndex++] = (byte) word;
+    // Lengths over 9 leave the lower 3 bits empty and use the next byte for the full length
+    if (length > 9) {
+      output[outputIndex++] = (byte) (length - 1);
+    }
+  }
+}
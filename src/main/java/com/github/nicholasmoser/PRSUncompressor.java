@@ -1,9 +1,15 @@
 package com.github.nicholasmoser;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 /**
  * An uncompressor for Eighting PRS compressed files. Takes in the full byte array of the file and
  * returns the uncompressed byte stream. Thanks to Luigi Auriemma for porting to QuickBMS. Thanks to
  * tpu for originally writing it: http://forum.xentax.com/viewtopic.php?p=30387#p30387
+ * <p>
+ * The static uncompress methods write into a buffer supplied by the caller so that many files can
+ * be uncompressed into the same buffer without allocating a new array for each.
  */
 public class PRSUncompressor {
 
@@ -13,103 +19,188 @@ public class PRSUncompressor {
   // The expected output length (uncompressed size).
   private final int outputLength;
 
-  // The current index of the input bytes.
-  private int inputIndex;
-
-  // Number of bits still remaining in the flag byte.
-  private int bitsLeft;
-
-  // Buffer that holds an input byte to be uncompressed.
-  private byte flagByte;
-
   /**
    * PRSUncompressor constructor using an input byte array and output length.
-   * 
+   *
    * @param input Eighting PRS compressed byte array.
    * @param outputLength Expected output length (uncompressed size).
    */
   public PRSUncompressor(byte[] input, int outputLength) {
     this.input = input;
     this.outputLength = outputLength;
-    inputIndex = 0;
-    bitsLeft = 0;
-    flagByte = 0;
   }
 
   /**
    * Runs the uncompressor and returns the associated uncompressed byte array.
-   * 
+   *
    * @return The associated uncompressed byte array.
    */
   public byte[] uncompress() {
     byte[] output = new byte[outputLength];
-    int outputPtr = 0;
-    int flag;
-    int len;
-    int pos;
-    while (inputIndex < input.length) {
-      flag = getFlagBits(1);
-      if (flag == 1) // Uncompressed value
-      {
-        if (outputPtr < output.length)
-          output[outputPtr++] = input[inputIndex++];
-      } else // Compressed value
-      {
-        flag = getFlagBits(1);
-        if (flag == 0) // Short search (length between 2 and 5)
-        {
-          len = getFlagBits(2) + 2;
-          pos = input[inputIndex++] & 0xff | 0xffffff00;
-        } else // Long search
-        {
-          pos = (input[inputIndex++] << 8) | 0xffff0000;
-          pos |= input[inputIndex++] & 0xff;
-          len = pos & 0x07;
-          pos >>= 3;
-          if (len == 0) {
-            len = (input[inputIndex++] & 0xff) + 1;
-          } else {
-            len += 2;
-          }
-        }
-        pos += outputPtr;
-        for (int i = 0; i < len; i++) {
-          if (outputPtr < output.length)
-            output[outputPtr++] = output[pos++];
-        }
-      }
-    }
-
+    uncompress(input, 0, input.length, output, 0, outputLength);
     return output;
   }
 
   /**
-   * Retrieves a number of bits from the flag byte. A single 1 means the next byte is uncompressed.
-   * A 0 followed by a 0 means that the next bytes are compressed via short search. A 0 followed by
-   * a 1 means that the next bytes are compressed via long search. Short searches will be followed
-   * by two bits used to calculate the length of the compressed bytes.
-   * 
-   * @param n The number of bits to get.
-   * @return The flag bit(s).
+   * Uncompresses the remaining bytes of the input buffer into the remaining bytes of the output
+   * buffer. The position of the input buffer is advanced to its limit and the position of the
+   * output buffer is advanced by the number of bytes uncompressed. Both buffers should be backed by
+   * arrays, otherwise temporary arrays will be used.
+   *
+   * @param input  The Eighting PRS compressed bytes.
+   * @param output The buffer to write the uncompressed bytes to.
+   * @return The number of bytes uncompressed.
+   */
+  public static int uncompress(ByteBuffer input, ByteBuffer output) {
+    byte[] inputArray;
+    int inputOffset;
+    int inputLength = input.remaining();
+    if (input.hasArray()) {
+      inputArray = input.array();
+      inputOffset = input.arrayOffset() + input.position();
+      input.position(input.limit());
+    } else {
+      inputArray = new byte[inputLength];
+      inputOffset = 0;
+      input.get(inputArray);
+    }
+    int outputLength = output.remaining();
+    int uncompressed;
+    if (output.hasArray()) {
+      int outputOffset = output.arrayOffset() + output.position();
+      uncompressed = uncompress(inputArray, inputOffset, inputLength, output.array(), outputOffset,
+          outputLength);
+      output.position(output.position() + uncompressed);
+    } else {
+      byte[] temp = new byte[outputLength];
+      uncompressed = uncompress(inputArray, inputOffset, inputLength, temp, 0, outputLength);
+      output.put(temp, 0, uncompressed);
+    }
+    return uncompressed;
+  }
+
+  /**
+   * Uncompresses the input bytes into the given range of the output array. Uncompression stops
+   * once the output length is reached, the end of the compressed data is found or the input bytes
+   * run out, so callers should check that the number of bytes uncompressed is the output length.
+   * <p>
+   * A 1 flag bit means the next byte is uncompressed. A 0 followed by a 0 means that the next bytes
+   * are compressed via short search, and will be followed by two flag bits used to calculate the
+   * length of the compressed bytes. A 0 followed by a 1 means that the next bytes are compressed
+   * via long search. Consecutive 1 flag bits are copied together.
+   *
+   * @param input        The array containing Eighting PRS compressed bytes.
+   * @param inputOffset  The offset of the compressed bytes in the input array.
+   * @param inputLength  The number of compressed bytes.
+   * @param output       The array to write the uncompressed bytes to.
+   * @param outputOffset The offset in the output array to write to.
+   * @param outputLength The expected output length (uncompressed size).
+   * @return The number of bytes uncompressed.
    */
-  private int getFlagBits(int n) {
-    int bits = 0;
-    while (n > 0) {
-      bits <<= 1;
+  public static int uncompress(byte[] input, int inputOffset, int inputLength, byte[] output,
+      int outputOffset, int outputLength) {
+    int inputIndex = inputOffset;
+    int inputEnd = inputOffset + inputLength;
+    int outputIndex = outputOffset;
+    int outputEnd = outputOffset + outputLength;
+    // The flag bits not yet used, with the next bit as the highest bit
+    int flags = 0;
+    int bitsLeft = 0;
+    decode:
+    while (inputIndex < inputEnd && outputIndex < outputEnd) {
       if (bitsLeft == 0) {
-        flagByte = input[inputIndex];
-        inputIndex++;
+        flags = input[inputIndex++] << 24;
         bitsLeft = 8;
       }
 
-      if ((flagByte & 0x80) > 0) {
-        bits |= 1;
+      // Copy all uncompressed values for the 1 bits at the start of the flags
+      int literals = Math.min(Integer.numberOfLeadingZeros(~flags), bitsLeft);
+      if (literals > 0) {
+        literals = Math.min(literals, Math.min(inputEnd - inputIndex, outputEnd - outputIndex));
+        System.arraycopy(input, inputIndex, output, outputIndex, literals);
+        inputIndex += literals;
+        outputIndex += literals;
+        flags <<= literals;
+        bitsLeft -= literals;
+        continue;
       }
 
-      flagByte <<= 1;
+      // Compressed value, skip the 0 bit and read whether it is a short or long search
+      flags <<= 1;
+      bitsLeft--;
+      if (bitsLeft == 0) {
+        if (inputIndex == inputEnd) {
+          break;
+        }
+        flags = input[inputIndex++] << 24;
+        bitsLeft = 8;
+      }
+      boolean longSearch = flags < 0;
+      flags <<= 1;
       bitsLeft--;
-      n--;
+
+      int distance;
+      int length;
+      if (longSearch) {
+        if (inputEnd - inputIndex < 2) {
+          break;
+        }
+        int word = ((input[inputIndex] & 0xFF) << 8) | (input[inputIndex + 1] & 0xFF);
+        inputIndex += 2;
+        if (word == 0) {
+          // A long search with no distance marks the end of the compressed data
+          break;
+        }
+        distance = -((word | 0xFFFF0000) >> 3);
+        length = word & 0x07;
+        if (length == 0) {
+          if (inputIndex == inputEnd) {
+            break;
+          }
+          length = (input[inputIndex++] & 0xFF) + 1;
+        } else {
+          length += 2;
+        }
+      } else {
+        // Short search (length between 2 and 5), the two length bits may span two flag bytes
+        length = 0;
+        for (int i = 0; i < 2; i++) {
+          if (bitsLeft == 0) {
+            if (inputIndex == inputEnd) {
+              break decode;
+            }
+            flags = input[inputIndex++] << 24;
+            bitsLeft = 8;
+          }
+          length = (length << 1) | (flags >>> 31);
+          flags <<= 1;
+          bitsLeft--;
+        }
+        length += 2;
+        if (inputIndex == inputEnd) {
+          break;
+        }
+        distance = 0x100 - (input[inputIndex++] & 0xFF);
+      }
+
+      int source = outputIndex - distance;
+      if (source < outputOffset) {
+        throw new IllegalArgumentException(
+            String.format("PRS back-reference %d bytes before the start of the output", distance));
+      }
+      length = Math.min(length, outputEnd - outputIndex);
+      if (distance == 1) {
+        Arrays.fill(output, outputIndex, outputIndex + length, output[source]);
+      } else if (distance >= length) {
+        System.arraycopy(output, source, output, outputIndex, length);
+      } else {
+        // Overlapping back-reference, each byte may depend on one written by this copy
+        for (int i = 0; i < length; i++) {
+          output[outputIndex + i] = output[source + i];
+        }
+      }
+      outputIndex += length;
     }
-    return bits;
+    return outputIndex - outputOffset;
   }
 }
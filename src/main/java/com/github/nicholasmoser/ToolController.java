@@ -7,6 +7,7 @@ import com.github.nicholasmoser.tools.GNTAEditorTool;
 import com.github.nicholasmoser.tools.ISOCompareTool;
 import com.github.nicholasmoser.tools.ISOExtractorTool;
 import com.github.nicholasmoser.tools.ISOPatcher;
+import com.github.nicholasmoser.tools.ISOVerifierTool;
 import com.github.nicholasmoser.tools.MOTRepackerTool;
 import com.github.nicholasmoser.tools.MOTUnpackerTool;
 import com.github.nicholasmoser.tools.SeqDisassemblerTool;
@@ -35,6 +36,7 @@ public class ToolController {
   private static final String ISO_PATCHER_GC = "ISO Patcher (GameCube)";
   private static final String ISO_EXTRACTOR_GC = "ISO Extractor (GameCube)";
   private static final String ISO_COMPARE_GC = "ISO Compare (GameCube)";
+  private static final String ISO_VERIFIER_GC = "ISO Verifier (GameCube)";
   private static final String FPK_UNPACKER_GC = "FPK Unpacker (GameCube)";
   private static final String FPK_UNPACKER_WII = "FPK Unpacker (Wii)";
   private static final String FPK_UNPACKER_PS2 = "FPK Unpacker (PS2/PSP)";
@@ -63,6 +65,7 @@ public class ToolController {
     items.add(ISO_PATCHER_GC);
     items.add(ISO_EXTRACTOR_GC);
     items.add(ISO_COMPARE_GC);
+    items.add(ISO_VERIFIER_GC);
     items.add(FPK_UNPACKER_GC);
     items.add(FPK_UNPACKER_WII);
     items.add(FPK_UNPACKER_PS2);
@@ -113,6 +116,7 @@ public class ToolController {
         case FPK_UNPACKER_PS2 -> FPKUnpackerTool.unpackPS2FPK();
         case ISO_PATCHER_GC -> ISOPatcher.patchGameCubeISO();
         case ISO_COMPARE_GC -> ISOCompareTool.compareGameCubeISO();
+        case ISO_VERIFIER_GC -> ISOVerifierTool.verifyGameCubeISO();
         case TXG2TPL -> TXG2TPLTool.run();
         case SEQ_DISASSEMBLER_HTML -> SeqDisassemblerTool.disassembleToHTML();
         case SEQ_DISASSEMBLER_TXT -> SeqDisassemblerTool.disassembleToTXT();
@@ -42,6 +42,15 @@ public interface Workspace {
    */
   void updateState() throws IOException;
 
+  /**
+   * Updates the workspace state for only the given changed files, such as the files that were just
+   * built into an ISO.
+   *
+   * @param changedFiles The file paths of the changed files.
+   * @throws IOException If any I/O exception occurs.
+   */
+  void updateState(Collection<String> changedFiles) throws IOException;
+
   /**
    *
    * Add a file to the workspace state.
@@ -75,10 +84,13 @@ public interface Workspace {
   Set<String> getMissingFiles(List<WorkspaceFile> allFiles);
 
   /**
-   * Returns the files that have been changed.
+   * Returns the files that have been changed. Files whose fingerprint has not changed since they
+   * were last hashed are not hashed again. The fingerprints of the hashed files are saved to the
+   * workspace state.
    *
    * @param allFiles All files currently in the workspace state.
-   * @param quick    If this call should be done in a less accurate but more quick way
+   * @param quick    If this call should be done in a less accurate but more quick way, which skips
+   *                 files without a fingerprint that have not been modified since the last build
    * @return The collection of changed files.
    * @throws IOException If any I/O exception occurs.
    */
@@ -92,6 +104,29 @@ public interface Workspace {
    */
   void revertFiles(Collection<String> filePaths) throws IOException;
 
+  /**
+   * Creates a named snapshot of every file in the workspace state.
+   *
+   * @param name The name of the snapshot.
+   * @throws IOException If any I/O exception occurs.
+   */
+  void createSnapshot(String name) throws IOException;
+
+  /**
+   * @return The names of every snapshot of the workspace, including the snapshot of each build.
+   * @throws IOException If any I/O exception occurs.
+   */
+  List<String> getSnapshotNames() throws IOException;
+
+  /**
+   * Restores every file in a snapshot to the uncompressed directory.
+   *
+   * @param name The name of the snapshot.
+   * @return The number of files restored.
+   * @throws IOException If any I/O exception occurs.
+   */
+  int restoreSnapshot(String name) throws IOException;
+
   /**
    * @return The FPK options for this workspace.
    */
@@ -0,0 +1,324 @@
+package com.github.nicholasmoser.fpk;
+
+import com.github.nicholasmoser.PRSUncompressor;
+import com.github.nicholasmoser.utils.ReusableBuffer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An open FPK file for random access to its children. The headers are read once when the archive
+ * is opened and indexed by file name, so finding a child does not require reading the headers
+ * again. The data of each child is read from the file with a positional read when it is needed.
+ * An archive can also be read from the bytes of an FPK file that are already in memory.
+ * <p>
+ * The file stays open until the archive is closed. On Windows, an open file cannot be replaced, so
+ * archives should be closed before their files are rewritten.
+ */
+public class FPKArchive implements Closeable {
+
+  private static final Charset SHIFT_JIS = Charset.forName("Shift_JIS");
+
+  private final Path path;
+
+  // The open channel of the FPK file, or null if the archive is read from memory.
+  private final FileChannel channel;
+
+  // The bytes of the FPK file, or null if the archive is read from a file.
+  private final ByteBuffer fpkBytes;
+
+  private final boolean longPaths;
+
+  private final boolean bigEndian;
+
+  // The headers of the children by file name, in the order they appear in the FPK.
+  private final Map<String, FPKFileHeader> headers;
+
+  /**
+   * Creates a new FPK archive for an open FPK file or the bytes of an FPK file.
+   *
+   * @param path      The path of the FPK file.
+   * @param channel   The open channel of the FPK file, or null.
+   * @param bytes     The bytes of the FPK file, or null.
+   * @param longPaths If the FPK inner file paths are 32-bytes (instead of 16-bytes).
+   * @param bigEndian If the FPK is big-endian (instead of little-endian).
+   * @param headers   The headers of the children by file name.
+   */
+  private FPKArchive(Path path, FileChannel channel, ByteBuffer bytes, boolean longPaths,
+      boolean bigEndian, Map<String, FPKFileHeader> headers) {
+    this.path = path;
+    this.channel = channel;
+    this.fpkBytes = bytes;
+    this.longPaths = longPaths;
+    this.bigEndian = bigEndian;
+    this.headers = headers;
+  }
+
+  /**
+   * Opens the given FPK file and reads its headers.
+   *
+   * @param path      The path of the FPK file.
+   * @param longPaths If the FPK inner file paths are 32-bytes (instead of 16-bytes).
+   * @param bigEndian If the FPK is big-endian (instead of little-endian).
+   * @return The FPK archive.
+   * @throws IOException If an I/O error occurs or the FPK headers are invalid.
+   */
+  public static FPKArchive open(Path path, boolean longPaths, boolean bigEndian)
+      throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      Map<String, FPKFileHeader> headers = readHeaders(path, channel, null, channel.size(),
+          longPaths, bigEndian);
+      return new FPKArchive(path, channel, null, longPaths, bigEndian, headers);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the headers of an FPK file that is already in memory. The archive reads the data of each
+   * child from the given bytes, which must not be modified while the archive is used.
+   *
+   * @param path      The path of the FPK file, for error messages.
+   * @param bytes     The bytes of the FPK file, from its position to its limit.
+   * @param longPaths If the FPK inner file paths are 32-bytes (instead of 16-bytes).
+   * @param bigEndian If the FPK is big-endian (instead of little-endian).
+   * @return The FPK archive.
+   * @throws IOException If the FPK headers are invalid.
+   */
+  public static FPKArchive of(Path path, ByteBuffer bytes, boolean longPaths, boolean bigEndian)
+      throws IOException {
+    ByteBuffer slice = bytes.slice();
+    Map<String, FPKFileHeader> headers = readHeaders(path, null, slice, slice.limit(), longPaths,
+        bigEndian);
+    return new FPKArchive(path, null, slice, longPaths, bigEndian, headers);
+  }
+
+  /**
+   * Reads and indexes the headers of an FPK file.
+   *
+   * @param path      The path of the FPK file.
+   * @param channel   The open channel of the FPK file, or null.
+   * @param bytes     The bytes of the FPK file, or null.
+   * @param size      The size of the FPK file.
+   * @param longPaths If the FPK inner file paths are 32-bytes (instead of 16-bytes).
+   * @param bigEndian If the FPK is big-endian (instead of little-endian).
+   * @return The headers of the children by file name, in the order they appear in the FPK.
+   * @throws IOException If an I/O error occurs or the FPK headers are invalid.
+   */
+  private static Map<String, FPKFileHeader> readHeaders(Path path, FileChannel channel,
+      ByteBuffer bytes, long size, boolean longPaths, boolean bigEndian) throws IOException {
+    if (size < 16) {
+      throw new IOException("Unable to read FPK header of " + path);
+    }
+    ByteBuffer header = ByteBuffer.allocate(16);
+    header.order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+    read(channel, bytes, path, header, 0);
+    int fileCount = header.getInt(4);
+    int pathLength = longPaths ? 32 : 16;
+    int headerSize = pathLength + 16;
+    if (fileCount < 0 || 16L + (long) fileCount * headerSize > size) {
+      throw new IOException(String.format("Invalid file count %d in %s", fileCount, path));
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(16L + (long) fileCount * headerSize));
+    buffer.order(header.order());
+    read(channel, bytes, path, buffer, 0);
+    Map<String, FPKFileHeader> headers = new LinkedHashMap<>();
+    byte[] fileNameBytes = new byte[pathLength];
+    for (int i = 0; i < fileCount; i++) {
+      int position = 16 + i * headerSize;
+      buffer.get(position, fileNameBytes);
+      String fileName = new String(fileNameBytes, SHIFT_JIS).trim();
+      int offset = buffer.getInt(position + pathLength + 4);
+      int compressedSize = buffer.getInt(position + pathLength + 8);
+      int uncompressedSize = buffer.getInt(position + pathLength + 12);
+      if (offset < 0 || compressedSize < 0 || uncompressedSize < 0
+          || (long) offset + compressedSize > size) {
+        throw new IOException(String.format("Invalid FPK file header for %s in %s", fileName,
+            path));
+      }
+      FPKFileHeader fileHeader = new FPKFileHeader(fileName, offset, compressedSize,
+          uncompressedSize, longPaths, bigEndian);
+      // Keep the first child if there are duplicate names
+      headers.putIfAbsent(fileName, fileHeader);
+    }
+    return headers;
+  }
+
+  /**
+   * @return The path of the FPK file.
+   */
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * @return If the FPK inner file paths are 32-bytes (instead of 16-bytes).
+   */
+  public boolean isLongPaths() {
+    return longPaths;
+  }
+
+  /**
+   * @return If the FPK is big-endian (instead of little-endian).
+   */
+  public boolean isBigEndian() {
+    return bigEndian;
+  }
+
+  /**
+   * @return The headers of the children, in the order they appear in the FPK.
+   */
+  public List<FPKFileHeader> getHeaders() {
+    return Collections.unmodifiableList(new ArrayList<>(headers.values()));
+  }
+
+  /**
+   * @param child The child compressed path.
+   * @return The header of the child, or null if there is no child with that name.
+   */
+  public FPKFileHeader getHeader(String child) {
+    return headers.get(child);
+  }
+
+  /**
+   * Reads the data of the child. The data is compressed if the compressed size is different from
+   * the uncompressed size.
+   *
+   * @param child The child compressed path.
+   * @return The data of the child.
+   * @throws IOException If the child could not be found or read.
+   */
+  public ByteBuffer getData(String child) throws IOException {
+    FPKFileHeader header = getExistingHeader(child);
+    ByteBuffer data = ByteBuffer.allocate(header.getCompressedSize());
+    read(channel, fpkBytes, path, data, header.getOffset());
+    return data.flip();
+  }
+
+  /**
+   * Returns the uncompressed bytes of the child.
+   *
+   * @param child The child compressed path.
+   * @return The uncompressed bytes.
+   * @throws IOException If the child could not be found, read or uncompressed.
+   */
+  public byte[] getChildBytes(String child) throws IOException {
+    FPKFileHeader header = getExistingHeader(child);
+    int compressedSize = header.getCompressedSize();
+    int uncompressedSize = header.getUncompressedSize();
+    byte[] bytes = new byte[uncompressedSize];
+    if (compressedSize == uncompressedSize) {
+      read(channel, fpkBytes, path, ByteBuffer.wrap(bytes), header.getOffset());
+    } else {
+      byte[] compressedBytes = new byte[compressedSize];
+      read(channel, fpkBytes, path, ByteBuffer.wrap(compressedBytes), header.getOffset());
+      int uncompressed = PRSUncompressor.uncompress(compressedBytes, 0, compressedSize, bytes, 0,
+          uncompressedSize);
+      checkUncompressed(child, uncompressed, uncompressedSize);
+    }
+    return bytes;
+  }
+
+  /**
+   * Reads the uncompressed bytes of the child into the start of a reusable buffer. The compressed
+   * bytes are copied into the same buffer after the space for the uncompressed bytes.
+   *
+   * @param child       The child compressed path.
+   * @param childBuffer The buffer to read the child bytes into.
+   * @return The number of child bytes at the start of the buffer array.
+   * @throws IOException If the child could not be found, read or uncompressed.
+   */
+  public int readChildBytes(String child, ReusableBuffer childBuffer) throws IOException {
+    FPKFileHeader header = getExistingHeader(child);
+    int offset = header.getOffset();
+    int compressedSize = header.getCompressedSize();
+    int uncompressedSize = header.getUncompressedSize();
+    if (compressedSize == uncompressedSize) {
+      read(channel, fpkBytes, path,
+          ByteBuffer.wrap(childBuffer.get(uncompressedSize), 0, uncompressedSize), offset);
+      return uncompressedSize;
+    }
+    byte[] bytes = childBuffer.get(uncompressedSize + compressedSize);
+    read(channel, fpkBytes, path, ByteBuffer.wrap(bytes, uncompressedSize, compressedSize), offset);
+    int uncompressed = PRSUncompressor.uncompress(bytes, uncompressedSize, compressedSize, bytes,
+        0, uncompressedSize);
+    checkUncompressed(child, uncompressed, uncompressedSize);
+    return uncompressed;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+  }
+
+  /**
+   * Reads from the channel or bytes at the given position until the buffer is full.
+   *
+   * @param channel  The channel of the FPK file, or null to read from the bytes.
+   * @param bytes    The bytes of the FPK file, or null to read from the channel.
+   * @param path     The path of the FPK file.
+   * @param buffer   The buffer to read into.
+   * @param position The position in the file to read from.
+   * @throws IOException If an I/O error occurs or the file ends first.
+   */
+  private static void read(FileChannel channel, ByteBuffer bytes, Path path, ByteBuffer buffer,
+      long position) throws IOException {
+    if (channel == null) {
+      if (position + buffer.remaining() > bytes.limit()) {
+        throw new IOException("Unexpected end of " + path);
+      }
+      buffer.put(bytes.slice((int) position, buffer.remaining()));
+      return;
+    }
+    long start = position - buffer.position();
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, start + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of " + path);
+      }
+    }
+  }
+
+  /**
+   * Checks that a child was fully uncompressed. PRS data that ends early leaves the rest of the
+   * output unwritten instead of failing.
+   *
+   * @param child            The child compressed path.
+   * @param uncompressed     The number of bytes uncompressed.
+   * @param uncompressedSize The uncompressed size from the header of the child.
+   * @throws IOException If fewer bytes were uncompressed than the uncompressed size.
+   */
+  private void checkUncompressed(String child, int uncompressed, int uncompressedSize)
+      throws IOException {
+    if (uncompressed != uncompressedSize) {
+      throw new IOException(String.format("Uncompressed %d of %d bytes of %s in %s", uncompressed,
+          uncompressedSize, child, path));
+    }
+  }
+
+  /**
+   * @param child The child compressed path.
+   * @return The header of the child.
+   * @throws IOException If the child could not be found.
+   */
+  private FPKFileHeader getExistingHeader(String child) throws IOException {
+    FPKFileHeader header = headers.get(child);
+    if (header == null) {
+      throw new IOException(String.format("%s could not be found in %s", child, path));
+    }
+    return header;
+  }
+}
@@ -0,0 +1,110 @@
+package com.github.nicholasmoser.fpk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A small cache of the most recently used open FPK archives, so that reading many children of the
+ * same FPK file only opens and indexes it once. An archive is opened again if its file has changed
+ * size or modified time since it was opened. Archives are closed when they leave the cache, and
+ * closing the cache closes every archive in it. This class is thread safe.
+ */
+public class FPKArchiveCache implements Closeable {
+
+  private static final Logger LOGGER = Logger.getLogger(FPKArchiveCache.class.getName());
+
+  private final Map<Path, Entry> archives;
+
+  /**
+   * Creates a new FPK archive cache.
+   *
+   * @param maxArchives The maximum number of archives to keep open.
+   */
+  public FPKArchiveCache(int maxArchives) {
+    if (maxArchives < 1) {
+      throw new IllegalArgumentException("Max archives must be positive: " + maxArchives);
+    }
+    this.archives = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Path, Entry> eldest) {
+        if (size() > maxArchives) {
+          closeQuietly(eldest.getValue().archive);
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the open archive for the given FPK file, opening it if it is not in the cache or has
+   * changed since it was opened.
+   *
+   * @param path      The path of the FPK file.
+   * @param longPaths If the FPK inner file paths are 32-bytes (instead of 16-bytes).
+   * @param bigEndian If the FPK is big-endian (instead of little-endian).
+   * @return The FPK archive.
+   * @throws IOException If an I/O error occurs or the FPK headers are invalid.
+   */
+  public synchronized FPKArchive get(Path path, boolean longPaths, boolean bigEndian)
+      throws IOException {
+    Path key = path.toAbsolutePath().normalize();
+    BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+    Entry entry = archives.get(key);
+    if (entry != null && entry.size == attributes.size()
+        && entry.lastModified.equals(attributes.lastModifiedTime())
+        && entry.archive.isLongPaths() == longPaths && entry.archive.isBigEndian() == bigEndian) {
+      return entry.archive;
+    }
+    if (entry != null) {
+      archives.remove(key);
+      entry.archive.close();
+    }
+    FPKArchive archive = FPKArchive.open(key, longPaths, bigEndian);
+    archives.put(key, new Entry(archive, attributes.size(), attributes.lastModifiedTime()));
+    return archive;
+  }
+
+  /**
+   * Closes and removes every archive from the cache.
+   */
+  public synchronized void clear() {
+    for (Entry entry : archives.values()) {
+      closeQuietly(entry.archive);
+    }
+    archives.clear();
+  }
+
+  @Override
+  public void close() {
+    clear();
+  }
+
+  /**
+   * Closes an archive, logging any error since its children have already been read.
+   *
+   * @param archive The archive to close.
+   */
+  private static void closeQuietly(FPKArchive archive) {
+    try {
+      archive.close();
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to close " + archive.getPath(), e);
+    }
+  }
+
+  /**
+   * An open archive and the size and modified time of its file when it was opened.
+   */
+  private record Entry(FPKArchive archive, long size, FileTime lastModified) {
+
+  }
+}
@@ -0,0 +1,151 @@
+package com.github.nicholasmoser.fpk;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.github.nicholasmoser.utils.ByteUtils;
+import com.github.nicholasmoser.utils.FPKUtils;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes an FPK file directly to disk. Since the number of files is known ahead of time, the size of
+ * the FPK header and file headers is known, so each file's data can be written at its final offset
+ * as soon as it is ready, followed by the zero padding to 16-byte alignment. Once all files are
+ * written, the FPK header and file headers are written at the start of the file. Only the data of
+ * the file currently being written needs to be kept in memory.
+ */
+public class FPKWriter implements Closeable {
+
+  // The FPK header is 16 bytes.
+  private static final int FPK_HEADER_SIZE = 16;
+
+  // Zero padding for 16-byte alignment.
+  private static final byte[] PADDING = new byte[16];
+
+  private final FileChannel channel;
+
+  private final int numberOfFiles;
+
+  private final boolean longPaths;
+
+  private final boolean bigEndian;
+
+  private final boolean integrityCheck;
+
+  // The headers of the files written so far.
+  private final List<FPKFileHeader> headers;
+
+  // The offset to write the next file data to.
+  private int offset;
+
+  // The sum of every byte of file data, used for the integrity check.
+  private int integritySum;
+
+  /**
+   * Creates a new FPK file at the given path, overwriting it if it already exists.
+   *
+   * @param path           The path of the FPK file.
+   * @param numberOfFiles  The number of files that will be written to the FPK.
+   * @param longPaths      If the FPK inner file paths are 32-bytes (instead of 16-bytes).
+   * @param bigEndian      If the FPK is big-endian (instead of little-endian).
+   * @param integrityCheck If the integrity check bytes should be added to the start of the FPK.
+   * @throws IOException If an I/O error occurs.
+   */
+  public FPKWriter(Path path, int numberOfFiles, boolean longPaths, boolean bigEndian,
+      boolean integrityCheck) throws IOException {
+    if (numberOfFiles < 0) {
+      throw new IllegalArgumentException("Number of files cannot be negative: " + numberOfFiles);
+    }
+    this.numberOfFiles = numberOfFiles;
+    this.longPaths = longPaths;
+    this.bigEndian = bigEndian;
+    this.integrityCheck = integrityCheck;
+    this.headers = new ArrayList<>(numberOfFiles);
+    int headerSize = longPaths ? 48 : 32;
+    this.offset = FPK_HEADER_SIZE + numberOfFiles * headerSize;
+    this.channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING);
+  }
+
+  /**
+   * Writes the next file to the FPK. The data is written to disk before this method returns.
+   *
+   * @param fileName         The name of the file in the FPK.
+   * @param data             The data of the file, compressed if it is compressed in the FPK.
+   * @param uncompressedSize The size of the file when uncompressed.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void write(String fileName, byte[] data, int uncompressedSize) throws IOException {
+    if (headers.size() == numberOfFiles) {
+      throw new IllegalStateException("All " + numberOfFiles + " files have already been written");
+    }
+    FPKFileHeader header = new FPKFileHeader(fileName, offset, data.length, uncompressedSize,
+        longPaths, bigEndian);
+    int paddedSize = ByteUtils.align(data.length, 16);
+    ByteBuffer dataBuffer = ByteBuffer.wrap(data);
+    ByteBuffer paddingBuffer = ByteBuffer.wrap(PADDING, 0, paddedSize - data.length);
+    writeFully(offset, dataBuffer, paddingBuffer);
+    if (integrityCheck) {
+      for (byte value : data) {
+        integritySum += value & 0xFF;
+      }
+    }
+    headers.add(header);
+    offset += paddedSize;
+  }
+
+  /**
+   * Writes the FPK header and file headers and closes the FPK file.
+   *
+   * @throws IOException If an I/O error occurs or not every file was written.
+   */
+  @Override
+  public void close() throws IOException {
+    try (channel) {
+      if (headers.size() != numberOfFiles) {
+        throw new IOException(String.format("Only %d of %d files were written to the FPK",
+            headers.size(), numberOfFiles));
+      }
+      byte[] integrityBytes = integrityCheck ? ByteUtils.fromInt32(integritySum & 0xFFFF) : null;
+      ByteBuffer[] buffers = new ByteBuffer[numberOfFiles + 1];
+      buffers[0] = ByteBuffer.wrap(
+          FPKUtils.createFPKHeader(integrityBytes, numberOfFiles, offset, bigEndian));
+      for (int i = 0; i < numberOfFiles; i++) {
+        buffers[i + 1] = ByteBuffer.wrap(headers.get(i).getBytes());
+      }
+      writeFully(0, buffers);
+    }
+  }
+
+  /**
+   * @return The headers of the files written so far.
+   */
+  public List<FPKFileHeader> getHeaders() {
+    return List.copyOf(headers);
+  }
+
+  /**
+   * Writes all remaining bytes of the buffers at the given position of the file with gathering
+   * writes.
+   *
+   * @param position The position of the file to write to.
+   * @param buffers  The buffers to write.
+   * @throws IOException If an I/O error occurs.
+   */
+  private void writeFully(long position, ByteBuffer... buffers) throws IOException {
+    channel.position(position);
+    long remaining = 0;
+    for (ByteBuffer buffer : buffers) {
+      remaining += buffer.remaining();
+    }
+    while (remaining > 0) {
+      remaining -= channel.write(buffers);
+    }
+  }
+}
@@ -1,9 +1,13 @@
 package com.github.nicholasmoser.gamecube;
 
 import com.github.nicholasmoser.gnt4.GNT4Files;
+import com.github.nicholasmoser.iso.AccessTrace;
 import com.github.nicholasmoser.iso.ISOCreator;
 import com.github.nicholasmoser.iso.ISOExtractor;
+import com.github.nicholasmoser.iso.ISOUpdater;
+import com.github.nicholasmoser.iso.ImageFormat;
 import com.github.nicholasmoser.utils.FileUtils;
+import com.github.nicholasmoser.utils.ProgressListener;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -93,9 +97,71 @@ public class GameCubeISO {
    * @throws IOException If an I/O error occurs
    */
   public static void importFiles(Path inputDirectory, Path outputISO, boolean pushFilesToEnd) throws IOException {
+    importFiles(inputDirectory, outputISO, pushFilesToEnd, ProgressListener.NONE);
+  }
+
+  /**
+   * Import the files contained in the given directory to the given output ISO file, reporting the
+   * number of bytes of the ISO written to the given listener. If the output ISO file has a .ciso or
+   * .gcz extension, it is written in that format instead of as a raw ISO.
+   *
+   * @param inputDirectory The directory to import files from.
+   * @param outputISO The output ISO to import files into.
+   * @param pushFilesToEnd If the files should be pushed to the end of the ISO.
+   * @param listener The listener to report the progress of the import to.
+   * @throws IOException If an I/O error occurs
+   */
+  public static void importFiles(Path inputDirectory, Path outputISO, boolean pushFilesToEnd,
+      ProgressListener listener) throws IOException {
     LOGGER.info("Importing files...");
-    ISOCreator creator = new ISOCreator(inputDirectory, outputISO);
+    ISOCreator creator = new ISOCreator(inputDirectory, outputISO, listener,
+        ImageFormat.of(outputISO));
     creator.create(pushFilesToEnd);
     LOGGER.info("Finished importing files.");
   }
+
+  /**
+   * Import the files contained in the given directory to the given output ISO file, pushing the
+   * files to the end of the ISO in the order of the given access trace.
+   *
+   * @param inputDirectory The directory to import files from.
+   * @param outputISO The output ISO to import files into.
+   * @param accessTrace The order the game accesses its files in.
+   * @param listener The listener to report the progress of the import to.
+   * @throws IOException If an I/O error occurs
+   */
+  public static void importFiles(Path inputDirectory, Path outputISO, AccessTrace accessTrace,
+      ProgressListener listener) throws IOException {
+    LOGGER.info("Importing files in access trace order...");
+    ISOCreator creator = new ISOCreator(inputDirectory, outputISO, listener,
+        ImageFormat.of(outputISO));
+    creator.create(accessTrace);
+    LOGGER.info("Finished importing files.");
+  }
+
+  /**
+   * Updates the given output ISO file in place with the files contained in the given directory.
+   * Only the files that have changed are written. If the ISO does not exist or was not created by
+   * an update, or the files no longer fit its layout, a new ISO is created instead. A compressed
+   * disc image cannot be updated, so it is always created again.
+   *
+   * @param inputDirectory The directory to import files from.
+   * @param outputISO The output ISO to update.
+   * @param pushFilesToEnd If the files should be pushed to the end of the ISO if it is created.
+   * @param listener The listener to report the progress of the update to.
+   * @throws IOException If an I/O error occurs
+   */
+  public static void updateFiles(Path inputDirectory, Path outputISO, boolean pushFilesToEnd,
+      ProgressListener listener) throws IOException {
+    LOGGER.info("Updating files...");
+    if (ImageFormat.of(outputISO) != ImageFormat.ISO) {
+      importFiles(inputDirectory, outputISO, pushFilesToEnd, listener);
+      return;
+    }
+    ISOUpdater updater = new ISOUpdater(inputDirectory, outputISO, listener);
+    if (!updater.update()) {
+      updater.create(pushFilesToEnd);
+    }
+    LOGGER.info("Finished updating files.");
+  }
 }
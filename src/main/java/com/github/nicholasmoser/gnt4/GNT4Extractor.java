@@ -2,17 +2,22 @@ package com.github.nicholasmoser.gnt4;
 
 import com.github.nicholasmoser.fpk.FileNames;
 import com.github.nicholasmoser.utils.FileUtils;
+import com.github.nicholasmoser.utils.ProgressListener;
 import com.google.common.io.MoreFiles;
 import com.google.common.io.RecursiveDeleteOption;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.logging.Logger;
 import java.util.Optional;
 import com.github.nicholasmoser.Extractor;
 import com.github.nicholasmoser.FPKUnpacker;
+import com.github.nicholasmoser.Game;
 import com.github.nicholasmoser.Workspace;
 import com.github.nicholasmoser.gamecube.GameCubeISO;
+import com.github.nicholasmoser.iso.ISOVerifier;
+import com.github.nicholasmoser.iso.ISOVerifier.Verification;
 
 /**
  * Extracts a GNT4 ISO into a GNT4Workspace.
@@ -43,6 +48,17 @@ public class GNT4Extractor implements Extractor {
     this.unpacked = false;
   }
 
+  @Override
+  public Optional<String> verifyISO(ProgressListener listener) throws IOException {
+    Verification verification = new ISOVerifier(iso, listener).verify();
+    Map<String, Integer> vanillaCRC32s = GNT4Files.getVanillaCRC32s();
+    if (Game.GNT4.getGameId().equals(verification.gameId())
+        && verification.isKnownGood(vanillaCRC32s)) {
+      return Optional.empty();
+    }
+    return Optional.of(verification.getSummary(vanillaCRC32s));
+  }
+
   @Override
   public void extractISO() throws IOException {
     if (!extracted) {
@@ -53,7 +69,7 @@ public class GNT4Extractor implements Extractor {
   }
 
   @Override
-  public Workspace unpackFPKs() throws IOException {
+  public Workspace unpackFPKs(ProgressListener listener) throws IOException {
     if (!extracted) {
       throw new IllegalStateException("Must extract the ISO before you can unpack the FPKs.");
     }
@@ -64,7 +80,7 @@ public class GNT4Extractor implements Extractor {
       FileUtils.copyFolder(compressed, uncompressed);
       Optional<FileNames> gnt4FileNames = Optional.of(new GNT4FileNames());
       FPKUnpacker unpacker = new FPKUnpacker(uncompressed, gnt4FileNames, false, true);
-      unpacker.unpackDirectory();
+      unpacker.unpackDirectory(true, listener);
       unpacked = true;
     }
     return GNT4Workspace.create(extractionPath);
@@ -15,8 +15,10 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -259,6 +261,21 @@ public class GNT4Files {
     }
   }
 
+  /**
+   * Returns the CRC32 of each file in a vanilla GNT4 ISO as it is stored in the ISO, by its path
+   * relative to the root of the extracted ISO such as {@code files/maki/char_sel.fpk}.
+   *
+   * @return The CRC32 of each vanilla file by path.
+   * @throws IOException If the vanilla files protobuf object cannot be read.
+   */
+  public static Map<String, Integer> getVanillaCRC32s() throws IOException {
+    Map<String, Integer> crc32s = new HashMap<>();
+    for (GNTFile file : getVanillaFiles().getGntFileList()) {
+      crc32s.put(file.getFilePath(), file.getHash());
+    }
+    return crc32s;
+  }
+
   /**
    * Returns the allowed files for a GNT4 workspace.
    *
@@ -2,22 +2,31 @@ package com.github.nicholasmoser.gnt4;
 
 import com.github.nicholasmoser.GNTFileProtos.GNTFiles;
 import com.github.nicholasmoser.Workspace;
+import com.github.nicholasmoser.fpk.FPKArchive;
+import com.github.nicholasmoser.fpk.FPKArchiveCache;
 import com.github.nicholasmoser.fpk.FPKOptions;
 import com.github.nicholasmoser.gecko.GeckoCodeJSON;
 import com.github.nicholasmoser.utils.CRC32;
-import com.github.nicholasmoser.utils.FPKUtils;
+import com.github.nicholasmoser.utils.ReusableBuffer;
+import com.github.nicholasmoser.workspace.FileFingerprint;
 import com.github.nicholasmoser.workspace.SQLiteWorkspaceState;
+import com.github.nicholasmoser.workspace.SnapshotStore;
 import com.github.nicholasmoser.workspace.WorkspaceFile;
 import com.github.nicholasmoser.workspace.WorkspaceState;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -25,6 +34,11 @@ import java.util.Set;
  */
 public class GNT4Workspace implements Workspace {
 
+  /**
+   * The directory in the workspace of the snapshot store.
+   */
+  public static final String SNAPSHOTS_DIRECTORY = "snapshots";
+
   private final Path workspaceDir;
 
   private final Path compressed;
@@ -35,12 +49,15 @@ public class GNT4Workspace implements Workspace {
 
   private final FPKOptions options;
 
+  private final SnapshotStore snapshots;
+
   public GNT4Workspace(Path workspaceDir, WorkspaceState state) {
     this.workspaceDir = workspaceDir;
     this.compressed = workspaceDir.resolve("compressed");
     this.uncompressed = workspaceDir.resolve("uncompressed");
     this.state = state;
     this.options = new FPKOptions(false, true, new GNT4FileNames());
+    this.snapshots = new SnapshotStore(workspaceDir.resolve(SNAPSHOTS_DIRECTORY));
   }
 
   public static GNT4Workspace create(Path directory) throws IOException {
@@ -81,6 +98,14 @@ public class GNT4Workspace implements Workspace {
     state.init(workspaceDir, new FPKOptions(false, true, new GNT4FileNames()));
   }
 
+  @Override
+  public void updateState(Collection<String> changedFiles) throws IOException {
+    state.update(workspaceDir, changedFiles);
+    if (!changedFiles.isEmpty()) {
+      snapshots.recordBuild(uncompressed, changedFiles);
+    }
+  }
+
   @Override
   public void addFile(WorkspaceFile file) throws IOException {
     state.addFile(file);
@@ -112,56 +137,108 @@ public class GNT4Workspace implements Workspace {
   public Set<String> getChangedFiles(List<WorkspaceFile> allFiles, boolean quick)
       throws IOException {
     Set<String> filesChanged = new HashSet<>();
+    // Find the files that need to be hashed first so that they can be hashed in parallel
+    List<WorkspaceFile> filesToHash = new ArrayList<>();
+    Map<String, FileFingerprint> fingerprints = new HashMap<>();
     for (WorkspaceFile file : allFiles) {
       String filePath = file.filePath();
-      Path fullPath = uncompressed.resolve(filePath);
-      if (!Files.exists(fullPath)) {
+      FileFingerprint fingerprint;
+      try {
+        fingerprint = FileFingerprint.of(uncompressed.resolve(filePath));
+      } catch (NoSuchFileException e) {
         // The file has been changed if it has been removed
         filesChanged.add(filePath);
-      } else if (quick) {
-        // Quickly rule out files that haven't been modified since the last build
-        boolean isModified = Files.getLastModifiedTime(fullPath).toMillis() > file.modifiedDtTm();
-        if (isModified && CRC32.getHash(fullPath) != file.hash()) {
-          // File has been changed
-          filesChanged.add(filePath);
-        }
-      } else if (CRC32.getHash(fullPath) != file.hash()) {
-        // File has been changed
-        boolean isModified = Files.getLastModifiedTime(fullPath).toMillis() > file.modifiedDtTm();
-        if (!isModified) {
-          // The last modified date/time doesn't seem to reflect the fact that this file was changed
-          // Let's update the last modified date/time so that successive quick refreshes will
-          // now detect this file
-          Files.setLastModifiedTime(fullPath, FileTime.fromMillis(System.currentTimeMillis()));
-        }
+        continue;
+      }
+      if (file.isUnchanged(fingerprint)) {
+        // The file has not been written since it was last hashed
+        continue;
+      }
+      // Quick refreshes rule out files from older workspaces that haven't been modified since the
+      // last build, since they have no fingerprint yet
+      if (!quick || file.fingerprint() != null
+          || fingerprint.modifiedMillis() > file.modifiedDtTm()) {
+        filesToHash.add(file);
+        fingerprints.put(filePath, fingerprint);
+      }
+    }
+    List<Path> paths = new ArrayList<>(filesToHash.size());
+    for (WorkspaceFile file : filesToHash) {
+      paths.add(uncompressed.resolve(file.filePath()));
+    }
+    long verifiedNanos = FileFingerprint.now();
+    Map<Path, Integer> hashes = CRC32.getHashes(paths);
+    Map<String, FileFingerprint> verified = new HashMap<>();
+    Map<String, FileFingerprint> unverified = new HashMap<>();
+    for (WorkspaceFile file : filesToHash) {
+      String filePath = file.filePath();
+      Path fullPath = uncompressed.resolve(filePath);
+      if (hashes.get(fullPath) != file.hash()) {
+        // File has been changed, so it must be hashed on every refresh until it is built
         filesChanged.add(filePath);
+        unverified.put(filePath, fingerprints.get(filePath));
+      } else {
+        // File is unchanged, so it does not need to be hashed again until it is written
+        verified.put(filePath, fingerprints.get(filePath));
       }
     }
+    // A file in multiple FPKs is only verified if it matches the hash of every one of them
+    verified.keySet().removeAll(filesChanged);
+    state.setFingerprints(verified, verifiedNanos);
+    state.setFingerprints(unverified, 0);
     return filesChanged;
   }
 
   @Override
   public void revertFiles(Collection<String> filePaths) throws IOException {
-    for (String filePath : filePaths) {
-      WorkspaceFile file = state.getFile(filePath);
-      String fpkFilePath = file.fpkFilePath();
-      if (fpkFilePath != null) {
-        // FPK child file
-        Path saved = compressed.resolve(fpkFilePath);
-        Path current = uncompressed.resolve(filePath);
-        String compressedPath = options.fileNames().getCompressedName(filePath);
-        byte[] bytes = FPKUtils.getChildBytes(saved, compressedPath, options.longPaths(),
-            options.bigEndian());
-        Files.write(current, bytes);
-      } else {
-        // Non-FPK file
-        Path saved = compressed.resolve(filePath);
-        Path current = uncompressed.resolve(filePath);
-        Files.copy(saved, current, StandardCopyOption.REPLACE_EXISTING);
+    ReusableBuffer buffer = new ReusableBuffer();
+    Map<String, String> lastBuild = snapshots.getSnapshotIfExists(SnapshotStore.LAST_BUILD);
+    // Many reverted files are usually children of the same few FPKs
+    try (FPKArchiveCache archives = new FPKArchiveCache(8)) {
+      for (String filePath : filePaths) {
+        WorkspaceFile file = state.getFile(filePath);
+        String fpkFilePath = file.fpkFilePath();
+        Optional<Path> blob = Optional.ofNullable(lastBuild.get(filePath))
+            .flatMap(snapshots::getBlob);
+        if (blob.isPresent() && CRC32.getHash(blob.get()) == file.hash()) {
+          // The built version is in the snapshot store, so it does not need to be decompressed
+          Files.copy(blob.get(), uncompressed.resolve(filePath),
+              StandardCopyOption.REPLACE_EXISTING);
+        } else if (fpkFilePath != null) {
+          // FPK child file
+          Path saved = compressed.resolve(fpkFilePath);
+          Path current = uncompressed.resolve(filePath);
+          String compressedPath = options.fileNames().getCompressedName(filePath);
+          FPKArchive archive = archives.get(saved, options.longPaths(), options.bigEndian());
+          int length = archive.readChildBytes(compressedPath, buffer);
+          try (OutputStream os = Files.newOutputStream(current)) {
+            os.write(buffer.array(), 0, length);
+          }
+        } else {
+          // Non-FPK file
+          Path saved = compressed.resolve(filePath);
+          Path current = uncompressed.resolve(filePath);
+          Files.copy(saved, current, StandardCopyOption.REPLACE_EXISTING);
+        }
       }
     }
   }
 
+  @Override
+  public void createSnapshot(String name) throws IOException {
+    snapshots.createSnapshot(name, uncompressed, state.getFilePaths());
+  }
+
+  @Override
+  public List<String> getSnapshotNames() throws IOException {
+    return snapshots.getSnapshotNames();
+  }
+
+  @Override
+  public int restoreSnapshot(String name) throws IOException {
+    return snapshots.restoreSnapshot(name, uncompressed);
+  }
+
   @Override
   public FPKOptions getFPKOptions() {
     return options;
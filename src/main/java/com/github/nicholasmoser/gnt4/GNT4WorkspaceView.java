@@ -4,9 +4,13 @@ import com.github.nicholasmoser.utils.GUIUtils;
 import java.io.IOException;
 import com.github.nicholasmoser.Workspace;
 import com.github.nicholasmoser.WorkspaceView;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.event.EventHandler;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
 
 /**
  * Class for the GNT4 workspace view. This window is determined by the menu.fxml resource under
@@ -35,6 +39,31 @@ public class GNT4WorkspaceView implements WorkspaceView {
     stage.setScene(scene);
     stage.setTitle("GNT4 Workspace");
     stage.centerOnScreen();
+    closeWithScene(stage, scene, controller);
     stage.show();
   }
+
+  /**
+   * Closes the controller when the stage is hidden or shows another scene, such as the view of
+   * another workspace.
+   *
+   * @param stage      The stage for the application.
+   * @param scene      The scene of the workspace view.
+   * @param controller The controller of the workspace view.
+   */
+  private static void closeWithScene(Stage stage, Scene scene, MenuController controller) {
+    EventHandler<WindowEvent> onHidden = event -> controller.close();
+    stage.addEventHandler(WindowEvent.WINDOW_HIDDEN, onHidden);
+    stage.sceneProperty().addListener(new ChangeListener<>() {
+      @Override
+      public void changed(ObservableValue<? extends Scene> observable, Scene oldScene,
+          Scene newScene) {
+        if (newScene != scene) {
+          controller.close();
+          stage.removeEventHandler(WindowEvent.WINDOW_HIDDEN, onHidden);
+          observable.removeListener(this);
+        }
+      }
+    });
+  }
 }
@@ -41,6 +41,7 @@ import com.github.nicholasmoser.gnt4.ui.StageOrder;
 import com.github.nicholasmoser.gnt4.ui.StageOrderSave;
 import com.github.nicholasmoser.graphics.TXG2TPL;
 import com.github.nicholasmoser.graphics.Texture1300;
+import com.github.nicholasmoser.iso.AccessTrace;
 import com.github.nicholasmoser.tools.DolphinSeqListenerTool;
 import com.github.nicholasmoser.tools.GNTAEditorTool;
 import com.github.nicholasmoser.tools.MOTRepackerTool;
@@ -50,6 +51,7 @@ import com.github.nicholasmoser.tools.SeqEditorTool;
 import com.github.nicholasmoser.tools.WorkspaceDiffTool;
 import com.github.nicholasmoser.utils.ByteUtils;
 import com.github.nicholasmoser.utils.GUIUtils;
+import com.github.nicholasmoser.workspace.WorkspaceChangeTracker;
 import com.github.nicholasmoser.workspace.WorkspaceFile;
 import java.awt.Desktop;
 import java.io.IOException;
@@ -58,6 +60,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
@@ -74,12 +77,14 @@ import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.ChoiceDialog;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.ListView;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.Spinner;
 import javafx.scene.control.TextArea;
+import javafx.scene.control.TextInputDialog;
 import javafx.scene.control.TextField;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
@@ -104,6 +109,9 @@ public class MenuController {
   private Path uncompressedFiles;
   private Path dolPath;
   private GNT4Codes codes;
+  private WorkspaceChangeTracker changeTracker;
+  private Set<String> knownChangedFiles = Set.of();
+  private Set<String> knownMissingFiles = Set.of();
   private List<GeckoCodeGroup> codeGroups;
   public ListView<String> changedFiles;
   public ListView<String> missingFiles;
@@ -122,7 +130,10 @@ public class MenuController {
   public ComboBox<String> txg2tplTexture;
   public ComboBox<String> mainMenuCharacter;
   public CheckMenuItem parallelBuild;
+  public CheckMenuItem chunkedCompression;
   public CheckMenuItem pushToBackOfISO;
+  public CheckMenuItem incrementalBuild;
+  public CheckMenuItem orderByAccessTrace;
   public ComboBox<String> selectedSeq;
   public TextField ztkDamageMultiplier;
   public TextField ukonDamageMultiplier;
@@ -696,6 +707,88 @@ public class MenuController {
     WorkspaceDiffTool.diff(workspaceDirectory);
   }
 
+  /**
+   * Creates a named snapshot of every file in the workspace.
+   */
+  @FXML
+  public void createSnapshot() {
+    TextInputDialog dialog = new TextInputDialog();
+    dialog.setTitle("Create Snapshot");
+    dialog.setHeaderText("Snapshot every file in the workspace so it can be restored later.");
+    dialog.setContentText("Name:");
+    Optional<String> name = dialog.showAndWait().map(String::trim);
+    if (name.isEmpty() || name.get().isEmpty()) {
+      return;
+    }
+    Task<Void> task = new Task<>() {
+      @Override
+      public Void call() throws Exception {
+        updateMessage("Creating snapshot...");
+        workspace.createSnapshot(name.get());
+        updateProgress(1, 1);
+        return null;
+      }
+    };
+    Stage loadingWindow = GUIUtils.createLoadingWindow("Creating Snapshot", task);
+    task.setOnSucceeded(event -> loadingWindow.close());
+    task.setOnFailed(event -> {
+      Throwable e = task.getException();
+      LOGGER.log(Level.SEVERE, "Error Creating Snapshot", e);
+      Message.error("Error Creating Snapshot", e.getMessage());
+      loadingWindow.close();
+    });
+    new Thread(task).start();
+  }
+
+  /**
+   * Restores every file in a snapshot of the workspace, such as a named snapshot or the snapshot
+   * of a build.
+   */
+  @FXML
+  public void restoreSnapshot() {
+    List<String> names;
+    try {
+      names = workspace.getSnapshotNames();
+    } catch (IOException e) {
+      LOGGER.log(Level.SEVERE, "Error Getting Snapshots", e);
+      Message.error("Error Getting Snapshots", e.getMessage());
+      return;
+    }
+    if (names.isEmpty()) {
+      Message.info("No Snapshots", "Create a snapshot or build an ISO first.");
+      return;
+    }
+    ChoiceDialog<String> dialog = new ChoiceDialog<>(names.get(names.size() - 1), names);
+    dialog.setTitle("Restore Snapshot");
+    dialog.setHeaderText("Files in the snapshot will overwrite the files in the workspace.");
+    dialog.setContentText("Snapshot:");
+    Optional<String> name = dialog.showAndWait();
+    if (name.isEmpty()) {
+      return;
+    }
+    Task<Void> task = new Task<>() {
+      @Override
+      public Void call() throws Exception {
+        updateMessage("Restoring snapshot...");
+        workspace.restoreSnapshot(name.get());
+        updateProgress(1, 1);
+        return null;
+      }
+    };
+    Stage loadingWindow = GUIUtils.createLoadingWindow("Restoring Snapshot", task);
+    task.setOnSucceeded(event -> {
+      loadingWindow.close();
+      asyncRefresh(true);
+    });
+    task.setOnFailed(event -> {
+      Throwable e = task.getException();
+      LOGGER.log(Level.SEVERE, "Error Restoring Snapshot", e);
+      Message.error("Error Restoring Snapshot", e.getMessage());
+      loadingWindow.close();
+    });
+    new Thread(task).start();
+  }
+
   /**
    * Add a new file to the GNT4 workspace.
    */
@@ -795,22 +888,49 @@ public class MenuController {
   }
 
   /**
-   * Builds the GNT4 ISO for the current workspace.
+   * Builds the GNT4 ISO for the current workspace. Every file is checked for changes first, since
+   * the build must not miss a change the change tracker did not see.
    */
   @FXML
   protected void build() {
-    Set<String> currentChangedFiles;
-    Set<String> currentMissingFiles;
-    try {
-      List<WorkspaceFile> files = workspace.getAllFiles();
-      currentChangedFiles = workspace.getChangedFiles(files, true);
-      currentMissingFiles = workspace.getMissingFiles(files);
-    } catch (IOException e) {
-      LOGGER.log(Level.SEVERE, "Error Refreshing Workspace", e);
-      Message.error("Error Refreshing Workspace", e.getMessage());
-      return;
-    }
+    Task<Void> task = new Task<>() {
+      @Override
+      public Void call() throws Exception {
+        try {
+          updateMessage("Checking for changed files...");
+          findChanges(workspace.getAllFiles(), true, false);
+          refreshMissingFiles();
+          refreshChangedFiles();
+          updateProgress(1, 1);
+        } catch (Exception e) {
+          LOGGER.log(Level.SEVERE, "Failed to refresh workspace.", e);
+          throw e;
+        }
+        return null;
+      }
+    };
+    Stage loadingWindow = GUIUtils.createLoadingWindow("Refreshing Workspace", task);
+
+    task.setOnSucceeded(event -> {
+      loadingWindow.close();
+      confirmAndBuild(new HashSet<>(knownChangedFiles), knownMissingFiles);
+    });
+    task.setOnFailed(event -> {
+      Message.error("Error Refreshing Workspace", "See the log for more information");
+      loadingWindow.close();
+    });
+    new Thread(task).start();
+  }
 
+  /**
+   * Confirms the build with the user and builds the GNT4 ISO for the current workspace, with the
+   * changed and missing files that were just found.
+   *
+   * @param currentChangedFiles The changed files.
+   * @param currentMissingFiles The missing files.
+   */
+  private void confirmAndBuild(Set<String> currentChangedFiles,
+      Set<String> currentMissingFiles) {
     // Prevent build if files are missing
     if (!currentMissingFiles.isEmpty()) {
       String message = "You cannot build the ISO while files are missing.\n";
@@ -864,6 +984,33 @@ public class MenuController {
       repack = true;
     }
 
+    // Get the access trace to order files by
+    final AccessTrace accessTrace;
+    if (orderByAccessTrace.isSelected()) {
+      Optional<Path> traceResponse = Choosers.getAccessTrace(GNTool.USER_HOME);
+      if (traceResponse.isEmpty()) {
+        return;
+      }
+      try {
+        accessTrace = AccessTrace.read(traceResponse.get());
+      } catch (IOException e) {
+        LOGGER.log(Level.SEVERE, "Error Reading Access Trace", e);
+        Message.error("Error Reading Access Trace", e.getMessage());
+        return;
+      }
+      Path filesDirectory = compressedDirectory.resolve("files");
+      if (accessTrace.getGamePaths().stream()
+          .noneMatch(gamePath -> Files.isRegularFile(filesDirectory.resolve(gamePath)))) {
+        String message = "None of the files in the access trace are in the workspace. For Dolphin "
+            + "logs, make sure the FileMon log type is enabled.";
+        LOGGER.log(Level.SEVERE, message);
+        Message.error("Error Reading Access Trace", message);
+        return;
+      }
+    } else {
+      accessTrace = null;
+    }
+
     // Get output ISO path
     Optional<Path> isoResponse = Choosers.getOutputISO(GNTool.USER_HOME);
     if (isoResponse.isEmpty()) {
@@ -878,11 +1025,20 @@ public class MenuController {
           if (repack) {
             updateMessage("Repacking FPKs...");
             FPKPacker fpkPacker = new FPKPacker(workspace);
-            fpkPacker.pack(currentChangedFiles, parallelBuild.isSelected());
+            fpkPacker.pack(workspace.getAllFiles(), currentChangedFiles,
+                parallelBuild.isSelected(), chunkedCompression.isSelected());
           }
           updateMessage("Building ISO...");
-          GameCubeISO.importFiles(compressedDirectory, isoResponse.get(),
-              pushToBackOfISO.isSelected());
+          if (accessTrace != null) {
+            GameCubeISO.importFiles(compressedDirectory, isoResponse.get(), accessTrace,
+                this::updateProgress);
+          } else if (incrementalBuild.isSelected()) {
+            GameCubeISO.updateFiles(compressedDirectory, isoResponse.get(),
+                pushToBackOfISO.isSelected(), this::updateProgress);
+          } else {
+            GameCubeISO.importFiles(compressedDirectory, isoResponse.get(),
+                pushToBackOfISO.isSelected(), this::updateProgress);
+          }
           updateProgress(1, 1);
           return null;
         } catch (Exception e) {
@@ -896,7 +1052,7 @@ public class MenuController {
     task.setOnSucceeded(event -> {
       Message.info("ISO Build Complete", "The new ISO was successfully created.");
       loadingWindow.close();
-      asyncPostBuild();
+      asyncPostBuild(repack ? currentChangedFiles : Set.of());
     });
     task.setOnFailed(event -> {
       Message.error("ISO Build Failure", "See the log for more information");
@@ -911,9 +1067,24 @@ public class MenuController {
    */
   @FXML
   protected void quit() {
+    close();
     System.exit(0);
   }
 
+  /**
+   * Stops tracking changes to the workspace. Called when the window closes or another workspace
+   * replaces this one.
+   */
+  public void close() {
+    if (changeTracker != null) {
+      try {
+        changeTracker.close();
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Failed to stop tracking workspace changes.", e);
+      }
+    }
+  }
+
   /**
    * Opens the Github repository web page for GNTool, which serves as the about page.
    */
@@ -1535,6 +1706,11 @@ public class MenuController {
     mainMenuCharacter.getItems().setAll(GNT4Characters.MAIN_MENU_CHARS);
     mainMenuCharacter.getSelectionModel().select(GNT4Characters.SAKURA);
     initRecordingComboboxes();
+    try {
+      changeTracker = WorkspaceChangeTracker.start(uncompressedDirectory);
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Unable to track changes, every refresh will check every file.", e);
+    }
     asyncRefresh(true);
   }
 
@@ -1569,10 +1745,11 @@ public class MenuController {
       LOGGER.log(Level.SEVERE, msg);
       rebuildWorkspace();
     }
-    // The below two calls can be slow the first time they are called since it needs to check
-    // if each file in the workspace exists. I'm not sure if this can be avoided.
-    refreshMissingFiles(allFiles);
-    refreshChangedFiles(allFiles, quick);
+    // This can be slow the first time it is called since it needs to check if each file in the
+    // workspace exists. Later quick refreshes only check the files the change tracker saw change.
+    findChanges(allFiles, quick, quick);
+    refreshMissingFiles();
+    refreshChangedFiles();
     refreshActiveCodes();
     refreshOptions();
     refreshMainMenuCharacter();
@@ -1609,41 +1786,83 @@ public class MenuController {
   }
 
   /**
-   * Rebuild and refresh the workspace asynchronously. Will create a loading window for progress.
+   * Update the workspace state for the files that were just built and refresh the workspace
+   * asynchronously. Will create a loading window for progress.
+   *
+   * @param builtFiles The changed files that were built into the ISO.
    */
-  private void asyncPostBuild() {
+  private void asyncPostBuild(Set<String> builtFiles) {
     Task<Void> task = new Task<>() {
       @Override
       public Void call() throws Exception {
         try {
-          updateMessage("Rebuilding workspace...");
-          rebuildWorkspace();
+          updateMessage("Updating workspace...");
+          workspace.updateState(builtFiles);
+          if (changeTracker != null) {
+            changeTracker.markDirty(builtFiles);
+          }
           syncRefresh(true);
           updateProgress(1, 1);
         } catch (Exception e) {
-          LOGGER.log(Level.SEVERE, "Failed to rebuild workspace.", e);
+          LOGGER.log(Level.SEVERE, "Failed to update workspace.", e);
           throw e;
         }
         return null;
       }
     };
-    Stage loadingWindow = GUIUtils.createLoadingWindow("Rebuilding Workspace", task);
+    Stage loadingWindow = GUIUtils.createLoadingWindow("Updating Workspace", task);
 
     task.setOnSucceeded(event -> loadingWindow.close());
     task.setOnFailed(event -> {
-      Message.error("Error Rebuilding Workspace", "See the log for more information");
+      Message.error("Error Updating Workspace", "See the log for more information");
       loadingWindow.close();
     });
     new Thread(task).start();
   }
 
   /**
-   * Refreshes the missing files tab from a set of GNTFiles.
+   * Finds the missing and changed files in the workspace. A search of only the dirty files checks
+   * the files the change tracker saw change since the last search, unless it lost track of the
+   * changes or is not running, in which case every file is checked. This is only for refreshing
+   * the workspace view, since builds must check every file.
    *
-   * @param allFiles All the workspace files.
+   * @param allFiles  All the workspace files.
+   * @param quick     If the search should be done quickly.
+   * @param onlyDirty If only the dirty files should be checked.
+   * @throws IOException If an I/O error occurs.
    */
-  private void refreshMissingFiles(List<WorkspaceFile> allFiles) {
-    Set<String> missingFilenames = workspace.getMissingFiles(allFiles);
+  private synchronized void findChanges(List<WorkspaceFile> allFiles, boolean quick,
+      boolean onlyDirty) throws IOException {
+    Optional<Set<String>> dirtyFiles = Optional.empty();
+    if (changeTracker != null) {
+      // Always drain the dirty files, since a full search checks them too
+      dirtyFiles = changeTracker.drainDirtyFiles();
+    }
+    if (onlyDirty && dirtyFiles.isPresent()) {
+      Set<String> dirty = dirtyFiles.get();
+      List<WorkspaceFile> dirtyWorkspaceFiles = allFiles.stream()
+          .filter(file -> dirty.contains(file.filePath()))
+          .collect(Collectors.toList());
+      Set<String> missing = new HashSet<>(knownMissingFiles);
+      missing.removeAll(dirty);
+      missing.addAll(workspace.getMissingFiles(dirtyWorkspaceFiles));
+      Set<String> changed = new HashSet<>(knownChangedFiles);
+      changed.removeAll(dirty);
+      changed.addAll(workspace.getChangedFiles(dirtyWorkspaceFiles, true));
+      LOGGER.log(Level.INFO, String.format("Checked %d changed files.", dirty.size()));
+      knownMissingFiles = missing;
+      knownChangedFiles = changed;
+    } else {
+      knownMissingFiles = workspace.getMissingFiles(allFiles);
+      knownChangedFiles = workspace.getChangedFiles(allFiles, quick);
+    }
+  }
+
+  /**
+   * Refreshes the missing files tab from the last found missing files.
+   */
+  private void refreshMissingFiles() {
+    Set<String> missingFilenames = knownMissingFiles;
     Platform.runLater(() -> {
       missingFiles.getItems().setAll(missingFilenames);
       Collections.sort(missingFiles.getItems());
@@ -1651,12 +1870,10 @@ public class MenuController {
   }
 
   /**
-   * Refreshes the changed files tab from a set of GNTFiles.
-   *
-   * @param allFiles All the workspace files.
+   * Refreshes the changed files tab from the last found changed files.
    */
-  private void refreshChangedFiles(List<WorkspaceFile> allFiles, boolean quick) throws IOException {
-    Set<String> changedFilenames = workspace.getChangedFiles(allFiles, quick);
+  private void refreshChangedFiles() {
+    Set<String> changedFilenames = knownChangedFiles;
     Platform.runLater(() -> {
       changedFiles.getItems().setAll(changedFilenames);
       Collections.sort(changedFiles.getItems());
@@ -0,0 +1,166 @@
+package com.github.nicholasmoser.iso;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The order that a game accesses its files in, read from a plain text log. Each line of the log is
+ * a timestamp followed by the path of the file that was accessed, such as:
+ * <pre>
+ * 12:34:567 maki/char_sel.fpk
+ * </pre>
+ * Dolphin logs with the file monitor log type enabled are also supported, where the message after
+ * the last {@code "]: "} of each file monitor line is a number of kB followed by the path, and
+ * other lines are ignored, such as:
+ * <pre>
+ * 12:34:567 Core/FileMonitor.cpp:84 W[FileMon]:   1,024 kB /maki/char_sel.fpk
+ * </pre>
+ * Timestamps are either a single number or colon separated, such as {@code mm:ss:mmm}. Empty lines
+ * and lines starting with {@code #} are ignored. Paths may start with {@code /} or {@code files/},
+ * and paths of sys files are ignored since they cannot be moved.
+ */
+public class AccessTrace {
+
+  // The separator before the message of a line in a Dolphin log.
+  private static final String DOLPHIN_SEPARATOR = "]: ";
+
+  // The log type of file accesses in a Dolphin log.
+  private static final String DOLPHIN_FILE_MONITOR = "[FileMon]";
+
+  // The number of kB before the path of a Dolphin file monitor line, with any digit separators.
+  private static final Pattern DOLPHIN_KB = Pattern.compile("^\\d[\\d.,'\\s\u00A0\u202F]*kB\\s+");
+
+  private final List<String> gamePaths;
+
+  /**
+   * @param gamePaths The game paths of the accessed files in the order of their first access.
+   */
+  private AccessTrace(List<String> gamePaths) {
+    this.gamePaths = gamePaths;
+  }
+
+  /**
+   * Reads an access trace from a text file.
+   *
+   * @param trace The path to the access trace.
+   * @return The access trace.
+   * @throws IOException If an I/O error occurs or a line cannot be parsed.
+   */
+  public static AccessTrace read(Path trace) throws IOException {
+    return parse(Files.readAllLines(trace, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Parses an access trace from the lines of a text file.
+   *
+   * @param lines The lines of the access trace.
+   * @return The access trace.
+   * @throws IOException If a line cannot be parsed.
+   */
+  public static AccessTrace parse(List<String> lines) throws IOException {
+    List<Access> accesses = new ArrayList<>(lines.size());
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i).strip();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      int separator = line.indexOf(' ');
+      if (separator == -1) {
+        separator = line.indexOf('\t');
+      }
+      if (separator == -1) {
+        throw new IOException(String.format("Line %d has no timestamp: %s", i + 1, line));
+      }
+      double timestamp = parseTimestamp(line.substring(0, separator), i + 1);
+      String path = line.substring(separator + 1);
+      int dolphinSeparator = path.lastIndexOf(DOLPHIN_SEPARATOR);
+      if (dolphinSeparator != -1) {
+        if (!path.contains(DOLPHIN_FILE_MONITOR)) {
+          continue;
+        }
+        path = path.substring(dolphinSeparator + DOLPHIN_SEPARATOR.length()).strip();
+        path = DOLPHIN_KB.matcher(path).replaceFirst("");
+      }
+      path = toGamePath(path);
+      if (!path.isEmpty()) {
+        accesses.add(new Access(timestamp, path));
+      }
+    }
+    // The sort is stable, so accesses with the same timestamp keep the order of the log
+    accesses.sort(Comparator.comparingDouble(Access::timestamp));
+    Set<String> gamePaths = new LinkedHashSet<>();
+    for (Access access : accesses) {
+      gamePaths.add(access.gamePath());
+    }
+    return new AccessTrace(List.copyOf(gamePaths));
+  }
+
+  /**
+   * @return The game paths of the accessed files in the order of their first access. Game paths
+   * are relative to the files directory of the ISO, such as {@code maki/char_sel.fpk}.
+   */
+  public List<String> getGamePaths() {
+    return gamePaths;
+  }
+
+  /**
+   * Parses a timestamp. Colon separated timestamps end in milliseconds and each part before them
+   * is base 60, such as {@code hh:mm:ss:mmm}.
+   *
+   * @param text       The text of the timestamp.
+   * @param lineNumber The line number of the timestamp.
+   * @return The timestamp, only to be compared with timestamps of the same format.
+   * @throws IOException If the timestamp is not a number.
+   */
+  private static double parseTimestamp(String text, int lineNumber) throws IOException {
+    try {
+      String[] parts = text.split(":");
+      if (parts.length == 1) {
+        return Double.parseDouble(text);
+      }
+      double timestamp = 0;
+      for (int i = 0; i < parts.length - 1; i++) {
+        timestamp = timestamp * 60 + Integer.parseInt(parts[i]);
+      }
+      return timestamp * 1000 + Double.parseDouble(parts[parts.length - 1]);
+    } catch (NumberFormatException e) {
+      throw new IOException(String.format("Line %d has an invalid timestamp: %s", lineNumber, text),
+          e);
+    }
+  }
+
+  /**
+   * @param path The path of a file in the access trace.
+   * @return The game path of the file, or an empty string if it is a sys file.
+   */
+  private static String toGamePath(String path) {
+    String gamePath = path.strip().replace('\\', '/');
+    while (gamePath.startsWith("/")) {
+      gamePath = gamePath.substring(1);
+    }
+    if (gamePath.startsWith("sys/")) {
+      return "";
+    } else if (gamePath.startsWith("files/")) {
+      return gamePath.substring("files/".length());
+    }
+    return gamePath;
+  }
+
+  /**
+   * An access of a file.
+   *
+   * @param timestamp The timestamp of the access.
+   * @param gamePath  The game path of the file.
+   */
+  private record Access(double timestamp, String gamePath) {
+
+  }
+}
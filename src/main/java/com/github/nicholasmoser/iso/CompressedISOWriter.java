@@ -0,0 +1,368 @@
+package com.github.nicholasmoser.iso;
+
+import com.github.nicholasmoser.utils.ProgressListener;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes an ISO as a block-based CISO or GCZ disc image instead of a raw ISO. The ISO is split into
+ * fixed size blocks, and the bytes of each block are read straight from the sys files and files at
+ * their positions in the ISO layout, with zeroes for the padding between them. Blocks are read and
+ * encoded in parallel in batches, then each batch is written in order.
+ * <ul>
+ *   <li>A CISO stores only the blocks that are not entirely zeroes, with a map of which blocks are
+ *   stored.</li>
+ *   <li>A GCZ stores every block compressed with deflate, or uncompressed if it does not compress,
+ *   with a table of the offset and Adler-32 checksum of each block.</li>
+ * </ul>
+ * Both formats are little-endian and can be read by Dolphin.
+ */
+public class CompressedISOWriter {
+
+  private static final Logger LOGGER = Logger.getLogger(CompressedISOWriter.class.getName());
+
+  // The default CISO block size, 2 MiB.
+  public static final int CISO_BLOCK_SIZE = 0x200000;
+
+  // The default GCZ block size, 32 KiB.
+  public static final int GCZ_BLOCK_SIZE = 0x8000;
+
+  // The size of the CISO header, which is the magic, the block size and the block map.
+  private static final int CISO_HEADER_SIZE = 0x8000;
+
+  // The maximum number of blocks in a CISO.
+  private static final int CISO_MAP_SIZE = CISO_HEADER_SIZE - 8;
+
+  // The GCZ magic number.
+  private static final int GCZ_MAGIC = 0xB10BC001;
+
+  // The size of the GCZ header before the block offsets.
+  private static final int GCZ_HEADER_SIZE = 32;
+
+  // The flag of a GCZ block offset for a block that is not compressed.
+  private static final long GCZ_UNCOMPRESSED = 0x8000000000000000L;
+
+  // The number of bytes of the ISO to read and encode at once.
+  private static final int BATCH_SIZE = 0x4000000;
+
+  private final Path outputPath;
+  private final ImageFormat format;
+  private final int blockSize;
+  private final int parallelism;
+  private final ProgressListener listener;
+
+  /**
+   * A sys file or file at its position in the ISO.
+   *
+   * @param path     The path to the file.
+   * @param position The position of the file in the ISO.
+   * @param length   The number of bytes of the file in the ISO.
+   */
+  record Extent(Path path, long position, long length) {
+
+  }
+
+  /**
+   * A block of the ISO as it is stored in the disc image.
+   *
+   * @param data       The stored bytes of the block, or null if the block is not stored.
+   * @param compressed If the stored bytes are compressed.
+   */
+  private record Block(byte[] data, boolean compressed) {
+
+  }
+
+  /**
+   * Creates a new compressed ISO writer with the default block size of the format.
+   *
+   * @param outputPath The path to write the disc image to.
+   * @param format     The format of the disc image, either CISO or GCZ.
+   * @param listener   The listener to report the number of bytes of the ISO encoded to.
+   */
+  public CompressedISOWriter(Path outputPath, ImageFormat format, ProgressListener listener) {
+    this(outputPath, format, format == ImageFormat.CISO ? CISO_BLOCK_SIZE : GCZ_BLOCK_SIZE,
+        Runtime.getRuntime().availableProcessors(), listener);
+  }
+
+  /**
+   * Creates a new compressed ISO writer.
+   *
+   * @param outputPath  The path to write the disc image to.
+   * @param format      The format of the disc image, either CISO or GCZ.
+   * @param blockSize   The size of each block, which must be a power of two of at least 32 KiB.
+   * @param parallelism The number of blocks to encode at once.
+   * @param listener    The listener to report the number of bytes of the ISO encoded to.
+   */
+  public CompressedISOWriter(Path outputPath, ImageFormat format, int blockSize, int parallelism,
+      ProgressListener listener) {
+    if (format == ImageFormat.ISO) {
+      throw new IllegalArgumentException("Raw ISOs are written with ISOWriter");
+    } else if (blockSize < 0x8000 || Integer.bitCount(blockSize) != 1) {
+      throw new IllegalArgumentException("Invalid block size: " + blockSize);
+    } else if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+    }
+    this.outputPath = outputPath;
+    this.format = format;
+    this.blockSize = blockSize;
+    this.parallelism = parallelism;
+    this.listener = listener;
+  }
+
+  /**
+   * Writes the disc image of an ISO. Any bytes of the ISO not covered by an extent are zeroes. If
+   * the disc image already exists it is replaced.
+   *
+   * @param extents The sys files and files of the ISO at their positions.
+   * @param isoSize The size of the ISO.
+   * @throws IOException If an I/O error occurs or the ISO has too many blocks for the format.
+   */
+  public void write(List<Extent> extents, long isoSize) throws IOException {
+    List<Extent> sorted = new ArrayList<>(extents);
+    sorted.sort(Comparator.comparingLong(Extent::position));
+    long blockCount = (isoSize + blockSize - 1) / blockSize;
+    if (format == ImageFormat.CISO && blockCount > CISO_MAP_SIZE) {
+      throw new IOException(String.format("%d blocks do not fit in a CISO", blockCount));
+    } else if (blockCount > Integer.MAX_VALUE / 12) {
+      throw new IOException(String.format("%d blocks do not fit in a GCZ", blockCount));
+    }
+    int numBlocks = (int) blockCount;
+    long startTime = System.nanoTime();
+    long dataStart = format == ImageFormat.CISO ? CISO_HEADER_SIZE
+        : GCZ_HEADER_SIZE + 12L * numBlocks;
+    byte[] cisoMap = new byte[CISO_MAP_SIZE];
+    long[] gczOffsets = new long[numBlocks];
+    int[] gczHashes = new int[numBlocks];
+    long dataSize = 0;
+    int blocksPerBatch = Math.max(1, BATCH_SIZE / blockSize);
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try (FileChannel channel = FileChannel.open(outputPath, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      for (int first = 0; first < numBlocks; first += blocksPerBatch) {
+        int start = first;
+        int end = Math.min(numBlocks, first + blocksPerBatch);
+        List<Block> blocks = pool.submit(() -> IntStream.range(start, end).parallel()
+            .mapToObj(i -> encode(sorted, i))
+            .toList()).get();
+        for (int i = start; i < end; i++) {
+          Block block = blocks.get(i - start);
+          if (block.data() == null) {
+            continue;
+          }
+          writeFully(channel, ByteBuffer.wrap(block.data()), dataStart + dataSize);
+          if (format == ImageFormat.CISO) {
+            cisoMap[i] = 1;
+          } else {
+            gczOffsets[i] = block.compressed() ? dataSize : dataSize | GCZ_UNCOMPRESSED;
+            Adler32 adler = new Adler32();
+            adler.update(block.data());
+            gczHashes[i] = (int) adler.getValue();
+          }
+          dataSize += block.data().length;
+        }
+        listener.update(Math.min(isoSize, (long) end * blockSize), isoSize);
+      }
+      if (format == ImageFormat.CISO) {
+        writeFully(channel, cisoHeader(cisoMap), 0);
+      } else {
+        writeFully(channel, gczHeader(numBlocks, dataSize, gczOffsets, gczHashes), 0);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing " + outputPath, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof UncheckedIOException unchecked) {
+        throw unchecked.getCause();
+      }
+      throw new IOException("Failed to write " + outputPath, cause);
+    } finally {
+      pool.shutdownNow();
+    }
+    double seconds = (System.nanoTime() - startTime) / 1e9;
+    LOGGER.info(String.format("Wrote %d byte ISO as %d byte %s to %s in %.2f seconds", isoSize,
+        dataStart + dataSize, format, outputPath, seconds));
+  }
+
+  /**
+   * Reads and encodes a block of the ISO.
+   *
+   * @param extents The sys files and files of the ISO sorted by position.
+   * @param index   The index of the block.
+   * @return The block as it is stored in the disc image.
+   */
+  private Block encode(List<Extent> extents, int index) {
+    byte[] bytes;
+    try {
+      bytes = readBlock(extents, (long) index * blockSize);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (format == ImageFormat.CISO) {
+      return isZero(bytes) ? new Block(null, false) : new Block(bytes, false);
+    }
+    Deflater deflater = new Deflater();
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      byte[] compressed = new byte[blockSize];
+      int length = 0;
+      while (!deflater.finished() && length < compressed.length) {
+        length += deflater.deflate(compressed, length, compressed.length - length);
+      }
+      if (!deflater.finished()) {
+        // The block does not compress, so store it uncompressed
+        return new Block(bytes, false);
+      }
+      byte[] data = new byte[length];
+      System.arraycopy(compressed, 0, data, 0, length);
+      return new Block(data, true);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Reads a block of the ISO from the extents that overlap it.
+   *
+   * @param extents The sys files and files of the ISO sorted by position.
+   * @param start   The position of the block in the ISO.
+   * @return The bytes of the block.
+   * @throws IOException If an I/O error occurs.
+   */
+  private byte[] readBlock(List<Extent> extents, long start) throws IOException {
+    byte[] bytes = new byte[blockSize];
+    long end = start + blockSize;
+    for (int i = firstExtent(extents, start); i < extents.size(); i++) {
+      Extent extent = extents.get(i);
+      if (extent.position() >= end) {
+        break;
+      }
+      long from = Math.max(start, extent.position());
+      long to = Math.min(end, extent.position() + extent.length());
+      if (from >= to) {
+        continue;
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(bytes, (int) (from - start), (int) (to - from));
+      try (FileChannel channel = FileChannel.open(extent.path(), StandardOpenOption.READ)) {
+        long filePosition = from - extent.position();
+        while (buffer.hasRemaining()) {
+          int read = channel.read(buffer, filePosition);
+          if (read < 0) {
+            throw new IOException("Unexpected end of " + extent.path());
+          }
+          filePosition += read;
+        }
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * @param extents  The sys files and files of the ISO sorted by position.
+   * @param position A position in the ISO.
+   * @return The index of the first extent that ends after the position.
+   */
+  private static int firstExtent(List<Extent> extents, long position) {
+    int low = 0;
+    int high = extents.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      Extent extent = extents.get(mid);
+      if (extent.position() + extent.length() <= position) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    // An earlier extent may still overlap if extents overlap, so step back over them
+    while (low > 0) {
+      Extent previous = extents.get(low - 1);
+      if (previous.position() + previous.length() <= position) {
+        break;
+      }
+      low--;
+    }
+    return low;
+  }
+
+  /**
+   * @param bytes The bytes to check.
+   * @return If every byte is zero.
+   */
+  private static boolean isZero(byte[] bytes) {
+    for (byte value : bytes) {
+      if (value != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param map The CISO block map.
+   * @return The CISO header.
+   */
+  private ByteBuffer cisoHeader(byte[] map) {
+    ByteBuffer header = ByteBuffer.allocate(CISO_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    header.put("CISO".getBytes(StandardCharsets.US_ASCII));
+    header.putInt(blockSize);
+    header.put(map);
+    return header.flip();
+  }
+
+  /**
+   * @param numBlocks The number of blocks.
+   * @param dataSize  The size of the stored blocks.
+   * @param offsets   The offset of each block from the start of the stored blocks.
+   * @param hashes    The Adler-32 checksum of each stored block.
+   * @return The GCZ header, block offsets and block checksums.
+   */
+  private ByteBuffer gczHeader(int numBlocks, long dataSize, long[] offsets, int[] hashes) {
+    ByteBuffer header = ByteBuffer.allocate(GCZ_HEADER_SIZE + 12 * numBlocks)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(GCZ_MAGIC);
+    header.putInt(0); // GameCube
+    header.putLong(dataSize);
+    header.putLong((long) numBlocks * blockSize);
+    header.putInt(blockSize);
+    header.putInt(numBlocks);
+    for (long offset : offsets) {
+      header.putLong(offset);
+    }
+    for (int hash : hashes) {
+      header.putInt(hash);
+    }
+    return header.flip();
+  }
+
+  /**
+   * Writes all of the bytes of a buffer at a position of a channel.
+   *
+   * @param channel  The channel to write to.
+   * @param buffer   The bytes to write.
+   * @param position The position to write them at.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+}
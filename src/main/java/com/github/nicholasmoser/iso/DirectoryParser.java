@@ -6,17 +6,24 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
 import java.util.stream.Stream;
 
 public class DirectoryParser {
 
+  private static final Logger LOGGER = Logger.getLogger(DirectoryParser.class.getName());
+
   private final Path inputDirectory;
   private final Path filesDirectory;
   private final boolean pushFilesToEnd;
+  private final AccessTrace accessTrace;
   private List<ISOItem> files;
 
-  private int currentPosition;
   private List<String> currentPath;
 
   /**
@@ -31,6 +38,23 @@ public class DirectoryParser {
     this.inputDirectory = inputDirectory;
     this.filesDirectory = inputDirectory.resolve("files");
     this.pushFilesToEnd = pushFilesToEnd;
+    this.accessTrace = null;
+  }
+
+  /**
+   * Create a new DirectoryParser for parsing ISOItems that pushes files to the end of the ISO in
+   * the order the game accesses them. Files that are accessed together are placed next to each
+   * other at the outer edge of the disc, where it is read the fastest, followed by files that were
+   * never accessed.
+   *
+   * @param inputDirectory The path to the game file directory.
+   * @param accessTrace    The order the game accesses its files in.
+   */
+  public DirectoryParser(Path inputDirectory, AccessTrace accessTrace) {
+    this.inputDirectory = inputDirectory;
+    this.filesDirectory = inputDirectory.resolve("files");
+    this.pushFilesToEnd = true;
+    this.accessTrace = accessTrace;
   }
 
   /**
@@ -46,11 +70,9 @@ public class DirectoryParser {
     Path apploaderImgPath = resolve("sys/apploader.img");
     Path bi2BinPath = resolve("sys/bi2.bin");
     Path bootBinPath = resolve("sys/boot.bin");
-    Path fstBinPath = resolve("sys/fst.bin");
     Path mainDolPath = resolve("sys/main.dol");
     int apploaderLength = (int) Files.size(apploaderImgPath);
     int mainDolLength = (int) Files.size(mainDolPath);
-    int fileSystemTableLength = (int) Files.size(fstBinPath);
     int bootBinLength = (int) Files.size(bootBinPath);
     int bi2BinLength = (int) Files.size(bi2BinPath);
     if (bootBinLength != ISO.BOOT_BIN_LEN) {
@@ -95,6 +117,9 @@ public class DirectoryParser {
         .setGamePath("sys/main.dol")
         .build();
     int fileSystemTablePosition = ByteUtils.nextAlignedPos(startDolPosition + mainDolLength, 128);
+    // The fst.bin on disk may be stale, so use the length of the fst.bin for the files
+    addFiles(filesDirectory);
+    int fileSystemTableLength = FileSystemTable.getLength(files);
     ISOFile fstBin = new ISOFile.Builder()
         .setPos(fileSystemTablePosition)
         .setLen(fileSystemTableLength)
@@ -109,51 +134,113 @@ public class DirectoryParser {
     headerBuilder.setMainDol(mainDol);
     headerBuilder.setFstBin(fstBin);
 
-    // Specified start address must be 32KB aligned in "dvdfs.c" on line 1211
-    int fstEnd = fileSystemTablePosition + fileSystemTableLength;
-    currentPosition = ByteUtils.nextAlignedPos(fstEnd, 32768);
-
-    addFiles(filesDirectory);
     headerBuilder.setFiles(files);
-
-    if (pushFilesToEnd) {
-      pushFilesToEndOfISO();
+    if (accessTrace != null) {
+      layOutFiles(files, accessTrace);
+    } else {
+      layOutFiles(files, fileSystemTablePosition + fileSystemTableLength, pushFilesToEnd);
     }
 
     return headerBuilder.createISOHeader();
   }
 
   /**
-   * Update the position of each file such that they each are pushed towards the end of the ISO.
-   * Most GameCube games do this since files will be read faster on the edges of a GameCube disc.
-   * This is accomplished by iterating over all files backwards and subtracting from the disc size,
-   * while also accounting for byte alignment of each file.
+   * Sets the position of each file in fst.bin order after the end of the fst.bin. All files must be
+   * 4-byte aligned. Optionally pushes the files to the end of the ISO afterwards.
+   *
+   * @param files          The ISO items under the files directory, in fst.bin order.
+   * @param fstEnd         The end of the fst.bin.
+   * @param pushFilesToEnd If the files should be pushed to the end of the ISO.
    */
-  private void pushFilesToEndOfISO() {
-    currentPosition = ISO.DISC_SIZE;
-    for (int i = files.size() - 1; i >= 0; i--) {
-      ISOItem item = files.get(i);
+  static void layOutFiles(List<ISOItem> files, int fstEnd, boolean pushFilesToEnd) {
+    // Specified start address must be 32KB aligned in "dvdfs.c" on line 1211
+    int currentPosition = ByteUtils.nextAlignedPos(fstEnd, 32768);
+    for (ISOItem item : files) {
       if (!item.isDirectory()) {
+        // Original ISO skips bytes here
+        if (pushFilesToEnd && !item.getParent().isEmpty() && currentPosition == 0x45530000) {
+          currentPosition = 0x45532B80;
+        }
+        currentPosition = ByteUtils.nextAlignedPos(currentPosition, 4);
         ISOFile isoFile = (ISOFile) item;
-        updateByteAlignedPosition(isoFile);
+        isoFile.updatePosition(currentPosition);
+        currentPosition += isoFile.getLen();
       }
     }
+    if (pushFilesToEnd) {
+      List<ISOFile> isoFiles = new ArrayList<>();
+      for (ISOItem item : files) {
+        if (!item.isDirectory()) {
+          isoFiles.add((ISOFile) item);
+        }
+      }
+      pushFilesToEndOfISO(isoFiles);
+    }
   }
 
   /**
-   * Updates the byte-aligned position of a particular ISOFile relative to the current position.
-   * All files must be 4-byte aligned. Music files (.trk) are 0x8000-byte aligned.
+   * Sets the position of each file by pushing the files to the end of the ISO in the order of an
+   * access trace. The accessed files are placed last, in the order of their first access, so that
+   * files loaded together are adjacent at the outer edge of the disc. Files that were never
+   * accessed are placed before them in fst.bin order. Files in the access trace that are not in the
+   * ISO are ignored.
    *
-   * @param isoFile The ISOFile to update the position of.
+   * @param files       The ISO items under the files directory, in fst.bin order.
+   * @param accessTrace The order the game accesses its files in.
+   * @throws IOException If none of the files in the access trace are in the ISO.
    */
-  private void updateByteAlignedPosition(ISOFile isoFile) {
-    currentPosition -= isoFile.getLen();
-    if (isoFile.getName().endsWith(".trk")) {
-      currentPosition = ByteUtils.previousAlignedPos(currentPosition, 0x8000);
-    } else {
-      currentPosition = ByteUtils.previousAlignedPos(currentPosition, 4);
+  static void layOutFiles(List<ISOItem> files, AccessTrace accessTrace) throws IOException {
+    Map<String, ISOFile> filesByPath = new HashMap<>();
+    for (ISOItem item : files) {
+      if (!item.isDirectory()) {
+        filesByPath.put(item.getGamePath(), (ISOFile) item);
+      }
+    }
+    Set<String> accessedPaths = new LinkedHashSet<>();
+    for (String gamePath : accessTrace.getGamePaths()) {
+      if (filesByPath.containsKey(gamePath)) {
+        accessedPaths.add(gamePath);
+      }
+    }
+    if (accessedPaths.isEmpty()) {
+      throw new IOException(String.format("None of the %d files in the access trace are in the ISO",
+          accessTrace.getGamePaths().size()));
+    }
+    List<ISOFile> order = new ArrayList<>(filesByPath.size());
+    for (ISOItem item : files) {
+      if (!item.isDirectory() && !accessedPaths.contains(item.getGamePath())) {
+        order.add((ISOFile) item);
+      }
+    }
+    for (String gamePath : accessedPaths) {
+      order.add(filesByPath.get(gamePath));
+    }
+    LOGGER.info(String.format("Placing %d of %d files in access trace order",
+        accessedPaths.size(), order.size()));
+    pushFilesToEndOfISO(order);
+  }
+
+  /**
+   * Update the position of each file such that they each are pushed towards the end of the ISO.
+   * Most GameCube games do this since files will be read faster on the edges of a GameCube disc.
+   * This is accomplished by iterating over all files backwards and subtracting from the disc size,
+   * while also accounting for byte alignment of each file. All files must be 4-byte aligned. Music
+   * files (.trk) are 0x8000-byte aligned.
+   *
+   * @param files The files in the order to place them in.
+   */
+  private static void pushFilesToEndOfISO(List<ISOFile> files) {
+    int currentPosition = ISO.DISC_SIZE;
+    for (int i = files.size() - 1; i >= 0; i--) {
+      ISOFile isoFile = files.get(i);
+      currentPosition -= isoFile.getLen();
+      if (isoFile.getName().endsWith(".trk")) {
+        currentPosition = ByteUtils.previousAlignedPos(currentPosition, 0x8000);
+      } else {
+        currentPosition = ByteUtils.previousAlignedPos(currentPosition, 4);
+      }
+      isoFile.updatePosition(currentPosition);
     }
-    isoFile.updatePosition(currentPosition);
   }
 
   /**
@@ -178,18 +265,15 @@ public class DirectoryParser {
               if (Files.isDirectory(path)) {
                 addDirectory(path, "");
               } else {
-                currentPosition = ByteUtils.nextAlignedPos(currentPosition, 4);
                 int size = (int) Files.size(path);
                 String fileName = path.getFileName().toString();
                 ISOFile file = new ISOFile.Builder()
-                    .setPos(currentPosition)
                     .setLen(size)
                     .setParent("")
                     .setName(fileName)
                     .setGamePath(getRelativeFilePath(fileName))
                     .build();
                 files.add(file);
-                currentPosition = currentPosition + size;
               }
             } catch (IOException e) {
               throw new RuntimeException(e);
@@ -226,23 +310,15 @@ public class DirectoryParser {
               if (Files.isDirectory(path)) {
                 addDirectory(path, dirItem.getGamePath());
               } else {
-                // Original ISO skips bytes here
-                if (pushFilesToEnd && currentPosition == 0x45530000) {
-                  currentPosition = 0x45532B80;
-                }
-
-                currentPosition = ByteUtils.nextAlignedPos(currentPosition, 4);
                 int size = (int) Files.size(path);
                 String fileName = path.getFileName().toString();
                 ISOFile fileItem = new ISOFile.Builder()
-                    .setPos(currentPosition)
                     .setLen(size)
                     .setParent(dirItem.getGamePath())
                     .setName(fileName)
                     .setGamePath(getRelativeFilePath(fileName))
                     .build();
                 files.add(fileItem);
-                currentPosition = currentPosition + size;
               }
             } catch (IOException e) {
               throw new RuntimeException(e);
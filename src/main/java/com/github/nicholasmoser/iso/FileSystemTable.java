@@ -1,20 +1,22 @@
 package com.github.nicholasmoser.iso;
 
-import com.github.nicholasmoser.utils.ByteUtils;
-import com.google.common.io.CountingOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 
 public class FileSystemTable {
 
+  // The size of each entry in the fst.bin.
+  private static final int ENTRY_SIZE = 12;
+
   /**
    * Rewrites a fst.bin file given an input directory and the ISOHeader representing it.
    * This most importantly will update offsets in cases where the sizes of files have changed.
@@ -24,45 +26,74 @@ public class FileSystemTable {
    * @throws IOException If an I/O error occurs.
    */
   public static void rewrite(Path inputPath, ISOHeader isoHeader) throws IOException {
-    Map<String, Integer> directoryToOffset = new HashMap<>();
     Path fstBinPath = inputPath.resolve(isoHeader.getFstBin().getGamePath());
-    List<ISOItem> items = isoHeader.getFiles();
+    Files.write(fstBinPath, toBytes(isoHeader.getFiles()));
+  }
+
+  /**
+   * Returns the length of the fst.bin for the given ISO items. The length only depends on the
+   * number of items and their names, not on the positions or lengths of the files.
+   *
+   * @param items The ISO items under the files directory.
+   * @return The length of the fst.bin.
+   */
+  public static int getLength(List<ISOItem> items) {
+    int length = items.size() * ENTRY_SIZE;
+    for (ISOItem item : items) {
+      if (!item.isRoot()) {
+        length += item.getName().length() + 1; // Add 1 for the null terminator
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Returns the bytes of a fst.bin for the given ISO items. The items must be in fst.bin order,
+   * starting with the root directory. The entries and string table are written into a single
+   * buffer of the exact length of the fst.bin.
+   *
+   * @param items The ISO items under the files directory.
+   * @return The fst.bin bytes.
+   * @throws IOException If the parent of a directory is not before it.
+   */
+  public static byte[] toBytes(List<ISOItem> items) throws IOException {
     int numEntries = items.size();
+    ByteBuffer buffer = ByteBuffer.allocate(getLength(items));
+    Map<String, Integer> directoryToIndex = new HashMap<>();
+    int stringTableOffset = numEntries * ENTRY_SIZE;
     int currentStringTableOffset = 0;
-    try (CountingOutputStream os = new CountingOutputStream(Files.newOutputStream(fstBinPath))) {
-      // Write the rest of the entries
-      for (ISOItem item : items) {
-        int nameLength = item.getName().length() + 1; // Add 1 for the null terminator
-        if (item.isDirectory()) {
-          ISODirectory directory = (ISODirectory) item;
-          directoryToOffset.put(directory.getGamePath(), (int) os.getCount());
-          if (directory.isRoot()) {
-            os.write(new byte[]{1, 0, 0, 0, 0, 0, 0, 0});
-            os.write(ByteUtils.fromUint32(numEntries));
-          } else {
-            os.write(1);
-            os.write(ByteUtils.fromUint24(currentStringTableOffset));
-            currentStringTableOffset += nameLength;
-            int parentOffset = directoryToOffset.get(item.getParent());
-            os.write(ByteUtils.fromUint32(parentOffset / 12));
-            os.write(ByteUtils.fromUint32(directory.getFstExitIndex()));
-          }
-        } else {
-          ISOFile file = (ISOFile) item;
-          os.write(0);
-          os.write(ByteUtils.fromUint24(currentStringTableOffset));
-          currentStringTableOffset += nameLength;
-          os.write(ByteUtils.fromUint32(file.getPos()));
-          os.write(ByteUtils.fromUint32(file.getLen()));
-        }
+    for (int i = 0; i < numEntries; i++) {
+      ISOItem item = items.get(i);
+      if (item.isRoot()) {
+        directoryToIndex.put(item.getGamePath(), i);
+        buffer.putInt(0x01000000);
+        buffer.putInt(0);
+        buffer.putInt(numEntries);
+        continue;
       }
-      // Write the string table
-      for (ISOItem item : items) {
-        if (!item.isRoot()) {
-          os.write(ByteUtils.toNullTerminatedBytes(item.getName()));
+      String name = item.getName();
+      if (item.isDirectory()) {
+        ISODirectory directory = (ISODirectory) item;
+        Integer parentIndex = directoryToIndex.get(item.getParent());
+        if (parentIndex == null) {
+          throw new IOException(item.getGamePath() + " is before its parent directory.");
         }
+        directoryToIndex.put(directory.getGamePath(), i);
+        buffer.putInt(0x01000000 | currentStringTableOffset);
+        buffer.putInt(parentIndex);
+        buffer.putInt(directory.getFstExitIndex());
+      } else {
+        ISOFile file = (ISOFile) item;
+        buffer.putInt(currentStringTableOffset);
+        buffer.putInt(file.getPos());
+        buffer.putInt(file.getLen());
       }
+      buffer.put(stringTableOffset + currentStringTableOffset,
+          name.getBytes(StandardCharsets.US_ASCII));
+      // The null terminator is already zero
+      currentStringTableOffset += name.length() + 1;
     }
+    return buffer.array();
   }
 
   /**
@@ -76,26 +107,34 @@ public class FileSystemTable {
     if (!Files.isRegularFile(fstBin)) {
       throw new IOException(fstBin + " is not a file.");
     }
-    try (RandomAccessFile raf = new RandomAccessFile(fstBin.toFile(), "r")) {
-      return read(raf);
-    }
+    return read(Files.readAllBytes(fstBin));
   }
 
   /**
-   * Reads the ISO items from the fst.bin. This method assumes that the RandomAccessFile is
-   * currently pointing to the start of the fst.bin data. This method will not close the
-   * RandomAccessFile when done or reset the position. The position when done reading will be
-   * somewhere between the start and end of the fst.bin data.
+   * Reads the ISO items from the bytes of a fst.bin. The entries and the string table are both
+   * parsed from memory, so the whole fst.bin should be read in a single read beforehand.
    *
-   * @param raf The RandomAccessFile to read the fst.bin data from.
-   * @return The list of ISO items.
-   * @throws IOException If an I/O error occurs.
+   * @param fstBin The bytes of the fst.bin.
+   * @return The list of ISO items, in fst.bin order starting with the root directory.
+   * @throws IOException If the fst.bin is malformed.
    */
-  public static List<ISOItem> read(RandomAccessFile raf) throws IOException {
-    List<ISOItem> items = new ArrayList<>(ISO.GNT4_ISO_ITEMS_SIZE);
-    LinkedList<ISODirectory> directoryStack = new LinkedList<>();
-    Map<Integer, String> offsetToDirectory = new HashMap<>();
-    int fstBinPosition = (int) raf.getFilePointer();
+  public static List<ISOItem> read(byte[] fstBin) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(fstBin);
+    if (fstBin.length < ENTRY_SIZE) {
+      throw new IOException("The fst.bin is too small: " + fstBin.length);
+    }
+    if (buffer.getInt(0) != 0x01000000 || buffer.getInt(4) != 0) {
+      throw new IOException("Multiple FST image not supported.");
+    }
+    int numberOfEntries = buffer.getInt(8);
+    if (numberOfEntries < 1 || numberOfEntries > fstBin.length / ENTRY_SIZE) {
+      throw new IOException("Invalid number of fst.bin entries: " + numberOfEntries);
+    }
+    int stringTableOffset = numberOfEntries * ENTRY_SIZE;
+    List<ISOItem> items = new ArrayList<>(numberOfEntries);
+    // The game path of the directory at each entry index, null for files
+    String[] directoryPaths = new String[numberOfEntries];
+    Deque<ISODirectory> directoryStack = new ArrayDeque<>();
 
     // Root directory
     ISODirectory root = new ISODirectory.Builder()
@@ -105,47 +144,27 @@ public class FileSystemTable {
         .setIsRoot(true)
         .build();
     items.add(root);
-    offsetToDirectory.put(0, ""); // Root
-    if (ByteUtils.readUint32LE(raf) != 1) {
-      throw new IOException("Multiple FST image not supported.");
-    }
-    if (ByteUtils.readUint32LE(raf) != 0) {
-      throw new IOException("Multiple FST image not supported.");
-    }
-    int numberOfEntries = ByteUtils.readInt32(raf);
-    int stringTableOffset = fstBinPosition + (numberOfEntries * 12);
+    directoryPaths[0] = "";
 
-    // Read rest of files until the string table is reached
     for (int entryNumber = 1; entryNumber < numberOfEntries; entryNumber++) {
-      // Check if this item is a directory and retrieve the name of it. The first byte of this
-      // value is if it is a directory, the next three bytes are the item name position in the
-      // item name table.
-      int value = ByteUtils.readInt32(raf);
-      boolean isDirectory = false;
-      if (value >> 24 == 1) {
-        isDirectory = true;
-      }
-      int stringTablePosition = value & 0x00FFFFFF;
-
-      long savedPosition = raf.getFilePointer();
-      raf.seek(stringTableOffset + stringTablePosition);
-      String name = ByteUtils.readString(raf);
-      raf.seek(savedPosition);
+      // The first byte of this value is if it is a directory, the next three bytes are the item
+      // name position in the string table.
+      int entryOffset = entryNumber * ENTRY_SIZE;
+      int value = buffer.getInt(entryOffset);
+      boolean isDirectory = value >> 24 == 1;
+      String name = readName(fstBin, stringTableOffset + (value & 0x00FFFFFF));
 
       // Remove directories from stack that now have all their items
-      ListIterator<ISODirectory> itr = directoryStack.listIterator();
-      while (itr.hasNext()) {
-        ISODirectory directory = itr.next();
-        if (entryNumber >= directory.getFstExitIndex()) {
-          itr.remove();
-        }
+      while (!directoryStack.isEmpty()
+          && entryNumber >= directoryStack.peekFirst().getFstExitIndex()) {
+        directoryStack.removeFirst();
       }
 
       if (isDirectory) {
-        // Read and add a directory
-        int parentOffset = ByteUtils.readInt32(raf);
-        int nextOffset = ByteUtils.readInt32(raf);
-        String parent = offsetToDirectory.get(parentOffset);
+        int parentOffset = buffer.getInt(entryOffset + 4);
+        int nextOffset = buffer.getInt(entryOffset + 8);
+        String parent = parentOffset >= 0 && parentOffset < entryNumber
+            ? directoryPaths[parentOffset] : null;
         if (parent == null) {
           throw new IOException(name + " parent is null");
         }
@@ -155,13 +174,12 @@ public class FileSystemTable {
             .setName(name).setGamePath(gamePath).setParent(parent).build();
         items.add(dir);
         directoryStack.addFirst(dir);
-        offsetToDirectory.put(entryNumber, dir.getGamePath());
+        directoryPaths[entryNumber] = gamePath;
       } else {
-        // Read and add a file
-        int fileOffset = ByteUtils.readInt32(raf);
-        int fileLength = ByteUtils.readInt32(raf);
+        int fileOffset = buffer.getInt(entryOffset + 4);
+        int fileLength = buffer.getInt(entryOffset + 8);
         String currentDirectory =
-            directoryStack.isEmpty() ? "" : directoryStack.getFirst().getGamePath();
+            directoryStack.isEmpty() ? "" : directoryStack.peekFirst().getGamePath();
         String gamePath = getFileGamePath(currentDirectory, name);
         ISOFile file = new ISOFile.Builder()
             .setPos(fileOffset)
@@ -173,6 +191,25 @@ public class FileSystemTable {
     return items;
   }
 
+  /**
+   * Reads a null terminated ASCII name from the string table of a fst.bin.
+   *
+   * @param fstBin The bytes of the fst.bin.
+   * @param offset The offset of the name in the fst.bin.
+   * @return The name.
+   * @throws IOException If the name is outside the fst.bin or not null terminated.
+   */
+  private static String readName(byte[] fstBin, int offset) throws IOException {
+    int end = offset;
+    while (end < fstBin.length && fstBin[end] != 0) {
+      end++;
+    }
+    if (end >= fstBin.length) {
+      throw new IOException(String.format("fst.bin name at 0x%X is not null terminated", offset));
+    }
+    return new String(fstBin, offset, end - offset, StandardCharsets.US_ASCII);
+  }
+
   /**
    * Return the game path of a directory. This will be the game path of the parent plus the
    * directory name plus a slash. An empty optional parent represents root, which has a game path
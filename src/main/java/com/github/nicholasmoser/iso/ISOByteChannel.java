@@ -0,0 +1,115 @@
+package com.github.nicholasmoser.iso;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * A read-only channel over the bytes of a file in an {@link ISOFileSystem}. Reads are positional
+ * reads of the channel of the ISO, which is shared by every channel of the file system.
+ */
+class ISOByteChannel implements SeekableByteChannel {
+
+  private final ISOFileSystem fileSystem;
+
+  private final FileChannel isoChannel;
+
+  // The position of the file in the ISO.
+  private final long offset;
+
+  private final long size;
+
+  private long position;
+
+  private boolean open = true;
+
+  /**
+   * Creates a new channel over the bytes of a file.
+   *
+   * @param fileSystem The file system of the file.
+   * @param isoChannel The channel of the ISO.
+   * @param offset     The position of the file in the ISO.
+   * @param size       The size of the file.
+   */
+  ISOByteChannel(ISOFileSystem fileSystem, FileChannel isoChannel, long offset, long size) {
+    this.fileSystem = fileSystem;
+    this.isoChannel = isoChannel;
+    this.offset = offset;
+    this.size = size;
+  }
+
+  @Override
+  public synchronized int read(ByteBuffer dst) throws IOException {
+    ensureOpen();
+    if (position >= size) {
+      return -1;
+    }
+    int length = (int) Math.min(dst.remaining(), size - position);
+    int limit = dst.limit();
+    dst.limit(dst.position() + length);
+    try {
+      int read = isoChannel.read(dst, offset + position);
+      if (read > 0) {
+        position += read;
+      }
+      return read;
+    } finally {
+      dst.limit(limit);
+    }
+  }
+
+  @Override
+  public int write(ByteBuffer src) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public synchronized long position() throws ClosedChannelException {
+    ensureOpen();
+    return position;
+  }
+
+  @Override
+  public synchronized SeekableByteChannel position(long newPosition)
+      throws ClosedChannelException {
+    ensureOpen();
+    if (newPosition < 0) {
+      throw new IllegalArgumentException("Negative position " + newPosition);
+    }
+    position = newPosition;
+    return this;
+  }
+
+  @Override
+  public long size() throws ClosedChannelException {
+    ensureOpen();
+    return size;
+  }
+
+  @Override
+  public SeekableByteChannel truncate(long size) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public synchronized boolean isOpen() {
+    return open && fileSystem.isOpen();
+  }
+
+  @Override
+  public synchronized void close() {
+    open = false;
+  }
+
+  /**
+   * @throws ClosedChannelException If the channel or its file system is closed.
+   */
+  private void ensureOpen() throws ClosedChannelException {
+    if (!isOpen()) {
+      throw new ClosedChannelException();
+    }
+  }
+}
@@ -0,0 +1,223 @@
+package com.github.nicholasmoser.iso;
+
+import com.github.nicholasmoser.fpk.FPKArchive;
+import com.github.nicholasmoser.fpk.FPKFileHeader;
+import com.github.nicholasmoser.fpk.FPKOptions;
+import com.github.nicholasmoser.iso.ISOFileSystem.Entry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+/**
+ * Compares two ISOs without extracting them. The fst.bin of each ISO is read and the files are
+ * matched by path. The bytes of each matched file are compared in parallel, read straight from
+ * the ISOs. For FPK files that differ, the FPK headers are read and the children are
+ * compared to find which of them changed.
+ */
+public class ISOComparator {
+
+  private static final Logger LOGGER = Logger.getLogger(ISOComparator.class.getName());
+
+  private final Path iso1;
+  private final Path iso2;
+  private final Optional<FPKOptions> fpkOptions;
+  private final int parallelism;
+
+  /**
+   * The differences between two ISOs. Paths are relative to the root of the extracted ISO, such as
+   * {@code sys/main.dol} or {@code files/maki/char_sel.fpk}, and are sorted.
+   *
+   * @param onlyInFirst  The files only in the first ISO.
+   * @param onlyInSecond The files only in the second ISO.
+   * @param changed      The files in both ISOs with different bytes.
+   */
+  public record Comparison(List<String> onlyInFirst, List<String> onlyInSecond,
+                           List<ChangedFile> changed) {
+
+  }
+
+  /**
+   * A file in both ISOs with different bytes.
+   *
+   * @param path     The path of the file.
+   * @param children The children of the FPK file that were changed, added or removed. Empty if the
+   *                 file is not an FPK file or the FPK files could not be read.
+   */
+  public record ChangedFile(String path, List<String> children) {
+
+  }
+
+  /**
+   * Create an ISOComparator using the paths to two ISOs.
+   *
+   * @param iso1       The first ISO.
+   * @param iso2       The second ISO.
+   * @param fpkOptions The options to read FPK files with, or empty to not compare FPK children.
+   */
+  public ISOComparator(Path iso1, Path iso2, Optional<FPKOptions> fpkOptions) {
+    this(iso1, iso2, fpkOptions, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create an ISOComparator using the paths to two ISOs and the number of files to compare at
+   * once.
+   *
+   * @param iso1        The first ISO.
+   * @param iso2        The second ISO.
+   * @param fpkOptions  The options to read FPK files with, or empty to not compare FPK children.
+   * @param parallelism The number of files to compare at once.
+   */
+  public ISOComparator(Path iso1, Path iso2, Optional<FPKOptions> fpkOptions, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+    }
+    this.iso1 = iso1;
+    this.iso2 = iso2;
+    this.fpkOptions = fpkOptions;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Compares the two ISOs.
+   *
+   * @return The differences between the ISOs.
+   * @throws IOException If an I/O error occurs.
+   */
+  public Comparison compare() throws IOException {
+    try (ISOFileSystem fileSystem1 = ISOFileSystem.open(iso1);
+        ISOFileSystem fileSystem2 = ISOFileSystem.open(iso2)) {
+      Map<String, Entry> files1 = fileSystem1.getFileEntries();
+      Map<String, Entry> files2 = fileSystem2.getFileEntries();
+      List<String> onlyInFirst = new ArrayList<>();
+      List<String> onlyInSecond = new ArrayList<>();
+      List<String> inBoth = new ArrayList<>();
+      for (String path : new TreeSet<>(files1.keySet())) {
+        (files2.containsKey(path) ? inBoth : onlyInFirst).add(path.substring(1));
+      }
+      for (String path : new TreeSet<>(files2.keySet())) {
+        if (!files1.containsKey(path)) {
+          onlyInSecond.add(path.substring(1));
+        }
+      }
+
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        List<ChangedFile> changed = pool.submit(() -> inBoth.parallelStream().map(path -> {
+          try {
+            ByteBuffer bytes1 = fileSystem1.readBytes(files1.get("/" + path));
+            ByteBuffer bytes2 = fileSystem2.readBytes(files2.get("/" + path));
+            return compareFile(path, bytes1, bytes2);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }).filter(Objects::nonNull).toList()).get();
+        return new Comparison(onlyInFirst, onlyInSecond, changed);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while comparing " + iso1 + " and " + iso2, e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof UncheckedIOException unchecked) {
+          throw unchecked.getCause();
+        }
+        throw new IOException("Failed to compare " + iso1 + " and " + iso2, cause);
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * Compares the bytes of a file in each ISO.
+   *
+   * @param path   The path of the file.
+   * @param bytes1 The bytes of the file in the first ISO.
+   * @param bytes2 The bytes of the file in the second ISO.
+   * @return The changed file, or null if the bytes are the same.
+   */
+  private ChangedFile compareFile(String path, ByteBuffer bytes1, ByteBuffer bytes2) {
+    if (bytes1.equals(bytes2)) {
+      return null;
+    }
+    List<String> children = List.of();
+    if (fpkOptions.isPresent() && path.endsWith(".fpk")) {
+      try {
+        children = compareFPK(path, bytes1, bytes2, fpkOptions.get());
+      } catch (IOException | RuntimeException e) {
+        // Malformed PRS data can fail with a runtime exception when it is uncompressed
+        LOGGER.info(String.format("Unable to compare the children of %s: %s", path,
+            e.getMessage()));
+      }
+    }
+    return new ChangedFile(path, children);
+  }
+
+  /**
+   * Compares the children of an FPK file in each ISO.
+   *
+   * @param path    The path of the FPK file.
+   * @param bytes1  The bytes of the FPK file in the first ISO.
+   * @param bytes2  The bytes of the FPK file in the second ISO.
+   * @param options The options to read the FPK files with.
+   * @return The sorted names of the children that were changed, added or removed.
+   * @throws IOException If either FPK file cannot be read.
+   */
+  private static List<String> compareFPK(String path, ByteBuffer bytes1, ByteBuffer bytes2,
+      FPKOptions options) throws IOException {
+    FPKArchive archive1 = FPKArchive.of(Path.of(path), bytes1, options.longPaths(),
+        options.bigEndian());
+    FPKArchive archive2 = FPKArchive.of(Path.of(path), bytes2, options.longPaths(),
+        options.bigEndian());
+    Map<String, FPKFileHeader> headers1 = getHeaders(archive1, options);
+    Map<String, FPKFileHeader> headers2 = getHeaders(archive2, options);
+    TreeSet<String> names = new TreeSet<>(headers1.keySet());
+    names.addAll(headers2.keySet());
+    List<String> changed = new ArrayList<>();
+    for (String name : names) {
+      FPKFileHeader header1 = headers1.get(name);
+      FPKFileHeader header2 = headers2.get(name);
+      if (header1 == null || header2 == null) {
+        changed.add(name);
+      } else if (!archive1.getData(header1.getFileName())
+          .equals(archive2.getData(header2.getFileName()))) {
+        // The same child may have been compressed differently
+        if (header1.getUncompressedSize() != header2.getUncompressedSize()
+            || !Arrays.equals(archive1.getChildBytes(header1.getFileName()),
+            archive2.getChildBytes(header2.getFileName()))) {
+          changed.add(name);
+        }
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Returns the headers of the children of an FPK file by their fixed file names. As in the
+   * archive, the first child is kept if there are duplicate names.
+   *
+   * @param archive The FPK file.
+   * @param options The options the FPK file was read with.
+   * @return The header of each child by its fixed file name.
+   */
+  private static Map<String, FPKFileHeader> getHeaders(FPKArchive archive, FPKOptions options) {
+    Map<String, FPKFileHeader> headers = new HashMap<>();
+    for (FPKFileHeader header : archive.getHeaders()) {
+      String fileName = options.fileNames() == null ? header.getFileName()
+          : options.fileNames().fix(header.getFileName());
+      headers.putIfAbsent(fileName, header);
+    }
+    return headers;
+  }
+}
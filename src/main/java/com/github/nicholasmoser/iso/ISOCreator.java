@@ -1,12 +1,14 @@
 package com.github.nicholasmoser.iso;
 
+import com.github.nicholasmoser.iso.CompressedISOWriter.Extent;
 import com.github.nicholasmoser.utils.ByteUtils;
+import com.github.nicholasmoser.utils.ProgressListener;
 import com.google.common.base.VerifyException;
-import com.google.common.io.CountingOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -17,6 +19,8 @@ public class ISOCreator {
   private final Path inputPath;
   private final Path isoPath;
   private final Path filesPath;
+  private final ProgressListener listener;
+  private final ImageFormat format;
 
   /**
    * Create an ISOCreator using the path to the input files and the path to the output ISO file.
@@ -25,8 +29,36 @@ public class ISOCreator {
    * @param isoPath   The path to the output ISO file.
    */
   public ISOCreator(Path inputPath, Path isoPath) {
+    this(inputPath, isoPath, ProgressListener.NONE);
+  }
+
+  /**
+   * Create an ISOCreator using the path to the input files, the path to the output ISO file, and a
+   * listener for the number of bytes of the ISO written.
+   *
+   * @param inputPath The path to the input files
+   * @param isoPath   The path to the output ISO file.
+   * @param listener  The listener to report the progress of the ISO creation to.
+   */
+  public ISOCreator(Path inputPath, Path isoPath, ProgressListener listener) {
+    this(inputPath, isoPath, listener, ImageFormat.ISO);
+  }
+
+  /**
+   * Create an ISOCreator using the path to the input files, the path to the output disc image, a
+   * listener for the number of bytes of the ISO written, and the format of the disc image.
+   *
+   * @param inputPath The path to the input files
+   * @param isoPath   The path to the output disc image.
+   * @param listener  The listener to report the progress of the ISO creation to.
+   * @param format    The format of the disc image.
+   */
+  public ISOCreator(Path inputPath, Path isoPath, ProgressListener listener,
+      ImageFormat format) {
     this.inputPath = inputPath;
     this.isoPath = isoPath;
+    this.listener = listener;
+    this.format = format;
     filesPath = inputPath.resolve("files");
   }
 
@@ -37,23 +69,29 @@ public class ISOCreator {
    * @throws IOException If an I/O error occurs.
    */
   public void create(boolean pushFilesToEnd) throws IOException {
-    DirectoryParser parser = new DirectoryParser(inputPath, pushFilesToEnd);
-    ISOHeader isoHeader = parser.getISOHeader();
-    create(pushFilesToEnd, isoHeader);
+    create(new DirectoryParser(inputPath, pushFilesToEnd).getISOHeader());
   }
 
   /**
-   * Create an ISO using an ISOHeader.
+   * Create an ISO with the files pushed to the end of the ISO in the order the game accesses them.
+   *
+   * @param accessTrace The order the game accesses its files in.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void create(AccessTrace accessTrace) throws IOException {
+    create(new DirectoryParser(inputPath, accessTrace).getISOHeader());
+  }
+
+  /**
+   * Create an ISO using an ISOHeader. The ISOHeader must be for the input directory, such as one
+   * from a DirectoryParser, since its layout is used as is.
    *
    * @param isoHeader The ISOHeader for the ISO.
    * @throws IOException If an I/O error occurs.
    */
-  public void create(boolean pushFilesToEnd, ISOHeader isoHeader)
-      throws IOException {
-    // Rewrite the fst.bin and get a new ISOHeader afterwards
+  public void create(ISOHeader isoHeader) throws IOException {
+    // Write the fst.bin for the layout of the ISOHeader
     FileSystemTable.rewrite(inputPath, isoHeader);
-    DirectoryParser parser = new DirectoryParser(inputPath, pushFilesToEnd);
-    isoHeader = parser.getISOHeader();
 
     // Get values for files in the sys folder
     Path apploaderImgPath = resolve("sys/apploader.img");
@@ -72,15 +110,63 @@ public class ISOCreator {
     // Write offsets/sizes to the boot.bin
     bootBinRewrite(bootBinPath, dolOffset, fstOffset, fstSize);
 
-    // Write out the ISO
-    try (CountingOutputStream os = new CountingOutputStream(Files.newOutputStream(isoPath))) {
-      writeAndPad(os, bootBinPath, ISO.BOOT_BIN_LEN);
-      writeAndPad(os, bi2BinPath, ISO.BI_2_LEN);
-      writeAndPad(os, apploaderImgPath, dolOffset - apploaderOffset);
-      writeAndPad(os, mainDolPath, fstOffset - dolOffset);
-      writeAndPad(os, fstBinPath, fstSize);
-      writeFiles(os, isoHeader.getFiles());
+    if (format != ImageFormat.ISO) {
+      writeCompressed(isoHeader);
+      return;
+    }
+
+    // Write out the ISO, removing any manifest of the ISO it replaces
+    ISOManifest.delete(isoPath);
+    try (ISOWriter writer = new ISOWriter(isoPath, getTotalBytes(isoHeader), listener)) {
+      writer.writeAndPad(bootBinPath, ISO.BOOT_BIN_LEN);
+      writer.writeAndPad(bi2BinPath, ISO.BI_2_LEN);
+      writer.writeAndPad(apploaderImgPath, dolOffset - apploaderOffset);
+      writer.writeAndPad(mainDolPath, fstOffset - dolOffset);
+      writer.writeAndPad(fstBinPath, fstSize);
+      writeFiles(writer, isoHeader.getFiles());
+    }
+  }
+
+  /**
+   * Writes the ISO as a compressed disc image. The blocks of the ISO are read straight from the sys
+   * files and files at their positions in the ISOHeader.
+   *
+   * @param isoHeader The ISOHeader for the ISO.
+   * @throws IOException If an I/O error occurs.
+   */
+  private void writeCompressed(ISOHeader isoHeader) throws IOException {
+    List<Extent> extents = new ArrayList<>();
+    for (ISOFile sysFile : List.of(isoHeader.getBootBin(), isoHeader.getBi2Bin(),
+        isoHeader.getApploaderImg(), isoHeader.getMainDol(), isoHeader.getFstBin())) {
+      extents.add(new Extent(resolve(sysFile.getGamePath()), sysFile.getPos(), sysFile.getLen()));
+    }
+    for (ISOItem item : isoHeader.getFiles()) {
+      if (item instanceof ISOFile file) {
+        extents.add(new Extent(filesPath.resolve(file.getGamePath()), file.getPos(),
+            file.getLen()));
+      }
+    }
+    long isoSize = 0;
+    for (Extent extent : extents) {
+      isoSize = Math.max(isoSize, extent.position() + extent.length());
+    }
+    new CompressedISOWriter(isoPath, format, listener).write(extents, isoSize);
+  }
+
+  /**
+   * @param isoHeader The ISOHeader for the ISO.
+   * @return The number of bytes of the sys files and files in the ISO, not including padding.
+   */
+  static long getTotalBytes(ISOHeader isoHeader) {
+    long total = (long) isoHeader.getBootBin().getLen() + isoHeader.getBi2Bin().getLen()
+        + isoHeader.getApploaderImg().getLen() + isoHeader.getMainDol().getLen()
+        + isoHeader.getFstBin().getLen();
+    for (ISOItem item : isoHeader.getFiles()) {
+      if (!item.isDirectory()) {
+        total += ((ISOFile) item).getLen();
+      }
     }
+    return total;
   }
 
   /**
@@ -95,61 +181,58 @@ public class ISOCreator {
    * @param fstSize     The size of the fst.bin.
    * @throws IOException f an I/O error occurs.
    */
-  private void bootBinRewrite(Path bootBinPath, int dolOffset, int fstOffset, int fstSize)
+  static void bootBinRewrite(Path bootBinPath, int dolOffset, int fstOffset, int fstSize)
       throws IOException {
     byte[] bootBinBytes = Files.readAllBytes(bootBinPath);
+    bootBinRewrite(bootBinBytes, dolOffset, fstOffset, fstSize);
+    Files.write(bootBinPath, bootBinBytes);
+  }
+
+  /**
+   * Rewrites the main.dol offset, fst.bin offset, fst.bin size, and the max fst.bin size in the
+   * bytes of a boot.bin.
+   *
+   * @param bootBinBytes The boot.bin bytes to modify.
+   * @param dolOffset    The offset of the main.dol.
+   * @param fstOffset    The offset of the fst.bin.
+   * @param fstSize      The size of the fst.bin.
+   */
+  static void bootBinRewrite(byte[] bootBinBytes, int dolOffset, int fstOffset, int fstSize) {
     System.arraycopy(ByteUtils.fromUint32(dolOffset), 0, bootBinBytes, 0x420, 4);
     System.arraycopy(ByteUtils.fromUint32(fstOffset), 0, bootBinBytes, 0x424, 4);
     System.arraycopy(ByteUtils.fromUint32(fstSize), 0, bootBinBytes, 0x428, 4);
     System.arraycopy(ByteUtils.fromUint32(fstSize), 0, bootBinBytes, 0x42C, 4);
-    Files.write(bootBinPath, bootBinBytes);
   }
 
   /**
-   * Writes the files from a list of ISOItems to a CountingOutputStream.
+   * Writes the files from a list of ISOItems to an ISOWriter in the order of their positions, which
+   * may differ from the fst.bin order.
    *
-   * @param cos      The CountingOutputStream to write to.
+   * @param writer   The ISOWriter to write to.
    * @param isoItems The list of ISOItems to retrieve the files from.
    * @throws IOException If an I/O error occurs or the fst offset is before the current offset.
    */
-  private void writeFiles(CountingOutputStream cos, List<ISOItem> isoItems) throws IOException {
-    for (ISOItem currentItem : isoItems) {
-      if (!currentItem.isDirectory()) {
-        ISOFile file = (ISOFile) currentItem;
-        int dataPos = file.getPos();
-        long currentPos = cos.getCount();
-        if (currentPos > dataPos) {
-          String name = file.getName();
-          String message = String
-              .format("Cannot write %s to ISO, fst offset of %d before %d", name, dataPos,
-                  currentPos);
-          throw new IOException(message);
-        } else if (currentPos < dataPos) {
-          // Pad with zeroes to reach data position
-          int padding = (int) (dataPos - currentPos);
-          cos.write(new byte[padding]);
-        }
-        Path gamePath = filesPath.resolve(currentItem.getGamePath());
-        byte[] gameBytes = Files.readAllBytes(gamePath);
-        cos.write(gameBytes);
+  private void writeFiles(ISOWriter writer, List<ISOItem> isoItems) throws IOException {
+    List<ISOFile> files = new ArrayList<>(isoItems.size());
+    for (ISOItem item : isoItems) {
+      if (!item.isDirectory()) {
+        files.add((ISOFile) item);
       }
     }
-  }
-
-  /**
-   * Writes bytes to an output stream. If less than total bytes are written, zeroes will be padded
-   * until total is reached.
-   *
-   * @param os       The OutputStream to write to.
-   * @param filePath The path to the file bytes to write.
-   * @param total    The total number of bytes to write including padding of zeroes.
-   * @throws IOException If an I/O error occurs.
-   */
-  private void writeAndPad(OutputStream os, Path filePath, int total) throws IOException {
-    byte[] bytes = Files.readAllBytes(filePath);
-    os.write(bytes);
-    if (bytes.length < total) {
-      os.write(new byte[total - bytes.length]);
+    files.sort(Comparator.comparingInt(ISOFile::getPos));
+    for (ISOFile file : files) {
+      int dataPos = file.getPos();
+      long currentPos = writer.getPosition();
+      if (currentPos > dataPos) {
+        String name = file.getName();
+        String message = String
+            .format("Cannot write %s to ISO, fst offset of %d before %d", name, dataPos,
+                currentPos);
+        throw new IOException(message);
+      }
+      // Skip the zeroes up to the data position
+      writer.padTo(dataPos);
+      writer.write(filesPath.resolve(file.getGamePath()));
     }
   }
 
@@ -1,29 +1,54 @@
 package com.github.nicholasmoser.iso;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * Class to extract files and directories from an ISO.
+ * Class to extract files and directories from an ISO. The directory tree is created first, then
+ * the files are copied out of the ISO on multiple threads with positional reads of a single shared
+ * file channel, so extraction is limited by the disk rather than a single thread.
  */
 public class ISOExtractor {
 
   private final Path isoPath;
   private final Path outputPath;
   private final Path filesPath;
+  private final int parallelism;
 
   /**
    * Create an ISOExtractor with a path to an ISO to extract and a directory to save files and
-   * directories to.
+   * directories to. Files are extracted on as many threads as there are processors.
    *
    * @param isoPath    The path to the ISO file.
    * @param outputPath The path to save files from the ISO.
    */
   public ISOExtractor(Path isoPath, Path outputPath) {
+    this(isoPath, outputPath, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create an ISOExtractor with a path to an ISO to extract, a directory to save files and
+   * directories to, and the number of files to extract at once.
+   *
+   * @param isoPath     The path to the ISO file.
+   * @param outputPath  The path to save files from the ISO.
+   * @param parallelism The number of threads to extract files on.
+   */
+  public ISOExtractor(Path isoPath, Path outputPath, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+    }
     this.isoPath = isoPath;
     this.outputPath = outputPath;
+    this.parallelism = parallelism;
     filesPath = outputPath.resolve("files");
   }
 
@@ -45,36 +70,77 @@ public class ISOExtractor {
    * @throws IOException If an I/O error occurs.
    */
   public void extract(ISOHeader isoHeader) throws IOException {
+    // Create the directory tree first so that files can be extracted in any order
     Files.createDirectories(outputPath.resolve("sys"));
-    try (RandomAccessFile raf = new RandomAccessFile(isoPath.toFile(), "r")) {
-      extractItem(isoHeader.getBootBin(), raf);
-      extractItem(isoHeader.getBi2Bin(), raf);
-      extractItem(isoHeader.getApploaderImg(), raf);
-      extractItem(isoHeader.getMainDol(), raf);
-      extractItem(isoHeader.getFstBin(), raf);
-      for (ISOItem item : isoHeader.getFiles()) {
-        extractItem(item, raf);
+    List<ISOFile> files = new ArrayList<>();
+    files.add(isoHeader.getBootBin());
+    files.add(isoHeader.getBi2Bin());
+    files.add(isoHeader.getApploaderImg());
+    files.add(isoHeader.getMainDol());
+    files.add(isoHeader.getFstBin());
+    for (ISOItem item : isoHeader.getFiles()) {
+      if (item.isDirectory()) {
+        Files.createDirectories(getFullPath(item.getGamePath()));
+      } else {
+        files.add((ISOFile) item);
+      }
+    }
+
+    try (FileChannel iso = FileChannel.open(isoPath, StandardOpenOption.READ)) {
+      if (parallelism == 1) {
+        for (ISOFile file : files) {
+          extractFile(file, iso);
+        }
+        return;
+      }
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        pool.submit(() -> files.parallelStream().forEach(file -> {
+          try {
+            extractFile(file, iso);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        })).get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while extracting " + isoPath, e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof UncheckedIOException unchecked) {
+          throw unchecked.getCause();
+        }
+        throw new IOException("Failed to extract " + isoPath, cause);
+      } finally {
+        pool.shutdownNow();
       }
     }
   }
 
   /**
-   * Extract the given ISOItem from the ISO RandomAccessFile.
+   * Extract the given ISOFile from the ISO file channel. The channel is only read with positional
+   * reads, so it can be shared by multiple threads.
    *
-   * @param item The ISOItem to extract.
-   * @param raf The RandomAccessFile to read from.
-   * @throws IOException If an I/O error occurs.
+   * @param file The ISOFile to extract.
+   * @param iso  The file channel to read from.
+   * @throws IOException If an I/O error occurs or the ISO ends before the end of the file.
    */
-  private void extractItem(ISOItem item, RandomAccessFile raf) throws IOException {
-    Path fullPath = getFullPath(item.getGamePath());
-    if (item.isDirectory()) {
-      Files.createDirectories(fullPath);
-    } else {
-      ISOFile file = (ISOFile) item;
-      raf.seek(file.getPos());
-      byte[] bytes = new byte[file.getLen()];
-      raf.read(bytes);
-      Files.write(fullPath, bytes);
+  private void extractFile(ISOFile file, FileChannel iso) throws IOException {
+    Path fullPath = getFullPath(file.getGamePath());
+    try (FileChannel output = FileChannel.open(fullPath, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      long position = file.getPos();
+      long remaining = file.getLen();
+      while (remaining > 0) {
+        long transferred = iso.transferTo(position, remaining, output);
+        if (transferred <= 0) {
+          String message = String.format("%s ends before the end of %s", isoPath,
+              file.getGamePath());
+          throw new IOException(message);
+        }
+        position += transferred;
+        remaining -= transferred;
+      }
     }
   }
 
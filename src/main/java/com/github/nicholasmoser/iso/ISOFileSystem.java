@@ -0,0 +1,517 @@
+package com.github.nicholasmoser.iso;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedFileSystemException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileStoreAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A read-only file system over a GameCube ISO. The ISO has the same layout as an extracted ISO,
+ * with the sys files under {@code /sys} and the game files under {@code /files}, so code that reads
+ * extracted files can read them straight from the ISO instead. The directory tree is read from the
+ * fst.bin when the file system is opened and the contents of files are read from the ISO with
+ * positional reads, so nothing is extracted. The ISO stays open until the file system is closed.
+ * <p>
+ * Use {@link #open(Path)}, or {@link java.nio.file.FileSystems#newFileSystem(Path)} when the
+ * provider is installed.
+ */
+public class ISOFileSystem extends FileSystem {
+
+  private final ISOFileSystemProvider provider;
+
+  private final Path isoPath;
+
+  // The channel of the ISO, shared by every channel of the file system.
+  private final FileChannel isoChannel;
+
+  private final long isoSize;
+
+  private final FileTime lastModifiedTime;
+
+  // The entry of each directory and file, by absolute path.
+  private final Map<String, Entry> entries;
+
+  private final ISOFileStore fileStore;
+
+  private volatile boolean open = true;
+
+  /**
+   * Opens a file system over a GameCube ISO.
+   *
+   * @param provider The provider of the file system.
+   * @param isoPath  The path to the ISO.
+   * @throws IOException If an I/O error occurs or the file is not a GameCube ISO.
+   */
+  ISOFileSystem(ISOFileSystemProvider provider, Path isoPath) throws IOException {
+    this.provider = provider;
+    this.isoPath = isoPath.toRealPath();
+    ISOHeader header = new ISOParser(this.isoPath).getISOHeader();
+    lastModifiedTime = Files.getLastModifiedTime(this.isoPath);
+    entries = readEntries(header);
+    isoChannel = FileChannel.open(this.isoPath, StandardOpenOption.READ);
+    try {
+      isoSize = isoChannel.size();
+    } catch (IOException e) {
+      isoChannel.close();
+      throw e;
+    }
+    fileStore = new ISOFileStore();
+  }
+
+  /**
+   * Opens a file system over a GameCube ISO.
+   *
+   * @param isoPath The path to the ISO.
+   * @return The file system.
+   * @throws IOException If an I/O error occurs or the file is not a GameCube ISO.
+   */
+  public static ISOFileSystem open(Path isoPath) throws IOException {
+    return new ISOFileSystem(new ISOFileSystemProvider(), isoPath);
+  }
+
+  /**
+   * Builds the entries for the root, sys and files directories and everything under them.
+   *
+   * @param header The header of the ISO.
+   * @return The entry of each directory and file, by absolute path.
+   * @throws IOException If a directory in the fst.bin is missing its parent.
+   */
+  private static Map<String, Entry> readEntries(ISOHeader header) throws IOException {
+    Map<String, Entry> entries = new HashMap<>();
+    entries.put("/", Entry.directory("/"));
+    addEntry(entries, Entry.directory("/sys"));
+    for (ISOFile file : List.of(header.getBootBin(), header.getBi2Bin(), header.getApploaderImg(),
+        header.getMainDol(), header.getFstBin())) {
+      addEntry(entries, Entry.file("/" + file.getGamePath(), file));
+    }
+    addEntry(entries, Entry.directory("/files"));
+    for (ISOItem item : header.getFiles()) {
+      if (item instanceof ISOFile file) {
+        addEntry(entries, Entry.file("/files/" + file.getGamePath(), file));
+      } else if (!item.getGamePath().isEmpty()) {
+        // Directory game paths end with a slash
+        String gamePath = item.getGamePath();
+        String path = "/files/" + gamePath.substring(0, gamePath.length() - 1);
+        addEntry(entries, Entry.directory(path));
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Adds an entry and adds its name to the children of its parent directory.
+   *
+   * @param entries The entries.
+   * @param entry   The entry to add.
+   * @throws IOException If the parent directory does not exist.
+   */
+  private static void addEntry(Map<String, Entry> entries, Entry entry) throws IOException {
+    String path = entry.path();
+    int separator = path.lastIndexOf('/');
+    Entry parent = entries.get(separator == 0 ? "/" : path.substring(0, separator));
+    if (parent == null || !parent.isDirectory()) {
+      throw new IOException("Missing parent directory of " + path);
+    }
+    if (entries.put(path, entry) == null) {
+      parent.children().add(path.substring(separator + 1));
+    }
+  }
+
+  /**
+   * @return The path to the ISO.
+   */
+  public Path getISOPath() {
+    return isoPath;
+  }
+
+  /**
+   * Returns the entry of a directory or file.
+   *
+   * @param path The path of the directory or file.
+   * @return The entry.
+   * @throws NoSuchFileException If the directory or file does not exist.
+   */
+  Entry getEntry(ISOPath path) throws NoSuchFileException {
+    ensureOpen();
+    Entry entry = entries.get(path.toAbsolutePath().normalize().toString());
+    if (entry == null) {
+      throw new NoSuchFileException(path.toString());
+    }
+    return entry;
+  }
+
+  /**
+   * @return The entry of each file, by absolute path.
+   */
+  Map<String, Entry> getFileEntries() {
+    ensureOpen();
+    Map<String, Entry> files = new HashMap<>();
+    for (Entry entry : entries.values()) {
+      if (!entry.isDirectory()) {
+        files.put(entry.path(), entry);
+      }
+    }
+    return files;
+  }
+
+  /**
+   * Opens a read-only channel over the bytes of a file. The channel reads from the ISO channel of
+   * the file system, so it is closed when the file system is closed.
+   *
+   * @param entry The entry of the file.
+   * @return The channel.
+   * @throws IOException If the file extends past the end of the ISO.
+   */
+  ISOByteChannel newByteChannel(Entry entry) throws IOException {
+    ensureOpen();
+    checkBounds(entry);
+    return new ISOByteChannel(this, isoChannel, entry.position(), entry.size());
+  }
+
+  /**
+   * Reads the bytes of a file into memory.
+   *
+   * @param entry The entry of the file.
+   * @return The bytes of the file.
+   * @throws IOException If an I/O error occurs or the file extends past the end of the ISO.
+   */
+  ByteBuffer readBytes(Entry entry) throws IOException {
+    ensureOpen();
+    checkBounds(entry);
+    ByteBuffer bytes = ByteBuffer.allocate((int) entry.size());
+    while (bytes.hasRemaining()) {
+      if (isoChannel.read(bytes, entry.position() + bytes.position()) < 0) {
+        throw new IOException(String.format("Unexpected end of %s reading %s", isoPath,
+            entry.path()));
+      }
+    }
+    return bytes.flip();
+  }
+
+  /**
+   * @param entry The entry of a file.
+   * @throws IOException If the file extends past the end of the ISO.
+   */
+  private void checkBounds(Entry entry) throws IOException {
+    if (entry.position() + entry.size() > isoSize) {
+      throw new IOException(String.format("%s extends past the end of %s", entry.path(), isoPath));
+    }
+  }
+
+  /**
+   * @param entry The entry of a directory or file.
+   * @return The attributes of the directory or file.
+   */
+  BasicFileAttributes getAttributes(Entry entry) {
+    return new ISOFileAttributes(lastModifiedTime, entry.isDirectory(), entry.size());
+  }
+
+  /**
+   * @throws ClosedFileSystemException If the file system is closed.
+   */
+  void ensureOpen() {
+    if (!open) {
+      throw new ClosedFileSystemException();
+    }
+  }
+
+  @Override
+  public ISOFileSystemProvider provider() {
+    return provider;
+  }
+
+  @Override
+  public void close() throws IOException {
+    open = false;
+    provider.removeFileSystem(isoPath, this);
+    isoChannel.close();
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+
+  @Override
+  public String getSeparator() {
+    return "/";
+  }
+
+  @Override
+  public Iterable<Path> getRootDirectories() {
+    ensureOpen();
+    return List.of(new ISOPath(this, "/"));
+  }
+
+  @Override
+  public Iterable<FileStore> getFileStores() {
+    ensureOpen();
+    return List.of(fileStore);
+  }
+
+  /**
+   * @return The file store of the ISO.
+   */
+  FileStore getFileStore() {
+    return fileStore;
+  }
+
+  @Override
+  public Set<String> supportedFileAttributeViews() {
+    return Set.of("basic");
+  }
+
+  @Override
+  public ISOPath getPath(String first, String... more) {
+    StringBuilder builder = new StringBuilder(first);
+    for (String segment : more) {
+      if (!segment.isEmpty()) {
+        if (builder.length() > 0) {
+          builder.append('/');
+        }
+        builder.append(segment);
+      }
+    }
+    return new ISOPath(this, builder.toString());
+  }
+
+  @Override
+  public PathMatcher getPathMatcher(String syntaxAndPattern) {
+    int colon = syntaxAndPattern.indexOf(':');
+    if (colon <= 0) {
+      throw new IllegalArgumentException("Missing syntax in " + syntaxAndPattern);
+    }
+    String syntax = syntaxAndPattern.substring(0, colon);
+    String input = syntaxAndPattern.substring(colon + 1);
+    String regex;
+    if (syntax.equalsIgnoreCase("glob")) {
+      regex = globToRegex(input);
+    } else if (syntax.equalsIgnoreCase("regex")) {
+      regex = input;
+    } else {
+      throw new UnsupportedOperationException("Syntax " + syntax + " is not supported");
+    }
+    Pattern pattern = Pattern.compile(regex);
+    return path -> pattern.matcher(path.toString()).matches();
+  }
+
+  /**
+   * Converts a glob to a regular expression. A {@code *} matches within a name, {@code **} matches
+   * across names, and {@code ?}, {@code [...]} and {@code {a,b}} match as in
+   * {@link FileSystem#getPathMatcher(String)}.
+   *
+   * @param glob The glob.
+   * @return The regular expression.
+   */
+  private static String globToRegex(String glob) {
+    StringBuilder regex = new StringBuilder();
+    boolean inGroup = false;
+    for (int i = 0; i < glob.length(); i++) {
+      char c = glob.charAt(i);
+      switch (c) {
+        case '*' -> {
+          if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+            regex.append(".*");
+            i++;
+          } else {
+            regex.append("[^/]*");
+          }
+        }
+        case '?' -> regex.append("[^/]");
+        case '{' -> {
+          if (inGroup) {
+            throw new IllegalArgumentException("Nested groups are not supported in " + glob);
+          }
+          regex.append("(?:");
+          inGroup = true;
+        }
+        case '}' -> {
+          regex.append(inGroup ? ")" : "\\}");
+          inGroup = false;
+        }
+        case ',' -> regex.append(inGroup ? "|" : ",");
+        case '[' -> {
+          int end = glob.indexOf(']', i + 1);
+          if (end < 0) {
+            throw new IllegalArgumentException("Missing ] in " + glob);
+          }
+          String bracket = glob.substring(i + 1, end).replace("\\", "\\\\").replace("[", "\\[");
+          if (bracket.startsWith("!")) {
+            bracket = "^" + bracket.substring(1);
+          }
+          regex.append("[[^/]&&[").append(bracket).append("]]");
+          i = end;
+        }
+        case '\\' -> {
+          if (i + 1 == glob.length()) {
+            throw new IllegalArgumentException("Trailing escape in " + glob);
+          }
+          regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+        }
+        default -> regex.append(Character.isLetterOrDigit(c) || c == '/' ? String.valueOf(c)
+            : Pattern.quote(String.valueOf(c)));
+      }
+    }
+    if (inGroup) {
+      throw new IllegalArgumentException("Missing } in " + glob);
+    }
+    return regex.toString();
+  }
+
+  @Override
+  public UserPrincipalLookupService getUserPrincipalLookupService() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public WatchService newWatchService() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String toString() {
+    return isoPath.toString();
+  }
+
+  /**
+   * A directory or file in the ISO. Directories have the names of their children, files have the
+   * position and size of their bytes in the ISO.
+   *
+   * @param path        The absolute path of the directory or file.
+   * @param isDirectory If this is a directory.
+   * @param position    The position of the file in the ISO.
+   * @param size        The size of the file.
+   * @param children    The names of the children of the directory.
+   */
+  record Entry(String path, boolean isDirectory, long position, long size,
+               List<String> children) {
+
+    static Entry directory(String path) {
+      return new Entry(path, true, 0, 0, new ArrayList<>());
+    }
+
+    static Entry file(String path, ISOFile file) {
+      return new Entry(path, false, file.getPos(), file.getLen(), Collections.emptyList());
+    }
+  }
+
+  /**
+   * The attributes of a directory or file in the ISO. Every directory and file has the last
+   * modified time of the ISO.
+   */
+  private record ISOFileAttributes(FileTime lastModifiedTime, boolean isDirectory, long size)
+      implements BasicFileAttributes {
+
+    @Override
+    public FileTime lastAccessTime() {
+      return lastModifiedTime;
+    }
+
+    @Override
+    public FileTime creationTime() {
+      return lastModifiedTime;
+    }
+
+    @Override
+    public boolean isRegularFile() {
+      return !isDirectory;
+    }
+
+    @Override
+    public boolean isSymbolicLink() {
+      return false;
+    }
+
+    @Override
+    public boolean isOther() {
+      return false;
+    }
+
+    @Override
+    public Object fileKey() {
+      return null;
+    }
+  }
+
+  /**
+   * The read-only file store of the ISO.
+   */
+  private class ISOFileStore extends FileStore {
+
+    @Override
+    public String name() {
+      return isoPath.getFileName().toString();
+    }
+
+    @Override
+    public String type() {
+      return ISOFileSystemProvider.SCHEME;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+      return true;
+    }
+
+    @Override
+    public long getTotalSpace() {
+      return isoSize;
+    }
+
+    @Override
+    public long getUsableSpace() {
+      return 0;
+    }
+
+    @Override
+    public long getUnallocatedSpace() {
+      return 0;
+    }
+
+    @Override
+    public boolean supportsFileAttributeView(Class<? extends FileAttributeView> type) {
+      return type == BasicFileAttributeView.class;
+    }
+
+    @Override
+    public boolean supportsFileAttributeView(String name) {
+      return "basic".equals(name);
+    }
+
+    @Override
+    public <V extends FileStoreAttributeView> V getFileStoreAttributeView(Class<V> type) {
+      return null;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) {
+      throw new UnsupportedOperationException("Attribute " + attribute + " is not supported");
+    }
+  }
+}
@@ -0,0 +1,352 @@
+package com.github.nicholasmoser.iso;
+
+import com.github.nicholasmoser.iso.ISOFileSystem.Entry;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.LinkOption;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.ReadOnlyFileSystemException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The provider of read-only {@link ISOFileSystem}s over GameCube ISOs. A file system can be opened
+ * from the path to an ISO, or from a URI of the form {@code gciso:file:///path/to/game.iso}. Paths
+ * in an ISO have URIs of the form {@code gciso:file:///path/to/game.iso!/files/path}.
+ */
+public class ISOFileSystemProvider extends FileSystemProvider {
+
+  public static final String SCHEME = "gciso";
+
+  // The file systems opened by URI, by the real path of the ISO.
+  private final Map<Path, ISOFileSystem> fileSystems = new HashMap<>();
+
+  @Override
+  public String getScheme() {
+    return SCHEME;
+  }
+
+  @Override
+  public ISOFileSystem newFileSystem(URI uri, Map<String, ?> env) throws IOException {
+    Path isoPath = getISOPath(uri).toRealPath();
+    synchronized (fileSystems) {
+      if (fileSystems.containsKey(isoPath)) {
+        throw new FileSystemAlreadyExistsException(isoPath.toString());
+      }
+      ISOFileSystem fileSystem = new ISOFileSystem(this, isoPath);
+      fileSystems.put(isoPath, fileSystem);
+      return fileSystem;
+    }
+  }
+
+  /**
+   * Opens a file system over an ISO. The file system is not registered with the provider, so it
+   * cannot be found by its URI.
+   *
+   * @param path The path to the ISO.
+   * @param env  Unused.
+   * @return The file system.
+   * @throws IOException                   If an I/O error occurs.
+   * @throws UnsupportedOperationException If the file is not a GameCube ISO.
+   */
+  @Override
+  public ISOFileSystem newFileSystem(Path path, Map<String, ?> env) throws IOException {
+    if (!isGameCubeISO(path)) {
+      throw new UnsupportedOperationException(path + " is not a GameCube ISO.");
+    }
+    return new ISOFileSystem(this, path);
+  }
+
+  /**
+   * @param path The path to a file.
+   * @return If the file is a GameCube ISO.
+   */
+  private static boolean isGameCubeISO(Path path) {
+    try (RandomAccessFile raf = new RandomAccessFile(path.toFile(), "r")) {
+      new ISOParser(path).checkGameCubeMagicNumber(raf);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public ISOFileSystem getFileSystem(URI uri) {
+    ISOFileSystem fileSystem;
+    try {
+      Path isoPath = getISOPath(uri).toRealPath();
+      synchronized (fileSystems) {
+        fileSystem = fileSystems.get(isoPath);
+      }
+    } catch (IOException e) {
+      fileSystem = null;
+    }
+    if (fileSystem == null) {
+      throw new FileSystemNotFoundException(uri.toString());
+    }
+    return fileSystem;
+  }
+
+  /**
+   * Removes a file system opened by URI once it is closed.
+   *
+   * @param isoPath    The real path to the ISO.
+   * @param fileSystem The closed file system.
+   */
+  void removeFileSystem(Path isoPath, ISOFileSystem fileSystem) {
+    synchronized (fileSystems) {
+      fileSystems.remove(isoPath, fileSystem);
+    }
+  }
+
+  @Override
+  public ISOPath getPath(URI uri) {
+    String part = uri.getRawSchemeSpecificPart();
+    int separator = part.indexOf("!/");
+    if (separator < 0) {
+      throw new IllegalArgumentException("URI has no path in the ISO: " + uri);
+    }
+    String path = URI.create(part.substring(separator + 1)).getPath();
+    return getFileSystem(uri).getPath(path);
+  }
+
+  /**
+   * Returns the path to the ISO of a URI, the part before any path in the ISO.
+   *
+   * @param uri The URI.
+   * @return The path to the ISO.
+   * @throws IllegalArgumentException If the URI does not have this provider's scheme.
+   */
+  private static Path getISOPath(URI uri) {
+    if (!SCHEME.equalsIgnoreCase(uri.getScheme())) {
+      throw new IllegalArgumentException("URI scheme is not " + SCHEME + ": " + uri);
+    }
+    String part = uri.getRawSchemeSpecificPart();
+    int separator = part.indexOf("!/");
+    if (separator >= 0) {
+      part = part.substring(0, separator);
+    }
+    return Paths.get(URI.create(part));
+  }
+
+  /**
+   * @param path A path.
+   * @return The path as an ISO path.
+   * @throws ProviderMismatchException If the path is not an ISO path.
+   */
+  private static ISOPath toISOPath(Path path) {
+    if (path instanceof ISOPath isoPath) {
+      return isoPath;
+    }
+    throw new ProviderMismatchException();
+  }
+
+  @Override
+  public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options,
+      FileAttribute<?>... attrs) throws IOException {
+    if (options.contains(StandardOpenOption.WRITE) || options.contains(StandardOpenOption.APPEND)
+        || options.contains(StandardOpenOption.DELETE_ON_CLOSE)) {
+      throw new ReadOnlyFileSystemException();
+    }
+    ISOPath isoPath = toISOPath(path);
+    ISOFileSystem fileSystem = isoPath.getFileSystem();
+    Entry entry = fileSystem.getEntry(isoPath);
+    if (entry.isDirectory()) {
+      throw new FileSystemException(path.toString(), null, "Is a directory");
+    }
+    return fileSystem.newByteChannel(entry);
+  }
+
+  @Override
+  public DirectoryStream<Path> newDirectoryStream(Path dir,
+      DirectoryStream.Filter<? super Path> filter) throws IOException {
+    ISOPath isoPath = toISOPath(dir);
+    Entry entry = isoPath.getFileSystem().getEntry(isoPath);
+    if (!entry.isDirectory()) {
+      throw new NotDirectoryException(dir.toString());
+    }
+    List<Path> children = new ArrayList<>(entry.children().size());
+    for (String child : entry.children()) {
+      Path childPath = isoPath.resolve(child);
+      if (filter.accept(childPath)) {
+        children.add(childPath);
+      }
+    }
+    return new DirectoryStream<>() {
+      private boolean iterated;
+
+      @Override
+      public Iterator<Path> iterator() {
+        if (iterated) {
+          throw new IllegalStateException("Iterator already obtained");
+        }
+        iterated = true;
+        return children.iterator();
+      }
+
+      @Override
+      public void close() {
+        iterated = true;
+      }
+    };
+  }
+
+  @Override
+  public void createDirectory(Path dir, FileAttribute<?>... attrs) {
+    throw new ReadOnlyFileSystemException();
+  }
+
+  @Override
+  public void delete(Path path) {
+    throw new ReadOnlyFileSystemException();
+  }
+
+  @Override
+  public void copy(Path source, Path target, CopyOption... options) {
+    throw new ReadOnlyFileSystemException();
+  }
+
+  @Override
+  public void move(Path source, Path target, CopyOption... options) {
+    throw new ReadOnlyFileSystemException();
+  }
+
+  @Override
+  public boolean isSameFile(Path path, Path path2) throws IOException {
+    if (path.equals(path2)) {
+      return true;
+    } else if (!(path2 instanceof ISOPath other)
+        || other.getFileSystem() != toISOPath(path).getFileSystem()) {
+      return false;
+    }
+    return path.toRealPath().equals(path2.toRealPath());
+  }
+
+  @Override
+  public boolean isHidden(Path path) {
+    return false;
+  }
+
+  @Override
+  public FileStore getFileStore(Path path) throws IOException {
+    ISOPath isoPath = toISOPath(path);
+    isoPath.getFileSystem().getEntry(isoPath);
+    return isoPath.getFileSystem().getFileStore();
+  }
+
+  @Override
+  public void checkAccess(Path path, AccessMode... modes) throws IOException {
+    ISOPath isoPath = toISOPath(path);
+    isoPath.getFileSystem().getEntry(isoPath);
+    for (AccessMode mode : modes) {
+      if (mode != AccessMode.READ) {
+        throw new AccessDeniedException(path.toString());
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type,
+      LinkOption... options) {
+    if (type != BasicFileAttributeView.class) {
+      return null;
+    }
+    ISOPath isoPath = toISOPath(path);
+    return (V) new BasicFileAttributeView() {
+      @Override
+      public String name() {
+        return "basic";
+      }
+
+      @Override
+      public BasicFileAttributes readAttributes() throws IOException {
+        return ISOFileSystemProvider.this.readAttributes(isoPath, BasicFileAttributes.class);
+      }
+
+      @Override
+      public void setTimes(FileTime lastModifiedTime, FileTime lastAccessTime,
+          FileTime createTime) {
+        throw new ReadOnlyFileSystemException();
+      }
+    };
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type,
+      LinkOption... options) throws IOException {
+    if (type != BasicFileAttributes.class) {
+      throw new UnsupportedOperationException("Attributes " + type + " are not supported");
+    }
+    ISOPath isoPath = toISOPath(path);
+    ISOFileSystem fileSystem = isoPath.getFileSystem();
+    return (A) fileSystem.getAttributes(fileSystem.getEntry(isoPath));
+  }
+
+  @Override
+  public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options)
+      throws IOException {
+    int colon = attributes.indexOf(':');
+    if (colon >= 0) {
+      String view = attributes.substring(0, colon);
+      if (!view.equals("basic")) {
+        throw new UnsupportedOperationException("View " + view + " is not supported");
+      }
+      attributes = attributes.substring(colon + 1);
+    }
+    BasicFileAttributes attrs = readAttributes(path, BasicFileAttributes.class);
+    Map<String, Object> all = new LinkedHashMap<>();
+    all.put("lastModifiedTime", attrs.lastModifiedTime());
+    all.put("lastAccessTime", attrs.lastAccessTime());
+    all.put("creationTime", attrs.creationTime());
+    all.put("size", attrs.size());
+    all.put("isRegularFile", attrs.isRegularFile());
+    all.put("isDirectory", attrs.isDirectory());
+    all.put("isSymbolicLink", attrs.isSymbolicLink());
+    all.put("isOther", attrs.isOther());
+    all.put("fileKey", attrs.fileKey());
+    Map<String, Object> result = new LinkedHashMap<>();
+    for (String name : attributes.split(",")) {
+      if (name.equals("*")) {
+        result.putAll(all);
+      } else if (all.containsKey(name)) {
+        result.put(name, all.get(name));
+      } else {
+        throw new IllegalArgumentException("Attribute " + name + " is not supported");
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void setAttribute(Path path, String attribute, Object value, LinkOption... options) {
+    throw new ReadOnlyFileSystemException();
+  }
+}
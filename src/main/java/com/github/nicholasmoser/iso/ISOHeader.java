@@ -1,7 +1,10 @@
 package com.github.nicholasmoser.iso;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * The header for an ISO. This describes the sys directory, sys files, and files and directories
@@ -30,6 +33,9 @@ public class ISOHeader {
   /* All files and directories under the files directory. */
   private final List<ISOItem> files;
 
+  /* All files and directories under the files directory by game path. */
+  private final Map<String, ISOItem> filesByGamePath;
+
   /**
    * Creates a new ISOHeader.
    *
@@ -65,6 +71,10 @@ public class ISOHeader {
     this.mainDol = mainDol;
     this.fstBin = fstBin;
     this.files = files;
+    this.filesByGamePath = new HashMap<>(files.size() * 2);
+    for (ISOItem item : files) {
+      filesByGamePath.put(item.getGamePath(), item);
+    }
   }
 
   /**
@@ -116,6 +126,17 @@ public class ISOHeader {
     return files;
   }
 
+  /**
+   * Returns the file or directory under the files directory with the given game path, such as
+   * {@code maki/char_sel.fpk} or {@code maki/} for a directory.
+   *
+   * @param gamePath The game path of the file or directory.
+   * @return The file or directory, if it exists.
+   */
+  public Optional<ISOItem> getItem(String gamePath) {
+    return Optional.ofNullable(filesByGamePath.get(gamePath));
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -0,0 +1,189 @@
+package com.github.nicholasmoser.iso;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import com.github.nicholasmoser.workspace.FileFingerprint;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * The fingerprint of each input file of an ISO, written next to the ISO by {@link ISOUpdater} so
+ * that a later update can tell which files have the same contents as the ISO without reading them.
+ * The fingerprints are only the size and last modified time of each file, so writing the manifest
+ * does not read any file. The size and last modified time of the ISO are recorded with them, so
+ * the manifest is only used for the ISO it was written for and not one that was replaced or
+ * modified since.
+ * <p>
+ * The first line of the manifest is the size and last modified time in nanoseconds of the ISO,
+ * followed by the time in nanoseconds that the files were fingerprinted. Each following line is the
+ * size, last modified time in nanoseconds and file key of a file, and its game path, separated by
+ * spaces. A file key of {@code -} means the file has no file key.
+ */
+class ISOManifest {
+
+  private static final Logger LOGGER = Logger.getLogger(ISOManifest.class.getName());
+
+  // The extension added to the ISO file name for the manifest.
+  private static final String EXTENSION = ".manifest";
+
+  // The file key written for a file without one.
+  private static final String NO_FILE_KEY = "-";
+
+  // The fingerprint of each file by game path.
+  private final Map<String, FileFingerprint> fingerprints;
+
+  // When the files were fingerprinted in nanoseconds since the epoch.
+  private final long verifiedNanos;
+
+  /**
+   * @param fingerprints  The fingerprint of each file by game path.
+   * @param verifiedNanos When the files were fingerprinted in nanoseconds since the epoch.
+   */
+  private ISOManifest(Map<String, FileFingerprint> fingerprints, long verifiedNanos) {
+    this.fingerprints = fingerprints;
+    this.verifiedNanos = verifiedNanos;
+  }
+
+  /**
+   * Fingerprints the files of an input directory. This must be done before the files are written
+   * to the ISO, so that a file modified while the ISO is written does not match its fingerprint.
+   *
+   * @param filesPath The path to the files directory of the input directory.
+   * @param items     The files and directories of the ISO.
+   * @return The manifest of the files.
+   * @throws IOException If an I/O error occurs.
+   */
+  static ISOManifest fingerprint(Path filesPath, List<? extends ISOItem> items)
+      throws IOException {
+    long verifiedNanos = FileFingerprint.now();
+    Map<String, FileFingerprint> fingerprints = new HashMap<>();
+    for (ISOItem item : items) {
+      if (!item.isDirectory()) {
+        String gamePath = item.getGamePath();
+        fingerprints.put(gamePath, FileFingerprint.of(filesPath.resolve(gamePath)));
+      }
+    }
+    return new ISOManifest(fingerprints, verifiedNanos);
+  }
+
+  /**
+   * Reads the manifest of an ISO. Returns empty if there is no manifest, or if it was written for
+   * an ISO with a different size or last modified time.
+   *
+   * @param isoPath The path to the ISO.
+   * @return The manifest of the ISO, or empty if there is no manifest for the current ISO.
+   * @throws IOException If an I/O error occurs.
+   */
+  static Optional<ISOManifest> read(Path isoPath) throws IOException {
+    Path manifestPath = getPath(isoPath);
+    if (!Files.isRegularFile(manifestPath)) {
+      return Optional.empty();
+    }
+    List<String> lines = Files.readAllLines(manifestPath, StandardCharsets.UTF_8);
+    String isoLine = getISOLine(isoPath) + " ";
+    if (lines.isEmpty() || !lines.get(0).startsWith(isoLine)) {
+      LOGGER.info(manifestPath + " is not for the current " + isoPath);
+      return Optional.empty();
+    }
+    try {
+      long verifiedNanos = Long.parseLong(lines.get(0).substring(isoLine.length()));
+      Map<String, FileFingerprint> fingerprints = new HashMap<>();
+      for (String line : lines.subList(1, lines.size())) {
+        String[] parts = line.split(" ", 4);
+        if (parts.length != 4) {
+          LOGGER.info(String.format("%s has an invalid line: %s", manifestPath, line));
+          return Optional.empty();
+        }
+        String fileKey = NO_FILE_KEY.equals(parts[2]) ? null : parts[2];
+        fingerprints.put(parts[3], new FileFingerprint(Long.parseLong(parts[0]),
+            Long.parseLong(parts[1]), fileKey));
+      }
+      return Optional.of(new ISOManifest(fingerprints, verifiedNanos));
+    } catch (NumberFormatException e) {
+      LOGGER.info(String.format("%s is invalid: %s", manifestPath, e.getMessage()));
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Writes the manifest next to an ISO. The ISO must be completely written first, since its size
+   * and last modified time are recorded.
+   *
+   * @param isoPath The path to the ISO.
+   * @throws IOException If an I/O error occurs.
+   */
+  void write(Path isoPath) throws IOException {
+    List<String> lines = new ArrayList<>(fingerprints.size() + 1);
+    lines.add(getISOLine(isoPath) + " " + verifiedNanos);
+    for (Map.Entry<String, FileFingerprint> entry : fingerprints.entrySet()) {
+      FileFingerprint fingerprint = entry.getValue();
+      String fileKey = fingerprint.fileKey();
+      if (fileKey == null || fileKey.isEmpty() || fileKey.contains(" ")) {
+        // A file key that cannot be written never matches, so the file is always written
+        fileKey = NO_FILE_KEY;
+      }
+      lines.add(String.format("%d %d %s %s", fingerprint.size(), fingerprint.modifiedNanos(),
+          fileKey, entry.getKey()));
+    }
+    Path manifestPath = getPath(isoPath);
+    Path temp = manifestPath.resolveSibling(manifestPath.getFileName() + ".tmp");
+    Files.write(temp, lines, StandardCharsets.UTF_8);
+    Files.move(temp, manifestPath, REPLACE_EXISTING);
+  }
+
+  /**
+   * Deletes the manifest of an ISO, if there is one. This should be done before the ISO is
+   * written, so that a failed write does not leave a manifest behind.
+   *
+   * @param isoPath The path to the ISO.
+   * @throws IOException If an I/O error occurs.
+   */
+  static void delete(Path isoPath) throws IOException {
+    Files.deleteIfExists(getPath(isoPath));
+  }
+
+  /**
+   * Returns if a file still has the contents it had when this manifest was written, judged by
+   * comparing its fingerprint in this manifest against its current fingerprint.
+   *
+   * @param gamePath The game path of the file.
+   * @param current  The manifest of the current files.
+   * @return If the file is in both manifests and can be trusted to be unchanged.
+   */
+  boolean isUnchanged(String gamePath, ISOManifest current) {
+    FileFingerprint fingerprint = fingerprints.get(gamePath);
+    FileFingerprint currentFingerprint = current.fingerprints.get(gamePath);
+    return fingerprint != null && currentFingerprint != null
+        && fingerprint.isUnchanged(currentFingerprint, verifiedNanos);
+  }
+
+  /**
+   * @param isoPath The path to the ISO.
+   * @return The path to the manifest of the ISO.
+   */
+  static Path getPath(Path isoPath) {
+    return isoPath.resolveSibling(isoPath.getFileName() + EXTENSION);
+  }
+
+  /**
+   * @param isoPath The path to the ISO.
+   * @return The start of the first line of the manifest, with the size and last modified time of
+   * the ISO.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static String getISOLine(Path isoPath) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(isoPath, BasicFileAttributes.class);
+    return String.format("%d %d", attributes.size(),
+        attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+  }
+}
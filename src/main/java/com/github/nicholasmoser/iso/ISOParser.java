@@ -36,22 +36,22 @@ public class ISOParser {
     ISOHeader.Builder headerBuilder = new ISOHeader.Builder();
     try (RandomAccessFile raf = new RandomAccessFile(isoPath.toFile(), "r")) {
       checkGameCubeMagicNumber(raf);
-      int fstBinOffset = buildSysFiles(raf, headerBuilder);
-      buildFiles(raf, headerBuilder, fstBinOffset);
+      ISOFile fstBin = buildSysFiles(raf, headerBuilder);
+      buildFiles(raf, headerBuilder, fstBin);
     }
     return headerBuilder.createISOHeader();
   }
 
   /**
    * Builds the sys files. The files will be read from the provided RandomAccessFile and built into
-   * the ISOHeader builder. The fst.bin position in the file will be returned.
+   * the ISOHeader builder. The fst.bin file will be returned.
    *
    * @param raf           The RandomAccessFile for the ISO to read from.
    * @param headerBuilder The builder for the ISOHeader.
-   * @return The fst.bin position in the file.
+   * @return The fst.bin file.
    * @throws IOException If an I/O error occurs.
    */
-  private int buildSysFiles(RandomAccessFile raf, ISOHeader.Builder headerBuilder)
+  private ISOFile buildSysFiles(RandomAccessFile raf, ISOHeader.Builder headerBuilder)
       throws IOException {
     raf.seek(1024);
     int apploaderLength = ByteUtils.readInt32(raf);
@@ -107,24 +107,30 @@ public class ISOParser {
     headerBuilder.setMainDol(mainDol);
     headerBuilder.setFstBin(fstBin);
 
-    return fileSystemTablePosition;
+    return fstBin;
   }
 
   /**
    * Builds  the files and directories under the files directory. The files will be read from the
-   * provided RandomAccessFile and built into the ISOHeader builder. The file more specifically will
-   * be read from the fst.bin in the ISO.
+   * provided RandomAccessFile and built into the ISOHeader builder. The fst.bin in the ISO is read
+   * in a single read and then parsed from memory.
    *
    * @param raf           The RandomAccessFile for the ISO to read from.
    * @param headerBuilder The ISOHeader builder.
-   * @param fstBinOffset  The location of the fst.bin data in the ISO.
+   * @param fstBin        The fst.bin file in the ISO.
    * @throws IOException If an I/O error occurs.
    */
-  private void buildFiles(RandomAccessFile raf, ISOHeader.Builder headerBuilder,
-      int fstBinOffset)
+  private void buildFiles(RandomAccessFile raf, ISOHeader.Builder headerBuilder, ISOFile fstBin)
       throws IOException {
-    raf.seek(fstBinOffset);
-    List<ISOItem> files = FileSystemTable.read(raf);
+    if (fstBin.getPos() < 0 || fstBin.getLen() < 0
+        || (long) fstBin.getPos() + fstBin.getLen() > raf.length()) {
+      throw new IOException(String.format("fst.bin at 0x%X of length 0x%X is outside the ISO",
+          fstBin.getPos(), fstBin.getLen()));
+    }
+    byte[] bytes = new byte[fstBin.getLen()];
+    raf.seek(fstBin.getPos());
+    raf.readFully(bytes);
+    List<ISOItem> files = FileSystemTable.read(bytes);
     headerBuilder.setFiles(files);
   }
 
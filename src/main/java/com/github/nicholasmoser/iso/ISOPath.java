@@ -0,0 +1,288 @@
+package com.github.nicholasmoser.iso;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A path in an {@link ISOFileSystem}. Paths are separated by {@code /} and absolute paths start
+ * with it, such as {@code /files/maki/char_sel.fpk}.
+ */
+public final class ISOPath implements Path {
+
+  private final ISOFileSystem fileSystem;
+
+  // The path without repeated or trailing separators.
+  private final String path;
+
+  // The names of the path, a single empty name for the empty path.
+  private final String[] names;
+
+  /**
+   * Creates a new ISO path.
+   *
+   * @param fileSystem The file system of the path.
+   * @param path       The path text.
+   * @throws InvalidPathException If the path contains a null character.
+   */
+  ISOPath(ISOFileSystem fileSystem, String path) {
+    if (path.indexOf('\0') >= 0) {
+      throw new InvalidPathException(path, "Null character in path");
+    }
+    this.fileSystem = fileSystem;
+    this.path = removeExtraSeparators(path);
+    if (this.path.isEmpty()) {
+      names = new String[]{""};
+    } else if (this.path.equals("/")) {
+      names = new String[0];
+    } else {
+      names = (isAbsolute() ? this.path.substring(1) : this.path).split("/");
+    }
+  }
+
+  /**
+   * @param path The path text.
+   * @return The path text without repeated or trailing separators.
+   */
+  private static String removeExtraSeparators(String path) {
+    String result = path.replaceAll("/{2,}", "/");
+    if (result.length() > 1 && result.endsWith("/")) {
+      result = result.substring(0, result.length() - 1);
+    }
+    return result;
+  }
+
+  /**
+   * @param names The names of the path.
+   * @param from  The index of the first name.
+   * @param to    The index after the last name.
+   * @return The names joined by separators.
+   */
+  private static String join(String[] names, int from, int to) {
+    return String.join("/", Arrays.asList(names).subList(from, to));
+  }
+
+  /**
+   * @param other A path.
+   * @return The path as an ISO path.
+   * @throws ProviderMismatchException If the path is not an ISO path.
+   */
+  private static ISOPath toISOPath(Path other) {
+    if (other instanceof ISOPath isoPath) {
+      return isoPath;
+    }
+    throw new ProviderMismatchException();
+  }
+
+  @Override
+  public ISOFileSystem getFileSystem() {
+    return fileSystem;
+  }
+
+  @Override
+  public boolean isAbsolute() {
+    return path.startsWith("/");
+  }
+
+  @Override
+  public ISOPath getRoot() {
+    return isAbsolute() ? new ISOPath(fileSystem, "/") : null;
+  }
+
+  @Override
+  public ISOPath getFileName() {
+    if (names.length == 0) {
+      return null;
+    } else if (names.length == 1 && !isAbsolute()) {
+      return this;
+    }
+    return new ISOPath(fileSystem, names[names.length - 1]);
+  }
+
+  @Override
+  public ISOPath getParent() {
+    if (names.length == 0) {
+      return null;
+    } else if (names.length == 1) {
+      return getRoot();
+    }
+    String parent = join(names, 0, names.length - 1);
+    return new ISOPath(fileSystem, isAbsolute() ? "/" + parent : parent);
+  }
+
+  @Override
+  public int getNameCount() {
+    return names.length;
+  }
+
+  @Override
+  public ISOPath getName(int index) {
+    if (index < 0 || index >= names.length) {
+      throw new IllegalArgumentException("Invalid name index " + index + " of " + path);
+    }
+    return new ISOPath(fileSystem, names[index]);
+  }
+
+  @Override
+  public ISOPath subpath(int beginIndex, int endIndex) {
+    if (beginIndex < 0 || beginIndex >= endIndex || endIndex > names.length) {
+      String message = String.format("Invalid subpath %d to %d of %s", beginIndex, endIndex, path);
+      throw new IllegalArgumentException(message);
+    }
+    return new ISOPath(fileSystem, join(names, beginIndex, endIndex));
+  }
+
+  @Override
+  public boolean startsWith(Path other) {
+    if (!(other instanceof ISOPath isoPath) || isoPath.isAbsolute() != isAbsolute()) {
+      return false;
+    } else if (isoPath.path.isEmpty() || path.isEmpty()) {
+      return isoPath.path.equals(path);
+    } else if (isoPath.names.length > names.length) {
+      return false;
+    }
+    for (int i = 0; i < isoPath.names.length; i++) {
+      if (!names[i].equals(isoPath.names[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean endsWith(Path other) {
+    if (!(other instanceof ISOPath isoPath)) {
+      return false;
+    } else if (isoPath.isAbsolute()) {
+      return isoPath.path.equals(path);
+    } else if (isoPath.path.isEmpty() || path.isEmpty()) {
+      return isoPath.path.equals(path);
+    } else if (isoPath.names.length > names.length) {
+      return false;
+    }
+    int offset = names.length - isoPath.names.length;
+    for (int i = 0; i < isoPath.names.length; i++) {
+      if (!names[offset + i].equals(isoPath.names[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public ISOPath normalize() {
+    List<String> normalized = new ArrayList<>(names.length);
+    for (String name : names) {
+      if (name.equals(".")) {
+        continue;
+      } else if (name.equals("..")) {
+        int last = normalized.size() - 1;
+        if (last >= 0 && !normalized.get(last).equals("..")) {
+          normalized.remove(last);
+          continue;
+        } else if (isAbsolute()) {
+          // The parent of the root is the root
+          continue;
+        }
+      }
+      normalized.add(name);
+    }
+    String joined = String.join("/", normalized);
+    return new ISOPath(fileSystem, isAbsolute() ? "/" + joined : joined);
+  }
+
+  @Override
+  public ISOPath resolve(Path other) {
+    ISOPath isoPath = toISOPath(other);
+    if (isoPath.isAbsolute()) {
+      return isoPath.fileSystem == fileSystem ? isoPath : new ISOPath(fileSystem, isoPath.path);
+    } else if (isoPath.path.isEmpty()) {
+      return this;
+    } else if (path.isEmpty()) {
+      return new ISOPath(fileSystem, isoPath.path);
+    }
+    return new ISOPath(fileSystem, path + "/" + isoPath.path);
+  }
+
+  @Override
+  public ISOPath relativize(Path other) {
+    ISOPath isoPath = toISOPath(other);
+    if (isoPath.isAbsolute() != isAbsolute()) {
+      throw new IllegalArgumentException("Cannot relativize " + other + " against " + path);
+    } else if (path.isEmpty()) {
+      return new ISOPath(fileSystem, isoPath.path);
+    }
+    String[] otherNames = isoPath.path.isEmpty() ? new String[0] : isoPath.names;
+    int common = 0;
+    while (common < names.length && common < otherNames.length
+        && names[common].equals(otherNames[common])) {
+      common++;
+    }
+    List<String> relative = new ArrayList<>();
+    for (int i = common; i < names.length; i++) {
+      relative.add("..");
+    }
+    relative.addAll(Arrays.asList(otherNames).subList(common, otherNames.length));
+    return new ISOPath(fileSystem, String.join("/", relative));
+  }
+
+  @Override
+  public URI toUri() {
+    try {
+      String isoUri = fileSystem.getISOPath().toUri().toString();
+      String pathUri = new URI(null, null, toAbsolutePath().path, null).getRawPath();
+      return new URI(ISOFileSystemProvider.SCHEME + ":" + isoUri + "!" + pathUri);
+    } catch (URISyntaxException e) {
+      throw new IllegalStateException("Cannot create URI for " + path, e);
+    }
+  }
+
+  @Override
+  public ISOPath toAbsolutePath() {
+    return isAbsolute() ? this : new ISOPath(fileSystem, "/" + path);
+  }
+
+  @Override
+  public ISOPath toRealPath(LinkOption... options) throws IOException {
+    ISOPath realPath = toAbsolutePath().normalize();
+    fileSystem.getEntry(realPath);
+    return realPath;
+  }
+
+  @Override
+  public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events,
+      WatchEvent.Modifier... modifiers) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int compareTo(Path other) {
+    return path.compareTo(toISOPath(other).path);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof ISOPath isoPath && isoPath.fileSystem == fileSystem
+        && isoPath.path.equals(path);
+  }
+
+  @Override
+  public int hashCode() {
+    return path.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return path;
+  }
+}
@@ -0,0 +1,281 @@
+package com.github.nicholasmoser.iso;
+
+import com.github.nicholasmoser.utils.ByteUtils;
+import com.github.nicholasmoser.utils.ProgressListener;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Patches an ISO into a new ISO without extracting it. The fst.bin of the input ISO is read, the
+ * replaced files are given their new sizes and the layout is recomputed the same way as
+ * {@link ISOCreator} does for an extracted ISO. The new ISO is then written in a single sequential
+ * pass: replaced files are streamed from their sources and every other file is copied from the
+ * input ISO with channel transfers.
+ */
+public class ISOStreamPatcher {
+
+  private static final Logger LOGGER = Logger.getLogger(ISOStreamPatcher.class.getName());
+
+  // The directory of the game files when extracted, which their paths are relative to.
+  private static final String FILES = "files/";
+
+  private final Path inputIso;
+  private final Path outputIso;
+  private final ProgressListener listener;
+
+  /**
+   * A replacement for a file in the ISO.
+   */
+  public interface Replacement {
+
+    /**
+     * @return The size of the replacement file.
+     */
+    long size();
+
+    /**
+     * @return A new stream of the bytes of the replacement file.
+     * @throws IOException If an I/O error occurs.
+     */
+    InputStream open() throws IOException;
+  }
+
+  /**
+   * Create an ISOStreamPatcher using the path to the input ISO and the path to the output ISO.
+   *
+   * @param inputIso  The path to the ISO to patch.
+   * @param outputIso The path to write the patched ISO to.
+   * @param listener  The listener to report the progress of the patch to.
+   */
+  public ISOStreamPatcher(Path inputIso, Path outputIso, ProgressListener listener) {
+    this.inputIso = inputIso;
+    this.outputIso = outputIso;
+    this.listener = listener;
+  }
+
+  /**
+   * Writes the patched ISO. The replacements are keyed by the path of the file as it would be
+   * extracted, such as {@code sys/main.dol} or {@code files/maki/char_sel.fpk}. The fst.bin cannot
+   * be replaced since it is always rewritten for the new layout.
+   *
+   * @param replacements   The replacement files.
+   * @param pushFilesToEnd If the files should be pushed to the end of the ISO.
+   * @throws IOException If an I/O error occurs or a replacement is not a file in the ISO.
+   */
+  public void patch(Map<String, Replacement> replacements, boolean pushFilesToEnd)
+      throws IOException {
+    if (Files.exists(outputIso) && Files.isSameFile(inputIso, outputIso)) {
+      throw new IOException("Cannot patch " + inputIso + " into itself.");
+    }
+    ISOHeader header = new ISOParser(inputIso).getISOHeader();
+    checkReplacements(header, replacements);
+
+    // Lay out the sys files the same as DirectoryParser
+    ISOFile bi2Bin = header.getBi2Bin();
+    ISOFile apploaderImg = header.getApploaderImg();
+    ISOFile mainDol = header.getMainDol();
+    int apploaderLength = getLength(apploaderImg, apploaderImg.getGamePath(), replacements);
+    int mainDolLength = getLength(mainDol, mainDol.getGamePath(), replacements);
+    int dolOffset = ByteUtils.nextAlignedPos(ISO.APPLOADER_POS + apploaderLength, 128);
+    int fstOffset = ByteUtils.nextAlignedPos(dolOffset + mainDolLength, 128);
+
+    // Lay out the files with their new sizes, keeping the order of the input ISO
+    List<ISOItem> items = new ArrayList<>(header.getFiles().size());
+    List<ISOFile> oldFiles = new ArrayList<>();
+    long totalBytes = ISO.BOOT_BIN_LEN + ISO.BI_2_LEN + apploaderLength + mainDolLength;
+    for (ISOItem item : header.getFiles()) {
+      if (item instanceof ISOFile file) {
+        ISOFile newFile = new ISOFile.Builder()
+            .setParent(file.getParent())
+            .setName(file.getName())
+            .setGamePath(file.getGamePath())
+            .setLen(getLength(file, FILES + file.getGamePath(), replacements))
+            .build();
+        items.add(newFile);
+        oldFiles.add(file);
+        totalBytes += newFile.getLen();
+      } else {
+        items.add(item);
+      }
+    }
+    int fstLength = FileSystemTable.getLength(items);
+    totalBytes += fstLength;
+    DirectoryParser.layOutFiles(items, fstOffset + fstLength, pushFilesToEnd);
+    byte[] fstBin = FileSystemTable.toBytes(items);
+
+    for (ISOItem item : items) {
+      if (item instanceof ISOFile file && (long) file.getPos() + file.getLen() > ISO.DISC_SIZE) {
+        throw new IOException("The patched files do not fit on a GameCube disc.");
+      }
+    }
+
+    byte[] bootBin = readAllBytes(header.getBootBin(), replacements);
+    ISOCreator.bootBinRewrite(bootBin, dolOffset, fstOffset, fstBin.length);
+
+    try (FileChannel source = FileChannel.open(inputIso, StandardOpenOption.READ);
+        ISOWriter writer = new ISOWriter(outputIso, totalBytes, listener)) {
+      writer.write(bootBin);
+      writer.padTo(ISO.BI_2_POS);
+      write(writer, source, bi2Bin, bi2Bin.getGamePath(), replacements);
+      writer.padTo(ISO.APPLOADER_POS);
+      write(writer, source, apploaderImg, apploaderImg.getGamePath(), replacements);
+      writer.padTo(dolOffset);
+      write(writer, source, mainDol, mainDol.getGamePath(), replacements);
+      writer.padTo(fstOffset);
+      writer.write(fstBin);
+      int fileIndex = 0;
+      for (ISOItem item : items) {
+        if (item instanceof ISOFile file) {
+          ISOFile oldFile = oldFiles.get(fileIndex++);
+          if (file.getPos() < writer.getPosition()) {
+            String message = String.format("Cannot write %s to ISO, fst offset of %d before %d",
+                file.getName(), file.getPos(), writer.getPosition());
+            throw new IOException(message);
+          }
+          writer.padTo(file.getPos());
+          write(writer, source, oldFile, FILES + oldFile.getGamePath(), replacements);
+        }
+      }
+    }
+    LOGGER.info(String.format("Patched %d files of %s into %s", replacements.size(), inputIso,
+        outputIso));
+  }
+
+  /**
+   * Returns the paths under the files directory that are not in the ISO. These files cannot be
+   * streamed into the ISO since they would need new entries in the fst.bin.
+   *
+   * @param patchPaths The paths of the files as they would be extracted.
+   * @return The paths of the files that would be added to the ISO.
+   * @throws IOException If an I/O error occurs.
+   */
+  public Set<String> getAddedFiles(Collection<String> patchPaths) throws IOException {
+    ISOHeader header = new ISOParser(inputIso).getISOHeader();
+    Set<String> addedFiles = new HashSet<>();
+    for (String path : patchPaths) {
+      if (path.startsWith(FILES) && header.getItem(path.substring(FILES.length())).isEmpty()) {
+        addedFiles.add(path);
+      }
+    }
+    return addedFiles;
+  }
+
+  /**
+   * Checks that every replacement is a file in the ISO.
+   *
+   * @param header       The header of the input ISO.
+   * @param replacements The replacement files.
+   * @throws IOException If a replacement is not a file in the ISO or cannot be replaced.
+   */
+  private void checkReplacements(ISOHeader header, Map<String, Replacement> replacements)
+      throws IOException {
+    Set<String> sysPaths = new HashSet<>();
+    for (ISOFile sysFile : List.of(header.getBootBin(), header.getBi2Bin(),
+        header.getApploaderImg(), header.getMainDol())) {
+      sysPaths.add(sysFile.getGamePath());
+    }
+    for (Map.Entry<String, Replacement> entry : replacements.entrySet()) {
+      String path = entry.getKey();
+      long size = entry.getValue().size();
+      if (path.equals(header.getFstBin().getGamePath())) {
+        LOGGER.info("Ignoring " + path + " since it is rewritten for the new layout.");
+      } else if (!sysPaths.contains(path) && !isFile(header, path)) {
+        throw new IOException(String.format("%s cannot be patched against %s", path, inputIso));
+      } else if (size < 0 || size > Integer.MAX_VALUE) {
+        throw new IOException(String.format("%s has an invalid size of %d", path, size));
+      } else if (path.equals("sys/boot.bin") && size != ISO.BOOT_BIN_LEN) {
+        throw new IOException(String.format("%s is size %d, not %d", path, size, ISO.BOOT_BIN_LEN));
+      } else if (path.equals("sys/bi2.bin") && size != ISO.BI_2_LEN) {
+        throw new IOException(String.format("%s is size %d, not %d", path, size, ISO.BI_2_LEN));
+      }
+    }
+  }
+
+  /**
+   * @param header The header of the ISO.
+   * @param path   The path relative to the root of the extracted ISO.
+   * @return If the path is a file under the files directory of the ISO.
+   */
+  private static boolean isFile(ISOHeader header, String path) {
+    return path.startsWith(FILES) && header.getItem(path.substring(FILES.length()))
+        .filter(item -> !item.isDirectory())
+        .isPresent();
+  }
+
+  /**
+   * Writes a sys file or file from its replacement or from the input ISO.
+   *
+   * @param writer       The writer of the output ISO.
+   * @param source       The channel of the input ISO.
+   * @param file         The file in the input ISO.
+   * @param patchPath    The path of the file as it would be extracted.
+   * @param replacements The replacement files.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static void write(ISOWriter writer, FileChannel source, ISOFile file, String patchPath,
+      Map<String, Replacement> replacements) throws IOException {
+    Replacement replacement = replacements.get(patchPath);
+    if (replacement == null) {
+      writer.write(source, file.getPos(), file.getLen());
+    } else {
+      try (InputStream is = replacement.open()) {
+        writer.write(is, replacement.size());
+      }
+    }
+  }
+
+  /**
+   * Reads all bytes of a sys file from its replacement or from the input ISO.
+   *
+   * @param file         The sys file in the input ISO.
+   * @param replacements The replacement files.
+   * @return The bytes of the sys file.
+   * @throws IOException If an I/O error occurs.
+   */
+  private byte[] readAllBytes(ISOFile file, Map<String, Replacement> replacements)
+      throws IOException {
+    Replacement replacement = replacements.get(file.getGamePath());
+    if (replacement != null) {
+      try (InputStream is = replacement.open()) {
+        byte[] bytes = is.readNBytes((int) replacement.size());
+        if (bytes.length != replacement.size()) {
+          throw new IOException("Unexpected end of the replacement for " + file.getGamePath());
+        }
+        return bytes;
+      }
+    }
+    try (FileChannel source = FileChannel.open(inputIso, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(file.getLen());
+      while (buffer.hasRemaining()) {
+        if (source.read(buffer, file.getPos() + buffer.position()) < 0) {
+          throw new IOException("Unexpected end of " + inputIso);
+        }
+      }
+      return buffer.array();
+    }
+  }
+
+  /**
+   * @param file         A sys file or file in the input ISO.
+   * @param patchPath    The path of the file as it would be extracted.
+   * @param replacements The replacement files.
+   * @return The length of the file after it is patched.
+   */
+  private static int getLength(ISOFile file, String patchPath,
+      Map<String, Replacement> replacements) {
+    Replacement replacement = replacements.get(patchPath);
+    return replacement == null ? file.getLen() : (int) replacement.size();
+  }
+}
@@ -0,0 +1,312 @@
+package com.github.nicholasmoser.iso;
+
+import com.github.nicholasmoser.utils.ByteUtils;
+import com.github.nicholasmoser.utils.ProgressListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+/**
+ * Updates an existing ISO in place from a directory of files, instead of writing a whole new ISO.
+ * The layout of the existing ISO is kept as much as possible:
+ * <ul>
+ *   <li>A file that still fits the space before the next file in the existing ISO keeps its
+ *   position, and is only written if its size or last modified time differs from the fingerprint
+ *   recorded for it in the manifest of the ISO.</li>
+ *   <li>A file that has grown too large for its position, or is new, is moved into the first free
+ *   space large enough for it. Free space includes the end of the disc and the positions of files
+ *   that were moved or removed.</li>
+ *   <li>The sys files are always written, and the fst.bin and boot.bin are rewritten for the new
+ *   layout.</li>
+ * </ul>
+ * The manifest is written by {@link #create(boolean)} and by each update. If the ISO has no
+ * manifest or has been replaced or modified since it was written, such as a vanilla ISO or one
+ * built with {@link ISOCreator}, the contents of the ISO are unknown. The ISO then cannot be
+ * updated and must be created again with {@link #create(boolean)}. The same is true if the
+ * apploader, main.dol or fst.bin no longer fit before the next sys file or the first file that
+ * keeps its position, or a file does not fit anywhere on the disc.
+ */
+public class ISOUpdater {
+
+  private static final Logger LOGGER = Logger.getLogger(ISOUpdater.class.getName());
+
+  private final Path inputPath;
+  private final Path isoPath;
+  private final Path filesPath;
+  private final ProgressListener listener;
+
+  /**
+   * Create an ISOUpdater using the path to the input files and the path to the existing ISO file.
+   *
+   * @param inputPath The path to the input files
+   * @param isoPath   The path to the existing ISO file.
+   * @param listener  The listener to report the progress of the update to.
+   */
+  public ISOUpdater(Path inputPath, Path isoPath, ProgressListener listener) {
+    this.inputPath = inputPath;
+    this.isoPath = isoPath;
+    this.listener = listener;
+    filesPath = inputPath.resolve("files");
+  }
+
+  /**
+   * Creates a new ISO with {@link ISOCreator} and writes its manifest, so that it can be updated in
+   * place later.
+   *
+   * @param pushFilesToEnd If the files should be pushed to the end of the ISO.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void create(boolean pushFilesToEnd) throws IOException {
+    ISOHeader header = new DirectoryParser(inputPath, pushFilesToEnd).getISOHeader();
+    ISOManifest manifest = ISOManifest.fingerprint(filesPath, header.getFiles());
+    new ISOCreator(inputPath, isoPath, listener).create(header);
+    manifest.write(isoPath);
+  }
+
+  /**
+   * Updates the ISO in place. Returns false without modifying the ISO if it has no manifest for its
+   * current contents or the layout of the new files does not fit in the existing ISO.
+   *
+   * @return If the ISO was updated.
+   * @throws IOException If an I/O error occurs.
+   */
+  public boolean update() throws IOException {
+    if (!Files.isRegularFile(isoPath)) {
+      LOGGER.info(isoPath + " does not exist and cannot be updated.");
+      return false;
+    }
+    ISOHeader oldHeader;
+    try {
+      oldHeader = new ISOParser(isoPath).getISOHeader();
+    } catch (IOException e) {
+      LOGGER.info(String.format("%s cannot be parsed and updated: %s", isoPath, e.getMessage()));
+      return false;
+    }
+    Optional<ISOManifest> manifest = ISOManifest.read(isoPath);
+    if (manifest.isEmpty()) {
+      LOGGER.info("The contents of " + isoPath + " are unknown, so it cannot be updated.");
+      return false;
+    }
+    ISOHeader newHeader = new DirectoryParser(inputPath, false).getISOHeader();
+
+    // The apploader and main.dol must fit before the next sys file
+    int dolOffset = oldHeader.getMainDol().getPos();
+    int fstOffset = oldHeader.getFstBin().getPos();
+    int apploaderLength = newHeader.getApploaderImg().getLen();
+    int mainDolLength = newHeader.getMainDol().getLen();
+    if (ISO.APPLOADER_POS + apploaderLength > dolOffset) {
+      LOGGER.info("The apploader.img no longer fits in " + isoPath);
+      return false;
+    } else if (dolOffset + mainDolLength > fstOffset) {
+      LOGGER.info("The main.dol no longer fits in " + isoPath);
+      return false;
+    }
+
+    // The size of the fst.bin does not depend on the positions of the files
+    int fstSize = FileSystemTable.getLength(newHeader.getFiles());
+    // Specified start address must be 32KB aligned in "dvdfs.c" on line 1211
+    int dataStart = ByteUtils.nextAlignedPos(fstOffset + fstSize, 32768);
+
+    List<ISOFile> oldFiles = getFiles(oldHeader.getFiles());
+    List<ISOFile> newFiles = getFiles(newHeader.getFiles());
+    if (!place(oldFiles, newFiles, dataStart)) {
+      return false;
+    }
+    FileSystemTable.rewrite(inputPath, newHeader);
+    ISOCreator.bootBinRewrite(inputPath.resolve("sys/boot.bin"), dolOffset, fstOffset, fstSize);
+
+    write(oldFiles, newFiles, manifest.get(), dolOffset, fstOffset, fstSize);
+    return true;
+  }
+
+  /**
+   * Places the new files in the existing ISO. Files that fit their old position keep it and the
+   * rest are placed in free space, largest first.
+   *
+   * @param oldFiles  The files of the existing ISO.
+   * @param newFiles  The files to place.
+   * @param dataStart The earliest position for a file, after the new fst.bin.
+   * @return If every file could be placed.
+   */
+  private boolean place(List<ISOFile> oldFiles, List<ISOFile> newFiles, int dataStart) {
+    // The space available to each file is up to the start of the next file
+    List<ISOFile> byPosition = new ArrayList<>(oldFiles);
+    byPosition.sort(Comparator.comparingInt(ISOFile::getPos));
+    Map<String, Integer> oldPositions = new HashMap<>();
+    Map<String, Integer> oldSpaces = new HashMap<>();
+    for (int i = 0; i < byPosition.size(); i++) {
+      ISOFile file = byPosition.get(i);
+      int end = i + 1 < byPosition.size() ? byPosition.get(i + 1).getPos() : ISO.DISC_SIZE;
+      oldPositions.put(file.getGamePath(), file.getPos());
+      int space = Math.max(end, file.getPos() + file.getLen()) - file.getPos();
+      oldSpaces.put(file.getGamePath(), space);
+    }
+
+    List<ISOFile> moved = new ArrayList<>();
+    List<int[]> used = new ArrayList<>();
+    for (ISOFile file : newFiles) {
+      Integer oldPosition = oldPositions.get(file.getGamePath());
+      if (oldPosition != null && file.getLen() <= oldSpaces.get(file.getGamePath())) {
+        if (oldPosition < dataStart) {
+          LOGGER.info("The fst.bin no longer fits in " + isoPath);
+          return false;
+        }
+        file.updatePosition(oldPosition);
+        used.add(new int[]{oldPosition, oldPosition + file.getLen()});
+      } else {
+        moved.add(file);
+      }
+    }
+    LinkedList<int[]> free = getFreeSpace(used, dataStart);
+    moved.sort(Comparator.comparingInt(ISOFile::getLen).reversed());
+    for (ISOFile file : moved) {
+      if (!allocate(free, file)) {
+        LOGGER.info(String.format("%s no longer fits in %s", file.getGamePath(), isoPath));
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the free space of the disc after the data start that is not used by any file.
+   *
+   * @param used      The start and end of the space used by each file.
+   * @param dataStart The earliest position for a file.
+   * @return The start and end of each free space, in order of position.
+   */
+  private static LinkedList<int[]> getFreeSpace(List<int[]> used, int dataStart) {
+    used.sort(Comparator.comparingInt(range -> range[0]));
+    LinkedList<int[]> free = new LinkedList<>();
+    int position = dataStart;
+    for (int[] range : used) {
+      if (range[0] > position) {
+        free.add(new int[]{position, range[0]});
+      }
+      position = Math.max(position, range[1]);
+    }
+    if (position < ISO.DISC_SIZE) {
+      free.add(new int[]{position, ISO.DISC_SIZE});
+    }
+    return free;
+  }
+
+  /**
+   * Places a file in the first free space large enough for it, aligned as in a new ISO.
+   *
+   * @param free The start and end of each free space, updated to remove the space used.
+   * @param file The file to place.
+   * @return If there was a free space large enough for the file.
+   */
+  private static boolean allocate(LinkedList<int[]> free, ISOFile file) {
+    int alignment = file.getName().endsWith(".trk") ? 0x8000 : 4;
+    ListIterator<int[]> iterator = free.listIterator();
+    while (iterator.hasNext()) {
+      int[] range = iterator.next();
+      int start = ByteUtils.nextAlignedPos(range[0], alignment);
+      if ((long) start + file.getLen() <= range[1]) {
+        file.updatePosition(start);
+        int end = start + file.getLen();
+        iterator.remove();
+        if (range[0] < start) {
+          iterator.add(new int[]{range[0], start});
+        }
+        if (end < range[1]) {
+          iterator.add(new int[]{end, range[1]});
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Writes the sys files and every file that has moved, changed size, or does not match its
+   * fingerprint in the manifest of the ISO. A new manifest is written once the ISO has been
+   * updated.
+   *
+   * @param oldFiles  The files of the existing ISO.
+   * @param newFiles  The placed files.
+   * @param manifest  The manifest of the existing ISO.
+   * @param dolOffset The offset of the main.dol.
+   * @param fstOffset The offset of the fst.bin.
+   * @param fstSize   The size of the fst.bin.
+   * @throws IOException If an I/O error occurs.
+   */
+  private void write(List<ISOFile> oldFiles, List<ISOFile> newFiles, ISOManifest manifest,
+      int dolOffset, int fstOffset, int fstSize) throws IOException {
+    ISOManifest newManifest = ISOManifest.fingerprint(filesPath, newFiles);
+    Map<String, ISOFile> oldByPath = new HashMap<>();
+    for (ISOFile file : oldFiles) {
+      oldByPath.put(file.getGamePath(), file);
+    }
+    List<ISOFile> changed = new ArrayList<>();
+    long totalBytes = ISO.BOOT_BIN_LEN + ISO.BI_2_LEN + Files.size(resolve("sys/apploader.img"))
+        + Files.size(resolve("sys/main.dol")) + fstSize;
+    for (ISOFile file : newFiles) {
+      ISOFile oldFile = oldByPath.get(file.getGamePath());
+      if (oldFile == null || !oldFile.equals(file)
+          || !manifest.isUnchanged(file.getGamePath(), newManifest)) {
+        changed.add(file);
+        totalBytes += file.getLen();
+      }
+    }
+    changed.sort(Comparator.comparingInt(ISOFile::getPos));
+    LOGGER.info(String.format("Updating %d of %d files in %s", changed.size(), newFiles.size(),
+        isoPath));
+
+    ISOManifest.delete(isoPath);
+    try (ISOWriter writer = ISOWriter.openExisting(isoPath, totalBytes, listener)) {
+      writer.write(resolve("sys/boot.bin"));
+      writer.padTo(ISO.BI_2_POS);
+      writer.write(resolve("sys/bi2.bin"));
+      writer.padTo(ISO.APPLOADER_POS);
+      writer.write(resolve("sys/apploader.img"));
+      writer.padTo(dolOffset);
+      writer.write(resolve("sys/main.dol"));
+      writer.padTo(fstOffset);
+      writer.write(resolve("sys/fst.bin"));
+      for (ISOFile file : changed) {
+        writer.padTo(file.getPos());
+        writer.write(filesPath.resolve(file.getGamePath()));
+      }
+    }
+    newManifest.write(isoPath);
+  }
+
+  /**
+   * @param items The ISO items.
+   * @return The files of the ISO items.
+   */
+  private static List<ISOFile> getFiles(List<ISOItem> items) {
+    List<ISOFile> files = new ArrayList<>();
+    for (ISOItem item : items) {
+      if (!item.isDirectory()) {
+        files.add((ISOFile) item);
+      }
+    }
+    return files;
+  }
+
+  /**
+   * @param filePathText The file path text relative to the input path.
+   * @return The file path.
+   * @throws IOException If the file does not exist.
+   */
+  private Path resolve(String filePathText) throws IOException {
+    Path filePath = inputPath.resolve(filePathText);
+    if (!Files.exists(filePath)) {
+      throw new IOException("Cannot find " + filePath);
+    }
+    return filePath;
+  }
+}
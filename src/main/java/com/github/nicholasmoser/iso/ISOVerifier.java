@@ -0,0 +1,263 @@
+package com.github.nicholasmoser.iso;
+
+import com.github.nicholasmoser.utils.ProgressListener;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Verifies an ISO in a single streamed pass. The whole ISO is hashed with CRC32, MD5 and SHA-1
+ * while the CRC32 of each sys file and file in the fst.bin is computed from the same bytes. The
+ * CRC32 of each file can then be compared to the CRC32 values of a known good dump to find bad or
+ * modified files before the ISO is extracted.
+ */
+public class ISOVerifier {
+
+  // The size of the buffer the ISO is read with.
+  private static final int BUFFER_SIZE = 0x400000;
+
+  // The length of the game ID at the start of the boot.bin.
+  private static final int GAME_ID_LENGTH = 6;
+
+  // The maximum number of changed or missing files listed in a summary.
+  private static final int MAX_LISTED_FILES = 20;
+
+  private final Path iso;
+  private final ProgressListener listener;
+
+  /**
+   * The result of verifying an ISO. File paths are relative to the root of the extracted ISO, such
+   * as {@code sys/main.dol} or {@code files/maki/char_sel.fpk}.
+   *
+   * @param gameId         The game ID of the ISO.
+   * @param size           The size of the ISO.
+   * @param crc32          The CRC32 of the ISO.
+   * @param md5            The MD5 of the ISO as lowercase hex.
+   * @param sha1           The SHA-1 of the ISO as lowercase hex.
+   * @param fileCRC32s     The CRC32 of each file in the ISO, sorted by path.
+   * @param truncatedFiles The files that extend past the end of the ISO.
+   */
+  public record Verification(String gameId, long size, int crc32, String md5, String sha1,
+                             Map<String, Integer> fileCRC32s, Set<String> truncatedFiles) {
+
+    /**
+     * Returns the files in the ISO that are truncated or whose CRC32 is not the known good CRC32.
+     * Files in the ISO that have no known good CRC32 are not compared.
+     *
+     * @param knownGoodCRC32s The known good CRC32 of each file by path.
+     * @return The sorted changed files.
+     */
+    public List<String> getChangedFiles(Map<String, Integer> knownGoodCRC32s) {
+      List<String> changedFiles = new ArrayList<>();
+      for (Map.Entry<String, Integer> knownGood : new TreeMap<>(knownGoodCRC32s).entrySet()) {
+        String path = knownGood.getKey();
+        Integer fileCRC32 = fileCRC32s.get(path);
+        if (fileCRC32 != null && (fileCRC32.intValue() != knownGood.getValue()
+            || truncatedFiles.contains(path))) {
+          changedFiles.add(path);
+        }
+      }
+      return changedFiles;
+    }
+
+    /**
+     * @param knownGoodCRC32s The known good CRC32 of each file by path.
+     * @return The sorted known good files that are not in the ISO.
+     */
+    public List<String> getMissingFiles(Map<String, Integer> knownGoodCRC32s) {
+      List<String> missingFiles = new ArrayList<>();
+      for (String path : new TreeMap<>(knownGoodCRC32s).keySet()) {
+        if (!fileCRC32s.containsKey(path)) {
+          missingFiles.add(path);
+        }
+      }
+      return missingFiles;
+    }
+
+    /**
+     * @param knownGoodCRC32s The known good CRC32 of each file by path.
+     * @return If every known good file is in the ISO with the known good CRC32.
+     */
+    public boolean isKnownGood(Map<String, Integer> knownGoodCRC32s) {
+      return getChangedFiles(knownGoodCRC32s).isEmpty()
+          && getMissingFiles(knownGoodCRC32s).isEmpty();
+    }
+
+    /**
+     * Returns a newline separated summary of the verification with the hashes of the ISO and the
+     * files that do not match the known good CRC32 values.
+     *
+     * @param knownGoodCRC32s The known good CRC32 of each file by path.
+     * @return The summary of the verification.
+     */
+    public String getSummary(Map<String, Integer> knownGoodCRC32s) {
+      StringBuilder builder = new StringBuilder();
+      builder.append(String.format("Game ID: %s\n", gameId));
+      builder.append(String.format("Size: %d bytes\n", size));
+      builder.append(String.format("CRC32: %08x\n", crc32));
+      builder.append(String.format("MD5: %s\n", md5));
+      builder.append(String.format("SHA-1: %s\n", sha1));
+      appendFiles(builder, "Changed files", getChangedFiles(knownGoodCRC32s));
+      appendFiles(builder, "Missing files", getMissingFiles(knownGoodCRC32s));
+      return builder.toString();
+    }
+
+    /**
+     * Appends a category of files to a summary, listing at most {@link #MAX_LISTED_FILES} files.
+     *
+     * @param builder  The summary to append to.
+     * @param category The name of the category.
+     * @param files    The files in the category.
+     */
+    private static void appendFiles(StringBuilder builder, String category, List<String> files) {
+      if (files.isEmpty()) {
+        return;
+      }
+      builder.append(String.format("\n%s (%d):\n", category, files.size()));
+      for (String file : files.subList(0, Math.min(files.size(), MAX_LISTED_FILES))) {
+        builder.append(file).append('\n');
+      }
+      if (files.size() > MAX_LISTED_FILES) {
+        builder.append(String.format("...and %d more\n", files.size() - MAX_LISTED_FILES));
+      }
+    }
+  }
+
+  /**
+   * A sys file or file being hashed.
+   *
+   * @param path     The path of the file.
+   * @param position The position of the file in the ISO.
+   * @param length   The length of the file.
+   * @param crc32    The CRC32 of the bytes of the file read so far.
+   */
+  private record FileHash(String path, long position, long length, CRC32 crc32) {
+
+    long end() {
+      return position + length;
+    }
+  }
+
+  /**
+   * Create an ISOVerifier for an ISO.
+   *
+   * @param iso      The ISO to verify.
+   * @param listener The listener to report the number of bytes of the ISO hashed to.
+   */
+  public ISOVerifier(Path iso, ProgressListener listener) {
+    this.iso = iso;
+    this.listener = listener;
+  }
+
+  /**
+   * Hashes the ISO and each of its files.
+   *
+   * @return The result of the verification.
+   * @throws IOException If an I/O error occurs or the ISO is not a GameCube ISO.
+   */
+  public Verification verify() throws IOException {
+    ISOHeader header = new ISOParser(iso).getISOHeader();
+    List<FileHash> files = new ArrayList<>();
+    for (ISOFile sysFile : List.of(header.getBootBin(), header.getBi2Bin(),
+        header.getApploaderImg(), header.getMainDol(), header.getFstBin())) {
+      files.add(new FileHash(sysFile.getGamePath(), sysFile.getPos(), sysFile.getLen(),
+          new CRC32()));
+    }
+    for (ISOItem item : header.getFiles()) {
+      if (item instanceof ISOFile file) {
+        files.add(new FileHash("files/" + file.getGamePath(), file.getPos(), file.getLen(),
+            new CRC32()));
+      }
+    }
+    files.sort(Comparator.comparingLong(FileHash::position));
+
+    CRC32 crc32 = new CRC32();
+    MessageDigest md5 = getDigest("MD5");
+    MessageDigest sha1 = getDigest("SHA-1");
+    long size;
+    String gameId;
+    try (FileChannel channel = FileChannel.open(iso, StandardOpenOption.READ)) {
+      size = channel.size();
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      byte[] gameIdBytes = new byte[GAME_ID_LENGTH];
+      List<FileHash> active = new ArrayList<>();
+      int next = 0;
+      long position = 0;
+      while (position < size) {
+        buffer.clear();
+        int read = channel.read(buffer, position);
+        if (read < 0) {
+          break;
+        }
+        buffer.flip();
+        if (position == 0) {
+          buffer.get(0, gameIdBytes, 0, Math.min(read, GAME_ID_LENGTH));
+        }
+        long end = position + read;
+        crc32.update(buffer.duplicate());
+        md5.update(buffer.duplicate());
+        sha1.update(buffer.duplicate());
+        // Start hashing the files that begin in this buffer
+        while (next < files.size() && files.get(next).position() < end) {
+          active.add(files.get(next++));
+        }
+        Iterator<FileHash> iterator = active.iterator();
+        while (iterator.hasNext()) {
+          FileHash file = iterator.next();
+          long from = Math.max(position, file.position());
+          long to = Math.min(end, file.end());
+          if (from < to) {
+            ByteBuffer slice = buffer.slice((int) (from - position), (int) (to - from));
+            file.crc32().update(slice);
+          }
+          if (file.end() <= end) {
+            iterator.remove();
+          }
+        }
+        position = end;
+        listener.update(position, size);
+      }
+      gameId = new String(gameIdBytes, StandardCharsets.US_ASCII);
+    }
+
+    Map<String, Integer> fileCRC32s = new TreeMap<>();
+    Set<String> truncatedFiles = new HashSet<>();
+    for (FileHash file : files) {
+      if (file.end() > size) {
+        truncatedFiles.add(file.path());
+      }
+      fileCRC32s.put(file.path(), (int) file.crc32().getValue());
+    }
+    HexFormat hex = HexFormat.of();
+    return new Verification(gameId, size, (int) crc32.getValue(), hex.formatHex(md5.digest()),
+        hex.formatHex(sha1.digest()), fileCRC32s, truncatedFiles);
+  }
+
+  /**
+   * @param algorithm The name of the message digest algorithm.
+   * @return The message digest.
+   * @throws IOException If the algorithm is not available.
+   */
+  private static MessageDigest getDigest(String algorithm) throws IOException {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(algorithm + " is not available", e);
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package com.github.nicholasmoser.iso;
+
+import com.github.nicholasmoser.utils.ProgressListener;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+/**
+ * Writes an ISO with a file channel. Each file is copied into the ISO with
+ * {@link FileChannel#transferTo}, which lets the operating system copy the bytes without them
+ * passing through the Java heap. Zero padding is never written; the channel is positioned past it
+ * instead, so the ISO is a sparse file on filesystems that support them and padding costs neither
+ * memory nor I/O.
+ */
+public class ISOWriter implements Closeable {
+
+  private static final Logger LOGGER = Logger.getLogger(ISOWriter.class.getName());
+
+  // The size of the buffer used to write from streams.
+  private static final int BUFFER_SIZE = 0x10000;
+
+  private final Path isoPath;
+
+  private final FileChannel channel;
+
+  private final long totalBytes;
+
+  private final ProgressListener listener;
+
+  private final long startTime;
+
+  // The position of the end of the last file or padding.
+  private long position;
+
+  // The number of bytes of files written, not including padding.
+  private long bytesWritten;
+
+  /**
+   * Creates a new ISO writer. If the ISO already exists it is replaced.
+   *
+   * @param isoPath    The path to the ISO to write.
+   * @param totalBytes The number of bytes of files that will be written, used to report progress.
+   * @param listener   The listener to report the number of bytes of files written to.
+   * @throws IOException If an I/O error occurs.
+   */
+  public ISOWriter(Path isoPath, long totalBytes, ProgressListener listener) throws IOException {
+    this(isoPath, createSparse(isoPath), totalBytes, listener);
+  }
+
+  /**
+   * Creates a new ISO writer.
+   *
+   * @param isoPath    The path to the ISO to write.
+   * @param channel    The channel to write the ISO to.
+   * @param totalBytes The number of bytes of files that will be written, used to report progress.
+   * @param listener   The listener to report the number of bytes of files written to.
+   */
+  private ISOWriter(Path isoPath, FileChannel channel, long totalBytes,
+      ProgressListener listener) {
+    this.isoPath = isoPath;
+    this.channel = channel;
+    this.totalBytes = totalBytes;
+    this.listener = listener;
+    this.startTime = System.nanoTime();
+  }
+
+  /**
+   * Opens an existing ISO to overwrite some of its files. Bytes that are not written keep their
+   * current values, so padding skips over the existing data instead of zeroing it.
+   *
+   * @param isoPath    The path to the ISO to update.
+   * @param totalBytes The number of bytes of files that will be written, used to report progress.
+   * @param listener   The listener to report the number of bytes of files written to.
+   * @return The ISO writer.
+   * @throws IOException If an I/O error occurs.
+   */
+  public static ISOWriter openExisting(Path isoPath, long totalBytes, ProgressListener listener)
+      throws IOException {
+    FileChannel channel = FileChannel.open(isoPath, StandardOpenOption.WRITE);
+    return new ISOWriter(isoPath, channel, totalBytes, listener);
+  }
+
+  /**
+   * Creates a new sparse file for an ISO, replacing the ISO if it already exists.
+   *
+   * @param isoPath The path to the ISO.
+   * @return The channel to write the ISO to.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static FileChannel createSparse(Path isoPath) throws IOException {
+    // A sparse file can only be requested when creating a new file
+    Files.deleteIfExists(isoPath);
+    return FileChannel.open(isoPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+        StandardOpenOption.SPARSE);
+  }
+
+  /**
+   * @return The position of the end of the last file or padding.
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  /**
+   * Writes a file at the current position.
+   *
+   * @param file The file to write.
+   * @return The number of bytes written.
+   * @throws IOException If an I/O error occurs.
+   */
+  public long write(Path file) throws IOException {
+    try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = source.size();
+      write(source, 0, size);
+      return size;
+    }
+  }
+
+  /**
+   * Writes part of a channel at the current position, such as a file in another ISO.
+   *
+   * @param source The channel to write from.
+   * @param start  The position in the channel to start from.
+   * @param size   The number of bytes to write.
+   * @throws IOException If an I/O error occurs or the channel ends before all bytes are written.
+   */
+  public void write(FileChannel source, long start, long size) throws IOException {
+    long written = 0;
+    // Positioning past the end of the ISO leaves a hole for the padding before the file
+    channel.position(position);
+    while (written < size) {
+      long transferred = source.transferTo(start + written, size - written, channel);
+      if (transferred <= 0) {
+        throw new IOException(String.format("Failed to write all %d bytes to %s", size, isoPath));
+      }
+      written += transferred;
+    }
+    advance(size);
+  }
+
+  /**
+   * Writes bytes from a stream at the current position.
+   *
+   * @param source The stream to write from.
+   * @param size   The number of bytes to write.
+   * @throws IOException If an I/O error occurs or the stream ends before all bytes are written.
+   */
+  public void write(InputStream source, long size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    long written = 0;
+    while (written < size) {
+      int length = (int) Math.min(buffer.capacity(), size - written);
+      int read = source.read(buffer.array(), 0, length);
+      if (read < 0) {
+        throw new IOException(String.format("Failed to write all %d bytes to %s", size, isoPath));
+      }
+      buffer.limit(read);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, position + written + buffer.position());
+      }
+      buffer.clear();
+      written += read;
+    }
+    advance(size);
+  }
+
+  /**
+   * Writes bytes at the current position.
+   *
+   * @param bytes The bytes to write.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void write(byte[] bytes) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, position + buffer.position());
+    }
+    advance(bytes.length);
+  }
+
+  /**
+   * Moves the position past bytes that were written and reports the progress.
+   *
+   * @param size The number of bytes written.
+   */
+  private void advance(long size) {
+    position += size;
+    bytesWritten += size;
+    listener.update(bytesWritten, totalBytes);
+  }
+
+  /**
+   * Writes a file at the current position and pads it with zeroes to the given length. Nothing is
+   * padded if the file is as long or longer than the length.
+   *
+   * @param file   The file to write.
+   * @param length The length of the file with padding.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void writeAndPad(Path file, long length) throws IOException {
+    long size = write(file);
+    if (size < length) {
+      padTo(position + length - size);
+    }
+  }
+
+  /**
+   * Pads the ISO with zeroes to the given position.
+   *
+   * @param newPosition The position to pad to.
+   * @throws IOException If the position is before the current position.
+   */
+  public void padTo(long newPosition) throws IOException {
+    if (newPosition < position) {
+      String message = String.format("Cannot pad %s to %d, before %d", isoPath, newPosition,
+          position);
+      throw new IOException(message);
+    }
+    position = newPosition;
+  }
+
+  /**
+   * Writes the trailing padding, if any, and closes the ISO. The padding is written by writing the
+   * final zero so that the ISO has the full size.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void close() throws IOException {
+    try (channel) {
+      if (channel.size() < position) {
+        channel.write(ByteBuffer.wrap(new byte[1]), position - 1);
+      }
+    }
+    double seconds = (System.nanoTime() - startTime) / 1e9;
+    LOGGER.info(String.format("Wrote %d bytes of files to %s in %.2f seconds (%.1f MB/s)",
+        bytesWritten, isoPath, seconds, bytesWritten / 1e6 / seconds));
+  }
+}
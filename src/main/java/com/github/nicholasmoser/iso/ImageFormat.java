@@ -0,0 +1,52 @@
+package com.github.nicholasmoser.iso;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * The formats that an ISO can be written in.
+ */
+public enum ImageFormat {
+  /**
+   * A raw disc image.
+   */
+  ISO(".iso"),
+  /**
+   * A compact disc image, which stores only the blocks of the disc that are not entirely zeroes.
+   */
+  CISO(".ciso"),
+  /**
+   * A compressed disc image, which stores each block of the disc compressed with deflate.
+   */
+  GCZ(".gcz");
+
+  private final String extension;
+
+  ImageFormat(String extension) {
+    this.extension = extension;
+  }
+
+  /**
+   * @return The file extension of the format, such as {@code .iso}.
+   */
+  public String getExtension() {
+    return extension;
+  }
+
+  /**
+   * Returns the format of a disc image by its file extension. Files that do not have the extension
+   * of a compressed format are raw ISOs.
+   *
+   * @param path The path to the disc image.
+   * @return The format of the disc image.
+   */
+  public static ImageFormat of(Path path) {
+    String fileName = path.getFileName().toString().toLowerCase(Locale.ROOT);
+    for (ImageFormat format : values()) {
+      if (fileName.endsWith(format.extension)) {
+        return format;
+      }
+    }
+    return ISO;
+  }
+}
@@ -1,15 +1,13 @@
 package com.github.nicholasmoser.tools;
 
 import com.github.nicholasmoser.Choosers;
-import com.github.nicholasmoser.fpk.FPKFile;
 import com.github.nicholasmoser.fpk.FPKFileHeader;
+import com.github.nicholasmoser.fpk.FPKWriter;
 import com.github.nicholasmoser.GNTool;
 import com.github.nicholasmoser.Message;
 import com.github.nicholasmoser.PRSCompressor;
-import com.github.nicholasmoser.utils.ByteUtils;
 import com.github.nicholasmoser.utils.FPKUtils;
 import com.github.nicholasmoser.utils.GUIUtils;
-import com.google.common.primitives.Bytes;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -265,57 +263,27 @@ public class FPKRepackerTool {
       public Void call() {
         try {
           int numHeaders = fpkHeaders.size();
-          List<FPKFile> newFPKs = new ArrayList<>(numHeaders);
-          for (int i = 0; i < numHeaders; i++) {
-            FPKFileHeader header = fpkHeaders.get(i);
-            String filePath = filePaths.get(i);
-            updateMessage(String.format("Packing %s", header.getFileName()));
-            Path path = Paths.get(filePath);
-            byte[] input = Files.readAllBytes(path);
-            byte[] output;
-            if (header.getCompressedSize() != header.getUncompressedSize()) {
-              PRSCompressor compressor = new PRSCompressor(input);
-              output = compressor.compress();
-            } else {
-              output = input;
+          try (FPKWriter writer = new FPKWriter(outputFPK, numHeaders, longPaths, bigEndian,
+              shouldAddIntegrityCheck)) {
+            for (int i = 0; i < numHeaders; i++) {
+              FPKFileHeader header = fpkHeaders.get(i);
+              String filePath = filePaths.get(i);
+              updateMessage(String.format("Packing %s", header.getFileName()));
+              Path path = Paths.get(filePath);
+              byte[] input = Files.readAllBytes(path);
+              byte[] output;
+              if (header.getCompressedSize() != header.getUncompressedSize()) {
+                PRSCompressor compressor = new PRSCompressor(input);
+                output = compressor.compress();
+              } else {
+                output = input;
+              }
+              writer.write(header.getFileName(), output, input.length);
+              LOGGER.info(String.format("%s has been compressed from %d bytes to %d bytes.",
+                  filePath, input.length, output.length));
             }
-            // Set the offset to -1 for now, we cannot figure it out until we have all of
-            // the files
-            FPKFileHeader newHeader = new FPKFileHeader(header.getFileName(), output.length,
-                input.length, longPaths, bigEndian);
-            newFPKs.add(new FPKFile(newHeader, output));
-            LOGGER.info(String.format("%s has been compressed from %d bytes to %d bytes.",
-                filePath, input.length, output.length));
+            updateMessage("Writing FPK...");
           }
-          updateMessage("Writing FPK...");
-
-          int outputSize = 16; // FPK header is 16 bytes so start with that.
-          if (longPaths) {
-            outputSize += newFPKs.size() * 48; // Each Wii FPK file header is 48 bytes
-          } else {
-            outputSize += newFPKs.size() * 32; // Each GameCube FPK file header is 32 bytes
-          }
-          for (FPKFile file : newFPKs) {
-            FPKFileHeader header = file.getHeader();
-            header.setOffset(outputSize);
-            outputSize += ByteUtils.align(header.getCompressedSize(), 16);
-          }
-
-          // Get File Data
-          byte[] fileData = new byte[0];
-          for (FPKFile file : newFPKs) {
-            fileData = Bytes.concat(fileData, file.getData());
-          }
-          // FPK Header
-          byte[] integrityBytes = shouldAddIntegrityCheck ? FPKUtils.getIntegrityBytes(fileData) : null;
-          byte[] fpkBytes = FPKUtils.createFPKHeader(integrityBytes, newFPKs.size(), outputSize, bigEndian);
-          // File headers
-          for (FPKFile file : newFPKs) {
-            fpkBytes = Bytes.concat(fpkBytes, file.getHeader().getBytes());
-          }
-          // Write File Data
-          fpkBytes = Bytes.concat(fpkBytes, fileData);
-          Files.write(outputFPK, fpkBytes);
         } catch (IOException ex) {
           LOGGER.log(Level.SEVERE, "Error", ex);
           throw new RuntimeException(ex);
@@ -3,10 +3,12 @@ package com.github.nicholasmoser.tools;
 import com.github.nicholasmoser.Choosers;
 import com.github.nicholasmoser.GNTool;
 import com.github.nicholasmoser.Message;
-import com.github.nicholasmoser.gamecube.GameCubeISO;
+import com.github.nicholasmoser.fpk.FPKOptions;
+import com.github.nicholasmoser.gnt4.GNT4FileNames;
+import com.github.nicholasmoser.iso.ISOComparator;
+import com.github.nicholasmoser.iso.ISOComparator.ChangedFile;
+import com.github.nicholasmoser.iso.ISOComparator.Comparison;
 import com.github.nicholasmoser.utils.GUIUtils;
-import com.google.common.io.MoreFiles;
-import com.google.common.io.RecursiveDeleteOption;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
@@ -16,6 +18,7 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -43,8 +46,8 @@ public class ISOCompareTool {
   }
 
   /**
-   * Extract the two ISOs to the temp directory asynchronously. Then compare them file by file.
-   * Includes a loading screen.
+   * Compare the two ISOs asynchronously without extracting them. Changed FPK files also list which
+   * of their children changed. Includes a loading screen.
    *
    * @param iso1 The first ISO to compare.
    * @param iso2 The second ISO to compare.
@@ -54,8 +57,6 @@ public class ISOCompareTool {
     Task<String> task = new Task<>() {
       @Override
       public String call() throws Exception {
-        Path temp1 = null;
-        Path temp2 = null;
         String name1 = iso1.getFileName().toString();
         String name2 = iso2.getFileName().toString();
         if (name1.equals(name2)) {
@@ -63,30 +64,17 @@ public class ISOCompareTool {
           name1 = iso1.toString();
           name2 = iso2.toString();
         }
+        updateMessage("Comparing the ISOs...");
         try {
-          updateMessage("Extracting the first ISO...");
-          temp1 = Files.createTempDirectory("ISO1");
-          GameCubeISO.exportFiles(iso1, temp1);
-          LOGGER.info("Extracted the first ISO to " + temp1);
-          updateMessage("Extracting the second ISO...");
-          temp2 = Files.createTempDirectory("ISO2");
-          GameCubeISO.exportFiles(iso2, temp2);
-          LOGGER.info("Extracted the second ISO to " + temp2);
-          updateMessage("Comparing the ISOs...");
-          String comparisonMessage = getDifference(temp1, temp2, name1, name2);
+          FPKOptions options = new FPKOptions(false, true, new GNT4FileNames());
+          Comparison comparison = new ISOComparator(iso1, iso2, Optional.of(options)).compare();
+          String comparisonMessage = getDifference(comparison, name1, name2);
           updateMessage("Complete");
           updateProgress(1, 1);
           return comparisonMessage;
         } catch (Exception e) {
           LOGGER.log(Level.SEVERE, "Error Comparing ISOs", e);
           throw e;
-        } finally {
-          if (temp1 != null && Files.exists(temp1)) {
-            MoreFiles.deleteRecursively(temp1, RecursiveDeleteOption.ALLOW_INSECURE);
-          }
-          if (temp2 != null && Files.exists(temp2)) {
-            MoreFiles.deleteRecursively(temp2, RecursiveDeleteOption.ALLOW_INSECURE);
-          }
         }
       }
     };
@@ -148,6 +136,53 @@ public class ISOCompareTool {
     return message;
   }
 
+  /**
+   * Return the difference message for a comparison of two ISOs. It is in the same format as the
+   * difference of two directories, with the changed children of each FPK file indented below it.
+   *
+   * @param comparison The comparison of the two ISOs.
+   * @param name1      The name of the first ISO.
+   * @param name2      The name of the second ISO.
+   * @return The difference message.
+   */
+  public static String getDifference(Comparison comparison, String name1, String name2) {
+    StringBuilder message = new StringBuilder();
+    appendMissingFiles(message, comparison.onlyInFirst(), name1);
+    appendMissingFiles(message, comparison.onlyInSecond(), name2);
+    message.append("\nChanged Files\n");
+    message.append("-------------\n");
+    for (ChangedFile file : comparison.changed()) {
+      message.append(file.path());
+      message.append('\n');
+      for (String child : file.children()) {
+        message.append("    ");
+        message.append(child);
+        message.append('\n');
+      }
+    }
+    return message.toString();
+  }
+
+  /**
+   * Appends the files only in one ISO with a "Files only in (baseName)" header.
+   *
+   * @param message  The message to append to.
+   * @param files    The files only in the ISO.
+   * @param baseName The name of the ISO.
+   */
+  private static void appendMissingFiles(StringBuilder message, List<String> files,
+      String baseName) {
+    message.append("\nFiles only in ");
+    message.append(baseName);
+    message.append('\n');
+    message.append("-".repeat(14 + baseName.length()));
+    message.append('\n');
+    for (String file : files) {
+      message.append(file);
+      message.append('\n');
+    }
+  }
+
   /**
    * Return the files in dir1 that are not in dir2. Each file will be newline separated with a
    * "Files only in (baseName)" header. The baseName in the header is determined by the baseName
@@ -3,11 +3,8 @@ package com.github.nicholasmoser.tools;
 import com.github.nicholasmoser.Choosers;
 import com.github.nicholasmoser.GNTool;
 import com.github.nicholasmoser.Message;
-import com.github.nicholasmoser.gamecube.GameCubeISO;
 import com.github.nicholasmoser.utils.GUIUtils;
 import com.github.nicholasmoser.zip.PatchZip;
-import com.google.common.io.MoreFiles;
-import com.google.common.io.RecursiveDeleteOption;
 import java.nio.file.Path;
 import java.util.Optional;
 import java.util.logging.Level;
@@ -55,19 +52,11 @@ public class ISOPatcher {
       @Override
       public Void call() throws Exception {
         try {
-          updateMessage("Extracting ISO...");
-          Path exportDir = GameCubeISO.exportFiles(input);
-          try {
-            updateMessage("Patching files...");
-            PatchZip.patch(patchZip, exportDir);
-            updateMessage("Creating new ISO...");
-            // This tool only supports pushing files to the back of the ISO currently.
-            // This is to prevent user confusion when patching SCON4. If you have a need
-            // to patch without pushing to the back of the ISO please log an issue on Github.
-            GameCubeISO.importFiles(exportDir, output, true);
-          } finally {
-            MoreFiles.deleteRecursively(exportDir, RecursiveDeleteOption.ALLOW_INSECURE);
-          }
+          updateMessage("Patching ISO...");
+          // This tool only supports pushing files to the back of the ISO currently.
+          // This is to prevent user confusion when patching SCON4. If you have a need
+          // to patch without pushing to the back of the ISO please log an issue on Github.
+          PatchZip.patchISO(patchZip, input, output, true, this::updateProgress);
           updateProgress(1, 1);
         } catch (Exception e) {
           LOGGER.log(Level.SEVERE, "Error Extracting ISO", e);
@@ -0,0 +1,77 @@
+package com.github.nicholasmoser.tools;
+
+import com.github.nicholasmoser.Choosers;
+import com.github.nicholasmoser.GNTool;
+import com.github.nicholasmoser.Game;
+import com.github.nicholasmoser.Message;
+import com.github.nicholasmoser.gnt4.GNT4Files;
+import com.github.nicholasmoser.iso.ISOVerifier;
+import com.github.nicholasmoser.iso.ISOVerifier.Verification;
+import com.github.nicholasmoser.utils.GUIUtils;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.concurrent.Task;
+import javafx.stage.Stage;
+
+public class ISOVerifierTool {
+
+  private static final Logger LOGGER = Logger.getLogger(ISOVerifierTool.class.getName());
+
+  /**
+   * Verifies a GameCube ISO.
+   */
+  public static void verifyGameCubeISO() {
+    Optional<Path> isoOptional = Choosers.getInputISO(GNTool.USER_HOME);
+    if (isoOptional.isEmpty()) {
+      return;
+    }
+    verify(isoOptional.get());
+  }
+
+  /**
+   * Hashes the ISO and each of its files asynchronously in a single pass. If the ISO is GNT4, the
+   * files are also compared to a vanilla GNT4 ISO. Includes a loading screen.
+   *
+   * @param iso The ISO to verify.
+   */
+  private static void verify(Path iso) {
+
+    Task<String> task = new Task<>() {
+      @Override
+      public String call() throws Exception {
+        updateMessage("Verifying the ISO...");
+        try {
+          Verification verification = new ISOVerifier(iso, this::updateProgress).verify();
+          Map<String, Integer> knownGoodCRC32s = Map.of();
+          if (Game.GNT4.getGameId().equals(verification.gameId())) {
+            knownGoodCRC32s = GNT4Files.getVanillaCRC32s();
+          }
+          String summary = verification.getSummary(knownGoodCRC32s);
+          if (!knownGoodCRC32s.isEmpty() && verification.isKnownGood(knownGoodCRC32s)) {
+            summary += "\nAll files match a vanilla GNT4 ISO.\n";
+          }
+          updateMessage("Complete");
+          updateProgress(1, 1);
+          return summary;
+        } catch (Exception e) {
+          LOGGER.log(Level.SEVERE, "Error Verifying ISO", e);
+          throw e;
+        }
+      }
+    };
+    Stage loadingWindow = GUIUtils.createLoadingWindow("Verifying ISO", task);
+
+    task.setOnSucceeded(event -> {
+      Message.info("Verify Successful", task.getValue());
+      loadingWindow.close();
+    });
+    task.setOnFailed(event -> {
+      Message.error("Failed to Verify ISO", "See log for more information.");
+      loadingWindow.close();
+    });
+    new Thread(task).start();
+  }
+}
@@ -112,26 +112,44 @@ public class FPKUtils {
   public static byte[] getChildBytes(Path fpkPath, String child, boolean longPaths,
       boolean bigEndian) throws IOException {
     try (InputStream is = Files.newInputStream(fpkPath)) {
-      int fileCount = readFPKHeader(is, bigEndian);
-      int bytesRead = 16;
-      for (int i = 0; i < fileCount; i++) {
-        FPKFileHeader header = readFPKFileHeader(is, longPaths, bigEndian);
-        bytesRead += longPaths ? 48 : 32;
-        if (child.equals(header.getFileName())) {
-          int bytesToSkip = header.getOffset() - bytesRead;
-          if (is.skip(bytesToSkip) != bytesToSkip) {
-            throw new IOException(String.format("Failed to skip to binary data of %s", child));
-          }
-          int compressedSize = header.getCompressedSize();
-          int uncompressedSize = header.getUncompressedSize();
-          byte[] compressedBytes = is.readNBytes(compressedSize);
-          if (compressedSize == uncompressedSize) {
-            return compressedBytes;
-          } else {
-            PRSUncompressor uncompressor = new PRSUncompressor(compressedBytes, uncompressedSize);
-            return uncompressor.uncompress();
-          }
+      FPKFileHeader header = skipToChild(is, fpkPath, child, longPaths, bigEndian);
+      int compressedSize = header.getCompressedSize();
+      int uncompressedSize = header.getUncompressedSize();
+      byte[] compressedBytes = is.readNBytes(compressedSize);
+      if (compressedSize == uncompressedSize) {
+        return compressedBytes;
+      } else {
+        PRSUncompressor uncompressor = new PRSUncompressor(compressedBytes, uncompressedSize);
+        return uncompressor.uncompress();
+      }
+    }
+  }
+
+  /**
+   * Reads the FPK headers from the input stream until the header for the given child is found,
+   * then skips to the binary data of the child.
+   *
+   * @param is        The input stream of the fpk file, at the start of the file.
+   * @param fpkPath   The fpk file path, used for error messages.
+   * @param child     The child compressed path to find.
+   * @param longPaths If the FPK inner file paths are 32-bytes (instead of 16-bytes).
+   * @param bigEndian If the FPK is big-endian (instead of little-endian).
+   * @return The FPK file header of the child.
+   * @throws IOException If an I/O error occurs or the child could not be found.
+   */
+  private static FPKFileHeader skipToChild(InputStream is, Path fpkPath, String child,
+      boolean longPaths, boolean bigEndian) throws IOException {
+    int fileCount = readFPKHeader(is, bigEndian);
+    int bytesRead = 16;
+    for (int i = 0; i < fileCount; i++) {
+      FPKFileHeader header = readFPKFileHeader(is, longPaths, bigEndian);
+      bytesRead += longPaths ? 48 : 32;
+      if (child.equals(header.getFileName())) {
+        int bytesToSkip = header.getOffset() - bytesRead;
+        if (is.skip(bytesToSkip) != bytesToSkip) {
+          throw new IOException(String.format("Failed to skip to binary data of %s", child));
         }
+        return header;
       }
     }
     throw new IOException(String.format("%s could not be found in %s", child, fpkPath));
@@ -0,0 +1,24 @@
+package com.github.nicholasmoser.utils;
+
+/**
+ * Listens for the progress of a long running operation, such as to update a JavaFX loading window
+ * with {@code Task.updateProgress}. Implementations must be thread safe, since operations running
+ * on multiple threads may report progress from any of them.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+  /**
+   * A progress listener that ignores all progress.
+   */
+  ProgressListener NONE = (done, total) -> {
+  };
+
+  /**
+   * Updates the progress of the operation.
+   *
+   * @param done  The amount of work done so far.
+   * @param total The total amount of work.
+   */
+  void update(long done, long total);
+}
@@ -0,0 +1,39 @@
+package com.github.nicholasmoser.utils;
+
+/**
+ * A byte array that is reused for many reads or writes. A new array is only allocated when a
+ * larger size is needed than any size needed before, so reading many files of similar sizes
+ * allocates almost nothing. This class is not thread safe.
+ */
+public class ReusableBuffer {
+
+  private byte[] bytes;
+
+  /**
+   * Creates a new empty reusable buffer.
+   */
+  public ReusableBuffer() {
+    this.bytes = new byte[0];
+  }
+
+  /**
+   * Returns an array of at least the given size. The array may contain bytes from previous uses.
+   *
+   * @param size The minimum size of the array.
+   * @return The array.
+   */
+  public byte[] get(int size) {
+    if (bytes.length < size) {
+      // Grow by at least half again to avoid reallocating for slowly increasing sizes
+      bytes = new byte[Math.max(size, bytes.length + (bytes.length >> 1))];
+    }
+    return bytes;
+  }
+
+  /**
+   * @return The current array.
+   */
+  public byte[] array() {
+    return bytes;
+  }
+}
@@ -0,0 +1,68 @@
+package com.github.nicholasmoser.workspace;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The attributes of a file that change whenever its contents are written, read with a single
+ * stat. A file whose fingerprint matches the fingerprint recorded when it was last hashed does not
+ * need to be hashed again, as long as it was not written within the timestamp granularity of the
+ * file system after it was hashed.
+ *
+ * @param size          The size of the file in bytes.
+ * @param modifiedNanos The last modified time of the file in nanoseconds since the epoch.
+ * @param fileKey       The file key of the file, such as the device and inode, or null if the file
+ *                      system does not have file keys.
+ */
+public record FileFingerprint(long size, long modifiedNanos, String fileKey) {
+
+  // How long after a file was last modified it must have been hashed for the fingerprint to be
+  // trusted. File systems such as FAT only store the last modified time to the nearest 2 seconds.
+  private static final long RACY_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+  /**
+   * Reads the fingerprint of a file.
+   *
+   * @param path The path to the file.
+   * @return The fingerprint of the file.
+   * @throws IOException If an I/O error occurs.
+   */
+  public static FileFingerprint of(Path path) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    Object fileKey = attributes.fileKey();
+    return new FileFingerprint(attributes.size(), attributes.lastModifiedTime().to(
+        TimeUnit.NANOSECONDS), fileKey == null ? null : fileKey.toString());
+  }
+
+  /**
+   * @return The current time in nanoseconds since the epoch, for when a file is verified.
+   */
+  public static long now() {
+    Instant now = Instant.now();
+    return TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+  }
+
+  /**
+   * @return The last modified time of the file in milliseconds since the epoch.
+   */
+  public long modifiedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(modifiedNanos);
+  }
+
+  /**
+   * Returns if a file that had this fingerprint when it was hashed still has the same contents. The
+   * file must have the same fingerprint now and must not have been modified so close to when it
+   * was hashed that a later write could have kept the same last modified time.
+   *
+   * @param current       The current fingerprint of the file.
+   * @param verifiedNanos When the file was hashed in nanoseconds since the epoch.
+   * @return If the file can be trusted to be unchanged without hashing it.
+   */
+  public boolean isUnchanged(FileFingerprint current, long verifiedNanos) {
+    return equals(current) && modifiedNanos + RACY_NANOS < verifiedNanos;
+  }
+}
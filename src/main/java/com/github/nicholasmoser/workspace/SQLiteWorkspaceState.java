@@ -18,7 +18,9 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -27,6 +29,7 @@ import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A workspace state backed by a local SQLite database file.
@@ -34,6 +37,11 @@ import java.util.stream.Collectors;
 public class SQLiteWorkspaceState implements WorkspaceState {
 
   public static final String FILE_NAME = "state.db";
+  /**
+   * The version of the database schema, stored in the user_version pragma. Version 0 is the
+   * original schema and version 1 adds the file fingerprint columns.
+   */
+  public static final int SCHEMA_VERSION = 1;
   /**
    * The primary key is a combination of the file_path and the fpk_file_path because both
    * game0003.fpk and game0004.fpk have a file named omake\0002.txg
@@ -45,15 +53,31 @@ public class SQLiteWorkspaceState implements WorkspaceState {
       	modified_dt_tm INTEGER,
         fpk_file_path TEXT,
         compressed INTEGER,
+        size INTEGER,
+        modified_ns INTEGER,
+        file_key TEXT,
+        verified_ns INTEGER,
         PRIMARY KEY (file_path, fpk_file_path)
       );
       """;
+  /**
+   * Migrates a version 0 database to version 1. The fingerprints of existing files are null until
+   * the files are hashed again.
+   */
+  public static final List<String> MIGRATE_TO_VERSION_1 = List.of(
+      "ALTER TABLE file ADD COLUMN size INTEGER",
+      "ALTER TABLE file ADD COLUMN modified_ns INTEGER",
+      "ALTER TABLE file ADD COLUMN file_key TEXT",
+      "ALTER TABLE file ADD COLUMN verified_ns INTEGER");
   public static final String INSERT_FILE = "INSERT INTO file(file_path,hash,modified_dt_tm,fpk_file_path,compressed) VALUES(?,?,?,?,?)";
+  public static final String INSERT_VERIFIED_FILE = "INSERT INTO file(file_path,hash,modified_dt_tm,fpk_file_path,compressed,size,modified_ns,file_key,verified_ns) VALUES(?,?,?,?,?,?,?,?,?)";
+  public static final String UPDATE_FILE = "UPDATE file SET hash = ?, modified_dt_tm = ?, size = ?, modified_ns = ?, file_key = ?, verified_ns = ? WHERE file_path = ?";
+  public static final String UPDATE_FINGERPRINT = "UPDATE file SET size = ?, modified_ns = ?, file_key = ?, verified_ns = ? WHERE file_path = ?";
   public static final String DELETE_FILE = "DELETE FROM file where file_path = ?";
   public static final String DELETE_ALL_FILES = "DELETE FROM file";
   public static final String SELECT_DISTINCT_FPK_FILE_PATHS = "SELECT DISTINCT fpk_file_path FROM file";
-  public static final String SELECT_FILE = "SELECT file_path,hash,modified_dt_tm,fpk_file_path,compressed FROM FILE WHERE file_path = ?";
-  public static final String SELECT_ALL_FILES = "SELECT file_path,hash,modified_dt_tm,fpk_file_path,compressed FROM FILE";
+  public static final String SELECT_FILE = "SELECT file_path,hash,modified_dt_tm,fpk_file_path,compressed,size,modified_ns,file_key,verified_ns FROM FILE WHERE file_path = ?";
+  public static final String SELECT_ALL_FILES = "SELECT file_path,hash,modified_dt_tm,fpk_file_path,compressed,size,modified_ns,file_key,verified_ns FROM FILE";
   public static final String SELECT_ALL_FILE_PATHS = "SELECT file_path FROM FILE";
   public static final String SELECT_MODIFIED_DT_TM = "SELECT file_path,modified_dt_tm FROM FILE";
   private static final Logger LOGGER = Logger.getLogger(SQLiteWorkspaceState.class.getName());
@@ -78,6 +102,7 @@ public class SQLiteWorkspaceState implements WorkspaceState {
       try (PreparedStatement stmt = conn.prepareStatement(CREATE_FILE_TABLE)) {
         stmt.execute();
       }
+      setSchemaVersion(conn, SCHEMA_VERSION);
       return new SQLiteWorkspaceState(conn);
     } catch (SQLException e) {
       throw new IOException(e);
@@ -96,6 +121,7 @@ public class SQLiteWorkspaceState implements WorkspaceState {
     String url = "jdbc:sqlite:" + filePath;
     try {
       Connection conn = DriverManager.getConnection(url);
+      migrate(conn);
       return new SQLiteWorkspaceState(conn);
     } catch (SQLException e) {
       throw new IOException(e);
@@ -107,45 +133,53 @@ public class SQLiteWorkspaceState implements WorkspaceState {
     // TODO: Add FPKOption for GNT Rev3 which has combined compressed and uncompressed dirs
     Path compressedDir = workspaceDir.resolve("compressed");
     Path uncompressedDir = workspaceDir.resolve("uncompressed");
-    List<Path> files = Files.walk(compressedDir).filter(Files::isRegularFile)
-        .collect(Collectors.toList());
-    LOGGER.info("Inserting " + files.size() + " files into the database...");
-    // Create a new batch insertion and disable auto commit so that we only commit once
-    try (PreparedStatement stmt = conn.prepareStatement(INSERT_FILE)) {
-      conn.setAutoCommit(false);
-      for (Path filePath : files) {
-        String relativePath = relativizePath(compressedDir, filePath);
-        if (relativePath.endsWith(".fpk")) {
-          // Add each file insert an FPK archive to the database
-          List<FPKFileHeader> fileHeaders = getFileHeaders(filePath, options);
-          for (FPKFileHeader fileHeader : fileHeaders) {
-            String name = "files/" + options.fileNames().fix(fileHeader.getFileName());
-            Path path = uncompressedDir.resolve(name);
-            if (!Files.exists(path)) {
-              throw new IOException(path + " does not exist");
-            }
-            FileTime time = Files.getLastModifiedTime(path);
-            int hash = CRC32.getHash(path);
-            boolean compressed = fileHeader.getCompressedSize() != fileHeader.getUncompressedSize();
-            stmt.setString(1, name);
-            stmt.setInt(2, hash);
-            stmt.setLong(3, time.toMillis());
-            stmt.setString(4, relativePath);
-            stmt.setBoolean(5, compressed);
-            stmt.addBatch();
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(compressedDir)) {
+      files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+    // Find every row first so that all the files can be hashed in parallel
+    List<WorkspaceFile> rows = new ArrayList<>(files.size());
+    for (Path filePath : files) {
+      String relativePath = relativizePath(compressedDir, filePath);
+      if (relativePath.endsWith(".fpk")) {
+        // Add each file insert an FPK archive to the database
+        List<FPKFileHeader> fileHeaders = getFileHeaders(filePath, options);
+        for (FPKFileHeader fileHeader : fileHeaders) {
+          String name = "files/" + options.fileNames().fix(fileHeader.getFileName());
+          Path path = uncompressedDir.resolve(name);
+          if (!Files.exists(path)) {
+            throw new IOException(path + " does not exist");
           }
-        } else {
-          // Add each non-FPK file to the database
-          Path path = uncompressedDir.resolve(relativePath);
-          FileTime time = Files.getLastModifiedTime(path);
-          int hash = CRC32.getHash(path);
-          stmt.setString(1, relativePath);
-          stmt.setInt(2, hash);
-          stmt.setLong(3, time.toMillis());
-          stmt.setString(4, null);
-          stmt.setBoolean(5, false);
-          stmt.addBatch();
+          boolean compressed = fileHeader.getCompressedSize() != fileHeader.getUncompressedSize();
+          rows.add(new WorkspaceFile(name, 0, 0, relativePath, compressed));
         }
+      } else {
+        // Add each non-FPK file to the database
+        rows.add(new WorkspaceFile(relativePath, 0, 0, null, false));
+      }
+    }
+    List<Path> uncompressedFiles = new ArrayList<>(rows.size());
+    for (WorkspaceFile row : rows) {
+      uncompressedFiles.add(uncompressedDir.resolve(row.filePath()));
+    }
+    LOGGER.info("Hashing " + uncompressedFiles.size() + " files...");
+    long verifiedNanos = FileFingerprint.now();
+    Map<Path, Integer> hashes = CRC32.getHashes(uncompressedFiles);
+    Map<Path, FileFingerprint> fingerprints = getFingerprints(uncompressedFiles);
+    LOGGER.info("Inserting " + rows.size() + " files into the database...");
+    // Create a new batch insertion and disable auto commit so that we only commit once
+    try (PreparedStatement stmt = conn.prepareStatement(INSERT_VERIFIED_FILE)) {
+      conn.setAutoCommit(false);
+      for (WorkspaceFile row : rows) {
+        Path path = uncompressedDir.resolve(row.filePath());
+        FileFingerprint fingerprint = fingerprints.get(path);
+        stmt.setString(1, row.filePath());
+        stmt.setInt(2, hashes.get(path));
+        stmt.setLong(3, fingerprint.modifiedMillis());
+        stmt.setString(4, row.fpkFilePath());
+        stmt.setBoolean(5, row.compressed());
+        setFingerprint(stmt, 6, fingerprint, verifiedNanos);
+        stmt.addBatch();
       }
       stmt.executeBatch();
       conn.commit();
@@ -161,6 +195,89 @@ public class SQLiteWorkspaceState implements WorkspaceState {
     LOGGER.info("Completed inserting files into the database.");
   }
 
+  @Override
+  public void update(Path workspaceDir, Collection<String> filePaths) throws IOException {
+    Path compressedDir = workspaceDir.resolve("compressed");
+    Path uncompressedDir = workspaceDir.resolve("uncompressed");
+    LOGGER.info("Updating " + filePaths.size() + " files in the database...");
+    // Update every file in one transaction so that a failure leaves the state as it was
+    try (PreparedStatement update = conn.prepareStatement(UPDATE_FILE);
+        PreparedStatement insert = conn.prepareStatement(INSERT_VERIFIED_FILE)) {
+      List<Path> paths = new ArrayList<>(filePaths.size());
+      for (String filePath : filePaths) {
+        Path path = uncompressedDir.resolve(filePath);
+        if (!Files.exists(path)) {
+          throw new IOException(path + " does not exist");
+        }
+        paths.add(path);
+      }
+      long verifiedNanos = FileFingerprint.now();
+      Map<Path, Integer> hashes = CRC32.getHashes(paths);
+      Map<Path, FileFingerprint> fingerprints = getFingerprints(paths);
+      conn.setAutoCommit(false);
+      try {
+        for (String filePath : filePaths) {
+          Path path = uncompressedDir.resolve(filePath);
+          FileFingerprint fingerprint = fingerprints.get(path);
+          int hash = hashes.get(path);
+          update.setInt(1, hash);
+          update.setLong(2, fingerprint.modifiedMillis());
+          setFingerprint(update, 3, fingerprint, verifiedNanos);
+          update.setString(7, filePath);
+          if (update.executeUpdate() == 0) {
+            if (!Files.isRegularFile(compressedDir.resolve(filePath))) {
+              throw new IOException(filePath + " is not in the workspace state");
+            }
+            insert.setString(1, filePath);
+            insert.setInt(2, hash);
+            insert.setLong(3, fingerprint.modifiedMillis());
+            insert.setString(4, null);
+            insert.setBoolean(5, false);
+            setFingerprint(insert, 6, fingerprint, verifiedNanos);
+            insert.execute();
+          }
+        }
+        conn.commit();
+      } catch (IOException | SQLException e) {
+        conn.rollback();
+        throw e;
+      } finally {
+        conn.setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+    LOGGER.info("Completed updating files in the database.");
+  }
+
+  @Override
+  public void setFingerprints(Map<String, FileFingerprint> fingerprints, long verifiedNanos)
+      throws IOException {
+    if (fingerprints.isEmpty()) {
+      return;
+    }
+    LOGGER.info("Updating " + fingerprints.size() + " file fingerprints in the database...");
+    try (PreparedStatement stmt = conn.prepareStatement(UPDATE_FINGERPRINT)) {
+      conn.setAutoCommit(false);
+      try {
+        for (Map.Entry<String, FileFingerprint> entry : fingerprints.entrySet()) {
+          setFingerprint(stmt, 1, entry.getValue(), verifiedNanos);
+          stmt.setString(5, entry.getKey());
+          stmt.addBatch();
+        }
+        stmt.executeBatch();
+        conn.commit();
+      } catch (SQLException e) {
+        conn.rollback();
+        throw e;
+      } finally {
+        conn.setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
   @Override
   public void addFile(WorkspaceFile file) throws IOException {
     LOGGER.info("Inserting file " + file.filePath() + " into workspace state");
@@ -218,8 +335,7 @@ public class SQLiteWorkspaceState implements WorkspaceState {
     try (PreparedStatement stmt = conn.prepareStatement(SELECT_FILE)) {
       stmt.setString(1, filePath);
       try (ResultSet rs = stmt.executeQuery()) {
-        return new WorkspaceFile(rs.getString(1), rs.getInt(2), rs.getLong(3), rs.getString(4),
-            rs.getBoolean(5));
+        return readFile(rs);
       }
     } catch (SQLException e) {
       throw new IOException(e);
@@ -233,8 +349,7 @@ public class SQLiteWorkspaceState implements WorkspaceState {
     try (PreparedStatement stmt = conn.prepareStatement(SELECT_ALL_FILES);
         ResultSet rs = stmt.executeQuery()) {
       while (rs.next()) {
-        files.add(new WorkspaceFile(rs.getString(1), rs.getInt(2), rs.getLong(3), rs.getString(4),
-            rs.getBoolean(5)));
+        files.add(readFile(rs));
       }
     } catch (SQLException e) {
       throw new IOException(e);
@@ -299,6 +414,117 @@ public class SQLiteWorkspaceState implements WorkspaceState {
     }
   }
 
+  /**
+   * Migrates the database schema to the latest version. Each migration runs in its own transaction
+   * along with setting the new schema version.
+   *
+   * @param conn The connection to the database.
+   * @throws SQLException If a SQL error occurs.
+   */
+  private static void migrate(Connection conn) throws SQLException {
+    int version = getSchemaVersion(conn);
+    if (version > SCHEMA_VERSION) {
+      LOGGER.warning(String.format("Database schema version %d is newer than %d", version,
+          SCHEMA_VERSION));
+      return;
+    }
+    if (version < 1) {
+      LOGGER.info("Migrating database schema to version 1");
+      conn.setAutoCommit(false);
+      try (Statement stmt = conn.createStatement()) {
+        for (String sql : MIGRATE_TO_VERSION_1) {
+          stmt.execute(sql);
+        }
+        setSchemaVersion(conn, 1);
+        conn.commit();
+      } catch (SQLException e) {
+        conn.rollback();
+        throw e;
+      } finally {
+        conn.setAutoCommit(true);
+      }
+    }
+  }
+
+  /**
+   * @param conn The connection to the database.
+   * @return The schema version of the database.
+   * @throws SQLException If a SQL error occurs.
+   */
+  private static int getSchemaVersion(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+      return rs.next() ? rs.getInt(1) : 0;
+    }
+  }
+
+  /**
+   * @param conn    The connection to the database.
+   * @param version The schema version to set.
+   * @throws SQLException If a SQL error occurs.
+   */
+  private static void setSchemaVersion(Connection conn, int version) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("PRAGMA user_version = " + version);
+    }
+  }
+
+  /**
+   * Reads a workspace file from the current row of a result set of all file columns.
+   *
+   * @param rs The result set.
+   * @return The workspace file.
+   * @throws SQLException If a SQL error occurs.
+   */
+  private static WorkspaceFile readFile(ResultSet rs) throws SQLException {
+    String filePath = rs.getString(1);
+    int hash = rs.getInt(2);
+    long modifiedDtTm = rs.getLong(3);
+    String fpkFilePath = rs.getString(4);
+    boolean compressed = rs.getBoolean(5);
+    long size = rs.getLong(6);
+    if (rs.wasNull()) {
+      // Files from before fingerprints or added without being hashed
+      return new WorkspaceFile(filePath, hash, modifiedDtTm, fpkFilePath, compressed);
+    }
+    FileFingerprint fingerprint = new FileFingerprint(size, rs.getLong(7), rs.getString(8));
+    return new WorkspaceFile(filePath, hash, modifiedDtTm, fpkFilePath, compressed, fingerprint,
+        rs.getLong(9));
+  }
+
+  /**
+   * Sets the size, modified_ns, file_key and verified_ns parameters of a statement.
+   *
+   * @param stmt          The statement.
+   * @param index         The index of the size parameter.
+   * @param fingerprint   The fingerprint of the file.
+   * @param verifiedNanos When the file was hashed in nanoseconds since the epoch.
+   * @throws SQLException If a SQL error occurs.
+   */
+  private static void setFingerprint(PreparedStatement stmt, int index, FileFingerprint fingerprint,
+      long verifiedNanos) throws SQLException {
+    stmt.setLong(index, fingerprint.size());
+    stmt.setLong(index + 1, fingerprint.modifiedNanos());
+    stmt.setString(index + 2, fingerprint.fileKey());
+    stmt.setLong(index + 3, verifiedNanos);
+  }
+
+  /**
+   * @param paths The paths to the files.
+   * @return The fingerprint of each file by its path.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static Map<Path, FileFingerprint> getFingerprints(Collection<Path> paths)
+      throws IOException {
+    Map<Path, FileFingerprint> fingerprints = new HashMap<>();
+    for (Path path : paths) {
+      if (!fingerprints.containsKey(path)) {
+        fingerprints.put(path, FileFingerprint.of(path));
+      }
+    }
+    return fingerprints;
+  }
+
   /**
    * Reads the FPK file headers from an FPK file given the FPK options.
    *
@@ -0,0 +1,310 @@
+package com.github.nicholasmoser.workspace;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A content-addressed store of workspace file versions. Each version of a file is stored once as a
+ * blob named by the SHA-256 of its contents, so storing a file that has not changed takes no extra
+ * disk. A snapshot is a named manifest of the blob of each file. The {@link #LAST_BUILD} snapshot
+ * holds the last built version of every file built so far, and every build is kept as its own
+ * snapshot for history.
+ * <p>
+ * The layout of the store is:
+ * <ul>
+ *   <li>{@code objects/ab/cdef...} for each blob, by SHA-256</li>
+ *   <li>{@code <name>.txt} for each snapshot, with a line of {@code <sha256> <file path>} for each
+ *   file sorted by file path</li>
+ * </ul>
+ */
+public class SnapshotStore {
+
+  private static final Logger LOGGER = Logger.getLogger(SnapshotStore.class.getName());
+
+  /**
+   * The name of the snapshot of the last built version of every file built so far.
+   */
+  public static final String LAST_BUILD = "last-build";
+
+  // The prefix of the name of the snapshot kept for each build.
+  private static final String BUILD_PREFIX = "build-";
+
+  private static final DateTimeFormatter BUILD_TIME = DateTimeFormatter.ofPattern(
+      "yyyyMMdd-HHmmss-SSS");
+
+  private static final String MANIFEST_EXTENSION = ".txt";
+
+  private static final Pattern NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9_.-]*");
+
+  private final Path directory;
+
+  private final Path objects;
+
+  /**
+   * Create a snapshot store. The directories are created when the first blob is stored.
+   *
+   * @param directory The directory of the store.
+   */
+  public SnapshotStore(Path directory) {
+    this.directory = directory;
+    this.objects = directory.resolve("objects");
+  }
+
+  /**
+   * Stores a file as a blob if a blob with the same contents is not already stored. The file is
+   * hashed first and only copied into the store when its blob is missing.
+   *
+   * @param file The file to store.
+   * @return The SHA-256 of the file as lowercase hex.
+   * @throws IOException If the file changes while it is stored or an I/O error occurs.
+   */
+  public String store(Path file) throws IOException {
+    String hash = hash(file);
+    Path blob = getBlobPath(hash);
+    if (Files.exists(blob)) {
+      return hash;
+    }
+    Files.createDirectories(blob.getParent());
+    Path temp = Files.createTempFile(objects, "blob", ".tmp");
+    try {
+      MessageDigest digest = getDigest();
+      try (InputStream is = new DigestInputStream(Files.newInputStream(file), digest)) {
+        Files.copy(is, temp, StandardCopyOption.REPLACE_EXISTING);
+      }
+      if (!hash.equals(HexFormat.of().formatHex(digest.digest()))) {
+        throw new IOException(file + " changed while it was being stored");
+      }
+      Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE);
+      return hash;
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * @param hash The SHA-256 of the blob as lowercase hex.
+   * @return The path to the blob, or empty if it is not stored.
+   */
+  public Optional<Path> getBlob(String hash) {
+    Path blob = getBlobPath(hash);
+    return Files.isRegularFile(blob) ? Optional.of(blob) : Optional.empty();
+  }
+
+  /**
+   * Stores the given files and creates a snapshot of them. Files that do not exist are skipped.
+   *
+   * @param name      The name of the snapshot.
+   * @param rootDir   The directory the file paths are relative to.
+   * @param filePaths The file paths.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void createSnapshot(String name, Path rootDir, Collection<String> filePaths)
+      throws IOException {
+    checkName(name);
+    if (LAST_BUILD.equals(name) || name.startsWith(BUILD_PREFIX)) {
+      throw new IllegalArgumentException(name + " is reserved for builds");
+    }
+    Map<String, String> snapshot = new TreeMap<>();
+    for (String filePath : filePaths) {
+      Path file = rootDir.resolve(filePath);
+      if (Files.isRegularFile(file)) {
+        snapshot.put(filePath, store(file));
+      }
+    }
+    writeSnapshot(name, snapshot);
+    LOGGER.info(String.format("Created snapshot %s of %d files", name, snapshot.size()));
+  }
+
+  /**
+   * Stores the files that were just built and records them in the {@link #LAST_BUILD} snapshot.
+   * The resulting last build snapshot is also kept as a snapshot named after the time of the build.
+   *
+   * @param rootDir    The directory the file paths are relative to.
+   * @param builtFiles The file paths of the built files.
+   * @return The name of the snapshot of this build.
+   * @throws IOException If an I/O error occurs.
+   */
+  public String recordBuild(Path rootDir, Collection<String> builtFiles) throws IOException {
+    Map<String, String> lastBuild = new TreeMap<>(getSnapshotIfExists(LAST_BUILD));
+    for (String filePath : builtFiles) {
+      lastBuild.put(filePath, store(rootDir.resolve(filePath)));
+    }
+    String name = BUILD_PREFIX + BUILD_TIME.format(LocalDateTime.now());
+    writeSnapshot(LAST_BUILD, lastBuild);
+    writeSnapshot(name, lastBuild);
+    LOGGER.info(String.format("Recorded %d built files in snapshot %s", builtFiles.size(), name));
+    return name;
+  }
+
+  /**
+   * @return The names of every snapshot, sorted.
+   * @throws IOException If an I/O error occurs.
+   */
+  public List<String> getSnapshotNames() throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return Collections.emptyList();
+    }
+    List<Path> manifests;
+    try (Stream<Path> paths = Files.list(directory)) {
+      manifests = paths.filter(Files::isRegularFile)
+          .filter(path -> path.getFileName().toString().endsWith(MANIFEST_EXTENSION))
+          .collect(Collectors.toList());
+    }
+    List<String> names = new ArrayList<>(manifests.size());
+    for (Path manifest : manifests) {
+      String fileName = manifest.getFileName().toString();
+      names.add(fileName.substring(0, fileName.length() - MANIFEST_EXTENSION.length()));
+    }
+    Collections.sort(names);
+    return names;
+  }
+
+  /**
+   * @param name The name of the snapshot.
+   * @return The SHA-256 of each file in the snapshot by file path, sorted by file path.
+   * @throws IOException If the snapshot does not exist or an I/O error occurs.
+   */
+  public Map<String, String> getSnapshot(String name) throws IOException {
+    checkName(name);
+    Path manifest = directory.resolve(name + MANIFEST_EXTENSION);
+    if (!Files.isRegularFile(manifest)) {
+      throw new IOException("Snapshot " + name + " does not exist");
+    }
+    Map<String, String> snapshot = new TreeMap<>();
+    for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+      int separator = line.indexOf(' ');
+      if (separator < 0) {
+        throw new IOException("Invalid line in snapshot " + name + ": " + line);
+      }
+      snapshot.put(line.substring(separator + 1), line.substring(0, separator));
+    }
+    return snapshot;
+  }
+
+  /**
+   * Copies every file in a snapshot from its blob. Files that are not in the snapshot are not
+   * changed.
+   *
+   * @param name    The name of the snapshot.
+   * @param rootDir The directory the file paths are relative to.
+   * @return The number of files restored.
+   * @throws IOException If a blob is missing or an I/O error occurs.
+   */
+  public int restoreSnapshot(String name, Path rootDir) throws IOException {
+    Map<String, String> snapshot = getSnapshot(name);
+    for (Map.Entry<String, String> entry : snapshot.entrySet()) {
+      Path blob = getBlob(entry.getValue()).orElseThrow(
+          () -> new IOException("Missing blob " + entry.getValue() + " for " + entry.getKey()));
+      Path file = rootDir.resolve(entry.getKey());
+      Files.createDirectories(file.getParent());
+      Files.copy(blob, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+    LOGGER.info(String.format("Restored %d files from snapshot %s", snapshot.size(), name));
+    return snapshot.size();
+  }
+
+  /**
+   * @param name The name of the snapshot.
+   * @return The snapshot, or an empty snapshot if it does not exist.
+   * @throws IOException If an I/O error occurs.
+   */
+  public Map<String, String> getSnapshotIfExists(String name) throws IOException {
+    if (!Files.isRegularFile(directory.resolve(name + MANIFEST_EXTENSION))) {
+      return Collections.emptyMap();
+    }
+    return getSnapshot(name);
+  }
+
+  /**
+   * Writes the manifest of a snapshot, replacing any existing snapshot with the same name.
+   *
+   * @param name     The name of the snapshot.
+   * @param snapshot The SHA-256 of each file by file path.
+   * @throws IOException If an I/O error occurs.
+   */
+  private void writeSnapshot(String name, Map<String, String> snapshot) throws IOException {
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, name, ".tmp");
+    try {
+      try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        for (Map.Entry<String, String> entry : new TreeMap<>(snapshot).entrySet()) {
+          writer.write(entry.getValue());
+          writer.write(' ');
+          writer.write(entry.getKey());
+          writer.write('\n');
+        }
+      }
+      Files.move(temp, directory.resolve(name + MANIFEST_EXTENSION),
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * @param hash The SHA-256 of the blob as lowercase hex.
+   * @return The path the blob is stored at.
+   */
+  private Path getBlobPath(String hash) {
+    return objects.resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+  }
+
+  /**
+   * @param name The name of a snapshot.
+   * @throws IllegalArgumentException If the name is not a valid snapshot name.
+   */
+  private static void checkName(String name) {
+    if (name == null || !NAME.matcher(name).matches()) {
+      throw new IllegalArgumentException("Invalid snapshot name: " + name
+          + ". Use only letters, numbers, periods, underscores and dashes.");
+    }
+  }
+
+  /**
+   * @param file The file to hash.
+   * @return The SHA-256 of the file as lowercase hex.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static String hash(Path file) throws IOException {
+    MessageDigest digest = getDigest();
+    try (InputStream is = new DigestInputStream(Files.newInputStream(file), digest)) {
+      is.transferTo(OutputStream.nullOutputStream());
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * @return A new SHA-256 message digest.
+   * @throws IOException If SHA-256 is not available.
+   */
+  private static MessageDigest getDigest() throws IOException {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("SHA-256 is not available", e);
+    }
+  }
+}
@@ -0,0 +1,248 @@
+package com.github.nicholasmoser.workspace;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tracks which files in a directory tree have been created, modified or deleted by watching every
+ * directory in the tree with a {@link WatchService}. A refresh can then recheck only the dirty
+ * files instead of every file in the workspace. If the tracker loses track of changes, such as
+ * when the watch service overflows, the next refresh is told to scan every file instead.
+ */
+public class WorkspaceChangeTracker implements Closeable {
+
+  private static final Logger LOGGER = Logger.getLogger(WorkspaceChangeTracker.class.getName());
+
+  // How long the tree must be quiet before the dirty files are read, since editors often write a
+  // file several times when saving it.
+  private static final long DEBOUNCE_MILLIS = 250;
+
+  // The longest time to wait for the tree to be quiet before reading the dirty files anyway.
+  private static final long MAX_DEBOUNCE_MILLIS = 2000;
+
+  private final Path root;
+
+  private final WatchService watchService;
+
+  private final Map<WatchKey, Path> directories;
+
+  private final Set<String> dirtyFiles;
+
+  private final Thread thread;
+
+  // If changes may have been missed, which requires a scan of every file.
+  private boolean lostTrack;
+
+  // When the last event was received, from System.nanoTime().
+  private long lastEventNanos;
+
+  private volatile boolean closed;
+
+  /**
+   * @param root         The root directory of the tree to watch.
+   * @param watchService The watch service for the file system of the root directory.
+   */
+  private WorkspaceChangeTracker(Path root, WatchService watchService) {
+    this.root = root;
+    this.watchService = watchService;
+    this.directories = new HashMap<>();
+    this.dirtyFiles = new HashSet<>();
+    // Nothing is known about the tree until it has been scanned once
+    this.lostTrack = true;
+    this.thread = new Thread(this::watch, "WorkspaceChangeTracker");
+    this.thread.setDaemon(true);
+  }
+
+  /**
+   * Starts tracking the changes to the files in a directory tree on a background thread.
+   *
+   * @param root The root directory of the tree to watch, such as the uncompressed directory.
+   * @return The change tracker.
+   * @throws IOException If the directories cannot be watched.
+   */
+  public static WorkspaceChangeTracker start(Path root) throws IOException {
+    WatchService watchService = root.getFileSystem().newWatchService();
+    WorkspaceChangeTracker tracker = new WorkspaceChangeTracker(root, watchService);
+    try {
+      tracker.registerTree(root);
+    } catch (IOException e) {
+      watchService.close();
+      throw e;
+    }
+    tracker.thread.start();
+    LOGGER.info(String.format("Tracking changes to %d directories in %s",
+        tracker.directories.size(), root));
+    return tracker;
+  }
+
+  /**
+   * Returns the dirty files since the last call and clears them. The paths are relative to the
+   * root directory and use forward slashes, such as {@code files/maki/char_sel.seq}. Waits briefly
+   * for the tree to stop changing first. Returns empty if changes may have been missed since the
+   * last call, in which case the caller should scan every file.
+   *
+   * @return The dirty files, or empty if every file should be scanned.
+   */
+  public Optional<Set<String>> drainDirtyFiles() {
+    long start = System.nanoTime();
+    synchronized (this) {
+      while (!closed && System.nanoTime() - lastEventNanos < DEBOUNCE_MILLIS * 1_000_000
+          && System.nanoTime() - start < MAX_DEBOUNCE_MILLIS * 1_000_000) {
+        try {
+          wait(DEBOUNCE_MILLIS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+      Set<String> files = new HashSet<>(dirtyFiles);
+      dirtyFiles.clear();
+      if (lostTrack || closed) {
+        lostTrack = false;
+        return Optional.empty();
+      }
+      return Optional.of(files);
+    }
+  }
+
+  /**
+   * Marks files as dirty, such as files whose workspace state was just updated by a build.
+   *
+   * @param filePaths The file paths relative to the root directory.
+   */
+  public synchronized void markDirty(Collection<String> filePaths) {
+    dirtyFiles.addAll(filePaths);
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    watchService.close();
+  }
+
+  /**
+   * Processes watch events until the watch service is closed.
+   */
+  private void watch() {
+    try {
+      while (!closed) {
+        WatchKey key = watchService.take();
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+          handleEvent(directory, event);
+        }
+        if (!key.reset()) {
+          directories.remove(key);
+        }
+      }
+    } catch (ClosedWatchServiceException e) {
+      LOGGER.info("Stopped tracking changes to " + root);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      LOGGER.log(Level.SEVERE, "Stopped tracking changes to " + root, e);
+    } finally {
+      closed = true;
+    }
+  }
+
+  /**
+   * Marks the file of a watch event as dirty. New directories are watched and every file in them
+   * is marked as dirty.
+   *
+   * @param directory The directory of the watch key, or null if it is no longer watched.
+   * @param event     The watch event.
+   */
+  private void handleEvent(Path directory, WatchEvent<?> event) {
+    if (event.kind() == OVERFLOW || directory == null) {
+      LOGGER.info("Lost track of changes to " + root);
+      synchronized (this) {
+        lostTrack = true;
+        touched();
+      }
+      return;
+    }
+    Path path = directory.resolve((Path) event.context());
+    if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+      try {
+        registerTree(path);
+        List<String> files;
+        try (Stream<Path> paths = Files.walk(path)) {
+          files = paths.filter(Files::isRegularFile).map(this::relativize)
+              .collect(Collectors.toList());
+        }
+        markDirty(files);
+      } catch (IOException e) {
+        LOGGER.log(Level.INFO, "Failed to track changes to " + path, e);
+        synchronized (this) {
+          lostTrack = true;
+        }
+      }
+    } else if (event.kind() == ENTRY_DELETE && directories.containsValue(path)) {
+      // The files of a deleted or renamed directory may not each have an event
+      synchronized (this) {
+        lostTrack = true;
+      }
+    }
+    synchronized (this) {
+      dirtyFiles.add(relativize(path));
+      touched();
+    }
+  }
+
+  /**
+   * Records that the tree changed just now and wakes any thread waiting for it to be quiet.
+   */
+  private synchronized void touched() {
+    lastEventNanos = System.nanoTime();
+    notifyAll();
+  }
+
+  /**
+   * Watches a directory and every directory under it.
+   *
+   * @param directory The directory to watch.
+   * @throws IOException If a directory cannot be watched.
+   */
+  private void registerTree(Path directory) throws IOException {
+    List<Path> subdirectories;
+    try (Stream<Path> paths = Files.walk(directory)) {
+      subdirectories = paths.filter(Files::isDirectory).collect(Collectors.toList());
+    }
+    for (Path subdirectory : subdirectories) {
+      WatchKey key = subdirectory.register(watchService, ENTRY_CREATE, ENTRY_DELETE,
+          ENTRY_MODIFY);
+      directories.put(key, subdirectory);
+    }
+  }
+
+  /**
+   * @param path The path to a file in the tree.
+   * @return The path relative to the root directory with forward slashes.
+   */
+  private String relativize(Path path) {
+    return root.relativize(path).toString().replace('\\', '/');
+  }
+}
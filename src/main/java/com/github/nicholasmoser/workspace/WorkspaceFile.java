@@ -3,9 +3,32 @@ package com.github.nicholasmoser.workspace;
 /**
  * A single file in the workspace. The hash and modified date/time are used to track if the file
  * has been modified. There is also an optional fpk file path and if it is compressed for files
- * contained inside FRK archive files.
+ * contained inside FRK archive files. The fingerprint of the file when it was last hashed and when
+ * it was hashed let a refresh skip hashing files that have not been written since. Files from older
+ * workspaces have no fingerprint.
  */
 public record WorkspaceFile(String filePath, int hash, long modifiedDtTm, String fpkFilePath,
-                            boolean compressed) {
+                            boolean compressed, FileFingerprint fingerprint, long verifiedNanos) {
 
+  /**
+   * Create a workspace file with no fingerprint.
+   *
+   * @param filePath     The file path.
+   * @param hash         The CRC32 hash of the file.
+   * @param modifiedDtTm The last modified date/time of the file in milliseconds.
+   * @param fpkFilePath  The FPK file path if the file is in an FPK, otherwise null.
+   * @param compressed   If the file is compressed in the FPK.
+   */
+  public WorkspaceFile(String filePath, int hash, long modifiedDtTm, String fpkFilePath,
+      boolean compressed) {
+    this(filePath, hash, modifiedDtTm, fpkFilePath, compressed, null, 0);
+  }
+
+  /**
+   * @param current The current fingerprint of the file.
+   * @return If the file can be trusted to be unchanged since it was hashed without hashing it.
+   */
+  public boolean isUnchanged(FileFingerprint current) {
+    return fingerprint != null && fingerprint.isUnchanged(current, verifiedNanos);
+  }
 }
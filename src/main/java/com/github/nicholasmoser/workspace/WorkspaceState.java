@@ -4,6 +4,7 @@ import com.github.nicholasmoser.GNTFileProtos.GNTFiles;
 import com.github.nicholasmoser.fpk.FPKOptions;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -23,6 +24,33 @@ public interface WorkspaceState {
    */
   void init(Path workspaceDir, FPKOptions options) throws IOException;
 
+  /**
+   * Updates the hash, modified date/time and fingerprint of the given files from the uncompressed
+   * directory of the workspace in a single transaction. Every row for a file is updated, including each FPK the
+   * file is a child of. A changed file with no rows is inserted as a non-FPK file if it exists in
+   * the compressed directory. This is used after a build instead of initializing the entire
+   * workspace state again, since the build already knows which files changed.
+   *
+   * @param workspaceDir The directory of the workspace.
+   * @param filePaths    The file paths of the changed files.
+   * @throws IOException If any I/O exception occurs.
+   */
+  void update(Path workspaceDir, Collection<String> filePaths) throws IOException;
+
+  /**
+   * Sets the fingerprint of the given files and when they were verified in a single transaction.
+   * Every row for a file is updated, including each FPK the file is a child of. This is used to
+   * record that a file still has the contents of its hash so that it does not need to be hashed
+   * again until it is written.
+   *
+   * @param fingerprints  The fingerprint of each file by file path.
+   * @param verifiedNanos When the files were verified in nanoseconds since the epoch, or 0 if the
+   *                      files must be hashed on every refresh.
+   * @throws IOException If any I/O exception occurs.
+   */
+  void setFingerprints(Map<String, FileFingerprint> fingerprints, long verifiedNanos)
+      throws IOException;
+
   /**
    * Inserts a new file into the workspace state.
    *
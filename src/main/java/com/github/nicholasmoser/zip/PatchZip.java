@@ -1,15 +1,31 @@
 package com.github.nicholasmoser.zip;
 
+import com.github.nicholasmoser.iso.ISOCreator;
+import com.github.nicholasmoser.iso.ISOExtractor;
+import com.github.nicholasmoser.iso.ISOStreamPatcher;
+import com.github.nicholasmoser.iso.ISOStreamPatcher.Replacement;
+import com.github.nicholasmoser.utils.FileUtils;
+import com.github.nicholasmoser.utils.ProgressListener;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 /**
- * A class used to patch an output directory of files using a zip file.
+ * A class used to patch an output directory of files or an ISO using a zip file.
  */
 public class PatchZip {
 
@@ -52,4 +68,93 @@ public class PatchZip {
       throw new IOException("No zip entries were found for file: " + patchZip);
     }
   }
+
+  /**
+   * Patch an ISO into a new ISO using the given patch zip file, without extracting the ISO. Each
+   * file entry in the zip file should correlate to the file in the extracted ISO it should
+   * overwrite. The zip entries are streamed into the new ISO and every other file is copied from
+   * the input ISO. If the zip file adds files that are not in the ISO, the ISO is instead
+   * extracted, patched and rebuilt so that the new files are added to it.
+   *
+   * @param patchZip       The patch zip file.
+   * @param inputIso       The ISO to patch.
+   * @param outputIso      The patched ISO to write.
+   * @param pushFilesToEnd If the files should be pushed to the end of the ISO.
+   * @param listener       The listener to report the progress of the patch to.
+   * @throws IOException If the ISO cannot be patched from the zip file
+   */
+  public static void patchISO(Path patchZip, Path inputIso, Path outputIso,
+      boolean pushFilesToEnd, ProgressListener listener) throws IOException {
+    try (ZipFile zipFile = new ZipFile(patchZip.toFile())) {
+      Map<String, Replacement> replacements = new HashMap<>();
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry zipEntry = entries.nextElement();
+        if (!zipEntry.isDirectory()) {
+          replacements.put(zipEntry.getName(), new Replacement() {
+            @Override
+            public long size() {
+              return zipEntry.getSize();
+            }
+
+            @Override
+            public InputStream open() throws IOException {
+              return zipFile.getInputStream(zipEntry);
+            }
+          });
+        }
+      }
+      if (replacements.isEmpty()) {
+        throw new IOException("No zip entries were found for file: " + patchZip);
+      }
+      ISOStreamPatcher patcher = new ISOStreamPatcher(inputIso, outputIso, listener);
+      Set<String> addedFiles = patcher.getAddedFiles(replacements.keySet());
+      if (addedFiles.isEmpty()) {
+        patcher.patch(replacements, pushFilesToEnd);
+      } else {
+        LOGGER.info(String.format("Rebuilding %s to add %s", inputIso, addedFiles));
+        patchExtractedISO(zipFile, inputIso, outputIso, pushFilesToEnd, listener);
+      }
+    }
+  }
+
+  /**
+   * Patch an ISO into a new ISO by extracting the ISO, writing each file entry of the zip file to
+   * the extracted files and rebuilding the ISO. Unlike {@link #patch(Path, Path)}, zip entries for
+   * files that do not exist yet are added.
+   *
+   * @param zipFile        The patch zip file.
+   * @param inputIso       The ISO to patch.
+   * @param outputIso      The patched ISO to write.
+   * @param pushFilesToEnd If the files should be pushed to the end of the ISO.
+   * @param listener       The listener to report the progress of the rebuild to.
+   * @throws IOException If the ISO cannot be patched from the zip file
+   */
+  private static void patchExtractedISO(ZipFile zipFile, Path inputIso, Path outputIso,
+      boolean pushFilesToEnd, ProgressListener listener) throws IOException {
+    Path exportDir = FileUtils.getTempDirectory().resolve(UUID.randomUUID().toString());
+    Files.createDirectories(exportDir);
+    try {
+      new ISOExtractor(inputIso, exportDir).extract();
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry zipEntry = entries.nextElement();
+        if (!zipEntry.isDirectory()) {
+          Path outputFile = exportDir.resolve(zipEntry.getName()).normalize();
+          if (!outputFile.startsWith(exportDir.normalize())) {
+            throw new IOException(String.format("Zip entry %s is outside of the ISO",
+                zipEntry.getName()));
+          }
+          Files.createDirectories(outputFile.getParent());
+          try (InputStream is = zipFile.getInputStream(zipEntry)) {
+            Files.copy(is, outputFile, StandardCopyOption.REPLACE_EXISTING);
+          }
+          LOGGER.info("Patched " + zipEntry.getName());
+        }
+      }
+      new ISOCreator(exportDir, outputIso, listener).create(pushFilesToEnd);
+    } finally {
+      MoreFiles.deleteRecursively(exportDir, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
 }
@@ -30,4 +30,7 @@ module com.github.nicholasmoser {
   requires org.json;
   requires com.j2html;
   requires org.xerial.sqlitejdbc;
+
+  provides java.nio.file.spi.FileSystemProvider
+      with com.github.nicholasmoser.iso.ISOFileSystemProvider;
 }
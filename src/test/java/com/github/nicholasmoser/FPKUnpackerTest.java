@@ -1,7 +1,11 @@
 package com.github.nicholasmoser;
 
 import static com.github.nicholasmoser.utils.TestUtil.assertDirectoriesEqual;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
+import com.github.nicholasmoser.fpk.FPKWriter;
 import com.github.nicholasmoser.fpk.FileNames;
 import com.github.nicholasmoser.gnt4.GNT4FileNames;
 import com.github.nicholasmoser.testing.Prereqs;
@@ -11,7 +15,9 @@ import com.google.common.io.RecursiveDeleteOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
+import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.Test;
 
 public class FPKUnpackerTest {
@@ -34,4 +40,77 @@ public class FPKUnpackerTest {
       }
     }
   }
+
+  /**
+   * Tests that unpacking synthetic FPKs in parallel gives the same files as unpacking them serially,
+   * including a child that is in two FPKs.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testParallelUnpack() throws Exception {
+    Path tempDir = FileUtils.getTempDirectory();
+    Path serialDir = tempDir.resolve(UUID.randomUUID().toString());
+    Path parallelDir = tempDir.resolve(UUID.randomUUID().toString());
+    try {
+      Random random = new Random(0);
+      byte[][] children = new byte[8][];
+      for (int i = 0; i < children.length; i++) {
+        children[i] = new byte[1000 + random.nextInt(20000)];
+        for (int j = 0; j < children[i].length; j++) {
+          children[i][j] = (byte) random.nextInt(4);
+        }
+      }
+      for (Path dir : new Path[]{serialDir, parallelDir}) {
+        Path fpack = dir.resolve("files/fpack");
+        Files.createDirectories(fpack.resolve("game"));
+        writeFPK(fpack.resolve("cmn.fpk"), children, 0, 4);
+        writeFPK(fpack.resolve("game/0000.fpk"), children, 3, 8);
+      }
+
+      new FPKUnpacker(serialDir, Optional.empty(), false, true).unpackDirectory();
+      AtomicLong progress = new AtomicLong();
+      FPKUnpacker unpacker = new FPKUnpacker(parallelDir, Optional.empty(), false, true);
+      unpacker.unpackDirectory(true, (done, total) -> progress.accumulateAndGet(done, Math::max));
+      assertDirectoriesEqual(serialDir, parallelDir);
+      assertFalse(Files.exists(parallelDir.resolve("files/fpack")));
+      long total = 0;
+      for (int i = 0; i < children.length; i++) {
+        total += children[i].length;
+        Path child = parallelDir.resolve(String.format("files/cmn/%04d.dat", i));
+        assertArrayEquals(children[i], Files.readAllBytes(child));
+      }
+      assertEquals(total, progress.get());
+    } finally {
+      for (Path dir : new Path[]{serialDir, parallelDir}) {
+        if (Files.isDirectory(dir)) {
+          MoreFiles.deleteRecursively(dir, RecursiveDeleteOption.ALLOW_INSECURE);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes an FPK of children. Every child is compressed except for the child at index 3, which is
+   * compressed in one FPK and uncompressed in the other.
+   *
+   * @param fpk      The path to write the FPK to.
+   * @param children The bytes of the children.
+   * @param start    The index of the first child to write.
+   * @param end      The index after the last child to write.
+   * @throws Exception If any exception occurs.
+   */
+  private static void writeFPK(Path fpk, byte[][] children, int start, int end) throws Exception {
+    try (FPKWriter writer = new FPKWriter(fpk, end - start, false, true, false)) {
+      for (int i = start; i < end; i++) {
+        String fileName = String.format("cmn/%04d.dat", i);
+        if (i == start && start > 0) {
+          writer.write(fileName, children[i], children[i].length);
+        } else {
+          byte[] compressed = new PRSCompressor(children[i]).compress();
+          writer.write(fileName, compressed, children[i].length);
+        }
+      }
+    }
+  }
 }
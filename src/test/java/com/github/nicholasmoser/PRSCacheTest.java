@@ -0,0 +1,145 @@
+package com.github.nicholasmoser;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the persistent PRS compression cache.
+ */
+public class PRSCacheTest {
+
+  /**
+   * Tests that cached compressed bytes are the same as compressing and are reused after the cache
+   * is opened again.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testCachedBytesReused() throws Exception {
+    Path directory = Files.createTempDirectory("prs_cache");
+    try {
+      byte[] input = getInput(0, 20000);
+      byte[] expected = new PRSCompressor(input).compress();
+      PRSCache cache = new PRSCache(directory, PRSCache.DEFAULT_MAX_SIZE);
+      assertArrayEquals(expected, cache.compress(input, PRSCompressor.Level.GREEDY, false));
+      assertEquals(expected.length, cache.getSize());
+      assertEquals(1, countFiles(directory));
+
+      PRSCache reopened = new PRSCache(directory, PRSCache.DEFAULT_MAX_SIZE);
+      assertEquals(expected.length, reopened.getSize());
+      assertArrayEquals(expected, reopened.compress(input, PRSCompressor.Level.GREEDY, false));
+      assertEquals(1, countFiles(directory));
+
+      // A different level is cached separately
+      reopened.compress(input, PRSCompressor.Level.LAZY, false);
+      assertEquals(2, countFiles(directory));
+    } finally {
+      MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
+  /**
+   * Tests that the least recently used files are deleted when the cache grows too large.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testLeastRecentlyUsedEvicted() throws Exception {
+    Path directory = Files.createTempDirectory("prs_cache");
+    try {
+      byte[] first = getInput(1, 20000);
+      byte[] second = getInput(2, 20000);
+      byte[] third = getInput(3, 20000);
+      int size = new PRSCompressor(first).compress().length;
+      PRSCache cache = new PRSCache(directory, size * 2L + size / 2);
+      cache.compress(first, PRSCompressor.Level.GREEDY, false);
+      cache.compress(second, PRSCompressor.Level.GREEDY, false);
+      // Use the first again so that the second is the least recently used
+      cache.compress(first, PRSCompressor.Level.GREEDY, false);
+      cache.compress(third, PRSCompressor.Level.GREEDY, false);
+      assertEquals(2, countFiles(directory));
+      assertTrue(cache.getSize() <= size * 2L + size / 2);
+      assertTrue(isCached(directory, first));
+      assertFalse(isCached(directory, second));
+      assertTrue(isCached(directory, third));
+    } finally {
+      MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
+  /**
+   * Tests that the cache directory is only created when the first bytes are cached and that
+   * clearing the cache deletes the cached files.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testCreatedLazilyAndCleared() throws Exception {
+    Path parent = Files.createTempDirectory("prs_cache");
+    try {
+      Path directory = parent.resolve(PRSCache.DIRECTORY_NAME);
+      PRSCache cache = new PRSCache(directory, PRSCache.DEFAULT_MAX_SIZE);
+      assertEquals(0, cache.getSize());
+      assertFalse(Files.exists(directory));
+
+      byte[] input = getInput(4, 20000);
+      cache.compress(input, PRSCompressor.Level.GREEDY, false);
+      assertEquals(1, countFiles(directory));
+      cache.clear();
+      assertEquals(0, cache.getSize());
+      assertEquals(0, countFiles(directory));
+      assertEquals(0, new PRSCache(directory, PRSCache.DEFAULT_MAX_SIZE).getSize());
+    } finally {
+      MoreFiles.deleteRecursively(parent, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
+  /**
+   * @param seed   The random seed.
+   * @param length The number of bytes.
+   * @return Random bytes with many repeated sequences.
+   */
+  private static byte[] getInput(int seed, int length) {
+    Random random = new Random(seed);
+    byte[] input = new byte[length];
+    for (int i = 0; i < length; i++) {
+      input[i] = (byte) random.nextInt(4);
+    }
+    return input;
+  }
+
+  /**
+   * @param directory The cache directory.
+   * @param input     The uncompressed bytes.
+   * @return If compressed bytes for the uncompressed bytes are in the cache directory.
+   * @throws Exception If any exception occurs.
+   */
+  private static boolean isCached(Path directory, byte[] input) throws Exception {
+    String hash = Hashing.sha256().hashBytes(input).toString();
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.anyMatch(file -> file.getFileName().toString().startsWith(hash));
+    }
+  }
+
+  /**
+   * @param directory The directory.
+   * @return The number of files in the directory.
+   * @throws Exception If any exception occurs.
+   */
+  private static long countFiles(Path directory) throws Exception {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+}
@@ -1,13 +1,19 @@
 package com.github.nicholasmoser;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.Random;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
@@ -49,6 +55,204 @@ public class PRSCompressionTest {
     }
   }
 
+  /**
+   * Tests compressing and uncompressing bytes with many repeated sequences at each compression
+   * level. Lazy and optimal compression should never be larger than greedy compression.
+   */
+  @Test
+  public void testCompressionLevels() {
+    Random random = new Random(0);
+    byte[] originalBytes = new byte[50000];
+    for (int i = 0; i < originalBytes.length; i++) {
+      originalBytes[i] = (byte) (random.nextInt(8) == 0 ? random.nextInt(256) : random.nextInt(4));
+    }
+    int greedySize = 0;
+    for (PRSCompressor.Level level : PRSCompressor.Level.values()) {
+      PRSCompressor compressor = new PRSCompressor(originalBytes, level);
+      byte[] compressedBytes = compressor.compress();
+      PRSUncompressor uncompressor = new PRSUncompressor(compressedBytes, originalBytes.length);
+      byte[] outputBytes = uncompressor.uncompress();
+      assertArrayEquals(originalBytes, outputBytes);
+      if (level == PRSCompressor.Level.GREEDY) {
+        greedySize = compressedBytes.length;
+      } else if (level == PRSCompressor.Level.OPTIMAL) {
+        assertTrue(compressedBytes.length <= greedySize);
+      }
+    }
+  }
+
+  /**
+   * Tests that optimal compression of a long run of zeroes is no larger than greedy compression.
+   */
+  @Test
+  public void testCompressionLevelsZeroes() {
+    byte[] originalBytes = new byte[100000];
+    byte[] greedyBytes = new PRSCompressor(originalBytes).compress();
+    byte[] optimalBytes = new PRSCompressor(originalBytes, PRSCompressor.Level.OPTIMAL).compress();
+    assertArrayEquals(originalBytes,
+        new PRSUncompressor(optimalBytes, originalBytes.length).uncompress());
+    assertTrue(optimalBytes.length <= greedyBytes.length);
+  }
+
+  /**
+   * Tests compressing and uncompressing random bytes at each compression level.
+   */
+  @Test
+  public void testCompressionLevelsRandomBytes() {
+    SecureRandom random = new SecureRandom();
+    for (int i = 10; i < 1000; i += 50) {
+      byte[] originalBytes = new byte[i];
+      random.nextBytes(originalBytes);
+      for (PRSCompressor.Level level : PRSCompressor.Level.values()) {
+        PRSCompressor compressor = new PRSCompressor(originalBytes, level);
+        byte[] compressedBytes = compressor.compress();
+        PRSUncompressor uncompressor = new PRSUncompressor(compressedBytes, originalBytes.length);
+        byte[] outputBytes = uncompressor.uncompress();
+        assertArrayEquals(originalBytes, outputBytes);
+      }
+    }
+  }
+
+  /**
+   * Tests compressing in parallel chunks at each compression level. A single chunk should be the
+   * same as compressing the whole input at once.
+   */
+  @Test
+  public void testParallelCompression() {
+    Random random = new Random(0);
+    byte[] originalBytes = new byte[100000];
+    for (int i = 0; i < originalBytes.length; i++) {
+      originalBytes[i] = (byte) (random.nextInt(8) == 0 ? random.nextInt(256) : random.nextInt(4));
+    }
+    for (PRSCompressor.Level level : PRSCompressor.Level.values()) {
+      byte[] serialBytes = new PRSCompressor(originalBytes, level).compress();
+      byte[] singleChunkBytes = new PRSCompressor(originalBytes, level)
+          .compressParallel(originalBytes.length);
+      assertArrayEquals(serialBytes, singleChunkBytes);
+      // The default chunk size is fixed, so a small input is always a single chunk
+      assertArrayEquals(serialBytes, new PRSCompressor(originalBytes, level).compressParallel());
+      for (int chunkSize : new int[]{1000, 8191, 30000}) {
+        byte[] compressedBytes = new PRSCompressor(originalBytes, level)
+            .compressParallel(chunkSize);
+        PRSUncompressor uncompressor = new PRSUncompressor(compressedBytes, originalBytes.length);
+        assertArrayEquals(originalBytes, uncompressor.uncompress());
+      }
+    }
+  }
+
+  /**
+   * Tests uncompressing into offsets of a shared buffer and into a direct byte buffer.
+   */
+  @Test
+  public void testUncompressIntoBuffer() {
+    Random random = new Random(0);
+    byte[] originalBytes = new byte[10000];
+    for (int i = 0; i < originalBytes.length; i++) {
+      originalBytes[i] = (byte) random.nextInt(4);
+    }
+    byte[] compressedBytes = new PRSCompressor(originalBytes).compress();
+
+    // Compressed bytes after the space for the uncompressed bytes in the same array
+    int size = originalBytes.length;
+    byte[] buffer = new byte[size + compressedBytes.length];
+    System.arraycopy(compressedBytes, 0, buffer, size, compressedBytes.length);
+    int length = PRSUncompressor.uncompress(buffer, size, compressedBytes.length, buffer, 0, size);
+    assertEquals(size, length);
+    assertArrayEquals(originalBytes, Arrays.copyOf(buffer, size));
+
+    ByteBuffer input = ByteBuffer.wrap(compressedBytes);
+    ByteBuffer output = ByteBuffer.allocateDirect(size);
+    assertEquals(size, PRSUncompressor.uncompress(input, output));
+    assertEquals(size, output.position());
+    byte[] outputBytes = new byte[size];
+    output.flip().get(outputBytes);
+    assertArrayEquals(originalBytes, outputBytes);
+  }
+
+  /**
+   * Tests that uncompressing stops early instead of failing or reading past the input when the
+   * output length is too large or the compressed bytes are truncated.
+   */
+  @Test
+  public void testUncompressShort() {
+    Random random = new Random(0);
+    byte[] originalBytes = new byte[10000];
+    for (int i = 0; i < originalBytes.length; i++) {
+      originalBytes[i] = (byte) random.nextInt(4);
+    }
+    byte[] compressedBytes = new PRSCompressor(originalBytes).compress();
+    int size = originalBytes.length;
+
+    byte[] output = new byte[size + 100];
+    assertEquals(size, PRSUncompressor.uncompress(compressedBytes, 0, compressedBytes.length,
+        output, 0, output.length));
+    assertArrayEquals(originalBytes, Arrays.copyOf(output, size));
+
+    int half = compressedBytes.length / 2;
+    assertTrue(PRSUncompressor.uncompress(compressedBytes, 0, half, output, 0, size) < size);
+    for (int length = 0; length < compressedBytes.length; length += 7) {
+      int uncompressed = PRSUncompressor.uncompress(compressedBytes, 0, length, output, 0, size);
+      assertArrayEquals(Arrays.copyOf(originalBytes, uncompressed),
+          Arrays.copyOf(output, uncompressed));
+    }
+  }
+
+  /**
+   * Tests that compressing through a stream in uneven chunks gives the same bytes as greedy
+   * compression of the whole array, for input long enough to slide the window many times.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testStreamCompression() throws Exception {
+    Random random = new Random(0);
+    byte[] originalBytes = new byte[300000];
+    for (int i = 0; i < originalBytes.length; i++) {
+      originalBytes[i] = (byte) (random.nextInt(8) == 0 ? random.nextInt(256) : random.nextInt(4));
+    }
+    byte[] expected = new PRSCompressor(originalBytes).compress();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (PRSOutputStream output = new PRSOutputStream(compressed)) {
+      int index = 0;
+      while (index < originalBytes.length) {
+        int length = Math.min(random.nextInt(20000), originalBytes.length - index);
+        output.write(originalBytes, index, length);
+        index += length;
+        output.flush();
+      }
+    }
+    assertArrayEquals(expected, compressed.toByteArray());
+  }
+
+  /**
+   * Tests uncompressing through a stream in uneven chunks.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testStreamUncompression() throws Exception {
+    Random random = new Random(0);
+    byte[] originalBytes = new byte[300000];
+    for (int i = 0; i < originalBytes.length; i++) {
+      originalBytes[i] = (byte) (random.nextInt(8) == 0 ? random.nextInt(256) : random.nextInt(4));
+    }
+    byte[] compressedBytes = new PRSCompressor(originalBytes, PRSCompressor.Level.OPTIMAL)
+        .compress();
+    byte[] outputBytes = new byte[originalBytes.length];
+    try (PRSInputStream input = new PRSInputStream(new ByteArrayInputStream(compressedBytes),
+        originalBytes.length)) {
+      int index = 0;
+      while (index < outputBytes.length) {
+        int length = Math.min(1 + random.nextInt(5000), outputBytes.length - index);
+        int read = input.read(outputBytes, index, length);
+        assertTrue(read > 0);
+        index += read;
+      }
+      assertEquals(-1, input.read());
+    }
+    assertArrayEquals(originalBytes, outputBytes);
+  }
+
   /**
    * Tests compressing and uncompressing a file with random hex values. The bytes of the original
    * file and output of compressing and uncompressing should be the same.
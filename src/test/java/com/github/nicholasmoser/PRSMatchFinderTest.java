@@ -0,0 +1,99 @@
+package com.github.nicholasmoser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the hash chain match finder used by PRS compression.
+ */
+public class PRSMatchFinderTest {
+
+  /**
+   * Tests that the match finder finds the same matches as a full backwards scan of the window on
+   * random bytes with a small alphabet, which has many short and long matches.
+   */
+  @Test
+  public void testSameAsWindowScan() {
+    Random random = new Random(0);
+    byte[] input = new byte[20000];
+    for (int i = 0; i < input.length; i++) {
+      input[i] = (byte) random.nextInt(4);
+    }
+    assertSameAsWindowScan(input);
+  }
+
+  /**
+   * Tests that the match finder finds the same matches as a full backwards scan of the window on
+   * random bytes, which mostly has two byte matches.
+   */
+  @Test
+  public void testSameAsWindowScanRandomBytes() {
+    Random random = new Random(0);
+    byte[] input = new byte[70000];
+    random.nextBytes(input);
+    assertSameAsWindowScan(input);
+  }
+
+  /**
+   * Tests that a run of zeroes matches the previous byte for the maximum match length.
+   */
+  @Test
+  public void testZeroes() {
+    byte[] input = new byte[1000];
+    PRSMatchFinder finder = new PRSMatchFinder(input);
+    assertEquals(false, finder.find(0));
+    assertEquals(true, finder.find(1));
+    assertEquals(PRSMatchFinder.MAX_MATCH_LENGTH, finder.getLength());
+    assertEquals(1, finder.getDistance());
+    assertEquals(true, finder.find(998));
+    assertEquals(2, finder.getLength());
+    assertEquals(false, finder.find(999));
+  }
+
+  /**
+   * Asserts that each position of the input has the same match as a full backwards scan.
+   *
+   * @param input The input bytes.
+   */
+  private void assertSameAsWindowScan(byte[] input) {
+    PRSMatchFinder finder = new PRSMatchFinder(input);
+    for (int i = 0; i < input.length; i++) {
+      int[] expected = scanWindow(input, i);
+      boolean found = finder.find(i);
+      assertEquals(expected != null, found, "Match found at " + i);
+      if (found) {
+        assertEquals(expected[0], finder.getLength(), "Length at " + i);
+        assertEquals(expected[1], finder.getDistance(), "Distance at " + i);
+      }
+    }
+  }
+
+  /**
+   * Scans backwards through the full window for the longest and closest match.
+   *
+   * @param input The input bytes.
+   * @param index The index to find a match for.
+   * @return The length and distance of the match, or null if there is none.
+   */
+  private int[] scanWindow(byte[] input, int index) {
+    int maxLength = Math.min(PRSMatchFinder.MAX_MATCH_LENGTH, input.length - index);
+    int bestLength = 0;
+    int bestDistance = 0;
+    for (int distance = 1; distance < PRSMatchFinder.WINDOW_SIZE && distance <= index; distance++) {
+      int length = 0;
+      while (length < maxLength && input[index - distance + length] == input[index + length]) {
+        length++;
+      }
+      if (length > bestLength) {
+        bestLength = length;
+        bestDistance = distance;
+      }
+    }
+    if (bestLength < 2 || (bestLength == 2 && bestDistance > PRSMatchFinder.MAX_SHORT_DISTANCE)) {
+      return null;
+    }
+    return new int[]{bestLength, bestDistance};
+  }
+}
@@ -0,0 +1,178 @@
+package com.github.nicholasmoser.fpk;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.github.nicholasmoser.PRSCompressor;
+import com.github.nicholasmoser.utils.ReusableBuffer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class FPKArchiveTest {
+
+  /**
+   * Tests reading compressed and uncompressed children of an FPK.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testReadChildren() throws Exception {
+    byte[] compressible = getCompressible(5000);
+    byte[] compressed = new PRSCompressor(compressible).compress();
+    byte[] uncompressed = new byte[100];
+    new Random(1).nextBytes(uncompressed);
+    Path fpk = Files.createTempFile("FPKArchiveTest", ".fpk");
+    try {
+      try (FPKWriter writer = new FPKWriter(fpk, 2, false, true, false)) {
+        writer.write("cmn/0000.seq", compressed, compressible.length);
+        writer.write("cmn/0001.dat", uncompressed, uncompressed.length);
+      }
+      try (FPKArchive archive = FPKArchive.open(fpk, false, true)) {
+        assertEquals(2, archive.getHeaders().size());
+        assertEquals("cmn/0000.seq", archive.getHeaders().get(0).getFileName());
+        assertEquals(compressed.length, archive.getHeader("cmn/0000.seq").getCompressedSize());
+        assertNull(archive.getHeader("cmn/0002.dat"));
+
+        ByteBuffer data = archive.getData("cmn/0000.seq");
+        byte[] dataBytes = new byte[data.remaining()];
+        data.get(dataBytes);
+        assertArrayEquals(compressed, dataBytes);
+
+        assertArrayEquals(compressible, archive.getChildBytes("cmn/0000.seq"));
+        assertArrayEquals(uncompressed, archive.getChildBytes("cmn/0001.dat"));
+        ReusableBuffer buffer = new ReusableBuffer();
+        int length = archive.readChildBytes("cmn/0000.seq", buffer);
+        assertArrayEquals(compressible, Arrays.copyOf(buffer.array(), length));
+        length = archive.readChildBytes("cmn/0001.dat", buffer);
+        assertArrayEquals(uncompressed, Arrays.copyOf(buffer.array(), length));
+        assertThrows(IOException.class, () -> archive.getChildBytes("cmn/0002.dat"));
+      }
+    } finally {
+      Files.deleteIfExists(fpk);
+    }
+  }
+
+  /**
+   * Tests that an archive read from the bytes of an FPK has the same children as one read from the
+   * file, keeping the first child when there are duplicate names.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testReadFromBytes() throws Exception {
+    byte[] compressible = getCompressible(5000);
+    byte[] compressed = new PRSCompressor(compressible).compress();
+    Path fpk = Files.createTempFile("FPKArchiveTest", ".fpk");
+    try {
+      try (FPKWriter writer = new FPKWriter(fpk, 3, false, true, false)) {
+        writer.write("cmn/0000.seq", compressed, compressible.length);
+        writer.write("cmn/0001.dat", new byte[]{1, 2, 3}, 3);
+        writer.write("cmn/0000.seq", new byte[]{4, 5}, 2);
+      }
+      byte[] bytes = Files.readAllBytes(fpk);
+      try (FPKArchive file = FPKArchive.open(fpk, false, true);
+          FPKArchive memory = FPKArchive.of(fpk, ByteBuffer.wrap(bytes), false, true)) {
+        assertEquals(2, memory.getHeaders().size());
+        for (int i = 0; i < 2; i++) {
+          assertEquals(file.getHeaders().get(i).getFileName(),
+              memory.getHeaders().get(i).getFileName());
+          assertEquals(file.getHeaders().get(i).getOffset(),
+              memory.getHeaders().get(i).getOffset());
+        }
+        assertEquals(compressed.length, memory.getHeader("cmn/0000.seq").getCompressedSize());
+        assertEquals(ByteBuffer.wrap(compressed), memory.getData("cmn/0000.seq"));
+        assertArrayEquals(compressible, memory.getChildBytes("cmn/0000.seq"));
+        assertArrayEquals(new byte[]{1, 2, 3}, memory.getChildBytes("cmn/0001.dat"));
+      }
+      assertThrows(IOException.class,
+          () -> FPKArchive.of(fpk, ByteBuffer.wrap(bytes, 0, 40), false, true));
+    } finally {
+      Files.deleteIfExists(fpk);
+    }
+  }
+
+  /**
+   * Tests that a child whose compressed bytes uncompress to fewer bytes than its uncompressed size
+   * fails to be read.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testReadShortChild() throws Exception {
+    byte[] compressible = getCompressible(5000);
+    byte[] compressed = new PRSCompressor(compressible).compress();
+    Path fpk = Files.createTempFile("FPKArchiveTest", ".fpk");
+    try {
+      try (FPKWriter writer = new FPKWriter(fpk, 1, false, true, false)) {
+        writer.write("cmn/0000.seq", compressed, compressible.length + 1);
+      }
+      try (FPKArchive archive = FPKArchive.open(fpk, false, true)) {
+        assertThrows(IOException.class, () -> archive.getChildBytes("cmn/0000.seq"));
+        assertThrows(IOException.class,
+            () -> archive.readChildBytes("cmn/0000.seq", new ReusableBuffer()));
+      }
+    } finally {
+      Files.deleteIfExists(fpk);
+    }
+  }
+
+  /**
+   * Tests that the archive cache reuses open archives until the file changes, and that closing the
+   * cache closes the archives so the file can be replaced.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testArchiveCache() throws Exception {
+    Path fpk = Files.createTempFile("FPKArchiveTest", ".fpk");
+    try {
+      try (FPKWriter writer = new FPKWriter(fpk, 1, false, true, false)) {
+        writer.write("cmn/0000.dat", new byte[]{1, 2, 3}, 3);
+      }
+      Path replacement = fpk.resolveSibling(fpk.getFileName() + ".tmp");
+      FPKArchive changed;
+      try (FPKArchiveCache cache = new FPKArchiveCache(2)) {
+        FPKArchive archive = cache.get(fpk, false, true);
+        assertSame(archive, cache.get(fpk, false, true));
+
+        try (FPKWriter writer = new FPKWriter(replacement, 1, false, true, false)) {
+          writer.write("cmn/0000.dat", new byte[]{4, 5, 6, 7}, 4);
+        }
+        Files.move(replacement, fpk, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(fpk, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+        changed = cache.get(fpk, false, true);
+        assertNotSame(archive, changed);
+        assertThrows(ClosedChannelException.class, () -> archive.getChildBytes("cmn/0000.dat"));
+        assertArrayEquals(new byte[]{4, 5, 6, 7}, changed.getChildBytes("cmn/0000.dat"));
+      }
+      assertThrows(ClosedChannelException.class, () -> changed.getChildBytes("cmn/0000.dat"));
+    } finally {
+      Files.deleteIfExists(fpk);
+    }
+  }
+
+  /**
+   * @param length The number of bytes.
+   * @return Random bytes with many repeated sequences.
+   */
+  private static byte[] getCompressible(int length) {
+    Random random = new Random(0);
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) random.nextInt(4);
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,119 @@
+package com.github.nicholasmoser.fpk;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.github.nicholasmoser.utils.ByteUtils;
+import com.github.nicholasmoser.utils.FPKUtils;
+import com.google.common.primitives.Bytes;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class FPKWriterTest {
+
+  /**
+   * Tests writing a GameCube FPK, which uses short paths and big endian.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testGameCubeFPK() throws Exception {
+    assertSameAsConcatenated(false, true, false);
+  }
+
+  /**
+   * Tests writing a Wii FPK with the integrity check, which uses long paths and big endian.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testWiiFPKWithIntegrityCheck() throws Exception {
+    assertSameAsConcatenated(true, true, true);
+  }
+
+  /**
+   * Tests writing a little endian FPK with the integrity check.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testLittleEndianFPK() throws Exception {
+    assertSameAsConcatenated(true, false, true);
+  }
+
+  /**
+   * Tests that closing the writer before every file is written fails.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testMissingFiles() throws Exception {
+    Path fpk = Files.createTempFile("FPKWriterTest", ".fpk");
+    try {
+      FPKWriter writer = new FPKWriter(fpk, 2, false, true, false);
+      writer.write("cmn/3000.poo", new byte[20], 20);
+      assertThrows(IOException.class, writer::close);
+    } finally {
+      Files.deleteIfExists(fpk);
+    }
+  }
+
+  /**
+   * Asserts that writing files of several sizes with an FPK writer gives the same bytes as
+   * concatenating the FPK header, file headers, and aligned file data in memory.
+   *
+   * @param longPaths      If the FPK inner file paths are 32-bytes (instead of 16-bytes).
+   * @param bigEndian      If the FPK is big-endian (instead of little-endian).
+   * @param integrityCheck If the integrity check bytes should be added to the start of the FPK.
+   * @throws Exception If any exception occurs.
+   */
+  private void assertSameAsConcatenated(boolean longPaths, boolean bigEndian,
+      boolean integrityCheck) throws Exception {
+    Random random = new Random(0);
+    int[] sizes = {0, 1, 15, 16, 17, 1000, 4096};
+    List<FPKFile> files = new ArrayList<>();
+    for (int i = 0; i < sizes.length; i++) {
+      byte[] data = new byte[sizes[i]];
+      random.nextBytes(data);
+      String fileName = String.format("cmn/%04d.dat", i);
+      files.add(new FPKFile(new FPKFileHeader(fileName, data.length, data.length * 2, longPaths,
+          bigEndian), data));
+    }
+
+    int outputSize = 16 + files.size() * (longPaths ? 48 : 32);
+    byte[] fileData = new byte[0];
+    for (FPKFile file : files) {
+      file.getHeader().setOffset(outputSize);
+      outputSize += ByteUtils.align(file.getHeader().getCompressedSize(), 16);
+      fileData = Bytes.concat(fileData, file.getData());
+    }
+    byte[] integrityBytes = integrityCheck ? FPKUtils.getIntegrityBytes(fileData) : null;
+    byte[] expected = FPKUtils.createFPKHeader(integrityBytes, files.size(), outputSize,
+        bigEndian);
+    for (FPKFile file : files) {
+      expected = Bytes.concat(expected, file.getHeader().getBytes());
+    }
+    expected = Bytes.concat(expected, fileData);
+
+    Path fpk = Files.createTempFile("FPKWriterTest", ".fpk");
+    try {
+      try (FPKWriter writer = new FPKWriter(fpk, files.size(), longPaths, bigEndian,
+          integrityCheck)) {
+        for (int i = 0; i < sizes.length; i++) {
+          FPKFileHeader header = files.get(i).getHeader();
+          byte[] data = new byte[sizes[i]];
+          System.arraycopy(files.get(i).getData(), 0, data, 0, sizes[i]);
+          writer.write(header.getFileName(), data, header.getUncompressedSize());
+        }
+      }
+      assertArrayEquals(expected, Files.readAllBytes(fpk));
+    } finally {
+      Files.deleteIfExists(fpk);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.github.nicholasmoser.iso;
+
+import static com.github.nicholasmoser.utils.TestUtil.assertDirectoriesEqual;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.nicholasmoser.testing.ISOInput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AccessTraceTest {
+
+  /**
+   * Tests parsing plain and Dolphin access traces.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testParse() throws Exception {
+    List<String> lines = List.of(
+        "# Loading the title screen",
+        "00:01:500 files/dir1/0001.dat",
+        "00:01:200 /dir0/0000.dat",
+        "",
+        "00:02:000 sys/main.dol",
+        "00:02:100 dir0/0000.dat",
+        "01:00:000 dir2/0002.dat");
+    assertEquals(List.of("dir0/0000.dat", "dir1/0001.dat", "dir2/0002.dat"),
+        AccessTrace.parse(lines).getGamePaths());
+
+    List<String> dolphinLines = List.of(
+        "12:34:567 Core/HW/DVD/DVDInterface.cpp:123 I[DVDINTERFACE]: Read",
+        "12:34:600 Core/FileMonitor.cpp:84 W[FileMon]:       0 kB /dir2/0005.dat",
+        "12:34:800 Core/FileMonitor.cpp:84 W[FileMon]:   1,024 kB /dir2/0005.dat",
+        "12:35:000 Core/FileMonitor.cpp:84 I[FileMon]:      64 kB /dir0/0003.trk");
+    assertEquals(List.of("dir2/0005.dat", "dir0/0003.trk"),
+        AccessTrace.parse(dolphinLines).getGamePaths());
+
+    assertThrows(IOException.class, () -> AccessTrace.parse(List.of("dir0/0000.dat")));
+    assertThrows(IOException.class, () -> AccessTrace.parse(List.of("abc dir0/0000.dat")));
+  }
+
+  /**
+   * Tests that an access trace with none of the files in the ISO fails to lay out the ISO.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testNoMatchingFiles(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    AccessTrace trace = AccessTrace.parse(List.of("0 missing.dat", "1 dir0/missing.dat"));
+    assertThrows(IOException.class,
+        () -> new ISOCreator(input, directory.resolve("game.iso")).create(trace));
+  }
+
+  /**
+   * Tests creating an ISO with the files placed in access trace order at the end of the ISO.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testLayout(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path iso = directory.resolve("game.iso");
+    List<String> trace = List.of("dir2/0011.trk", "dir1/0001.dat", "missing.dat",
+        "dir0/0006.dat");
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < trace.size(); i++) {
+      lines.add(i + " " + trace.get(i));
+    }
+    new ISOCreator(input, iso).create(AccessTrace.parse(lines));
+
+    List<ISOFile> files = new ArrayList<>();
+    for (ISOItem item : new ISOParser(iso).getISOHeader().getFiles()) {
+      if (!item.isDirectory()) {
+        files.add((ISOFile) item);
+      }
+    }
+    files.sort(Comparator.comparingInt(ISOFile::getPos));
+    int count = files.size();
+    assertEquals("dir2/0011.trk", files.get(count - 3).getGamePath());
+    assertEquals("dir1/0001.dat", files.get(count - 2).getGamePath());
+    assertEquals("dir0/0006.dat", files.get(count - 1).getGamePath());
+    ISOFile last = files.get(count - 1);
+    assertTrue(ISO.DISC_SIZE - (last.getPos() + last.getLen()) < 4);
+    assertEquals(last.getPos() + last.getLen(), Files.size(iso));
+    assertEquals(0, files.get(count - 3).getPos() % 0x8000);
+    for (int i = 1; i < count; i++) {
+      ISOFile previous = files.get(i - 1);
+      assertTrue(previous.getPos() + previous.getLen() <= files.get(i).getPos());
+    }
+
+    Path output = directory.resolve("output");
+    new ISOExtractor(iso, output).extract();
+    assertDirectoriesEqual(input.resolve("files"), output.resolve("files"));
+  }
+}
@@ -0,0 +1,155 @@
+package com.github.nicholasmoser.iso;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.nicholasmoser.testing.ISOInput;
+import com.github.nicholasmoser.utils.ProgressListener;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+import java.util.zip.Inflater;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CompressedISOWriterTest {
+
+  /**
+   * Tests that a CISO and a GCZ decode to the same bytes as the raw ISO.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testCompressedFormats(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path iso = directory.resolve("game.iso");
+    new ISOCreator(input, iso).create(false);
+    byte[] expected = Files.readAllBytes(iso);
+
+    Path ciso = directory.resolve("game.ciso");
+    assertEquals(ImageFormat.CISO, ImageFormat.of(ciso));
+    new ISOCreator(input, ciso, ProgressListener.NONE, ImageFormat.of(ciso)).create(false);
+    assertImageEquals(expected, readCISO(Files.readAllBytes(ciso)));
+
+    Path gcz = directory.resolve("game.gcz");
+    assertEquals(ImageFormat.GCZ, ImageFormat.of(gcz));
+    long[] progress = new long[2];
+    new ISOCreator(input, gcz, (done, total) -> {
+      progress[0] = done;
+      progress[1] = total;
+    }, ImageFormat.of(gcz)).create(false);
+    assertEquals(expected.length, progress[0]);
+    assertEquals(expected.length, progress[1]);
+    assertImageEquals(expected, readGCZ(Files.readAllBytes(gcz)));
+  }
+
+  /**
+   * Tests that a CISO of an ISO with the files pushed to the end only stores the blocks with data.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testSparseCISO(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path ciso = directory.resolve("game.ciso");
+    new ISOCreator(input, ciso, ProgressListener.NONE, ImageFormat.CISO).create(true);
+    ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(ciso)).order(ByteOrder.LITTLE_ENDIAN);
+    int blockSize = header.getInt(4);
+    assertEquals(CompressedISOWriter.CISO_BLOCK_SIZE, blockSize);
+    int storedBlocks = 0;
+    for (int i = 8; i < 0x8000; i++) {
+      storedBlocks += header.get(i);
+    }
+    // The sys files are in the first block and the files are in the last two
+    assertTrue(storedBlocks <= 3);
+    assertEquals(0x8000 + (long) storedBlocks * blockSize, Files.size(ciso));
+  }
+
+  /**
+   * Asserts that a decoded disc image is the ISO followed by zeroes up to the end of the last
+   * block.
+   *
+   * @param expected The bytes of the ISO.
+   * @param actual   The bytes of the decoded disc image.
+   */
+  private static void assertImageEquals(byte[] expected, byte[] actual) {
+    assertTrue(actual.length >= expected.length);
+    assertArrayEquals(expected, Arrays.copyOf(actual, expected.length));
+    for (int i = expected.length; i < actual.length; i++) {
+      assertEquals(0, actual[i]);
+    }
+  }
+
+  /**
+   * @param bytes The bytes of a CISO.
+   * @return The bytes of the ISO the CISO decodes to, up to the last stored block.
+   */
+  private static byte[] readCISO(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals("CISO", new String(bytes, 0, 4));
+    int blockSize = buffer.getInt(4);
+    ByteArrayOutputStream iso = new ByteArrayOutputStream();
+    int lastBlock = 0;
+    for (int i = 0; i < 0x8000 - 8; i++) {
+      if (buffer.get(8 + i) == 1) {
+        lastBlock = i;
+      }
+    }
+    int stored = 0;
+    for (int i = 0; i <= lastBlock; i++) {
+      if (buffer.get(8 + i) == 1) {
+        iso.write(bytes, 0x8000 + stored * blockSize, blockSize);
+        stored++;
+      } else {
+        iso.writeBytes(new byte[blockSize]);
+      }
+    }
+    return iso.toByteArray();
+  }
+
+  /**
+   * @param bytes The bytes of a GCZ.
+   * @return The bytes of the ISO the GCZ decodes to.
+   * @throws Exception If any exception occurs.
+   */
+  private static byte[] readGCZ(byte[] bytes) throws Exception {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals(0xB10BC001, buffer.getInt(0));
+    long compressedSize = buffer.getLong(8);
+    long dataSize = buffer.getLong(16);
+    int blockSize = buffer.getInt(24);
+    int numBlocks = buffer.getInt(28);
+    assertEquals(dataSize, (long) numBlocks * blockSize);
+    int dataStart = 32 + 12 * numBlocks;
+    assertEquals(dataStart + compressedSize, bytes.length);
+    ByteArrayOutputStream iso = new ByteArrayOutputStream();
+    for (int i = 0; i < numBlocks; i++) {
+      long offset = buffer.getLong(32 + 8 * i);
+      boolean uncompressed = offset < 0;
+      offset &= Long.MAX_VALUE;
+      long next = i + 1 < numBlocks ? buffer.getLong(32 + 8 * (i + 1)) & Long.MAX_VALUE
+          : compressedSize;
+      int length = (int) (next - offset);
+      Adler32 adler = new Adler32();
+      adler.update(bytes, dataStart + (int) offset, length);
+      assertEquals(buffer.getInt(32 + 8 * numBlocks + 4 * i), (int) adler.getValue());
+      if (uncompressed) {
+        iso.write(bytes, dataStart + (int) offset, length);
+      } else {
+        Inflater inflater = new Inflater();
+        inflater.setInput(bytes, dataStart + (int) offset, length);
+        byte[] block = new byte[blockSize];
+        assertEquals(blockSize, inflater.inflate(block));
+        assertTrue(inflater.finished());
+        inflater.end();
+        iso.writeBytes(block);
+      }
+    }
+    return iso.toByteArray();
+  }
+}
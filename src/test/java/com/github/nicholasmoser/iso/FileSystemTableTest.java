@@ -1,12 +1,20 @@
 package com.github.nicholasmoser.iso;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.github.nicholasmoser.testing.ISOInput;
 import com.github.nicholasmoser.testing.Prereqs;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class FileSystemTableTest {
   @Test
@@ -18,4 +26,36 @@ public class FileSystemTableTest {
     assertThat(Files.size(fst)).isEqualTo(0x33E7);
     assertThat(items).doesNotContainNull();
   }
+
+  /**
+   * Tests that a fst.bin read from memory is written back to the same bytes, and that the index of
+   * the ISOHeader finds each item by its game path.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testReadAndWrite(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path iso = directory.resolve("game.iso");
+    new ISOCreator(input, iso).create(true);
+    byte[] fstBin = Files.readAllBytes(input.resolve("sys/fst.bin"));
+
+    List<ISOItem> items = FileSystemTable.read(fstBin);
+    // Root, three directories and twelve files
+    assertEquals(16, items.size());
+    assertEquals(fstBin.length, FileSystemTable.getLength(items));
+    assertArrayEquals(fstBin, FileSystemTable.toBytes(items));
+
+    ISOHeader header = new ISOParser(iso).getISOHeader();
+    assertEquals(items, header.getFiles());
+    assertEquals(fstBin.length, header.getFstBin().getLen());
+    for (ISOItem item : items) {
+      assertEquals(item, header.getItem(item.getGamePath()).orElseThrow());
+    }
+    assertTrue(header.getItem("dir0/missing.dat").isEmpty());
+
+    assertThrows(IOException.class, () -> FileSystemTable.read(new byte[4]));
+    assertThrows(IOException.class,
+        () -> FileSystemTable.read(Arrays.copyOf(fstBin, fstBin.length - 1)));
+  }
 }
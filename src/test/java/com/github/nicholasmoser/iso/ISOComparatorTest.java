@@ -0,0 +1,89 @@
+package com.github.nicholasmoser.iso;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.nicholasmoser.fpk.FPKOptions;
+import com.github.nicholasmoser.fpk.FPKWriter;
+import com.github.nicholasmoser.iso.ISOComparator.ChangedFile;
+import com.github.nicholasmoser.iso.ISOComparator.Comparison;
+import com.github.nicholasmoser.testing.ISOInput;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ISOComparatorTest {
+
+  /**
+   * Tests comparing two ISOs with added, removed and changed files, including a changed FPK file
+   * and an FPK file with a child that cannot be uncompressed.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testCompare(@TempDir Path directory) throws Exception {
+    Random random = new Random(1);
+    Path input = ISOInput.create(directory.resolve("input"));
+    byte[] a = ISOInput.randomBytes(random, 100);
+    byte[] b = ISOInput.randomBytes(random, 200);
+    byte[] c = ISOInput.randomBytes(random, 300);
+    writeFPK(input.resolve("files/dir0/test.fpk"), Map.of("a.dat", a, "b.dat", b, "c.dat", c));
+    writeFPK(input.resolve("files/dir1/bad.fpk"), Map.of("a.dat", new byte[10]));
+    Path iso1 = directory.resolve("game1.iso");
+    new ISOCreator(input, iso1).create(false);
+
+    Files.write(input.resolve("files/dir1/0004.dat"), ISOInput.randomBytes(random, 5000));
+    Files.delete(input.resolve("files/dir2/0002.dat"));
+    Files.write(input.resolve("files/dir0/new.dat"), ISOInput.randomBytes(random, 5000));
+    writeFPK(input.resolve("files/dir0/test.fpk"),
+        Map.of("a.dat", a, "b.dat", ISOInput.randomBytes(random, 200), "d.dat", c));
+    try (FPKWriter writer = new FPKWriter(input.resolve("files/dir1/bad.fpk"), 1, false, true,
+        false)) {
+      // A back-reference before the start of the output
+      writer.write("a.dat", new byte[]{0x40, (byte) 0xFF, (byte) 0xF9}, 10);
+    }
+    Path iso2 = directory.resolve("game2.iso");
+    new ISOCreator(input, iso2).create(true);
+
+    FPKOptions options = new FPKOptions(false, true, null);
+    Comparison comparison = new ISOComparator(iso1, iso2, Optional.of(options), 2).compare();
+    assertEquals(List.of("files/dir2/0002.dat"), comparison.onlyInFirst());
+    assertEquals(List.of("files/dir0/new.dat"), comparison.onlyInSecond());
+    Map<String, List<String>> changed = comparison.changed().stream()
+        .collect(Collectors.toMap(ChangedFile::path, ChangedFile::children));
+    assertEquals(List.of(), changed.get("files/dir1/0004.dat"));
+    assertEquals(List.of("b.dat", "c.dat", "d.dat"), changed.get("files/dir0/test.fpk"));
+    assertEquals(List.of(), changed.get("files/dir1/bad.fpk"));
+    assertTrue(changed.containsKey("sys/fst.bin"));
+    // Files that moved but have the same bytes are not changed
+    assertFalse(changed.containsKey("files/dir1/0001.dat"));
+    assertFalse(changed.containsKey("sys/main.dol"));
+
+    Comparison same = new ISOComparator(iso1, iso1, Optional.empty()).compare();
+    assertTrue(same.onlyInFirst().isEmpty());
+    assertTrue(same.onlyInSecond().isEmpty());
+    assertTrue(same.changed().isEmpty());
+  }
+
+  /**
+   * Writes an FPK file with uncompressed children.
+   *
+   * @param path     The path of the FPK file.
+   * @param children The bytes of each child by its name.
+   * @throws Exception If any exception occurs.
+   */
+  private static void writeFPK(Path path, Map<String, byte[]> children) throws Exception {
+    try (FPKWriter writer = new FPKWriter(path, children.size(), false, true, false)) {
+      for (Map.Entry<String, byte[]> child : children.entrySet()) {
+        writer.write(child.getKey(), child.getValue(), child.getValue().length);
+      }
+    }
+  }
+}
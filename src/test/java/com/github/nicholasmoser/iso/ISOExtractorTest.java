@@ -0,0 +1,50 @@
+package com.github.nicholasmoser.iso;
+
+import static com.github.nicholasmoser.utils.TestUtil.assertDirectoriesEqual;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.github.nicholasmoser.testing.ISOInput;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ISOExtractorTest {
+
+  /**
+   * Tests that extracting an ISO on one thread and on multiple threads gives the same files.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testParallelExtract(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path iso = directory.resolve("game.iso");
+    new ISOCreator(input, iso).create(false);
+    Path serial = directory.resolve("serial");
+    Path parallel = directory.resolve("parallel");
+    new ISOExtractor(iso, serial, 1).extract();
+    new ISOExtractor(iso, parallel, 4).extract();
+    assertDirectoriesEqual(input.resolve("files"), serial.resolve("files"));
+    assertDirectoriesEqual(serial, parallel);
+  }
+
+  /**
+   * Tests that extracting an ISO that ends before the end of its last file fails.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testTruncatedISO(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path iso = directory.resolve("game.iso");
+    new ISOCreator(input, iso).create(false);
+    try (FileChannel channel = FileChannel.open(iso, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 1);
+    }
+    ISOExtractor extractor = new ISOExtractor(iso, directory.resolve("output"), 4);
+    assertThrows(IOException.class, extractor::extract);
+  }
+}
@@ -0,0 +1,164 @@
+package com.github.nicholasmoser.iso;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.nicholasmoser.testing.ISOInput;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.ClosedFileSystemException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.ReadOnlyFileSystemException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ISOFileSystemTest {
+
+  /**
+   * Tests that every file can be read from the ISO file system with the same bytes and directory
+   * tree as the input files.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testReadFiles(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path iso = directory.resolve("game.iso");
+    new ISOCreator(input, iso).create(true);
+    try (ISOFileSystem fileSystem = ISOFileSystem.open(iso)) {
+      Path root = fileSystem.getPath("/");
+      List<String> expected = listFiles(input.resolve("files"));
+      List<String> actual = listFiles(root.resolve("files"));
+      assertEquals(expected, actual);
+      for (String file : expected) {
+        byte[] bytes = Files.readAllBytes(input.resolve("files").resolve(file));
+        assertArrayEquals(bytes, Files.readAllBytes(root.resolve("files").resolve(file)));
+      }
+      assertArrayEquals(Files.readAllBytes(input.resolve("sys/main.dol")),
+          Files.readAllBytes(fileSystem.getPath("/sys/main.dol")));
+      assertTrue(Files.isDirectory(fileSystem.getPath("/files/dir1")));
+      assertEquals(Files.size(input.resolve("files/dir2/0002.dat")),
+          Files.size(fileSystem.getPath("files", "dir2", "0002.dat")));
+      assertThrows(NoSuchFileException.class,
+          () -> Files.readAllBytes(fileSystem.getPath("/files/missing.dat")));
+    }
+  }
+
+  /**
+   * Tests seeking in a file channel, that the file system cannot be written to, and that it
+   * and its channels cannot be used after it is closed.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testChannelAndReadOnly(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path iso = directory.resolve("game.iso");
+    new ISOCreator(input, iso).create(false);
+    byte[] expected = Files.readAllBytes(input.resolve("files/dir0/0003.trk"));
+    ISOFileSystem fileSystem = ISOFileSystem.open(iso);
+    Path file = fileSystem.getPath("/files/dir0/0003.trk");
+    try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+      assertEquals(expected.length, channel.size());
+      channel.position(expected.length - 10);
+      ByteBuffer buffer = ByteBuffer.allocate(20);
+      assertEquals(10, channel.read(buffer));
+      assertEquals(-1, channel.read(buffer));
+      for (int i = 0; i < 10; i++) {
+        assertEquals(expected[expected.length - 10 + i], buffer.get(i));
+      }
+    }
+    assertThrows(ReadOnlyFileSystemException.class, () -> Files.write(file, new byte[1]));
+    assertThrows(ReadOnlyFileSystemException.class, () -> Files.delete(file));
+    SeekableByteChannel open = Files.newByteChannel(file);
+    fileSystem.close();
+    assertThrows(ClosedFileSystemException.class, () -> Files.readAllBytes(file));
+    assertThrows(ClosedChannelException.class, () -> open.read(ByteBuffer.allocate(1)));
+    // Nothing holds the ISO open after the file system is closed
+    Files.delete(iso);
+  }
+
+  /**
+   * Tests opening a file system by URI and finding paths by their URI.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testURI(@TempDir Path tempDir) throws Exception {
+    // A path with a space in it, which must be escaped in the URI
+    Path directory = Files.createDirectories(tempDir.resolve("ISOFileSystem Test"));
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path iso = directory.resolve("game.iso");
+    new ISOCreator(input, iso).create(false);
+    ISOFileSystemProvider provider = new ISOFileSystemProvider();
+    URI uri = URI.create("gciso:" + iso.toUri());
+    try (FileSystem fileSystem = provider.newFileSystem(uri, Map.of())) {
+      Path file = fileSystem.getPath("/files/dir1/0001.dat");
+      assertTrue(file.toUri().toString().startsWith("gciso:file:"));
+      assertSame(fileSystem, provider.getFileSystem(uri));
+      assertEquals(file, provider.getPath(file.toUri()));
+    }
+  }
+
+  /**
+   * Tests path operations and glob matching.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testPaths(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path iso = directory.resolve("game.iso");
+    new ISOCreator(input, iso).create(false);
+    try (ISOFileSystem fileSystem = ISOFileSystem.open(iso)) {
+      Path path = fileSystem.getPath("/files//dir0/./../dir1/0001.dat");
+      assertEquals("/files/dir1/0001.dat", path.normalize().toString());
+      assertEquals("0001.dat", path.getFileName().toString());
+      assertEquals(6, path.getNameCount());
+      Path files = fileSystem.getPath("/files");
+      Path relative = files.relativize(path.normalize());
+      assertEquals("dir1/0001.dat", relative.toString());
+      assertEquals(path.normalize(), files.resolve(relative));
+      assertEquals("../sys", files.relativize(fileSystem.getPath("/sys")).toString());
+      assertTrue(path.startsWith(files));
+      assertTrue(path.endsWith(fileSystem.getPath("dir1/0001.dat")));
+      assertFalse(path.endsWith(fileSystem.getPath("1/0001.dat")));
+      assertEquals(fileSystem.getPath("/"), files.getParent());
+
+      PathMatcher matcher = fileSystem.getPathMatcher("glob:/files/**/*.{trk,dol}");
+      try (Stream<Path> stream = Files.walk(files)) {
+        long tracks = stream.filter(matcher::matches).count();
+        assertEquals(3, tracks);
+      }
+      assertFalse(fileSystem.getPathMatcher("glob:/files/*.dat").matches(path.normalize()));
+    }
+  }
+
+  /**
+   * @param directory The directory to list.
+   * @return The sorted paths of the files in the directory, relative to it.
+   * @throws Exception If any exception occurs.
+   */
+  private static List<String> listFiles(Path directory) throws Exception {
+    try (Stream<Path> stream = Files.walk(directory)) {
+      return stream.filter(Files::isRegularFile)
+          .map(path -> directory.relativize(path).toString().replace('\\', '/'))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+}
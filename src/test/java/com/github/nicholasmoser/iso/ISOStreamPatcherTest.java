@@ -0,0 +1,119 @@
+package com.github.nicholasmoser.iso;
+
+import static com.github.nicholasmoser.utils.TestUtil.assertDirectoriesEqual;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.github.nicholasmoser.iso.ISOStreamPatcher.Replacement;
+import com.github.nicholasmoser.testing.ISOInput;
+import com.github.nicholasmoser.utils.ByteUtils;
+import com.github.nicholasmoser.utils.ProgressListener;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ISOStreamPatcherTest {
+
+  /**
+   * Tests patching an ISO with files that have grown and shrunk, with and without pushing the files
+   * to the end of the ISO.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testPatch(@TempDir Path tempDir) throws Exception {
+    for (boolean pushFilesToEnd : new boolean[]{false, true}) {
+      Path directory = tempDir.resolve(String.valueOf(pushFilesToEnd));
+      Path input = ISOInput.create(directory.resolve("input"));
+      Path iso = directory.resolve("game.iso");
+      new ISOCreator(input, iso).create(pushFilesToEnd);
+
+      Random random = new Random(2);
+      Map<String, Replacement> replacements = new HashMap<>();
+      replacements.put("files/dir0/0000.dat", replace(input, "files/dir0/0000.dat", random, 10));
+      replacements.put("files/dir1/0004.dat", replace(input, "files/dir1/0004.dat", random,
+          200000));
+      replacements.put("files/dir2/0011.trk", replace(input, "files/dir2/0011.trk", random,
+          70000));
+      replacements.put("sys/main.dol", replace(input, "sys/main.dol", random, 0x12345));
+      Path patched = directory.resolve("patched.iso");
+      long[] progress = new long[2];
+      new ISOStreamPatcher(iso, patched, (done, total) -> {
+        progress[0] = done;
+        progress[1] = total;
+      }).patch(replacements, pushFilesToEnd);
+      assertEquals(progress[1], progress[0]);
+
+      Path output = directory.resolve("output");
+      new ISOExtractor(patched, output).extract();
+      assertDirectoriesEqual(input.resolve("files"), output.resolve("files"));
+      // The extracted main.dol includes the padding up to the fst.bin
+      assertEquals(ByteUtils.nextAlignedPos(0x12345, 128),
+          Files.size(output.resolve("sys/main.dol")));
+      if (pushFilesToEnd) {
+        assertEquals(ISO.DISC_SIZE, Files.size(patched));
+      }
+    }
+  }
+
+  /**
+   * Tests that a replacement that is not a file in the ISO fails without writing an ISO.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testUnknownFile(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path iso = directory.resolve("game.iso");
+    new ISOCreator(input, iso).create(false);
+    Path patched = directory.resolve("patched.iso");
+    Map<String, Replacement> replacements = Map.of("files/dir3/0000.dat", bytes(new byte[4]));
+    ISOStreamPatcher patcher = new ISOStreamPatcher(iso, patched, ProgressListener.NONE);
+    assertThrows(IOException.class, () -> patcher.patch(replacements, false));
+    assertFalse(Files.exists(patched));
+  }
+
+  /**
+   * Writes random bytes to an input file and returns a replacement with the same bytes.
+   *
+   * @param input  The input directory.
+   * @param path   The path of the file to replace.
+   * @param random The random number generator.
+   * @param length The number of bytes.
+   * @return The replacement.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static Replacement replace(Path input, String path, Random random, int length)
+      throws IOException {
+    byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    Files.write(input.resolve(path), bytes);
+    return bytes(bytes);
+  }
+
+  /**
+   * @param bytes The bytes of the replacement.
+   * @return A replacement with the bytes.
+   */
+  private static Replacement bytes(byte[] bytes) {
+    return new Replacement() {
+      @Override
+      public long size() {
+        return bytes.length;
+      }
+
+      @Override
+      public InputStream open() {
+        return new ByteArrayInputStream(bytes);
+      }
+    };
+  }
+}
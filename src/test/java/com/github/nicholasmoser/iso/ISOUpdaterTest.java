@@ -0,0 +1,111 @@
+package com.github.nicholasmoser.iso;
+
+import static com.github.nicholasmoser.utils.TestUtil.assertDirectoriesEqual;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.nicholasmoser.testing.ISOInput;
+import com.github.nicholasmoser.utils.ProgressListener;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ISOUpdaterTest {
+
+  /**
+   * Tests updating an ISO where files have been changed, grown, added and removed.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testUpdate(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path iso = directory.resolve("game.iso");
+    new ISOUpdater(input, iso, ProgressListener.NONE).create(true);
+    long isoSize = Files.size(iso);
+
+    Random random = new Random(1);
+    Files.write(input.resolve("files/dir0/0000.dat"), ISOInput.randomBytes(random, 1000));
+    Files.write(input.resolve("files/dir1/0001.dat"), ISOInput.randomBytes(random, 100000));
+    Files.write(input.resolve("files/dir2/new.dat"), ISOInput.randomBytes(random, 2000));
+    Files.write(input.resolve("files/dir0/0003.trk"), ISOInput.randomBytes(random, 70000));
+    Files.delete(input.resolve("files/dir2/0002.dat"));
+    assertTrue(new ISOUpdater(input, iso, ProgressListener.NONE).update());
+    assertEquals(isoSize, Files.size(iso));
+
+    Path output = directory.resolve("output");
+    new ISOExtractor(iso, output).extract();
+    assertDirectoriesEqual(input.resolve("files"), output.resolve("files"));
+  }
+
+  /**
+   * Tests that a file with new contents is written even if it keeps its size and is older than the
+   * ISO, that only changed files are written, and that an ISO with no manifest for its current
+   * contents is not updated.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testUpdateUsesManifest(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path iso = directory.resolve("game.iso");
+    new ISOCreator(input, iso).create(false);
+    assertFalse(Files.isRegularFile(ISOManifest.getPath(iso)));
+    assertFalse(new ISOUpdater(input, iso, ProgressListener.NONE).update());
+
+    // Files modified just before the manifest is written are not trusted, so age them
+    FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 3600000);
+    try (Stream<Path> paths = Files.walk(input.resolve("files"))) {
+      for (Path path : paths.filter(Files::isRegularFile).toList()) {
+        Files.setLastModifiedTime(path, old);
+      }
+    }
+    new ISOUpdater(input, iso, ProgressListener.NONE).create(false);
+    assertTrue(Files.isRegularFile(ISOManifest.getPath(iso)));
+
+    Path changed = input.resolve("files/dir1/0004.dat");
+    FileTime modified = Files.getLastModifiedTime(changed);
+    Files.write(changed, ISOInput.randomBytes(new Random(2), (int) Files.size(changed)));
+    Files.setLastModifiedTime(changed, FileTime.fromMillis(modified.toMillis() - 60000));
+    AtomicLong total = new AtomicLong();
+    assertTrue(new ISOUpdater(input, iso, (done, bytes) -> total.set(bytes)).update());
+    long sysBytes = ISO.BOOT_BIN_LEN + ISO.BI_2_LEN + Files.size(input.resolve("sys/apploader.img"))
+        + Files.size(input.resolve("sys/main.dol")) + Files.size(input.resolve("sys/fst.bin"));
+    assertEquals(sysBytes + Files.size(changed), total.get());
+    Path output = directory.resolve("output");
+    new ISOExtractor(iso, output).extract();
+    assertDirectoriesEqual(input.resolve("files"), output.resolve("files"));
+
+    // Modifying the ISO after it was written makes its contents unknown
+    Files.setLastModifiedTime(iso, FileTime.fromMillis(System.currentTimeMillis() + 60000));
+    byte[] before = Files.readAllBytes(iso);
+    assertFalse(new ISOUpdater(input, iso, ProgressListener.NONE).update());
+    assertArrayEquals(before, Files.readAllBytes(iso));
+
+    Files.delete(ISOManifest.getPath(iso));
+    assertFalse(new ISOUpdater(input, iso, ProgressListener.NONE).update());
+  }
+
+  /**
+   * Tests that an ISO is not updated when the main.dol no longer fits before the fst.bin.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testMainDolTooLarge(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path iso = directory.resolve("game.iso");
+    new ISOCreator(input, iso).create(false);
+    byte[] before = Files.readAllBytes(iso);
+    Files.write(input.resolve("sys/main.dol"), new byte[0x20000]);
+    assertFalse(new ISOUpdater(input, iso, ProgressListener.NONE).update());
+    assertArrayEquals(before, Files.readAllBytes(iso));
+  }
+}
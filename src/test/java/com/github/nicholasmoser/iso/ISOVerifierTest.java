@@ -0,0 +1,110 @@
+package com.github.nicholasmoser.iso;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.nicholasmoser.iso.ISOVerifier.Verification;
+import com.github.nicholasmoser.testing.ISOInput;
+import com.github.nicholasmoser.utils.ProgressListener;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ISOVerifierTest {
+
+  /**
+   * Tests that the ISO and file hashes match hashes computed from the bytes of the ISO and the
+   * input files, and that changed and missing files are found.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testVerify(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path iso = directory.resolve("game.iso");
+    new ISOCreator(input, iso).create(false);
+    byte[] bytes = Files.readAllBytes(iso);
+
+    long[] progress = new long[2];
+    Verification verification = new ISOVerifier(iso, (done, total) -> {
+      progress[0] = done;
+      progress[1] = total;
+    }).verify();
+    assertEquals(bytes.length, progress[0]);
+    assertEquals(bytes.length, progress[1]);
+    assertEquals(bytes.length, verification.size());
+    assertEquals(crc32(bytes), verification.crc32());
+    HexFormat hex = HexFormat.of();
+    assertEquals(hex.formatHex(MessageDigest.getInstance("MD5").digest(bytes)),
+        verification.md5());
+    assertEquals(hex.formatHex(MessageDigest.getInstance("SHA-1").digest(bytes)),
+        verification.sha1());
+    assertTrue(verification.truncatedFiles().isEmpty());
+
+    Map<String, Integer> knownGood = new HashMap<>();
+    knownGood.put("sys/boot.bin", crc32(Files.readAllBytes(input.resolve("sys/boot.bin"))));
+    try (Stream<Path> paths = Files.walk(input.resolve("files"))) {
+      for (Path path : paths.filter(Files::isRegularFile).toList()) {
+        String gamePath = input.relativize(path).toString().replace('\\', '/');
+        knownGood.put(gamePath, crc32(Files.readAllBytes(path)));
+      }
+    }
+    assertEquals(12, knownGood.size() - 1);
+    for (Map.Entry<String, Integer> entry : knownGood.entrySet()) {
+      assertEquals(entry.getValue(), verification.fileCRC32s().get(entry.getKey()));
+    }
+    assertTrue(verification.isKnownGood(knownGood));
+
+    knownGood.put("files/dir1/0004.dat", 0);
+    knownGood.put("files/dir1/0100.dat", 0);
+    assertEquals(List.of("files/dir1/0004.dat"), verification.getChangedFiles(knownGood));
+    assertEquals(List.of("files/dir1/0100.dat"), verification.getMissingFiles(knownGood));
+    assertFalse(verification.isKnownGood(knownGood));
+  }
+
+  /**
+   * Tests that files past the end of a truncated ISO are reported as changed.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testTruncated(@TempDir Path directory) throws Exception {
+    Path input = ISOInput.create(directory.resolve("input"));
+    Path iso = directory.resolve("game.iso");
+    new ISOCreator(input, iso).create(false);
+    Verification full = new ISOVerifier(iso, ProgressListener.NONE).verify();
+    ISOFile last = null;
+    for (ISOItem item : new ISOParser(iso).getISOHeader().getFiles()) {
+      if (item instanceof ISOFile file && (last == null || file.getPos() > last.getPos())) {
+        last = file;
+      }
+    }
+    byte[] bytes = Files.readAllBytes(iso);
+    Files.write(iso, Arrays.copyOf(bytes, last.getPos() + last.getLen() / 2));
+
+    Verification truncated = new ISOVerifier(iso, ProgressListener.NONE).verify();
+    String lastPath = "files/" + last.getGamePath();
+    assertEquals(List.of(lastPath), List.copyOf(truncated.truncatedFiles()));
+    assertEquals(List.of(lastPath), truncated.getChangedFiles(full.fileCRC32s()));
+  }
+
+  /**
+   * @param bytes The bytes to hash.
+   * @return The CRC32 of the bytes.
+   */
+  private static int crc32(byte[] bytes) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(bytes);
+    return (int) crc32.getValue();
+  }
+}
@@ -0,0 +1,73 @@
+package com.github.nicholasmoser.iso;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.github.nicholasmoser.utils.ProgressListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class ISOWriterTest {
+
+  /**
+   * Tests writing files with padding between them and at the end of the ISO.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testWriteWithPadding() throws Exception {
+    Random random = new Random(0);
+    byte[] first = new byte[100];
+    byte[] second = new byte[5000];
+    random.nextBytes(first);
+    random.nextBytes(second);
+    Path firstFile = Files.createTempFile("ISOWriterTest", ".bin");
+    Path secondFile = Files.createTempFile("ISOWriterTest", ".bin");
+    Path iso = Files.createTempFile("ISOWriterTest", ".iso");
+    try {
+      Files.write(firstFile, first);
+      Files.write(secondFile, second);
+      long[] progress = new long[2];
+      try (ISOWriter writer = new ISOWriter(iso, 0x10000, (done, total) -> {
+        progress[0] = done;
+        progress[1] = total;
+      })) {
+        writer.writeAndPad(firstFile, 0x440);
+        assertEquals(0x440, writer.getPosition());
+        writer.padTo(0x8000);
+        writer.write(secondFile);
+        assertEquals(first.length + second.length, progress[0]);
+        assertEquals(0x10000, progress[1]);
+        writer.padTo(0x10000);
+      }
+      byte[] expected = new byte[0x10000];
+      System.arraycopy(first, 0, expected, 0, first.length);
+      System.arraycopy(second, 0, expected, 0x8000, second.length);
+      assertArrayEquals(expected, Files.readAllBytes(iso));
+    } finally {
+      Files.deleteIfExists(firstFile);
+      Files.deleteIfExists(secondFile);
+      Files.deleteIfExists(iso);
+    }
+  }
+
+  /**
+   * Tests that padding to a position before the current position fails.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testPadBackwards() throws Exception {
+    Path iso = Files.createTempFile("ISOWriterTest", ".iso");
+    try (ISOWriter writer = new ISOWriter(iso, 0, ProgressListener.NONE)) {
+      writer.padTo(100);
+      assertThrows(IOException.class, () -> writer.padTo(99));
+    } finally {
+      Files.deleteIfExists(iso);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package com.github.nicholasmoser.testing;
+
+import com.github.nicholasmoser.iso.ISO;
+import com.github.nicholasmoser.utils.ByteUtils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * A class for generating small input directories of sys files and files to build test ISOs from,
+ * for tests that do not need the GNT4 ISO.
+ */
+public class ISOInput {
+
+  /**
+   * Creates sys files and 12 random files in three directories. Every fourth file is a .trk file.
+   *
+   * @param input The directory to create the files in.
+   * @return The directory.
+   * @throws IOException If an I/O error occurs.
+   */
+  public static Path create(Path input) throws IOException {
+    Random random = new Random(0);
+    Path sys = input.resolve("sys");
+    Files.createDirectories(sys);
+    byte[] bootBin = new byte[ISO.BOOT_BIN_LEN];
+    // GameCube magic number
+    System.arraycopy(ByteUtils.fromUint32(0xC2339F3D), 0, bootBin, 28, 4);
+    Files.write(sys.resolve("boot.bin"), bootBin);
+    Files.write(sys.resolve("bi2.bin"), new byte[ISO.BI_2_LEN]);
+    Files.write(sys.resolve("apploader.img"), randomBytes(random, 0x1000));
+    Files.write(sys.resolve("main.dol"), randomBytes(random, 0x10000));
+    Files.write(sys.resolve("fst.bin"), new byte[0]);
+    for (int i = 0; i < 12; i++) {
+      String extension = i % 4 == 3 ? "trk" : "dat";
+      Path file = input.resolve(String.format("files/dir%d/%04d.%s", i % 3, i, extension));
+      Files.createDirectories(file.getParent());
+      Files.write(file, randomBytes(random, 1000 + random.nextInt(50000)));
+    }
+    return input;
+  }
+
+  /**
+   * @param random The random number generator.
+   * @param length The number of bytes.
+   * @return Random bytes.
+   */
+  public static byte[] randomBytes(Random random, int length) {
+    byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+}
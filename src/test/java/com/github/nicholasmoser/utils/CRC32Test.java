@@ -2,9 +2,16 @@ package com.github.nicholasmoser.utils;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
 
@@ -50,4 +57,35 @@ public class CRC32Test {
       Files.deleteIfExists(tempFile);
     }
   }
+
+  /**
+   * Tests that hashing files in parallel matches both hashing each file alone and the Guava CRC32
+   * used by older workspaces, including files larger than the read buffer.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testHashesMatchGuava() throws Exception {
+    Path tempDir = Files.createTempDirectory("CRC32Test");
+    try {
+      Random random = new Random(0);
+      List<Path> files = new ArrayList<>();
+      for (int length : new int[]{0, 1, 0xFFFFF, 0x100000, 0x280001}) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        Path file = tempDir.resolve(length + ".bin");
+        Files.write(file, bytes);
+        files.add(file);
+      }
+      Map<Path, Integer> hashes = CRC32.getHashes(files);
+      assertEquals(files.size(), hashes.size());
+      for (Path file : files) {
+        int guava = Hashing.crc32().hashBytes(Files.readAllBytes(file)).asInt();
+        assertEquals(guava, CRC32.getHash(file));
+        assertEquals(guava, hashes.get(file).intValue());
+      }
+    } finally {
+      MoreFiles.deleteRecursively(tempDir, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
 }
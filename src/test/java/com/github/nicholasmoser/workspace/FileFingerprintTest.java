@@ -0,0 +1,51 @@
+package com.github.nicholasmoser.workspace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class FileFingerprintTest {
+
+  /**
+   * Tests that a fingerprint changes when a file is written and is only trusted when the file was
+   * hashed long enough after it was last modified.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testFingerprint() throws Exception {
+    Path file = Files.createTempFile("FileFingerprintTest", ".dat");
+    try {
+      Files.write(file, new byte[]{1, 2, 3});
+      long modified = TimeUnit.SECONDS.toNanos(1_600_000_000);
+      Files.setLastModifiedTime(file, FileTime.from(modified, TimeUnit.NANOSECONDS));
+      FileFingerprint fingerprint = FileFingerprint.of(file);
+      assertEquals(3, fingerprint.size());
+      assertEquals(modified, fingerprint.modifiedNanos());
+      assertEquals(TimeUnit.NANOSECONDS.toMillis(modified), fingerprint.modifiedMillis());
+      assertEquals(fingerprint, FileFingerprint.of(file));
+
+      // Hashed long after the last modification
+      long verified = FileFingerprint.now();
+      assertTrue(fingerprint.isUnchanged(FileFingerprint.of(file), verified));
+      // Hashed so soon after the last modification that another write could have been missed
+      assertFalse(fingerprint.isUnchanged(FileFingerprint.of(file), modified));
+      // Never verified
+      assertFalse(fingerprint.isUnchanged(FileFingerprint.of(file), 0));
+
+      Files.write(file, new byte[]{7, 8, 9, 10});
+      assertFalse(fingerprint.isUnchanged(FileFingerprint.of(file), verified));
+
+      WorkspaceFile legacy = new WorkspaceFile("files/a.dat", 0, 0, null, false);
+      assertFalse(legacy.isUnchanged(FileFingerprint.of(file)));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
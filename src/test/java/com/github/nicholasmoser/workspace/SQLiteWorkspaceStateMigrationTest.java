@@ -0,0 +1,89 @@
+package com.github.nicholasmoser.workspace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class SQLiteWorkspaceStateMigrationTest {
+
+  /**
+   * The file table before file fingerprints were added.
+   */
+  private static final String CREATE_VERSION_0_FILE_TABLE = """
+      CREATE TABLE file (
+        file_path TEXT,
+        hash INTEGER NOT NULL,
+        modified_dt_tm INTEGER,
+        fpk_file_path TEXT,
+        compressed INTEGER,
+        PRIMARY KEY (file_path, fpk_file_path)
+      );
+      """;
+
+  /**
+   * Tests that loading a database from before file fingerprints adds the fingerprint columns, keeps
+   * the existing files without a fingerprint, and can then store fingerprints.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testMigrate() throws Exception {
+    Path workspaceDir = Files.createTempDirectory("SQLiteWorkspaceStateMigrationTest");
+    Path dbFile = workspaceDir.resolve(SQLiteWorkspaceState.FILE_NAME);
+    try {
+      try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile);
+          Statement stmt = conn.createStatement()) {
+        stmt.execute(CREATE_VERSION_0_FILE_TABLE);
+        stmt.execute("INSERT INTO file VALUES('sys/main.dol', 123, 456, NULL, 0)");
+      }
+      Path file = workspaceDir.resolve("uncompressed/sys/main.dol");
+      Files.createDirectories(file.getParent());
+      Files.write(file, new byte[]{1, 2, 3});
+
+      WorkspaceState state = SQLiteWorkspaceState.load(dbFile);
+      try {
+        List<WorkspaceFile> files = state.getAllFiles();
+        assertEquals(List.of(new WorkspaceFile("sys/main.dol", 123, 456, null, false)), files);
+        assertNull(files.get(0).fingerprint());
+
+        FileFingerprint fingerprint = FileFingerprint.of(file);
+        long verifiedNanos = FileFingerprint.now();
+        state.setFingerprints(Map.of("sys/main.dol", fingerprint), verifiedNanos);
+        WorkspaceFile migrated = state.getAllFiles().get(0);
+        assertEquals(fingerprint, migrated.fingerprint());
+        assertEquals(verifiedNanos, migrated.verifiedNanos());
+      } finally {
+        state.close();
+      }
+
+      // Loading again does not migrate again
+      WorkspaceState reloaded = SQLiteWorkspaceState.load(dbFile);
+      try {
+        assertNotNull(reloaded.getAllFiles().get(0).fingerprint());
+      } finally {
+        reloaded.close();
+      }
+      try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile);
+          Statement stmt = conn.createStatement();
+          ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+        assertTrue(rs.next());
+        assertEquals(SQLiteWorkspaceState.SCHEMA_VERSION, rs.getInt(1));
+      }
+    } finally {
+      MoreFiles.deleteRecursively(workspaceDir, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.github.nicholasmoser.workspace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.github.nicholasmoser.fpk.FPKOptions;
+import com.github.nicholasmoser.gnt4.GNT4FileNames;
+import com.github.nicholasmoser.utils.CRC32;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class SQLiteWorkspaceStateUpdateTest {
+
+  /**
+   * Tests that updating the workspace state only changes the rows of the changed files, including
+   * every FPK a changed file is a child of, and inserts new non-FPK files.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testUpdate() throws Exception {
+    Path workspaceDir = Files.createTempDirectory("SQLiteWorkspaceStateUpdateTest");
+    WorkspaceState state = SQLiteWorkspaceState.create(workspaceDir.resolve("state.db"));
+    try {
+      write(workspaceDir, "sys/main.dol", new byte[]{1, 2, 3});
+      write(workspaceDir, "files/maki/0000.dat", new byte[]{4, 5, 6});
+      state.init(workspaceDir, new FPKOptions(false, true, new GNT4FileNames()));
+      // A child of two FPKs
+      Path child = workspaceDir.resolve("uncompressed/files/chr/gar/3000.sam");
+      Files.createDirectories(child.getParent());
+      Files.write(child, new byte[]{7});
+      state.addFile(new WorkspaceFile("files/chr/gar/3000.sam", 0, 0,
+          "files/fpack/chr/gar3000.fpk", false));
+      state.addFile(new WorkspaceFile("files/chr/gar/3000.sam", 0, 0,
+          "files/fpack/story/story0115.fpk", false));
+      List<WorkspaceFile> before = getAllFiles(state);
+
+      Files.write(workspaceDir.resolve("uncompressed/sys/main.dol"), new byte[]{8, 9});
+      write(workspaceDir, "files/new.dat", new byte[]{10});
+      state.update(workspaceDir, Set.of("sys/main.dol", "files/chr/gar/3000.sam",
+          "files/new.dat"));
+
+      List<WorkspaceFile> after = getAllFiles(state);
+      assertEquals(before.size() + 1, after.size());
+      for (WorkspaceFile file : after) {
+        Path path = workspaceDir.resolve("uncompressed").resolve(file.filePath());
+        if (file.filePath().equals("files/maki/0000.dat")) {
+          assertEquals(before.stream()
+              .filter(old -> old.filePath().equals(file.filePath()))
+              .findFirst().orElseThrow(), file);
+        } else {
+          assertEquals(CRC32.getHash(path), file.hash());
+          assertEquals(Files.getLastModifiedTime(path).toMillis(), file.modifiedDtTm());
+        }
+      }
+
+      // A failed update does not change any rows
+      Files.write(workspaceDir.resolve("uncompressed/sys/main.dol"), new byte[]{11});
+      assertThrows(IOException.class,
+          () -> state.update(workspaceDir, List.of("sys/main.dol", "files/missing.dat")));
+      assertEquals(after, getAllFiles(state));
+    } finally {
+      state.close();
+      MoreFiles.deleteRecursively(workspaceDir, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
+  /**
+   * Writes a file to both the compressed and uncompressed directories of a workspace.
+   *
+   * @param workspaceDir The workspace directory.
+   * @param filePath     The file path.
+   * @param bytes        The bytes of the file.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static void write(Path workspaceDir, String filePath, byte[] bytes) throws IOException {
+    for (String directory : List.of("compressed", "uncompressed")) {
+      Path path = workspaceDir.resolve(directory).resolve(filePath);
+      Files.createDirectories(path.getParent());
+      Files.write(path, bytes);
+    }
+  }
+
+  /**
+   * @param state The workspace state.
+   * @return All files in the workspace state sorted by file path and FPK file path.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static List<WorkspaceFile> getAllFiles(WorkspaceState state) throws IOException {
+    List<WorkspaceFile> files = state.getAllFiles();
+    files.sort(Comparator.comparing(WorkspaceFile::filePath).thenComparing(
+        WorkspaceFile::fpkFilePath, Comparator.nullsFirst(Comparator.naturalOrder())));
+    return files;
+  }
+}
@@ -0,0 +1,104 @@
+package com.github.nicholasmoser.workspace;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+public class SnapshotStoreTest {
+
+  /**
+   * Tests that files with the same contents are stored once, that each build is recorded in the
+   * last build snapshot and its own snapshot, and that a named snapshot can be restored.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testSnapshots() throws Exception {
+    Path directory = Files.createTempDirectory("SnapshotStoreTest");
+    try {
+      Path root = directory.resolve("uncompressed");
+      write(root, "sys/main.dol", new byte[]{1, 2, 3});
+      write(root, "files/maki/0000.dat", new byte[]{4, 5});
+      write(root, "files/maki/0001.dat", new byte[]{4, 5});
+      SnapshotStore store = new SnapshotStore(directory.resolve("snapshots"));
+      assertEquals(List.of(), store.getSnapshotNames());
+
+      store.createSnapshot("original", root,
+          List.of("sys/main.dol", "files/maki/0000.dat", "files/maki/0001.dat", "files/none.dat"));
+      Map<String, String> original = store.getSnapshot("original");
+      assertEquals(Set.of("sys/main.dol", "files/maki/0000.dat", "files/maki/0001.dat"),
+          original.keySet());
+      assertEquals(original.get("files/maki/0000.dat"), original.get("files/maki/0001.dat"));
+      assertEquals(2, countBlobs(directory.resolve("snapshots/objects")));
+
+      // Storing a file that is already stored does not copy it again
+      Path mainBlob = store.getBlob(original.get("sys/main.dol")).orElseThrow();
+      FileTime stored = FileTime.fromMillis(0);
+      Files.setLastModifiedTime(mainBlob, stored);
+      assertEquals(original.get("sys/main.dol"), store.store(root.resolve("sys/main.dol")));
+      assertEquals(stored, Files.getLastModifiedTime(mainBlob));
+      assertEquals(2, countBlobs(directory.resolve("snapshots/objects")));
+
+      write(root, "sys/main.dol", new byte[]{6});
+      String build = store.recordBuild(root, List.of("sys/main.dol"));
+      Map<String, String> lastBuild = store.getSnapshot(SnapshotStore.LAST_BUILD);
+      assertEquals(Set.of("sys/main.dol"), lastBuild.keySet());
+      assertEquals(lastBuild, store.getSnapshot(build));
+      assertArrayEquals(new byte[]{6},
+          Files.readAllBytes(store.getBlob(lastBuild.get("sys/main.dol")).orElseThrow()));
+      assertEquals(3, countBlobs(directory.resolve("snapshots/objects")));
+      assertEquals(List.of(build, SnapshotStore.LAST_BUILD, "original"),
+          store.getSnapshotNames());
+
+      write(root, "files/maki/0000.dat", new byte[]{7});
+      assertEquals(3, store.restoreSnapshot("original", root));
+      assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(root.resolve("sys/main.dol")));
+      assertArrayEquals(new byte[]{4, 5}, Files.readAllBytes(root.resolve("files/maki/0000.dat")));
+
+      assertThrows(IllegalArgumentException.class,
+          () -> store.createSnapshot("../escape", root, List.of()));
+      assertThrows(IllegalArgumentException.class,
+          () -> store.createSnapshot(SnapshotStore.LAST_BUILD, root, List.of()));
+      assertThrows(IOException.class, () -> store.getSnapshot("missing"));
+      assertTrue(store.getSnapshotIfExists("missing").isEmpty());
+    } finally {
+      MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
+  /**
+   * @param root     The root directory.
+   * @param filePath The file path relative to the root directory.
+   * @param bytes    The bytes of the file.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static void write(Path root, String filePath, byte[] bytes) throws IOException {
+    Path path = root.resolve(filePath);
+    Files.createDirectories(path.getParent());
+    Files.write(path, bytes);
+  }
+
+  /**
+   * @param objects The objects directory of a snapshot store.
+   * @return The number of blobs in the store.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static long countBlobs(Path objects) throws IOException {
+    try (Stream<Path> paths = Files.walk(objects)) {
+      return paths.filter(Files::isRegularFile).count();
+    }
+  }
+}
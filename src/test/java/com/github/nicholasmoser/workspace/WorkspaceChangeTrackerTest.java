@@ -0,0 +1,96 @@
+package com.github.nicholasmoser.workspace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class WorkspaceChangeTrackerTest {
+
+  // The longest time to wait for the watch service to report a change.
+  private static final long TIMEOUT_MILLIS = 10000;
+
+  /**
+   * Tests that modified files, new files and files in new directories are reported as dirty, and
+   * that the first drain asks for a scan of every file.
+   *
+   * @throws Exception If any exception occurs.
+   */
+  @Test
+  public void testDirtyFiles() throws Exception {
+    Path root = Files.createTempDirectory("WorkspaceChangeTrackerTest");
+    try {
+      Files.createDirectories(root.resolve("files/maki"));
+      Files.write(root.resolve("files/maki/0000.dat"), new byte[]{1});
+      Files.createDirectories(root.resolve("sys"));
+      Files.write(root.resolve("sys/main.dol"), new byte[]{2});
+      try (WorkspaceChangeTracker tracker = WorkspaceChangeTracker.start(root)) {
+        assertFalse(tracker.drainDirtyFiles().isPresent());
+        assertEquals(Optional.of(Set.of()), tracker.drainDirtyFiles());
+
+        Files.write(root.resolve("files/maki/0000.dat"), new byte[]{3});
+        Files.write(root.resolve("files/maki/0001.dat"), new byte[]{4});
+        assertEquals(Set.of("files/maki/0000.dat", "files/maki/0001.dat"),
+            awaitDirtyFiles(tracker, 2));
+
+        Path newDirectory = Files.createDirectories(root.resolve("files/chr/gar"));
+        Files.write(newDirectory.resolve("0000.dat"), new byte[]{5});
+        Set<String> dirtyFiles = awaitDirtyFiles(tracker, 1, "files/chr/gar/0000.dat");
+        assertTrue(dirtyFiles.contains("files/chr/gar/0000.dat"));
+
+        tracker.markDirty(List.of("sys/main.dol"));
+        assertEquals(Optional.of(Set.of("sys/main.dol")), tracker.drainDirtyFiles());
+      }
+    } finally {
+      MoreFiles.deleteRecursively(root, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
+  /**
+   * Drains the dirty files of a tracker until the expected number of files are dirty.
+   *
+   * @param tracker The change tracker.
+   * @param count   The number of dirty files to wait for.
+   * @return The dirty files.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  private static Set<String> awaitDirtyFiles(WorkspaceChangeTracker tracker, int count)
+      throws InterruptedException {
+    return awaitDirtyFiles(tracker, count, null);
+  }
+
+  /**
+   * Drains the dirty files of a tracker until the expected number of files are dirty and the given
+   * file is one of them.
+   *
+   * @param tracker  The change tracker.
+   * @param count    The number of dirty files to wait for.
+   * @param filePath The file path to wait for, or null to only wait for the count.
+   * @return The dirty files.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  private static Set<String> awaitDirtyFiles(WorkspaceChangeTracker tracker, int count,
+      String filePath) throws InterruptedException {
+    Set<String> dirtyFiles = new HashSet<>();
+    long end = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (System.currentTimeMillis() < end) {
+      Optional<Set<String>> drained = tracker.drainDirtyFiles();
+      assertTrue(drained.isPresent());
+      dirtyFiles.addAll(drained.get());
+      if (dirtyFiles.size() >= count && (filePath == null || dirtyFiles.contains(filePath))) {
+        break;
+      }
+      Thread.sleep(50);
+    }
+    return dirtyFiles;
+  }
+}
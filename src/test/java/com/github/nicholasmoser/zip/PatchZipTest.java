@@ -1,8 +1,18 @@
 package com.github.nicholasmoser.zip;
 
+import com.github.nicholasmoser.iso.ISO;
+import com.github.nicholasmoser.iso.ISOCreator;
+import com.github.nicholasmoser.iso.ISOFileSystem;
+import com.github.nicholasmoser.utils.ByteUtils;
+import com.github.nicholasmoser.utils.ProgressListener;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -23,6 +33,69 @@ public class PatchZipTest {
     PatchZip.patch(patchZip, outputDir);
   }
 
+  /**
+   * Tests that a patch zip can be used to patch an ISO without extracting it.
+   *
+   * @throws Exception If any exception occurs
+   */
+  @Test
+  public void testPatchISO() throws Exception {
+    Path directory = Files.createTempDirectory("PatchZipTest");
+    try {
+      Path iso = createISO(directory);
+      Path patchZip = directory.resolve("patch.zip");
+      try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(patchZip))) {
+        zos.putNextEntry(new ZipEntry("files/dir/a.bin"));
+        zos.write(new byte[]{7, 8, 9, 10, 11});
+        zos.closeEntry();
+      }
+      Path patched = directory.resolve("patched.iso");
+      PatchZip.patchISO(patchZip, iso, patched, false, ProgressListener.NONE);
+      try (ISOFileSystem fileSystem = ISOFileSystem.open(patched)) {
+        Assertions.assertArrayEquals(new byte[]{7, 8, 9, 10, 11},
+            Files.readAllBytes(fileSystem.getPath("/files/dir/a.bin")));
+        Assertions.assertArrayEquals(new byte[]{4, 5, 6},
+            Files.readAllBytes(fileSystem.getPath("/files/b.bin")));
+      }
+    } finally {
+      MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
+  /**
+   * Tests that a patch zip that adds files to an ISO rebuilds the ISO with the new files.
+   *
+   * @throws Exception If any exception occurs
+   */
+  @Test
+  public void testPatchISOAddedFiles() throws Exception {
+    Path directory = Files.createTempDirectory("PatchZipTest");
+    try {
+      Path iso = createISO(directory);
+      Path patchZip = directory.resolve("patch.zip");
+      try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(patchZip))) {
+        zos.putNextEntry(new ZipEntry("files/dir/a.bin"));
+        zos.write(new byte[]{7, 8, 9, 10, 11});
+        zos.closeEntry();
+        zos.putNextEntry(new ZipEntry("files/new/c.bin"));
+        zos.write(new byte[]{12, 13});
+        zos.closeEntry();
+      }
+      Path patched = directory.resolve("patched.iso");
+      PatchZip.patchISO(patchZip, iso, patched, false, ProgressListener.NONE);
+      try (ISOFileSystem fileSystem = ISOFileSystem.open(patched)) {
+        Assertions.assertArrayEquals(new byte[]{7, 8, 9, 10, 11},
+            Files.readAllBytes(fileSystem.getPath("/files/dir/a.bin")));
+        Assertions.assertArrayEquals(new byte[]{4, 5, 6},
+            Files.readAllBytes(fileSystem.getPath("/files/b.bin")));
+        Assertions.assertArrayEquals(new byte[]{12, 13},
+            Files.readAllBytes(fileSystem.getPath("/files/new/c.bin")));
+      }
+    } finally {
+      MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
   /**
    * Tests that a patch zip with an invalid directory will throw an IOException.
    *
@@ -55,4 +128,30 @@ public class PatchZipTest {
     Path outputDir = Paths.get("src/test/resources/zip/test");
     Assertions.assertThrows(IOException.class, () -> PatchZip.patch(patchZip, outputDir));
   }
+
+  /**
+   * Creates an ISO with two files, {@code files/dir/a.bin} and {@code files/b.bin}.
+   *
+   * @param directory The directory to create the ISO in.
+   * @return The path to the ISO.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static Path createISO(Path directory) throws IOException {
+    Path input = directory.resolve("input");
+    Files.createDirectories(input.resolve("sys"));
+    byte[] bootBin = new byte[ISO.BOOT_BIN_LEN];
+    // GameCube magic number
+    System.arraycopy(ByteUtils.fromUint32(0xC2339F3D), 0, bootBin, 28, 4);
+    Files.write(input.resolve("sys/boot.bin"), bootBin);
+    Files.write(input.resolve("sys/bi2.bin"), new byte[ISO.BI_2_LEN]);
+    Files.write(input.resolve("sys/apploader.img"), new byte[0x100]);
+    Files.write(input.resolve("sys/main.dol"), new byte[0x1000]);
+    Files.write(input.resolve("sys/fst.bin"), new byte[0]);
+    Files.createDirectories(input.resolve("files/dir"));
+    Files.write(input.resolve("files/dir/a.bin"), new byte[]{1, 2, 3});
+    Files.write(input.resolve("files/b.bin"), new byte[]{4, 5, 6});
+    Path iso = directory.resolve("game.iso");
+    new ISOCreator(input, iso).create(false);
+    return iso;
+  }
 }